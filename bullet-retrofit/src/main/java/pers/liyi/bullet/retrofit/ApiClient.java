@@ -2,34 +2,60 @@ package pers.liyi.bullet.retrofit;
 
 import android.content.Context;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.annotations.NonNull;
+import io.reactivex.functions.Action;
 import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
+import pers.liyi.bullet.retrofit.adapter.ApiObservable;
+import pers.liyi.bullet.retrofit.circuit.CircuitBreakerRegistry;
+import pers.liyi.bullet.retrofit.circuit.CircuitStateChange;
+import pers.liyi.bullet.retrofit.compression.CompressionStats;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
+import pers.liyi.bullet.retrofit.constant.RequestPriority;
+import pers.liyi.bullet.retrofit.download.DownloadManager;
 import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
 import pers.liyi.bullet.retrofit.listener.OnProgressListener;
 import pers.liyi.bullet.retrofit.listener.OnSerialAcceptListener;
+import pers.liyi.bullet.retrofit.log.NetworkLogger;
+import pers.liyi.bullet.retrofit.metrics.MetricsRegistry;
+import pers.liyi.bullet.retrofit.metrics.MetricsSnapshot;
+import pers.liyi.bullet.retrofit.outbox.OfflineOutbox;
+import pers.liyi.bullet.retrofit.pipeline.ApiPipeline;
 import pers.liyi.bullet.retrofit.response.ApiResponse;
+import pers.liyi.bullet.retrofit.response.ApiStreamResponse;
+import pers.liyi.bullet.retrofit.route.HostPool;
+import pers.liyi.bullet.retrofit.route.HostRoutingTable;
+import pers.liyi.bullet.retrofit.scheduler.PriorityDispatcher;
+import pers.liyi.bullet.retrofit.stream.NdjsonParser;
+import pers.liyi.bullet.retrofit.stream.ResponseStream;
+import pers.liyi.bullet.retrofit.stream.SseParser;
+import pers.liyi.bullet.retrofit.stream.StreamParser;
+import pers.liyi.bullet.retrofit.upload.MultiFileUploader;
+import pers.liyi.bullet.retrofit.upload.UploadManager;
+import okhttp3.ResponseBody;
 import retrofit2.Retrofit;
 
 
 public class ApiClient {
     private static volatile ApiClient INSTANCE;
     // 订阅统一管理器
-    private static HashMap<String, ApiResponse> sDisposableSite;
+    private static final ApiRequestRegistry sRequestRegistry = new ApiRequestRegistry();
     // 下载进度监听管理器
     private static HashMap<String, OnProgressListener> sDownloadProgressSite;
     // Retrofit2.x 管理器
     private static RetrofitManager sRetrofitManager;
 
     private ApiClient() {
-        sDisposableSite = new HashMap<>();
     }
 
     public static ApiClient getInstance() {
@@ -49,6 +75,8 @@ public class ApiClient {
 
     public void init(@NonNull Context context, @NonNull ApiClientConfig config) {
         sRetrofitManager = new RetrofitManager(context, config);
+        // 预先解析已配置的域名和 prewarmHosts 并预热连接，相同的域名只预热一次
+        sRetrofitManager.warmUpOnInit();
     }
 
     public void init(@NonNull Context context, @NonNull Retrofit retrofit) {
@@ -77,16 +105,19 @@ public class ApiClient {
      * @param listener   结果回调
      */
     public <T> ApiResponse call(@NonNull Observable<T> observable, ApiResponseListener<T> listener) {
-        return add(observable
-                // 在 io 线程中进行网络请求
-                .subscribeOn(Schedulers.io())
-                // 回到主线程处理返回结果
-                .observeOn(AndroidSchedulers.mainThread())
-                // 订阅
-                .subscribeWith(new ApiResponse<T>(listener))
-        );
+        return call(observable, new ApiResponse<T>(listener));
     }
 
+    /**
+     * 按优先级订阅 Api 请求
+     *
+     * @param observable 被观察者
+     * @param priority   优先级，取值见 {@link RequestPriority}
+     * @param listener   结果回调
+     */
+    public <T> ApiResponse call(@NonNull Observable<T> observable, int priority, ApiResponseListener<T> listener) {
+        return call(observable, new ApiResponse<T>(listener).setPriority(priority));
+    }
 
     /**
      * 订阅 Api 请求
@@ -95,14 +126,93 @@ public class ApiClient {
      * @param observer   观察者
      */
     public <T> ApiResponse call(@NonNull Observable<T> observable, ApiResponse<T> observer) {
+        if (observer == null) return null;
         return add(observable
-                // 在 io 线程中进行网络请求
+                        // 在 io 线程（开启优先级调度时为对应优先级的线程）中进行网络请求
+                        .subscribeOn(getRequestScheduler(observable, observer))
+                        // 回到主线程处理返回结果
+                        .observeOn(AndroidSchedulers.mainThread()),
+                observer
+        );
+    }
+
+    /**
+     * 订阅有依赖关系的多个请求，中间步骤均在 io 线程中执行，只有最终结果回到主线程
+     *
+     * @param pipeline 请求流水线
+     * @param listener 结果回调
+     */
+    public <T> ApiResponse call(@NonNull ApiPipeline<T> pipeline, ApiResponseListener<T> listener) {
+        return call(pipeline.toObservable(), new ApiResponse<T>(listener));
+    }
+
+    /**
+     * 按优先级订阅有依赖关系的多个请求
+     *
+     * @param pipeline 请求流水线
+     * @param priority 优先级，取值见 {@link RequestPriority}，决定第一个请求所在的线程
+     * @param listener 结果回调
+     */
+    public <T> ApiResponse call(@NonNull ApiPipeline<T> pipeline, int priority, ApiResponseListener<T> listener) {
+        return call(pipeline.toObservable(), new ApiResponse<T>(listener).setPriority(priority));
+    }
+
+    /**
+     * 订阅流式响应（NDJSON、SSE 等），每解析出一条记录回调一次 onSuccess
+     *
+     * @param call     返回流式响应的请求，接口需要使用 @Streaming 注解并返回 Call&lt;ResponseBody&gt;
+     * @param parser   记录解析器，例如 {@link NdjsonParser}、{@link SseParser}
+     * @param listener 结果回调
+     */
+    public <T> ApiStreamResponse<T> stream(@NonNull retrofit2.Call<ResponseBody> call, @NonNull StreamParser<T> parser,
+                                           ApiResponseListener<T> listener) {
+        return stream(ResponseStream.flowable(call, parser), new ApiStreamResponse<T>(listener));
+    }
+
+    /**
+     * 订阅流式响应
+     *
+     * @param flowable 支持背压的被观察者，例如 {@link ResponseStream#flowable}
+     * @param observer 观察者
+     */
+    public <T> ApiStreamResponse<T> stream(@NonNull Flowable<T> flowable, ApiStreamResponse<T> observer) {
+        if (observer == null) return null;
+        // 先注册再订阅，保证请求结束时的移除操作一定发生在注册之后
+        final String tag = sRequestRegistry.register(observer);
+        final ApiStreamResponse<T> subscriber = observer;
+        flowable
+                // 流式响应会长时间占用线程，不使用优先级调度
                 .subscribeOn(Schedulers.io())
-                // 回到主线程处理返回结果
+                // 回到主线程处理返回结果，主线程处理不过来时暂停读取
                 .observeOn(AndroidSchedulers.mainThread())
-                // 订阅
-                .subscribeWith(observer)
-        );
+                .doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        sRequestRegistry.unregister(tag, subscriber);
+                    }
+                })
+                .subscribe(observer);
+        return observer;
+    }
+
+    /**
+     * 获取执行请求的调度器，优先使用 ApiResponse 中设置的优先级，其次是接口上 @Priority 的配置
+     */
+    private Scheduler getRequestScheduler(Observable<?> observable, ApiResponse<?> observer) {
+        PriorityDispatcher dispatcher = sRetrofitManager != null ? sRetrofitManager.getPriorityDispatcher() : null;
+        if (dispatcher == null) {
+            return Schedulers.io();
+        }
+        int priority = observer.getPriority();
+        if (observable instanceof ApiObservable) {
+            ApiObservable<?> apiObservable = (ApiObservable<?>) observable;
+            if (priority == RequestPriority.UNSPECIFIED) {
+                priority = apiObservable.getPriority();
+            }
+            // 域名在请求被分发时才在工作线程中解析
+            return dispatcher.scheduler(priority == RequestPriority.UNSPECIFIED ? RequestPriority.NORMAL : priority, apiObservable);
+        }
+        return dispatcher.scheduler(priority == RequestPriority.UNSPECIFIED ? RequestPriority.NORMAL : priority, (String) null);
     }
 
     /**
@@ -115,10 +225,13 @@ public class ApiClient {
      * @param <F>           第一个请求的参数类型
      * @param <S>           第二个请求的参数类型
      * @return 订阅关系
+     * @deprecated 第一个请求的结果需要回到主线程回调后才会发起第二个请求，
+     * 请使用 {@link ApiPipeline} 和 {@link #call(ApiPipeline, ApiResponseListener)}
      */
+    @Deprecated
     public <F, S> ApiResponse callSerially(@NonNull Observable<F> observable1, final OnSerialAcceptListener<F> firstListener,
                                            @NonNull final Observable<S> observable2, ApiResponse response) {
-        return add(observable1
+        return add((Observable) observable1
                 // 在 io 线程中进行网络请求
                 .subscribeOn(Schedulers.io())
                 // 回到主线程处理返回结果
@@ -132,31 +245,28 @@ public class ApiClient {
                         return observable2;
                     }
                 }).subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribeWith(response));
+                .observeOn(AndroidSchedulers.mainThread()), response);
     }
 
 
     /**
-     * 将请求添加到管理类中
+     * 将请求添加到管理类中，并在请求结束（完成、失败或取消）后自动移除
      *
-     * @param observer
+     * @param observable 被观察者
+     * @param observer   观察者
      */
-    private <T> ApiResponse add(ApiResponse<T> observer) {
+    private <T> ApiResponse add(Observable<T> observable, final ApiResponse<T> observer) {
         if (observer == null) return null;
-        if (sDisposableSite == null) {
-            sDisposableSite = new HashMap<>();
-        }
-        String tag = observer.getTag();
-        if (tag == null) {
-            tag = new Random().nextInt(1000) + "";
-        } else {
-            // 如果已经存在相同的请求，则先取消原来的请求，再将新的请求加入管理类
-            if (sDisposableSite.containsKey(tag)) {
-                cancel(tag);
-            }
-        }
-        sDisposableSite.put(tag, observer);
+        // 先注册再订阅，保证请求结束时的移除操作一定发生在注册之后
+        final String tag = sRequestRegistry.register(observer);
+        observable
+                .doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        sRequestRegistry.unregister(tag, observer);
+                    }
+                })
+                .subscribe(observer);
         return observer;
     }
 
@@ -166,30 +276,203 @@ public class ApiClient {
      * @param tag 请求标记
      */
     public void cancel(@NonNull String tag) {
-        if (sDisposableSite != null && !sDisposableSite.isEmpty()) {
-            ApiResponse disposable = sDisposableSite.get(tag);
-            if (disposable != null) {
-                disposable.cancel();
-            }
-            sDisposableSite.remove(tag);
-        }
+        sRequestRegistry.cancel(tag);
     }
 
     /**
      * 取消所有的请求
      */
     public void cancelAll() {
-        if (sDisposableSite != null && !sDisposableSite.isEmpty()) {
-            for (Map.Entry<String, ApiResponse> entry : sDisposableSite.entrySet()) {
-                if (entry.getValue() != null) {
-                    entry.getValue().cancel();
-                }
-            }
-            sDisposableSite.clear();
-        }
+        sRequestRegistry.cancelAll();
         removeAllDownloadProgressListener();
     }
 
+    /**
+     * 获取当前正在进行的请求数量
+     */
+    public int getInFlightCount() {
+        return sRequestRegistry.size();
+    }
+
+    /**
+     * 获取当前正在进行的、标记以指定前缀开头的请求数量，可用于观察某一类请求的并发压力
+     *
+     * @param tagPrefix 请求标记前缀
+     */
+    public int getInFlightCount(@NonNull String tagPrefix) {
+        return sRequestRegistry.count(tagPrefix);
+    }
+
+    /**
+     * 获取网络连接状态监听器，可通过 {@link ConnectivityMonitor#observe()} 订阅在线/离线状态的切换
+     */
+    public ConnectivityMonitor getConnectivityMonitor() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getConnectivityMonitor();
+    }
+
+    /**
+     * 获取熔断器注册表，未开启熔断时返回 null，
+     * 可通过 {@link CircuitBreakerRegistry#getState(String)} 查询域名的熔断状态
+     */
+    public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getCircuitBreakerRegistry();
+    }
+
+    /**
+     * 熔断器状态变化的事件流，未开启熔断时不会发出任何事件
+     */
+    public Observable<CircuitStateChange> observeCircuitState() {
+        CircuitBreakerRegistry registry = getCircuitBreakerRegistry();
+        return registry != null ? registry.observe() : Observable.<CircuitStateChange>never();
+    }
+
+    /**
+     * 在后台预先解析域名，需要开启 DNS 缓存
+     */
+    public void prefetchDns(@NonNull String... urls) {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        sRetrofitManager.prefetchDns(urls);
+    }
+
+    /**
+     * 预热域名的连接，之后发往这些域名的请求可以直接复用已建立的连接
+     */
+    public void prewarmConnections(@NonNull String... urls) {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        sRetrofitManager.prewarmConnections(urls);
+    }
+
+    /**
+     * 获取请求统计数据的注册表，未开启请求统计时返回 null
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getMetricsRegistry();
+    }
+
+    /**
+     * 所有接口各个阶段耗时的 p50/p95/p99 快照，按整个请求的 p95 耗时从高到低排序，未开启请求统计时返回空列表
+     */
+    public List<MetricsSnapshot> getMetricsSnapshot() {
+        MetricsRegistry registry = getMetricsRegistry();
+        return registry != null ? registry.snapshot() : Collections.<MetricsSnapshot>emptyList();
+    }
+
+    /**
+     * 获取网络日志写入器，非调试模式下未开启网络日志时返回 null，
+     * 可通过 {@link NetworkLogger#flush()} 和 {@link NetworkLogger#getLogFile()} 获取完整的日志文件
+     */
+    public NetworkLogger getNetworkLogger() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getNetworkLogger();
+    }
+
+    /**
+     * 获取压缩统计，未开启压缩协商时返回 null
+     */
+    public CompressionStats getCompressionStats() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getCompressionStats();
+    }
+
+    /**
+     * 获取离线发件箱，未开启离线发件箱时返回 null，
+     * 可通过 {@link OfflineOutbox#setListener(ApiResponseListener)} 监听网络恢复后重新发送的结果
+     */
+    public OfflineOutbox getOutbox() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getOutbox();
+    }
+
+    /**
+     * 获取负载均衡的域名池，未设置 loadBalanceHosts 时返回 null，
+     * 可通过 {@link HostPool#getHosts()} 查询每个域名的延迟、正在进行的请求数和摘除状态
+     */
+    public HostPool getHostPool() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getHostPool();
+    }
+
+    /**
+     * 获取支持断点续传的下载管理器
+     */
+    public DownloadManager getDownloadManager() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getDownloadManager();
+    }
+
+    /**
+     * 获取支持断点续传的分块上传管理器
+     */
+    public UploadManager getUploadManager() {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return sRetrofitManager.getUploadManager();
+    }
+
+    /**
+     * 创建多文件并行上传器
+     *
+     * @param requestFactory 为每个文件创建上传请求，例如 {@link MultiFileUploader#multipart}
+     */
+    public MultiFileUploader createMultiFileUploader(@NonNull MultiFileUploader.RequestFactory requestFactory) {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        return new MultiFileUploader(sRetrofitManager.getTransferOkHttpClient(), requestFactory);
+    }
+
+    /**
+     * 在运行时更换多域名配置，之后发起的请求立即生效
+     *
+     * @param hostMap key -> BaseUrl
+     */
+    public void updateHostMap(Map<String, String> hostMap) {
+        setHostRoutingTable(HostRoutingTable.compile(hostMap));
+    }
+
+    /**
+     * 在运行时更换域名路由表，之后发起的请求立即生效
+     */
+    public void setHostRoutingTable(@NonNull HostRoutingTable table) {
+        if (sRetrofitManager == null) {
+            throw new NullPointerException("Please initialize RetrofitManager first...");
+        }
+        sRetrofitManager.setHostRoutingTable(table);
+    }
+
+    /**
+     * 清空内存缓存
+     */
+    public void clearMemoryCache() {
+        if (sRetrofitManager != null && sRetrofitManager.getMemoryCache() != null) {
+            sRetrofitManager.getMemoryCache().evictAll();
+        }
+    }
+
     /**
      * 添加下载进度监听
      *
@@ -231,15 +514,14 @@ public class ApiClient {
 
     public void clear() {
         cancelAll();
-        if (sDisposableSite != null) {
-            sDisposableSite.clear();
-            sDisposableSite = null;
-        }
         if (sDownloadProgressSite != null) {
             sDownloadProgressSite.clear();
             ;
             sDownloadProgressSite = null;
         }
+        if (sRetrofitManager != null) {
+            sRetrofitManager.release();
+        }
         sRetrofitManager = null;
     }
 }
@@ -1,9 +1,18 @@
 package pers.liyi.bullet.retrofit;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.net.ssl.HostnameVerifier;
 
+import okhttp3.Dns;
+import pers.liyi.bullet.retrofit.batch.BatchCodec;
+import pers.liyi.bullet.retrofit.compression.ContentDecoder;
+import pers.liyi.bullet.retrofit.log.NetworkLogger;
+import pers.liyi.bullet.retrofit.metrics.MetricsReporter;
+import pers.liyi.bullet.retrofit.route.HostPool;
+import pers.liyi.bullet.retrofit.route.HostRoutingTable;
+
 
 public class ApiClientConfig {
     /**
@@ -18,6 +27,92 @@ public class ApiClientConfig {
     private int readTimeout;
     private int writeTimeout;
 
+    /**
+     * 连接和线程池相关
+     */
+    // 连接池中最多保留的空闲连接数
+    private int maxIdleConnections;
+    // 空闲连接的保留时间，单位秒
+    private int keepAliveDuration;
+    // OkHttp 同时执行的最大异步请求数，只对 enqueue 的请求生效（ApiClient 的请求是同步执行的，并发数由调度线程决定）
+    private int maxRequests;
+    // 同一个域名同时执行的最大请求数，同时作用于 OkHttp 的异步请求和优先级调度
+    private int maxRequestsPerHost;
+    // 是否优先使用 HTTP/2，关闭时只使用 HTTP/1.1
+    private boolean http2Enable;
+    // OkHttp 执行异步请求的线程池，为 null 时使用 OkHttp 默认的线程池，可以传入应用中共享的线程池
+    private ExecutorService dispatcherExecutor;
+    // 启动时需要预热连接的域名
+    private String[] prewarmHosts;
+    // 每个域名预热的连接数
+    private int prewarmConnectionsPerHost;
+
+    /**
+     * DNS 相关
+     */
+    // 实际执行查询的 DNS，为 null 时使用系统的 DNS
+    private Dns dns;
+    // 是否缓存 DNS 解析结果
+    private boolean dnsCacheEnable;
+    // 解析结果的有效期，单位秒
+    private int dnsCacheTtl;
+    // 过期后仍可返回旧结果并在后台刷新的时间，单位秒
+    private int dnsCacheStaleTtl;
+    // 初始化时是否在后台预先解析 host、hostMap 等已配置的域名并预热连接
+    private boolean warmUpOnInit;
+
+    /**
+     * 请求统计相关
+     */
+    // 是否统计请求各个阶段的耗时
+    private boolean metricsEnable;
+    // 最多统计的接口数量
+    private int metricsMaxEndpoints;
+    // 定期输出统计数据的间隔，单位秒，小于等于 0 时不定期输出
+    private int metricsReportInterval;
+    // 统计数据的输出方式，为 null 时使用 Logcat 输出
+    private MetricsReporter metricsReporter;
+
+    /**
+     * 网络日志相关，调试模式下始终输出到 Logcat
+     */
+    // 是否将网络日志写入文件，正式环境中建议配合较低的采样率使用
+    private boolean networkLogEnable;
+    // 采样率，0 ~ 1
+    private double networkLogSampleRate;
+    // 请求体和响应体最多截取的字节数，为 0 时不截取
+    private long networkLogMaxBodyBytes;
+    // 需要脱敏的请求头和响应头
+    private String[] networkLogRedactHeaders;
+    // 缓冲区的容量，写入不及时的记录会被丢弃
+    private int networkLogBufferSize;
+    // 单个日志文件的大小上限
+    private long networkLogMaxFileSize;
+    // 最多保留的日志文件数量
+    private int networkLogMaxFiles;
+
+    /**
+     * 压缩相关
+     */
+    // 是否开启压缩协商，开启后由 Bullet 代替 OkHttp 解码响应体并统计节省的流量
+    private boolean compressionEnable;
+    // 使用 gzip 压缩请求体的最小字节数，为 0 时不压缩请求体，需要服务器支持
+    private long requestCompressionThreshold;
+    // 额外的响应体解码器，例如 Brotli、zstd，排在前面的编码优先
+    private ContentDecoder[] contentDecoders;
+
+    /**
+     * 离线发件箱相关，只对配置了 @Outbox 注解的修改类请求生效
+     */
+    // 是否开启离线发件箱
+    private boolean outboxEnable;
+    // 网络恢复后重新发送时的最大并发数，为 1 时严格按顺序发送
+    private int outboxMaxConcurrency;
+    // 可以暂存的请求体大小上限
+    private long outboxMaxBodySize;
+    // 同一个请求重新发送时最多允许的暂时性失败次数，达到后放弃该请求
+    private int outboxMaxAttempts;
+
     /**
      * 缓存相关
      */
@@ -28,6 +123,20 @@ public class ApiClientConfig {
     // 最大缓存空间
     private int maxCacheSize;
 
+    /**
+     * 内存缓存相关，缓存解析后的响应对象，位于 OkHttp 磁盘缓存之前
+     */
+    // 是否开启内存缓存
+    private boolean memoryCacheEnable;
+    // 最大缓存条目数
+    private int memoryCacheMaxEntries;
+    // 默认有效期，单位秒
+    private int memoryCacheTtl;
+    // 过期后仍可返回旧数据并在后台刷新的时间，单位秒
+    private int memoryCacheStaleWhileRevalidate;
+    // 接口路径前缀 -> 有效期，单位秒
+    private Map<String, Integer> memoryCacheTtlMap;
+
     /**
      * 验证服务器域名是否合法
      */
@@ -40,6 +149,8 @@ public class ApiClientConfig {
     private String hostKeyInHeader;
     // BaseUrl 存储器
     private Map<String, String> hostMap;
+    // 域名路由表，支持每个 key 对应一组域名，设置后忽略 hostMap
+    private HostRoutingTable hostRoutingTable;
 
     /**
      * 多下载相关
@@ -47,14 +158,156 @@ public class ApiClientConfig {
     // @Header("key:value") 中的 key
     private String downloadKeyInHeader;
 
+    /**
+     * 优先级调度相关
+     */
+    // 是否按优先级调度请求，关闭时所有请求都在 Schedulers.io() 中执行
+    private boolean priorityScheduleEnable;
+    // 用户等待通道的最大并发数
+    private int maxUserBlockingRequests;
+    // 普通通道的最大并发数
+    private int maxNormalRequests;
+    // 后台通道的最大并发数
+    private int maxBackgroundRequests;
+
+    /**
+     * 请求合并相关
+     */
+    // 是否合并相同的并发请求（相同的请求方法、url 和请求体）
+    private boolean coalesceEnable;
+    // 允许合并的请求方法
+    private String[] coalesceMethods;
+
+    /**
+     * 失败重试相关
+     */
+    // 是否自动重试失败的幂等请求
+    private boolean retryEnable;
+    // 最大重试次数
+    private int maxRetries;
+    // 首次重试的基础等待时间（毫秒），之后每次翻倍并加入随机抖动
+    private long retryBaseDelayMillis;
+    // 最大等待时间（毫秒）
+    private long retryMaxDelayMillis;
+    // 重试预算的容量，即短时间内所有请求最多允许的重试次数
+    private int retryBudgetCapacity;
+    // 重试预算每秒补充的次数
+    private double retryBudgetPerSecond;
+
+    /**
+     * 熔断相关
+     */
+    // 是否按域名开启熔断
+    private boolean circuitBreakerEnable;
+    // 统计的最近请求数量
+    private int circuitBreakerWindowSize;
+    // 开始计算失败率所需的最小请求数量
+    private int circuitBreakerMinimumCalls;
+    // 打开熔断器的失败率阈值，单位百分比
+    private float circuitBreakerFailureRateThreshold;
+    // 打开熔断器的慢请求比例阈值，单位百分比
+    private float circuitBreakerSlowCallRateThreshold;
+    // 慢请求的耗时阈值（毫秒）
+    private long circuitBreakerSlowCallDurationMillis;
+    // 熔断器打开后进入半开状态前的等待时间（毫秒）
+    private long circuitBreakerOpenDurationMillis;
+    // 半开状态下放行的探测请求数量
+    private int circuitBreakerHalfOpenCalls;
+
+    /**
+     * 客户端负载均衡相关
+     */
+    // 与 host 提供相同接口的其他域名，不为空时在 host 和这些域名之间做负载均衡
+    private String[] loadBalanceHosts;
+    // 域名选择策略，见 HostPool.STRATEGY_*
+    private int loadBalanceStrategy;
+    // 健康检查的接口路径，为 null 时不开启定期健康检查
+    private String healthCheckPath;
+    // 健康检查的间隔，单位秒
+    private int healthCheckInterval;
+    // 连续失败多少次后暂时摘除该域名
+    private int maxConsecutiveFailures;
+    // 首次摘除的时长，单位秒，多次摘除时翻倍
+    private int ejectionDuration;
+    // 延迟 EWMA 的衰减时间常数（毫秒），越小越偏向最近的请求
+    private long latencyDecayMillis;
+
+    /**
+     * 批量请求相关
+     */
+    // 批量请求的编解码器，为 null 时不开启批量请求
+    private BatchCodec batchCodec;
+    // 收集批量请求的时间窗口（毫秒）
+    private long batchWindowMillis;
+    // 每个批量请求最多包含的请求数量，达到后立即发送
+    private int batchMaxSize;
 
     public ApiClientConfig() {
         this.connectTimeout = 25;
         this.readTimeout = 25;
         this.writeTimeout = 25;
+        this.maxIdleConnections = 5;
+        this.keepAliveDuration = 5 * 60;
+        this.maxRequests = 64;
+        this.maxRequestsPerHost = 5;
+        this.http2Enable = true;
+        this.prewarmConnectionsPerHost = 1;
+        this.dnsCacheEnable = false;
+        this.dnsCacheTtl = 60;
+        this.dnsCacheStaleTtl = 5 * 60;
+        this.warmUpOnInit = false;
+        this.metricsEnable = false;
+        this.metricsMaxEndpoints = 100;
+        this.metricsReportInterval = 0;
+        this.networkLogEnable = false;
+        this.networkLogSampleRate = 1;
+        this.networkLogMaxBodyBytes = 4 * 1024;
+        this.networkLogRedactHeaders = NetworkLogger.DEFAULT_REDACT_HEADERS;
+        this.networkLogBufferSize = 256;
+        this.networkLogMaxFileSize = 1024 * 1024;
+        this.networkLogMaxFiles = 3;
+        this.compressionEnable = false;
+        this.requestCompressionThreshold = 0;
+        this.contentDecoders = null;
+        this.outboxEnable = false;
+        this.outboxMaxConcurrency = 3;
+        this.outboxMaxBodySize = 1024 * 1024;
+        this.outboxMaxAttempts = 10;
         this.cacheEnable = true;
         this.cacheName = "apiCache";
         this.maxCacheSize = 10 * 1024 * 1024;
+        this.memoryCacheEnable = false;
+        this.memoryCacheMaxEntries = 64;
+        this.memoryCacheTtl = 60;
+        this.memoryCacheStaleWhileRevalidate = 0;
+        this.priorityScheduleEnable = false;
+        this.maxUserBlockingRequests = 16;
+        this.maxNormalRequests = 8;
+        this.maxBackgroundRequests = 2;
+        this.coalesceEnable = false;
+        this.coalesceMethods = new String[]{"GET", "HEAD"};
+        this.retryEnable = false;
+        this.maxRetries = 2;
+        this.retryBaseDelayMillis = 300;
+        this.retryMaxDelayMillis = 10 * 1000;
+        this.retryBudgetCapacity = 10;
+        this.retryBudgetPerSecond = 1;
+        this.circuitBreakerEnable = false;
+        this.circuitBreakerWindowSize = 20;
+        this.circuitBreakerMinimumCalls = 10;
+        this.circuitBreakerFailureRateThreshold = 50;
+        this.circuitBreakerSlowCallRateThreshold = 80;
+        this.circuitBreakerSlowCallDurationMillis = 10 * 1000;
+        this.circuitBreakerOpenDurationMillis = 30 * 1000;
+        this.circuitBreakerHalfOpenCalls = 3;
+        this.loadBalanceStrategy = HostPool.STRATEGY_POWER_OF_TWO;
+        this.healthCheckInterval = 30;
+        this.maxConsecutiveFailures = 5;
+        this.ejectionDuration = 30;
+        this.latencyDecayMillis = 10 * 1000;
+        this.batchCodec = null;
+        this.batchWindowMillis = 20;
+        this.batchMaxSize = 10;
     }
 
     public String getHost() {
@@ -120,6 +373,51 @@ public class ApiClientConfig {
         return this;
     }
 
+    public boolean isMemoryCacheEnable() {
+        return memoryCacheEnable;
+    }
+
+    public ApiClientConfig setMemoryCacheEnable(boolean memoryCacheEnable) {
+        this.memoryCacheEnable = memoryCacheEnable;
+        return this;
+    }
+
+    public int getMemoryCacheMaxEntries() {
+        return memoryCacheMaxEntries;
+    }
+
+    public ApiClientConfig setMemoryCacheMaxEntries(int memoryCacheMaxEntries) {
+        this.memoryCacheMaxEntries = memoryCacheMaxEntries;
+        return this;
+    }
+
+    public int getMemoryCacheTtl() {
+        return memoryCacheTtl;
+    }
+
+    public ApiClientConfig setMemoryCacheTtl(int memoryCacheTtl) {
+        this.memoryCacheTtl = memoryCacheTtl;
+        return this;
+    }
+
+    public int getMemoryCacheStaleWhileRevalidate() {
+        return memoryCacheStaleWhileRevalidate;
+    }
+
+    public ApiClientConfig setMemoryCacheStaleWhileRevalidate(int memoryCacheStaleWhileRevalidate) {
+        this.memoryCacheStaleWhileRevalidate = memoryCacheStaleWhileRevalidate;
+        return this;
+    }
+
+    public Map<String, Integer> getMemoryCacheTtlMap() {
+        return memoryCacheTtlMap;
+    }
+
+    public ApiClientConfig setMemoryCacheTtlMap(Map<String, Integer> memoryCacheTtlMap) {
+        this.memoryCacheTtlMap = memoryCacheTtlMap;
+        return this;
+    }
+
     public HostnameVerifier getHostnameVerifier() {
         return hostnameVerifier;
     }
@@ -147,6 +445,15 @@ public class ApiClientConfig {
         return this;
     }
 
+    public HostRoutingTable getHostRoutingTable() {
+        return hostRoutingTable;
+    }
+
+    public ApiClientConfig setHostRoutingTable(HostRoutingTable hostRoutingTable) {
+        this.hostRoutingTable = hostRoutingTable;
+        return this;
+    }
+
     public String getDownloadKeyInHeader() {
         return downloadKeyInHeader;
     }
@@ -155,4 +462,553 @@ public class ApiClientConfig {
         this.downloadKeyInHeader = downloadKeyInHeader;
         return this;
     }
+
+    public boolean isCoalesceEnable() {
+        return coalesceEnable;
+    }
+
+    public ApiClientConfig setCoalesceEnable(boolean coalesceEnable) {
+        this.coalesceEnable = coalesceEnable;
+        return this;
+    }
+
+    public String[] getCoalesceMethods() {
+        return coalesceMethods;
+    }
+
+    public ApiClientConfig setCoalesceMethods(String... coalesceMethods) {
+        this.coalesceMethods = coalesceMethods;
+        return this;
+    }
+
+    public boolean isPriorityScheduleEnable() {
+        return priorityScheduleEnable;
+    }
+
+    public ApiClientConfig setPriorityScheduleEnable(boolean priorityScheduleEnable) {
+        this.priorityScheduleEnable = priorityScheduleEnable;
+        return this;
+    }
+
+    public int getMaxUserBlockingRequests() {
+        return maxUserBlockingRequests;
+    }
+
+    public ApiClientConfig setMaxUserBlockingRequests(int maxUserBlockingRequests) {
+        this.maxUserBlockingRequests = maxUserBlockingRequests;
+        return this;
+    }
+
+    public int getMaxNormalRequests() {
+        return maxNormalRequests;
+    }
+
+    public ApiClientConfig setMaxNormalRequests(int maxNormalRequests) {
+        this.maxNormalRequests = maxNormalRequests;
+        return this;
+    }
+
+    public int getMaxBackgroundRequests() {
+        return maxBackgroundRequests;
+    }
+
+    public ApiClientConfig setMaxBackgroundRequests(int maxBackgroundRequests) {
+        this.maxBackgroundRequests = maxBackgroundRequests;
+        return this;
+    }
+
+    public BatchCodec getBatchCodec() {
+        return batchCodec;
+    }
+
+    public ApiClientConfig setBatchCodec(BatchCodec batchCodec) {
+        this.batchCodec = batchCodec;
+        return this;
+    }
+
+    public long getBatchWindowMillis() {
+        return batchWindowMillis;
+    }
+
+    public ApiClientConfig setBatchWindowMillis(long batchWindowMillis) {
+        this.batchWindowMillis = batchWindowMillis;
+        return this;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public ApiClientConfig setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+        return this;
+    }
+
+    public boolean isRetryEnable() {
+        return retryEnable;
+    }
+
+    public ApiClientConfig setRetryEnable(boolean retryEnable) {
+        this.retryEnable = retryEnable;
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public ApiClientConfig setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    public long getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    public ApiClientConfig setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+        return this;
+    }
+
+    public long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    public ApiClientConfig setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+        return this;
+    }
+
+    public int getRetryBudgetCapacity() {
+        return retryBudgetCapacity;
+    }
+
+    public ApiClientConfig setRetryBudgetCapacity(int retryBudgetCapacity) {
+        this.retryBudgetCapacity = retryBudgetCapacity;
+        return this;
+    }
+
+    public double getRetryBudgetPerSecond() {
+        return retryBudgetPerSecond;
+    }
+
+    public ApiClientConfig setRetryBudgetPerSecond(double retryBudgetPerSecond) {
+        this.retryBudgetPerSecond = retryBudgetPerSecond;
+        return this;
+    }
+
+    public boolean isCircuitBreakerEnable() {
+        return circuitBreakerEnable;
+    }
+
+    public ApiClientConfig setCircuitBreakerEnable(boolean circuitBreakerEnable) {
+        this.circuitBreakerEnable = circuitBreakerEnable;
+        return this;
+    }
+
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    public ApiClientConfig setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+        this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+        return this;
+    }
+
+    public int getCircuitBreakerMinimumCalls() {
+        return circuitBreakerMinimumCalls;
+    }
+
+    public ApiClientConfig setCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+        this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+        return this;
+    }
+
+    public float getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    public ApiClientConfig setCircuitBreakerFailureRateThreshold(float circuitBreakerFailureRateThreshold) {
+        this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+        return this;
+    }
+
+    public float getCircuitBreakerSlowCallRateThreshold() {
+        return circuitBreakerSlowCallRateThreshold;
+    }
+
+    public ApiClientConfig setCircuitBreakerSlowCallRateThreshold(float circuitBreakerSlowCallRateThreshold) {
+        this.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
+        return this;
+    }
+
+    public long getCircuitBreakerSlowCallDurationMillis() {
+        return circuitBreakerSlowCallDurationMillis;
+    }
+
+    public ApiClientConfig setCircuitBreakerSlowCallDurationMillis(long circuitBreakerSlowCallDurationMillis) {
+        this.circuitBreakerSlowCallDurationMillis = circuitBreakerSlowCallDurationMillis;
+        return this;
+    }
+
+    public long getCircuitBreakerOpenDurationMillis() {
+        return circuitBreakerOpenDurationMillis;
+    }
+
+    public ApiClientConfig setCircuitBreakerOpenDurationMillis(long circuitBreakerOpenDurationMillis) {
+        this.circuitBreakerOpenDurationMillis = circuitBreakerOpenDurationMillis;
+        return this;
+    }
+
+    public int getCircuitBreakerHalfOpenCalls() {
+        return circuitBreakerHalfOpenCalls;
+    }
+
+    public ApiClientConfig setCircuitBreakerHalfOpenCalls(int circuitBreakerHalfOpenCalls) {
+        this.circuitBreakerHalfOpenCalls = circuitBreakerHalfOpenCalls;
+        return this;
+    }
+
+    public String[] getLoadBalanceHosts() {
+        return loadBalanceHosts;
+    }
+
+    public ApiClientConfig setLoadBalanceHosts(String... loadBalanceHosts) {
+        this.loadBalanceHosts = loadBalanceHosts;
+        return this;
+    }
+
+    public int getLoadBalanceStrategy() {
+        return loadBalanceStrategy;
+    }
+
+    public ApiClientConfig setLoadBalanceStrategy(int loadBalanceStrategy) {
+        this.loadBalanceStrategy = loadBalanceStrategy;
+        return this;
+    }
+
+    public String getHealthCheckPath() {
+        return healthCheckPath;
+    }
+
+    public ApiClientConfig setHealthCheckPath(String healthCheckPath) {
+        this.healthCheckPath = healthCheckPath;
+        return this;
+    }
+
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public ApiClientConfig setHealthCheckInterval(int healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+        return this;
+    }
+
+    public int getMaxConsecutiveFailures() {
+        return maxConsecutiveFailures;
+    }
+
+    public ApiClientConfig setMaxConsecutiveFailures(int maxConsecutiveFailures) {
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        return this;
+    }
+
+    public int getEjectionDuration() {
+        return ejectionDuration;
+    }
+
+    public ApiClientConfig setEjectionDuration(int ejectionDuration) {
+        this.ejectionDuration = ejectionDuration;
+        return this;
+    }
+
+    public long getLatencyDecayMillis() {
+        return latencyDecayMillis;
+    }
+
+    public ApiClientConfig setLatencyDecayMillis(long latencyDecayMillis) {
+        this.latencyDecayMillis = latencyDecayMillis;
+        return this;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public ApiClientConfig setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+        return this;
+    }
+
+    public int getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    public ApiClientConfig setKeepAliveDuration(int keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+        return this;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public ApiClientConfig setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public ApiClientConfig setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    public boolean isHttp2Enable() {
+        return http2Enable;
+    }
+
+    public ApiClientConfig setHttp2Enable(boolean http2Enable) {
+        this.http2Enable = http2Enable;
+        return this;
+    }
+
+    public ExecutorService getDispatcherExecutor() {
+        return dispatcherExecutor;
+    }
+
+    public ApiClientConfig setDispatcherExecutor(ExecutorService dispatcherExecutor) {
+        this.dispatcherExecutor = dispatcherExecutor;
+        return this;
+    }
+
+    public String[] getPrewarmHosts() {
+        return prewarmHosts;
+    }
+
+    public ApiClientConfig setPrewarmHosts(String... prewarmHosts) {
+        this.prewarmHosts = prewarmHosts;
+        return this;
+    }
+
+    public int getPrewarmConnectionsPerHost() {
+        return prewarmConnectionsPerHost;
+    }
+
+    public ApiClientConfig setPrewarmConnectionsPerHost(int prewarmConnectionsPerHost) {
+        this.prewarmConnectionsPerHost = prewarmConnectionsPerHost;
+        return this;
+    }
+
+    public Dns getDns() {
+        return dns;
+    }
+
+    public ApiClientConfig setDns(Dns dns) {
+        this.dns = dns;
+        return this;
+    }
+
+    public boolean isDnsCacheEnable() {
+        return dnsCacheEnable;
+    }
+
+    public ApiClientConfig setDnsCacheEnable(boolean dnsCacheEnable) {
+        this.dnsCacheEnable = dnsCacheEnable;
+        return this;
+    }
+
+    public int getDnsCacheTtl() {
+        return dnsCacheTtl;
+    }
+
+    public ApiClientConfig setDnsCacheTtl(int dnsCacheTtl) {
+        this.dnsCacheTtl = dnsCacheTtl;
+        return this;
+    }
+
+    public int getDnsCacheStaleTtl() {
+        return dnsCacheStaleTtl;
+    }
+
+    public ApiClientConfig setDnsCacheStaleTtl(int dnsCacheStaleTtl) {
+        this.dnsCacheStaleTtl = dnsCacheStaleTtl;
+        return this;
+    }
+
+    public boolean isWarmUpOnInit() {
+        return warmUpOnInit;
+    }
+
+    public ApiClientConfig setWarmUpOnInit(boolean warmUpOnInit) {
+        this.warmUpOnInit = warmUpOnInit;
+        return this;
+    }
+
+    public boolean isMetricsEnable() {
+        return metricsEnable;
+    }
+
+    public ApiClientConfig setMetricsEnable(boolean metricsEnable) {
+        this.metricsEnable = metricsEnable;
+        return this;
+    }
+
+    public int getMetricsMaxEndpoints() {
+        return metricsMaxEndpoints;
+    }
+
+    public ApiClientConfig setMetricsMaxEndpoints(int metricsMaxEndpoints) {
+        this.metricsMaxEndpoints = metricsMaxEndpoints;
+        return this;
+    }
+
+    public int getMetricsReportInterval() {
+        return metricsReportInterval;
+    }
+
+    public ApiClientConfig setMetricsReportInterval(int metricsReportInterval) {
+        this.metricsReportInterval = metricsReportInterval;
+        return this;
+    }
+
+    public MetricsReporter getMetricsReporter() {
+        return metricsReporter;
+    }
+
+    public ApiClientConfig setMetricsReporter(MetricsReporter metricsReporter) {
+        this.metricsReporter = metricsReporter;
+        return this;
+    }
+
+    public boolean isNetworkLogEnable() {
+        return networkLogEnable;
+    }
+
+    public ApiClientConfig setNetworkLogEnable(boolean networkLogEnable) {
+        this.networkLogEnable = networkLogEnable;
+        return this;
+    }
+
+    public double getNetworkLogSampleRate() {
+        return networkLogSampleRate;
+    }
+
+    public ApiClientConfig setNetworkLogSampleRate(double networkLogSampleRate) {
+        this.networkLogSampleRate = networkLogSampleRate;
+        return this;
+    }
+
+    public long getNetworkLogMaxBodyBytes() {
+        return networkLogMaxBodyBytes;
+    }
+
+    public ApiClientConfig setNetworkLogMaxBodyBytes(long networkLogMaxBodyBytes) {
+        this.networkLogMaxBodyBytes = networkLogMaxBodyBytes;
+        return this;
+    }
+
+    public String[] getNetworkLogRedactHeaders() {
+        return networkLogRedactHeaders;
+    }
+
+    public ApiClientConfig setNetworkLogRedactHeaders(String... networkLogRedactHeaders) {
+        this.networkLogRedactHeaders = networkLogRedactHeaders;
+        return this;
+    }
+
+    public int getNetworkLogBufferSize() {
+        return networkLogBufferSize;
+    }
+
+    public ApiClientConfig setNetworkLogBufferSize(int networkLogBufferSize) {
+        this.networkLogBufferSize = networkLogBufferSize;
+        return this;
+    }
+
+    public long getNetworkLogMaxFileSize() {
+        return networkLogMaxFileSize;
+    }
+
+    public ApiClientConfig setNetworkLogMaxFileSize(long networkLogMaxFileSize) {
+        this.networkLogMaxFileSize = networkLogMaxFileSize;
+        return this;
+    }
+
+    public int getNetworkLogMaxFiles() {
+        return networkLogMaxFiles;
+    }
+
+    public ApiClientConfig setNetworkLogMaxFiles(int networkLogMaxFiles) {
+        this.networkLogMaxFiles = networkLogMaxFiles;
+        return this;
+    }
+
+    public boolean isOutboxEnable() {
+        return outboxEnable;
+    }
+
+    public ApiClientConfig setOutboxEnable(boolean outboxEnable) {
+        this.outboxEnable = outboxEnable;
+        return this;
+    }
+
+    public int getOutboxMaxConcurrency() {
+        return outboxMaxConcurrency;
+    }
+
+    public ApiClientConfig setOutboxMaxConcurrency(int outboxMaxConcurrency) {
+        this.outboxMaxConcurrency = outboxMaxConcurrency;
+        return this;
+    }
+
+    public long getOutboxMaxBodySize() {
+        return outboxMaxBodySize;
+    }
+
+    public ApiClientConfig setOutboxMaxBodySize(long outboxMaxBodySize) {
+        this.outboxMaxBodySize = outboxMaxBodySize;
+        return this;
+    }
+
+    public int getOutboxMaxAttempts() {
+        return outboxMaxAttempts;
+    }
+
+    public ApiClientConfig setOutboxMaxAttempts(int outboxMaxAttempts) {
+        this.outboxMaxAttempts = outboxMaxAttempts;
+        return this;
+    }
+
+    public boolean isCompressionEnable() {
+        return compressionEnable;
+    }
+
+    public ApiClientConfig setCompressionEnable(boolean compressionEnable) {
+        this.compressionEnable = compressionEnable;
+        return this;
+    }
+
+    public long getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    public ApiClientConfig setRequestCompressionThreshold(long requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        return this;
+    }
+
+    public ContentDecoder[] getContentDecoders() {
+        return contentDecoders;
+    }
+
+    public ApiClientConfig setContentDecoders(ContentDecoder... contentDecoders) {
+        this.contentDecoders = contentDecoders;
+        return this;
+    }
 }
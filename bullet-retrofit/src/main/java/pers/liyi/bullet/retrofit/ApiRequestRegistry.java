@@ -0,0 +1,94 @@
+package pers.liyi.bullet.retrofit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pers.liyi.bullet.retrofit.response.Cancelable;
+
+/**
+ * 请求订阅注册表
+ * <p>
+ * 基于 ConcurrentHashMap 实现，注册与移除均无需加锁，可在任意线程调用；
+ * 未设置 tag 的请求使用单调递增的序号生成唯一标记，不会与其他请求冲突
+ */
+final class ApiRequestRegistry {
+    // 自动生成的请求标记前缀
+    static final String AUTO_TAG_PREFIX = "bullet-auto-";
+
+    // 请求标记 -> 订阅者
+    private final ConcurrentHashMap<String, Cancelable> mSite = new ConcurrentHashMap<>();
+    // 自动标记序号生成器
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /**
+     * 注册请求，如果已经存在相同标记的请求，则先取消原来的请求
+     *
+     * @param observer 订阅者
+     * @return 请求在注册表中的标记
+     */
+    String register(Cancelable observer) {
+        String tag = observer.getTag();
+        if (tag == null) {
+            tag = AUTO_TAG_PREFIX + mSequence.incrementAndGet();
+        }
+        Cancelable old = mSite.put(tag, observer);
+        if (old != null && old != observer) {
+            old.cancel();
+        }
+        return tag;
+    }
+
+    /**
+     * 请求结束后移除，只有注册表中的订阅者仍是当前订阅者时才会移除，避免误删同标记的新请求
+     */
+    void unregister(String tag, Cancelable observer) {
+        mSite.remove(tag, observer);
+    }
+
+    /**
+     * 取消指定的请求
+     *
+     * @return 是否存在该请求
+     */
+    boolean cancel(String tag) {
+        Cancelable observer = mSite.remove(tag);
+        if (observer != null) {
+            observer.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 取消所有的请求
+     */
+    void cancelAll() {
+        for (Map.Entry<String, Cancelable> entry : mSite.entrySet()) {
+            // 只取消由当前线程成功移除的请求，避免与并发的 cancel 重复回调
+            if (mSite.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().cancel();
+            }
+        }
+    }
+
+    /**
+     * 当前正在进行的请求数量
+     */
+    int size() {
+        return mSite.size();
+    }
+
+    /**
+     * 当前正在进行的、标记以指定前缀开头的请求数量
+     */
+    int count(String tagPrefix) {
+        int count = 0;
+        for (String tag : mSite.keySet()) {
+            if (tag.startsWith(tagPrefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
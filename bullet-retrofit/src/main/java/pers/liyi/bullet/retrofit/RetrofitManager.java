@@ -4,27 +4,97 @@ import android.content.Context;
 import android.text.TextUtils;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
+import pers.liyi.bullet.retrofit.adapter.CoalescingCallAdapterFactory;
+import pers.liyi.bullet.retrofit.adapter.MemoryCacheCallAdapterFactory;
+import pers.liyi.bullet.retrofit.adapter.PriorityCallAdapterFactory;
+import pers.liyi.bullet.retrofit.cache.MemoryResponseCache;
+import pers.liyi.bullet.retrofit.circuit.CircuitBreakerRegistry;
+import pers.liyi.bullet.retrofit.compression.CompressionStats;
+import pers.liyi.bullet.retrofit.compression.ContentDecoder;
+import pers.liyi.bullet.retrofit.connection.CachingDns;
+import pers.liyi.bullet.retrofit.connection.ConnectionPrewarmer;
+import pers.liyi.bullet.retrofit.connectivity.AndroidConnectivitySource;
+import pers.liyi.bullet.retrofit.converter.StreamingGsonConverterFactory;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
+import pers.liyi.bullet.retrofit.download.DownloadManager;
 import pers.liyi.bullet.retrofit.interceptor.BaseUrlInterceptor;
+import pers.liyi.bullet.retrofit.interceptor.BatchInterceptor;
+import pers.liyi.bullet.retrofit.interceptor.CachePolicyInterceptor;
+import pers.liyi.bullet.retrofit.interceptor.CircuitBreakerInterceptor;
+import pers.liyi.bullet.retrofit.interceptor.CompressionInterceptor;
 import pers.liyi.bullet.retrofit.interceptor.DownloadInterceptor;
+import pers.liyi.bullet.retrofit.interceptor.LoadBalancingInterceptor;
 import pers.liyi.bullet.retrofit.interceptor.LogInterceptor;
 import pers.liyi.bullet.retrofit.interceptor.OfflineCacheControlInterceptor;
+import pers.liyi.bullet.retrofit.interceptor.OutboxInterceptor;
+import pers.liyi.bullet.retrofit.interceptor.RetryInterceptor;
+import pers.liyi.bullet.retrofit.log.NetworkLogger;
+import pers.liyi.bullet.retrofit.metrics.LogMetricsReporter;
+import pers.liyi.bullet.retrofit.metrics.MetricsEventListener;
+import pers.liyi.bullet.retrofit.metrics.MetricsRegistry;
+import pers.liyi.bullet.retrofit.metrics.MetricsReporter;
+import pers.liyi.bullet.retrofit.outbox.OfflineOutbox;
+import pers.liyi.bullet.retrofit.retry.RetryBudget;
+import pers.liyi.bullet.retrofit.route.HostPool;
+import pers.liyi.bullet.retrofit.route.HostRoutingTable;
+import pers.liyi.bullet.retrofit.route.HttpHealthCheck;
+import pers.liyi.bullet.retrofit.scheduler.PriorityDispatcher;
+import pers.liyi.bullet.retrofit.upload.UploadManager;
 import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 
 /**
  * Retrofit2.0 配置类
  */
 public class RetrofitManager {
+    // 分块上传的会话状态目录
+    private static final String UPLOAD_SESSION_DIR = "bulletUpload";
+    // 网络日志目录
+    private static final String NETWORK_LOG_DIR = "bulletLog";
+    // 网络日志的后台写入间隔（毫秒）
+    private static final long NETWORK_LOG_FLUSH_INTERVAL = 1000;
+    // 离线发件箱的目录
+    private static final String OUTBOX_DIR = "bulletOutbox";
+
     private ApiClientConfig mApiClientConfig;
     private OkHttpClient mOkHttpClient;
     private Retrofit mRetrofit;
+    private MemoryResponseCache mMemoryCache;
+    private ConnectivityMonitor mConnectivityMonitor;
+    private CachePolicyInterceptor mCachePolicyInterceptor;
+    private DownloadManager mDownloadManager;
+    private UploadManager mUploadManager;
+    private OkHttpClient mTransferOkHttpClient;
+    private PriorityDispatcher mPriorityDispatcher;
+    private CircuitBreakerRegistry mCircuitBreakerRegistry;
+    private BaseUrlInterceptor mBaseUrlInterceptor;
+    private HostPool mHostPool;
+    private CachingDns mCachingDns;
+    private MetricsRegistry mMetricsRegistry;
+    private NetworkLogger mNetworkLogger;
+    private OfflineOutbox mOutbox;
+    private CompressionStats mCompressionStats;
     private Context mContext;
 
     public RetrofitManager(@NonNull Context context, ApiClientConfig config) {
@@ -60,6 +130,108 @@ public class RetrofitManager {
         return mRetrofit;
     }
 
+    public void setConnectivityMonitor(ConnectivityMonitor connectivityMonitor) {
+        this.mConnectivityMonitor = connectivityMonitor;
+    }
+
+    /**
+     * 获取网络连接状态监听器
+     */
+    public ConnectivityMonitor getConnectivityMonitor() {
+        if (mConnectivityMonitor == null) {
+            mConnectivityMonitor = new ConnectivityMonitor(new AndroidConnectivitySource(mContext));
+        }
+        return mConnectivityMonitor;
+    }
+
+    /**
+     * 获取优先级调度器，未开启优先级调度时返回 null
+     */
+    public PriorityDispatcher getPriorityDispatcher() {
+        if (mPriorityDispatcher == null && mApiClientConfig != null && mApiClientConfig.isPriorityScheduleEnable()) {
+            mPriorityDispatcher = new PriorityDispatcher(
+                    mApiClientConfig.getMaxUserBlockingRequests(),
+                    mApiClientConfig.getMaxNormalRequests(),
+                    mApiClientConfig.getMaxBackgroundRequests(),
+                    mApiClientConfig.getMaxRequestsPerHost());
+        }
+        return mPriorityDispatcher;
+    }
+
+    /**
+     * 获取熔断器注册表，未开启熔断时返回 null
+     */
+    public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+        if (mCircuitBreakerRegistry == null && mApiClientConfig != null && mApiClientConfig.isCircuitBreakerEnable()) {
+            mCircuitBreakerRegistry = new CircuitBreakerRegistry(
+                    mApiClientConfig.getCircuitBreakerWindowSize(),
+                    mApiClientConfig.getCircuitBreakerMinimumCalls(),
+                    mApiClientConfig.getCircuitBreakerFailureRateThreshold(),
+                    mApiClientConfig.getCircuitBreakerSlowCallRateThreshold(),
+                    mApiClientConfig.getCircuitBreakerSlowCallDurationMillis(),
+                    mApiClientConfig.getCircuitBreakerOpenDurationMillis(),
+                    mApiClientConfig.getCircuitBreakerHalfOpenCalls());
+        }
+        return mCircuitBreakerRegistry;
+    }
+
+    /**
+     * 获取负载均衡的域名池，未设置 loadBalanceHosts 时返回 null
+     */
+    public HostPool getHostPool() {
+        if (mHostPool == null && mApiClientConfig != null
+                && mApiClientConfig.getLoadBalanceHosts() != null && mApiClientConfig.getLoadBalanceHosts().length > 0) {
+            List<String> urls = new ArrayList<>();
+            urls.add(mApiClientConfig.getHost());
+            for (String url : mApiClientConfig.getLoadBalanceHosts()) {
+                if (!urls.contains(url)) {
+                    urls.add(url);
+                }
+            }
+            mHostPool = new HostPool(urls,
+                    mApiClientConfig.getLoadBalanceStrategy(),
+                    mApiClientConfig.getMaxConsecutiveFailures(),
+                    TimeUnit.SECONDS.toMillis(mApiClientConfig.getEjectionDuration()),
+                    mApiClientConfig.getLatencyDecayMillis());
+        }
+        return mHostPool;
+    }
+
+    /**
+     * 获取下载管理器
+     */
+    public DownloadManager getDownloadManager() {
+        if (mDownloadManager == null) {
+            mDownloadManager = new DownloadManager(getTransferOkHttpClient());
+        }
+        return mDownloadManager;
+    }
+
+    /**
+     * 获取分块上传管理器
+     */
+    public UploadManager getUploadManager() {
+        if (mUploadManager == null) {
+            mUploadManager = new UploadManager(getTransferOkHttpClient(),
+                    new File(mContext.getCacheDir(), UPLOAD_SESSION_DIR));
+        }
+        return mUploadManager;
+    }
+
+    /**
+     * 获取内存缓存，未开启内存缓存时返回 null
+     */
+    public MemoryResponseCache getMemoryCache() {
+        if (mMemoryCache == null && mApiClientConfig != null && mApiClientConfig.isMemoryCacheEnable()) {
+            mMemoryCache = new MemoryResponseCache(
+                    mApiClientConfig.getMemoryCacheMaxEntries(),
+                    mApiClientConfig.getMemoryCacheTtl(),
+                    mApiClientConfig.getMemoryCacheStaleWhileRevalidate(),
+                    mApiClientConfig.getMemoryCacheTtlMap());
+        }
+        return mMemoryCache;
+    }
+
     /**
      * 创建服务
      */
@@ -67,6 +239,188 @@ public class RetrofitManager {
         return getRetrofit().create(clz);
     }
 
+    /**
+     * 获取请求统计数据的注册表，未开启请求统计时返回 null
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        if (mMetricsRegistry == null && mApiClientConfig != null && mApiClientConfig.isMetricsEnable()) {
+            mMetricsRegistry = new MetricsRegistry(mApiClientConfig.getMetricsMaxEndpoints());
+            if (mApiClientConfig.getMetricsReportInterval() > 0) {
+                MetricsReporter reporter = mApiClientConfig.getMetricsReporter() != null
+                        ? mApiClientConfig.getMetricsReporter()
+                        : new LogMetricsReporter();
+                mMetricsRegistry.startReporting(reporter, mApiClientConfig.getMetricsReportInterval(), false);
+            }
+        }
+        return mMetricsRegistry;
+    }
+
+    /**
+     * 获取网络日志写入器，非调试模式下未开启网络日志时返回 null
+     */
+    public NetworkLogger getNetworkLogger() {
+        if (mNetworkLogger == null && mApiClientConfig != null
+                && (BuildConfig.DEBUG || mApiClientConfig.isNetworkLogEnable())) {
+            mNetworkLogger = new NetworkLogger(
+                    mApiClientConfig.getNetworkLogBufferSize(),
+                    mApiClientConfig.getNetworkLogRedactHeaders(),
+                    BuildConfig.DEBUG,
+                    mApiClientConfig.isNetworkLogEnable() ? new File(mContext.getCacheDir(), NETWORK_LOG_DIR) : null,
+                    mApiClientConfig.getNetworkLogMaxFileSize(),
+                    mApiClientConfig.getNetworkLogMaxFiles(),
+                    NETWORK_LOG_FLUSH_INTERVAL);
+        }
+        return mNetworkLogger;
+    }
+
+    /**
+     * 获取压缩统计，未开启压缩协商时返回 null
+     */
+    public CompressionStats getCompressionStats() {
+        if (mCompressionStats == null && mApiClientConfig != null && mApiClientConfig.isCompressionEnable()) {
+            mCompressionStats = new CompressionStats();
+        }
+        return mCompressionStats;
+    }
+
+    /**
+     * 获取离线发件箱，未开启离线发件箱时返回 null
+     */
+    public OfflineOutbox getOutbox() {
+        if (mOutbox == null && mApiClientConfig != null && mApiClientConfig.isOutboxEnable()) {
+            mOutbox = new OfflineOutbox(new File(mContext.getFilesDir(), OUTBOX_DIR),
+                    mApiClientConfig.getOutboxMaxConcurrency(), mApiClientConfig.getOutboxMaxBodySize(),
+                    mApiClientConfig.getOutboxMaxAttempts());
+        }
+        return mOutbox;
+    }
+
+    /**
+     * 获取带缓存的 DNS，未开启 DNS 缓存时返回 null
+     */
+    public CachingDns getCachingDns() {
+        if (mCachingDns == null && mApiClientConfig != null && mApiClientConfig.isDnsCacheEnable()) {
+            mCachingDns = new CachingDns(
+                    mApiClientConfig.getDns() != null ? mApiClientConfig.getDns() : Dns.SYSTEM,
+                    TimeUnit.SECONDS.toMillis(mApiClientConfig.getDnsCacheTtl()),
+                    TimeUnit.SECONDS.toMillis(mApiClientConfig.getDnsCacheStaleTtl()));
+        }
+        return mCachingDns;
+    }
+
+    /**
+     * 在后台预先解析域名，未开启 DNS 缓存时不做任何处理
+     *
+     * @param urls 域名或者完整的 url
+     */
+    public void prefetchDns(@NonNull String... urls) {
+        if (getCachingDns() == null) {
+            return;
+        }
+        for (String url : urls) {
+            HttpUrl httpUrl = HttpUrl.parse(url);
+            mCachingDns.prefetch(httpUrl != null ? httpUrl.host() : url);
+        }
+    }
+
+    /**
+     * 预先解析已配置的所有域名并预热连接，包括 host、hostMap、域名路由表和负载均衡的域名
+     */
+    public void warmUp() {
+        warmUp(getConfiguredHosts());
+    }
+
+    /**
+     * 初始化时的预热：开启 warmUpOnInit 时包括已配置的所有域名，再加上 prewarmHosts，相同的域名只预热一次
+     */
+    public void warmUpOnInit() {
+        Set<String> urls = new LinkedHashSet<>();
+        if (mApiClientConfig.isWarmUpOnInit()) {
+            urls.addAll(getConfiguredHosts());
+        }
+        if (mApiClientConfig.getPrewarmHosts() != null) {
+            urls.addAll(Arrays.asList(mApiClientConfig.getPrewarmHosts()));
+        }
+        if (!urls.isEmpty()) {
+            warmUp(urls);
+        }
+    }
+
+    private void warmUp(Collection<String> urls) {
+        String[] origins = distinctOrigins(urls);
+        prefetchDns(origins);
+        prewarmConnections(origins);
+    }
+
+    /**
+     * 只保留协议、主机地址和端口，去除重复的域名，例如 "https://a.com/v1/" 和 "https://a.com/v2/" 只预热一次
+     */
+    private static String[] distinctOrigins(Collection<String> urls) {
+        Set<String> origins = new LinkedHashSet<>();
+        for (String url : urls) {
+            HttpUrl httpUrl = HttpUrl.parse(url);
+            HttpUrl origin = httpUrl != null ? httpUrl.resolve("/") : null;
+            origins.add(origin != null ? origin.toString() : url);
+        }
+        return origins.toArray(new String[0]);
+    }
+
+    /**
+     * 已配置的所有域名
+     */
+    private Set<String> getConfiguredHosts() {
+        Set<String> urls = new LinkedHashSet<>();
+        if (!TextUtils.isEmpty(mApiClientConfig.getHost())) {
+            urls.add(mApiClientConfig.getHost());
+        }
+        if (mApiClientConfig.getHostRoutingTable() != null) {
+            HostRoutingTable table = mApiClientConfig.getHostRoutingTable();
+            for (String key : table.keys()) {
+                for (HttpUrl url : table.get(key).getUrls()) {
+                    urls.add(url.toString());
+                }
+            }
+        } else if (mApiClientConfig.getHostMap() != null) {
+            urls.addAll(mApiClientConfig.getHostMap().values());
+        }
+        if (mApiClientConfig.getLoadBalanceHosts() != null) {
+            urls.addAll(Arrays.asList(mApiClientConfig.getLoadBalanceHosts()));
+        }
+        return urls;
+    }
+
+    /**
+     * 预热连接，请求异步执行，不会阻塞调用线程
+     *
+     * @param urls 需要预热的域名
+     */
+    public void prewarmConnections(@NonNull String... urls) {
+        int connections = mApiClientConfig != null ? mApiClientConfig.getPrewarmConnectionsPerHost() : 1;
+        new ConnectionPrewarmer(getOkHttpClient()).prewarm(urls, connections);
+    }
+
+    /**
+     * 释放资源
+     */
+    public void release() {
+        if (mConnectivityMonitor != null) {
+            mConnectivityMonitor.release();
+            mConnectivityMonitor = null;
+        }
+        if (mHostPool != null) {
+            mHostPool.stopHealthCheck();
+        }
+        if (mMetricsRegistry != null) {
+            mMetricsRegistry.stopReporting();
+        }
+        if (mNetworkLogger != null) {
+            mNetworkLogger.release();
+        }
+        if (mOutbox != null) {
+            mOutbox.release();
+        }
+    }
+
     /**
      * 获取默认的 Retrofit
      */
@@ -74,27 +428,96 @@ public class RetrofitManager {
         if (mOkHttpClient == null) {
             mOkHttpClient = createDefaultOkHttpClient();
         }
-        return new Retrofit.Builder()
+        Retrofit.Builder builder = new Retrofit.Builder()
                 .baseUrl(mApiClientConfig.getHost())
                 .client(mOkHttpClient)
-                // 添加 Gson 转化器
-                .addConverterFactory(GsonConverterFactory.create())
-                // 添加 String 转化器
-//                .addConverterFactory(ScalarsConverterFactory.create())
-                // 配合 RxJava2 使用
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .build();
+                // 添加 Gson 转化器，请求体和响应体均以流的方式读写
+                .addConverterFactory(StreamingGsonConverterFactory.create());
+        // 添加 String 转化器
+//        builder.addConverterFactory(ScalarsConverterFactory.create());
+        // 读取接口的优先级和请求的域名，必须添加在其他适配器之前
+        if (getPriorityDispatcher() != null) {
+            builder.addCallAdapterFactory(new PriorityCallAdapterFactory(mApiClientConfig.getHostKeyInHeader()));
+        }
+        // 内存缓存，命中时不再发起请求
+        if (getMemoryCache() != null) {
+            builder.addCallAdapterFactory(new MemoryCacheCallAdapterFactory(mMemoryCache));
+        }
+        // 合并相同的并发请求，必须添加在 RxJava2 的适配器之前
+        if (mApiClientConfig.isCoalesceEnable()) {
+            builder.addCallAdapterFactory(new CoalescingCallAdapterFactory(mApiClientConfig.getCoalesceMethods()));
+        }
+        // 配合 RxJava2 使用
+        builder.addCallAdapterFactory(RxJava2CallAdapterFactory.create());
+        return builder.build();
     }
 
     public OkHttpClient createDefaultOkHttpClient() {
         OkHttpClient.Builder builder = createDefaultOkBuilder();
         builder = setOkCache(builder);
+        builder = setOutboxInterceptor(builder);
+        builder = setRetryInterceptor(builder);
         builder = setHostnameVerifier(builder);
         builder = setBaseUrlInterceptor(builder);
+        builder = setLoadBalancingInterceptor(builder);
+        builder = setCircuitBreakerInterceptor(builder);
+        builder = setBatchInterceptor(builder);
         builder = setDownloadInterceptor(builder);
-        // 调试模式下，添加日志打印
-        if (BuildConfig.DEBUG) {
-            builder.addInterceptor(new LogInterceptor());
+        builder = setCompressionInterceptor(builder);
+        // 调试模式下输出到 Logcat，开启网络日志时写入文件
+        if (getNetworkLogger() != null) {
+            builder.addInterceptor(new LogInterceptor(mNetworkLogger,
+                    mApiClientConfig.getNetworkLogSampleRate(), mApiClientConfig.getNetworkLogMaxBodyBytes()));
+        }
+        OkHttpClient client = builder.build();
+        if (mCachePolicyInterceptor != null) {
+            // 缓存过期后的后台刷新请求由当前的 OkHttpClient 发起
+            mCachePolicyInterceptor.setCallFactory(client);
+        }
+        if (mOutbox != null) {
+            // 网络恢复后由当前的 OkHttpClient 重新发送发件箱中的请求
+            mOutbox.start(client, getConnectivityMonitor());
+        }
+        return client;
+    }
+
+    /**
+     * 获取下载和上传使用的 OkHttpClient
+     */
+    public OkHttpClient getTransferOkHttpClient() {
+        if (mTransferOkHttpClient == null) {
+            mTransferOkHttpClient = createTransferOkHttpClient();
+        }
+        return mTransferOkHttpClient;
+    }
+
+    /**
+     * 创建下载和上传使用的 OkHttpClient，与默认的 OkHttpClient 共享连接池和线程池，
+     * 但不使用磁盘缓存，也不添加会读取完整请求体和响应体的日志拦截器和缓存拦截器；
+     * 传输耗时取决于文件大小，不计入请求统计
+     */
+    private OkHttpClient createTransferOkHttpClient() {
+        OkHttpClient.Builder builder = getOkHttpClient().newBuilder()
+                .cache(null)
+                .eventListener(EventListener.NONE);
+        Iterator<Interceptor> iterator = builder.interceptors().iterator();
+        while (iterator.hasNext()) {
+            Interceptor interceptor = iterator.next();
+            // 下载和上传有各自的断点续传和分块重试，不再使用通用的重试拦截器；
+            // 传输耗时较长，也不参与熔断的慢请求统计
+            if (interceptor instanceof LogInterceptor || interceptor instanceof CachePolicyInterceptor
+                    || interceptor instanceof RetryInterceptor || interceptor instanceof CircuitBreakerInterceptor
+                    || interceptor instanceof OutboxInterceptor) {
+                iterator.remove();
+            }
+        }
+        iterator = builder.networkInterceptors().iterator();
+        while (iterator.hasNext()) {
+            Interceptor interceptor = iterator.next();
+            // 文件一般已经是压缩格式，不再压缩和协商编码
+            if (interceptor instanceof OfflineCacheControlInterceptor || interceptor instanceof CompressionInterceptor) {
+                iterator.remove();
+            }
         }
         return builder.build();
     }
@@ -103,13 +526,38 @@ public class RetrofitManager {
      * 创建默认的 OkHttp 的 builder
      */
     private OkHttpClient.Builder createDefaultOkBuilder() {
-        return new OkHttpClient.Builder()
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 // 超时时间
                 .connectTimeout(mApiClientConfig.getConnectTimeout(), TimeUnit.SECONDS)
                 .readTimeout(mApiClientConfig.getReadTimeout(), TimeUnit.SECONDS)
                 .writeTimeout(mApiClientConfig.getWriteTimeout(), TimeUnit.SECONDS)
                 // 失败重连
-                .retryOnConnectionFailure(true);
+                .retryOnConnectionFailure(true)
+                // 连接池
+                .connectionPool(new ConnectionPool(mApiClientConfig.getMaxIdleConnections(),
+                        mApiClientConfig.getKeepAliveDuration(), TimeUnit.SECONDS));
+        // 异步请求的并发数和线程池，ApiClient 通过同步请求执行，不受总并发数的限制
+        Dispatcher dispatcher = mApiClientConfig.getDispatcherExecutor() != null
+                ? new Dispatcher(mApiClientConfig.getDispatcherExecutor())
+                : new Dispatcher();
+        dispatcher.setMaxRequests(mApiClientConfig.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(mApiClientConfig.getMaxRequestsPerHost());
+        builder.dispatcher(dispatcher);
+        // 统计请求各个阶段的耗时
+        if (getMetricsRegistry() != null) {
+            builder.eventListenerFactory(new MetricsEventListener.Factory(mMetricsRegistry));
+        }
+        // DNS 解析
+        if (getCachingDns() != null) {
+            builder.dns(mCachingDns);
+        } else if (mApiClientConfig.getDns() != null) {
+            builder.dns(mApiClientConfig.getDns());
+        }
+        // 协议，默认优先使用 HTTP/2
+        if (!mApiClientConfig.isHttp2Enable()) {
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        return builder;
     }
 
     /**
@@ -120,14 +568,53 @@ public class RetrofitManager {
             // 缓存目录
             File cacheDir = new File(mContext.getCacheDir(), mApiClientConfig.getCacheName());
             Cache cache = new Cache(cacheDir, mApiClientConfig.getMaxCacheSize());
-            // 添加离线缓存
-            builder.addNetworkInterceptor(new OfflineCacheControlInterceptor(mContext))
+            mCachePolicyInterceptor = new CachePolicyInterceptor(getConnectivityMonitor());
+            // 添加离线缓存及接口的缓存策略
+            builder.addInterceptor(mCachePolicyInterceptor)
+                    // 设置响应的缓存策略
+                    .addNetworkInterceptor(new OfflineCacheControlInterceptor())
                     // 设置缓存路径
                     .cache(cache);
         }
         return builder;
     }
 
+    /**
+     * 设置请求体压缩和响应体解码
+     */
+    private OkHttpClient.Builder setCompressionInterceptor(@NonNull OkHttpClient.Builder builder) {
+        if (getCompressionStats() != null) {
+            ContentDecoder[] decoders = mApiClientConfig.getContentDecoders();
+            builder.addNetworkInterceptor(new CompressionInterceptor(
+                    decoders != null ? Arrays.asList(decoders) : null,
+                    mApiClientConfig.getRequestCompressionThreshold(), mCompressionStats));
+        }
+        return builder;
+    }
+
+    /**
+     * 设置离线发件箱，添加在重试拦截器之前，重试全部失败后才保存到发件箱
+     */
+    private OkHttpClient.Builder setOutboxInterceptor(@NonNull OkHttpClient.Builder builder) {
+        if (getOutbox() != null) {
+            builder.addInterceptor(new OutboxInterceptor(mOutbox, getConnectivityMonitor()));
+        }
+        return builder;
+    }
+
+    /**
+     * 设置失败重试，添加在缓存拦截器之后，命中缓存的请求不会进入重试流程
+     */
+    private OkHttpClient.Builder setRetryInterceptor(@NonNull OkHttpClient.Builder builder) {
+        if (mApiClientConfig.isRetryEnable()) {
+            RetryBudget budget = new RetryBudget(mApiClientConfig.getRetryBudgetCapacity(),
+                    mApiClientConfig.getRetryBudgetPerSecond());
+            builder.addInterceptor(new RetryInterceptor(mApiClientConfig.getMaxRetries(),
+                    mApiClientConfig.getRetryBaseDelayMillis(), mApiClientConfig.getRetryMaxDelayMillis(), budget));
+        }
+        return builder;
+    }
+
     /**
      * 设置服务器域名验证
      */
@@ -140,13 +627,71 @@ public class RetrofitManager {
     }
 
     /**
-     * 设置多个域名
+     * 设置多个域名，只要设置了 hostKeyInHeader 就会添加，之后可以在运行时替换路由表
      */
     private OkHttpClient.Builder setBaseUrlInterceptor(@NonNull OkHttpClient.Builder builder) {
-        if (!TextUtils.isEmpty(mApiClientConfig.getHostKeyInHeader())
-                && mApiClientConfig.getHostMap() != null
-                && !mApiClientConfig.getHostMap().isEmpty()) {
-            builder.addInterceptor(new BaseUrlInterceptor(mApiClientConfig.getHostKeyInHeader(), mApiClientConfig.getHostMap()));
+        if (!TextUtils.isEmpty(mApiClientConfig.getHostKeyInHeader())) {
+            HostRoutingTable table = mApiClientConfig.getHostRoutingTable() != null
+                    ? mApiClientConfig.getHostRoutingTable()
+                    : HostRoutingTable.compile(mApiClientConfig.getHostMap());
+            mBaseUrlInterceptor = new BaseUrlInterceptor(mApiClientConfig.getHostKeyInHeader(), table);
+            builder.addInterceptor(mBaseUrlInterceptor);
+        }
+        return builder;
+    }
+
+    /**
+     * 替换域名路由表
+     *
+     * @throws IllegalStateException 未设置 hostKeyInHeader
+     */
+    public void setHostRoutingTable(@NonNull HostRoutingTable table) {
+        if (mBaseUrlInterceptor == null) {
+            getOkHttpClient();
+        }
+        if (mBaseUrlInterceptor == null) {
+            throw new IllegalStateException("hostKeyInHeader is not configured");
+        }
+        mBaseUrlInterceptor.setRoutingTable(table);
+    }
+
+    /**
+     * 设置客户端负载均衡，需要在多域名拦截器之后、熔断拦截器之前添加，
+     * 保证熔断按负载均衡选择的最终域名统计
+     */
+    private OkHttpClient.Builder setLoadBalancingInterceptor(@NonNull OkHttpClient.Builder builder) {
+        if (getHostPool() != null) {
+            builder.addInterceptor(new LoadBalancingInterceptor(mHostPool));
+            if (!TextUtils.isEmpty(mApiClientConfig.getHealthCheckPath())) {
+                // 健康检查不经过任何拦截器和缓存，避免影响域名的统计
+                OkHttpClient healthCheckClient = new OkHttpClient.Builder()
+                        .connectTimeout(mApiClientConfig.getConnectTimeout(), TimeUnit.SECONDS)
+                        .readTimeout(mApiClientConfig.getReadTimeout(), TimeUnit.SECONDS)
+                        .build();
+                mHostPool.startHealthCheck(new HttpHealthCheck(healthCheckClient, mApiClientConfig.getHealthCheckPath()),
+                        mApiClientConfig.getHealthCheckInterval());
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * 设置按域名熔断，需要在多域名拦截器之后添加，保证按最终请求的域名统计
+     */
+    private OkHttpClient.Builder setCircuitBreakerInterceptor(@NonNull OkHttpClient.Builder builder) {
+        if (getCircuitBreakerRegistry() != null) {
+            builder.addInterceptor(new CircuitBreakerInterceptor(mCircuitBreakerRegistry));
+        }
+        return builder;
+    }
+
+    /**
+     * 设置批量请求，需要在多域名拦截器之后添加，保证被合并的请求已经替换为最终的域名
+     */
+    private OkHttpClient.Builder setBatchInterceptor(@NonNull OkHttpClient.Builder builder) {
+        if (mApiClientConfig.getBatchCodec() != null) {
+            builder.addInterceptor(new BatchInterceptor(mApiClientConfig.getBatchCodec(),
+                    mApiClientConfig.getBatchWindowMillis(), mApiClientConfig.getBatchMaxSize()));
         }
         return builder;
     }
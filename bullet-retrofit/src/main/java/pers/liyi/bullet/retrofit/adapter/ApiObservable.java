@@ -0,0 +1,70 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Observer;
+import okhttp3.Request;
+import pers.liyi.bullet.retrofit.constant.RequestPriority;
+import pers.liyi.bullet.retrofit.scheduler.PriorityDispatcher;
+import retrofit2.Call;
+
+/**
+ * 携带请求信息的 Observable，由 {@link PriorityCallAdapterFactory} 创建，
+ * ApiClient 根据其中的优先级和域名选择调度器
+ * <p>
+ * 注意：对其使用操作符（如 map）后会丢失这些信息
+ */
+public final class ApiObservable<T> extends Observable<T> implements PriorityDispatcher.HostResolver {
+    private final ObservableSource<T> source;
+    // 接口上配置的优先级
+    private final int priority;
+    // 接口上 @Headers 中配置的路由 value，未配置时为 null
+    private final String routeKey;
+    // 未配置路由 value 时，用于在分发时解析域名的请求
+    private final Call<?> call;
+    // 自定义的路由请求头中的 key
+    private final String hostKeyInHeader;
+
+    ApiObservable(ObservableSource<T> source, int priority, String routeKey, Call<?> call, String hostKeyInHeader) {
+        this.source = source;
+        this.priority = priority;
+        this.routeKey = routeKey;
+        this.call = call;
+        this.hostKeyInHeader = hostKeyInHeader;
+    }
+
+    /**
+     * 接口上配置的优先级，未配置时为 {@link RequestPriority#UNSPECIFIED}
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * 请求的域名，未知时为 null
+     * <p>
+     * 1. 配置了路由请求头时返回其中的 value，与 BaseUrlInterceptor 实际访问的域名组一一对应
+     * 2. 否则需要创建请求（执行转换器、序列化请求体），因此只应在工作线程中调用
+     */
+    @Override
+    public String resolveHost() {
+        if (routeKey != null) {
+            return routeKey;
+        }
+        if (call == null) {
+            return null;
+        }
+        try {
+            Request request = call.request();
+            String value = hostKeyInHeader != null ? request.header(hostKeyInHeader) : null;
+            return value != null ? value : request.url().host();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void subscribeActual(Observer<? super T> observer) {
+        source.subscribe(observer);
+    }
+}
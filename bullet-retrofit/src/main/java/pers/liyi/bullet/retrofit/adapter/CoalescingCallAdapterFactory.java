@@ -0,0 +1,128 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Action;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * 合并相同的并发请求（single-flight）
+ * <p>
+ * 以请求方法、url、返回类型、请求头和请求体的摘要作为标识（见 {@link RequestKey}），当存在相同标识且尚未结束的请求时，
+ * 后来的订阅者直接加入该请求，所有订阅者共享同一次网络请求的结果；
+ * 所有订阅者都取消订阅后，网络请求才会被取消
+ * <p>
+ * 需要添加在 RxJava2CallAdapterFactory 之前，仅处理返回类型为 {@link Observable} 的接口；
+ * 响应为只能读取一次的 JsonArrayReader 或 ResponseBody 时不合并
+ */
+public final class CoalescingCallAdapterFactory extends CallAdapter.Factory {
+    // 默认只合并幂等且无副作用的请求方法
+    private static final String[] DEFAULT_METHODS = {"GET", "HEAD"};
+
+    // 允许合并的请求方法
+    private final Set<String> mMethods;
+    // 请求标识 -> 正在进行的请求
+    private final ConcurrentHashMap<String, Observable<Object>> mInFlight = new ConcurrentHashMap<>();
+
+    public CoalescingCallAdapterFactory() {
+        this(DEFAULT_METHODS);
+    }
+
+    /**
+     * @param methods 允许合并的请求方法，如 "GET"、"POST"
+     */
+    public CoalescingCallAdapterFactory(String... methods) {
+        this.mMethods = new HashSet<>(Arrays.asList(methods));
+    }
+
+    /**
+     * 当前正在进行的合并请求数量
+     */
+    public int getInFlightCount() {
+        return mInFlight.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != Observable.class) {
+            return null;
+        }
+        CallAdapter<Object, Object> delegate =
+                (CallAdapter<Object, Object>) retrofit.nextCallAdapter(this, returnType, annotations);
+        if (ResponseTypes.isOneShot(getRawType(delegate.responseType()))) {
+            // JsonArrayReader、ResponseBody 只能读取一次，不能共享
+            return delegate;
+        }
+        return new CoalescingCallAdapter(delegate);
+    }
+
+    private final class CoalescingCallAdapter implements CallAdapter<Object, Object> {
+        private final CallAdapter<Object, Object> delegate;
+
+        CoalescingCallAdapter(CallAdapter<Object, Object> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Type responseType() {
+            return delegate.responseType();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object adapt(final Call<Object> call) {
+            final Observable<Object> source = (Observable<Object>) delegate.adapt(call);
+            // 在订阅时才加入合并，避免创建后未订阅的请求一直占用标识
+            return Observable.defer(new Callable<ObservableSource<Object>>() {
+                @Override
+                public ObservableSource<Object> call() throws Exception {
+                    String key;
+                    try {
+                        key = mMethods.contains(call.request().method()) ? RequestKey.of(call.request(), responseType()) : null;
+                    } catch (RuntimeException e) {
+                        // 请求创建失败时交由原始请求抛出异常
+                        key = null;
+                    }
+                    return key == null ? source : join(key, source);
+                }
+            });
+        }
+    }
+
+    /**
+     * 加入正在进行的相同请求，不存在时创建新的共享请求
+     */
+    private Observable<Object> join(final String key, Observable<Object> source) {
+        Observable<Object> flight = mInFlight.get(key);
+        if (flight != null) {
+            return flight;
+        }
+        final AtomicReference<Observable<Object>> ref = new AtomicReference<>();
+        Observable<Object> created = source
+                // 请求结束或所有订阅者取消后，移除该请求
+                .doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        mInFlight.remove(key, ref.get());
+                    }
+                })
+                // 缓存最后一个结果，保证在结果返回与移除之间加入的订阅者也能收到结果
+                .replay(1)
+                .refCount();
+        ref.set(created);
+        flight = mInFlight.putIfAbsent(key, created);
+        return flight != null ? flight : created;
+    }
+}
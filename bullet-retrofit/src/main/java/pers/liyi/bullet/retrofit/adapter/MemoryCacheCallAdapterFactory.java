@@ -0,0 +1,145 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Request;
+import pers.liyi.bullet.retrofit.cache.MemoryResponseCache;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.Result;
+
+/**
+ * 内存缓存适配器，位于 OkHttp 磁盘缓存之前
+ * <p>
+ * 仅缓存 GET 请求，缓存的是解析后的响应对象；返回类型为 {@link Response} 或 {@link Result} 的接口不做缓存，
+ * 因为它们可能包含失败的响应；只能读取一次的 JsonArrayReader 和 ResponseBody 也不做缓存
+ * <p>
+ * 需要添加在其他 Observable 适配器之前
+ */
+public final class MemoryCacheCallAdapterFactory extends CallAdapter.Factory {
+    private final MemoryResponseCache mCache;
+    // 正在后台刷新的请求，避免重复刷新
+    private final Set<String> mRevalidating = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public MemoryCacheCallAdapterFactory(@NonNull MemoryResponseCache cache) {
+        this.mCache = cache;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != Observable.class || !(returnType instanceof ParameterizedType)) {
+            return null;
+        }
+        Class<?> observableType = getRawType(getParameterUpperBound(0, (ParameterizedType) returnType));
+        if (observableType == Response.class || observableType == Result.class) {
+            return null;
+        }
+        CallAdapter<Object, Object> delegate =
+                (CallAdapter<Object, Object>) retrofit.nextCallAdapter(this, returnType, annotations);
+        if (ResponseTypes.isOneShot(getRawType(delegate.responseType()))) {
+            // JsonArrayReader、ResponseBody 只能读取一次，不能缓存
+            return delegate;
+        }
+        return new MemoryCacheCallAdapter(delegate);
+    }
+
+    private final class MemoryCacheCallAdapter implements CallAdapter<Object, Object> {
+        private final CallAdapter<Object, Object> delegate;
+
+        MemoryCacheCallAdapter(CallAdapter<Object, Object> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Type responseType() {
+            return delegate.responseType();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object adapt(final Call<Object> call) {
+            final Observable<Object> source = (Observable<Object>) delegate.adapt(call);
+            return Observable.defer(new Callable<ObservableSource<Object>>() {
+                @Override
+                public ObservableSource<Object> call() throws Exception {
+                    Request request;
+                    try {
+                        request = call.request();
+                    } catch (RuntimeException e) {
+                        return source;
+                    }
+                    long ttl = mCache.getTtl(request.url().encodedPath());
+                    if (!"GET".equals(request.method()) || ttl <= 0) {
+                        return source;
+                    }
+                    // 标识包含多域名的标记等请求头以及返回类型，不同域名或不同返回类型的接口不会共享缓存
+                    String key = RequestKey.of(request, responseType());
+                    if (key == null) {
+                        return source;
+                    }
+                    MemoryResponseCache.Entry entry = mCache.get(key);
+                    if (entry != null) {
+                        long age = entry.getAge();
+                        if (age <= ttl) {
+                            return Observable.just(entry.getValue());
+                        }
+                        if (age <= ttl + mCache.getStaleWhileRevalidate()) {
+                            // 先返回旧数据，再在后台刷新
+                            revalidate(key, source);
+                            return Observable.just(entry.getValue());
+                        }
+                    }
+                    return source.doOnNext(store(key));
+                }
+            });
+        }
+    }
+
+    /**
+     * 后台刷新缓存
+     */
+    private void revalidate(final String key, Observable<Object> source) {
+        if (!mRevalidating.add(key)) {
+            return;
+        }
+        source.subscribeOn(Schedulers.io())
+                .doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        mRevalidating.remove(key);
+                    }
+                })
+                // 刷新失败时保留旧数据，等待下一次请求
+                .subscribe(store(key), new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) throws Exception {
+                    }
+                });
+    }
+
+    private Consumer<Object> store(final String key) {
+        return new Consumer<Object>() {
+            @Override
+            public void accept(Object value) throws Exception {
+                if (value != null) {
+                    mCache.put(key, value);
+                }
+            }
+        };
+    }
+}
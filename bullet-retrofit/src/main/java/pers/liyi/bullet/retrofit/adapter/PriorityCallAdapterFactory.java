@@ -0,0 +1,100 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import io.reactivex.Observable;
+import pers.liyi.bullet.retrofit.annotation.Priority;
+import pers.liyi.bullet.retrofit.constant.RequestPriority;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+import retrofit2.http.Headers;
+
+/**
+ * 读取接口上的 {@link Priority} 注解和请求的域名，将返回的 Observable 包装为 {@link ApiObservable}
+ * <p>
+ * 1. 需要添加在所有的 Observable 适配器之前
+ * 2. 域名优先取 @Headers 中配置的路由 value，不会在创建 Observable 时创建请求
+ */
+public final class PriorityCallAdapterFactory extends CallAdapter.Factory {
+    // 自定义的路由请求头中的 key，未配置时为 null
+    private final String hostKeyInHeader;
+
+    public PriorityCallAdapterFactory() {
+        this(null);
+    }
+
+    public PriorityCallAdapterFactory(String hostKeyInHeader) {
+        this.hostKeyInHeader = hostKeyInHeader;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != Observable.class) {
+            return null;
+        }
+        int priority = RequestPriority.UNSPECIFIED;
+        String routeKey = null;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Priority) {
+                priority = ((Priority) annotation).value();
+            } else if (annotation instanceof Headers) {
+                routeKey = findRouteKey((Headers) annotation);
+            }
+        }
+        CallAdapter<Object, Object> delegate =
+                (CallAdapter<Object, Object>) retrofit.nextCallAdapter(this, returnType, annotations);
+        return new PriorityCallAdapter(delegate, priority, routeKey, hostKeyInHeader);
+    }
+
+    /**
+     * 在 @Headers("key: value") 中查找路由请求头的 value
+     */
+    private String findRouteKey(Headers headers) {
+        if (hostKeyInHeader == null) {
+            return null;
+        }
+        for (String header : headers.value()) {
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase(hostKeyInHeader)) {
+                return header.substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    private static final class PriorityCallAdapter implements CallAdapter<Object, Object> {
+        private final CallAdapter<Object, Object> delegate;
+        private final int priority;
+        private final String routeKey;
+        private final String hostKeyInHeader;
+
+        PriorityCallAdapter(CallAdapter<Object, Object> delegate, int priority, String routeKey, String hostKeyInHeader) {
+            this.delegate = delegate;
+            this.priority = priority;
+            this.routeKey = routeKey;
+            this.hostKeyInHeader = hostKeyInHeader;
+        }
+
+        @Override
+        public Type responseType() {
+            return delegate.responseType();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object adapt(Call<Object> call) {
+            // 不在此处创建请求，域名在分发时由 ApiObservable 解析
+            if (routeKey != null) {
+                return new ApiObservable<>((Observable<Object>) delegate.adapt(call), priority,
+                        routeKey, null, hostKeyInHeader);
+            }
+            // 执行时复用解析域名时创建的请求，避免再次执行转换器、序列化请求体
+            ResolvedCall<Object> resolvedCall = new ResolvedCall<>(call);
+            return new ApiObservable<>((Observable<Object>) delegate.adapt(resolvedCall), priority,
+                    null, call, hostKeyInHeader);
+        }
+    }
+}
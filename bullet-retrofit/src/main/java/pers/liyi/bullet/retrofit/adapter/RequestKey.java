@@ -0,0 +1,75 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.Headers;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+/**
+ * 请求标识生成器，由请求方法、完整的 url、接口的返回类型、请求头的摘要以及请求体的摘要组成
+ * <p>
+ * 请求头中包含多域名的标记、下载的目标和 token 等信息，不同的请求头视为不同的请求
+ */
+public final class RequestKey {
+    // 参与摘要计算的请求体的最大字节数，超过该大小（如文件上传）的请求不生成标识
+    private static final long MAX_HASH_BODY_SIZE = 64 * 1024;
+
+    private RequestKey() {
+    }
+
+    /**
+     * 生成请求标识
+     *
+     * @param request 请求
+     * @return 请求标识，请求体无法重复读取、长度未知或过大时返回 null
+     */
+    public static String of(@NonNull Request request) {
+        return of(request, null);
+    }
+
+    /**
+     * 生成请求标识
+     *
+     * @param request      请求
+     * @param responseType 接口的返回类型，相同 url 的接口返回类型不同时不能共享结果
+     * @return 请求标识，请求体无法重复读取、长度未知或过大时返回 null
+     */
+    public static String of(@NonNull Request request, @Nullable Type responseType) {
+        StringBuilder key = new StringBuilder(request.method())
+                .append(' ')
+                .append(request.url());
+        if (responseType != null) {
+            key.append(' ').append(responseType);
+        }
+        Headers headers = request.headers();
+        if (headers.size() > 0) {
+            // 使用摘要，避免 token 等敏感信息以明文保存在标识中
+            Buffer buffer = new Buffer();
+            for (int i = 0, size = headers.size(); i < size; i++) {
+                buffer.writeUtf8(headers.name(i)).writeByte(':').writeUtf8(headers.value(i)).writeByte('\n');
+            }
+            key.append(' ').append(buffer.sha1().hex());
+        }
+        RequestBody body = request.body();
+        if (body != null) {
+            try {
+                long contentLength = body.contentLength();
+                // 长度未知时无法在读取前判断大小，不生成标识
+                if (body.isOneShot() || body.isDuplex() || contentLength < 0 || contentLength > MAX_HASH_BODY_SIZE) {
+                    return null;
+                }
+                Buffer buffer = new Buffer();
+                body.writeTo(buffer);
+                key.append(' ').append(buffer.sha1().hex());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 分发时用于解析域名的 Call
+ * <p>
+ * 解析域名时已经通过 {@link #request()} 创建了请求，RxJava 适配器订阅时会先 clone 再执行，
+ * 第一次 clone 返回原始的 Call 以复用已创建的请求，之后的 clone（重新订阅）才创建新的 Call
+ */
+final class ResolvedCall<T> implements Call<T> {
+    private final Call<T> delegate;
+    // 原始的 Call 是否已被 clone 取走
+    private final AtomicBoolean taken = new AtomicBoolean();
+
+    ResolvedCall(Call<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Response<T> execute() throws IOException {
+        return delegate.execute();
+    }
+
+    @Override
+    public void enqueue(Callback<T> callback) {
+        delegate.enqueue(callback);
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return delegate.isExecuted();
+    }
+
+    @Override
+    public void cancel() {
+        delegate.cancel();
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return delegate.isCanceled();
+    }
+
+    @Override
+    public Call<T> clone() {
+        if (taken.compareAndSet(false, true)) {
+            return delegate;
+        }
+        return delegate.clone();
+    }
+
+    @Override
+    public Request request() {
+        return delegate.request();
+    }
+}
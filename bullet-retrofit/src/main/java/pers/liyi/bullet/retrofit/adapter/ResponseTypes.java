@@ -0,0 +1,23 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import okhttp3.ResponseBody;
+import pers.liyi.bullet.retrofit.converter.JsonArrayReader;
+import retrofit2.CallAdapter;
+
+/**
+ * 响应类型的判断
+ */
+final class ResponseTypes {
+
+    private ResponseTypes() {
+    }
+
+    /**
+     * 响应对象是否只能被读取一次（持有未读完的响应体），这类响应不能缓存，也不能在多个订阅者之间共享
+     *
+     * @param rawType {@link CallAdapter#responseType()} 的原始类型
+     */
+    static boolean isOneShot(Class<?> rawType) {
+        return rawType == JsonArrayReader.class || rawType == ResponseBody.class;
+    }
+}
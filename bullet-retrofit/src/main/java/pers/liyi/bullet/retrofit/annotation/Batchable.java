@@ -0,0 +1,22 @@
+package pers.liyi.bullet.retrofit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记接口允许与其他请求合并为一个批量请求发送，作用于 Retrofit 的接口方法上，例如：
+ * <pre>
+ * &#64;Batchable
+ * &#64;GET("user/{id}")
+ * Observable&lt;User&gt; getUser(&#64;Path("id") String id);
+ * </pre>
+ * 只有在 {@link pers.liyi.bullet.retrofit.ApiClientConfig#setBatchCodec} 设置了编解码器后才会生效
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Batchable {
+}
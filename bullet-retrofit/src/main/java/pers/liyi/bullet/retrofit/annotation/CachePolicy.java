@@ -0,0 +1,42 @@
+package pers.liyi.bullet.retrofit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 接口的缓存策略，作用于 Retrofit 的接口方法上，例如：
+ * <pre>
+ * &#64;CachePolicy(maxAge = 60, staleWhileRevalidate = 600)
+ * &#64;GET("news/list")
+ * Observable&lt;News&gt; getNews();
+ * </pre>
+ * 所有时间的单位均为秒
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachePolicy {
+
+    /**
+     * 缓存的有效期，小于 0 时使用请求头中的配置
+     */
+    int maxAge() default -1;
+
+    /**
+     * 离线时允许使用的过期缓存的最大时间，小于 0 时使用默认的 30 天
+     */
+    int maxStale() default -1;
+
+    /**
+     * 缓存过期后，仍可直接返回旧缓存并在后台刷新的时间，小于等于 0 时不开启
+     */
+    int staleWhileRevalidate() default 0;
+
+    /**
+     * 是否禁止缓存
+     */
+    boolean noStore() default false;
+}
@@ -0,0 +1,27 @@
+package pers.liyi.bullet.retrofit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明接口是否幂等，作用于 Retrofit 的接口方法上，决定请求失败后是否可以自动重试，例如：
+ * <pre>
+ * &#64;Idempotent
+ * &#64;POST("order/query")
+ * Observable&lt;Order&gt; queryOrder(&#64;Body OrderQuery query);
+ * </pre>
+ * 未配置时，GET、HEAD、PUT、DELETE、OPTIONS 请求和携带 Idempotency-Key 请求头的请求视为幂等
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+
+    /**
+     * 是否幂等，为 false 时即使是 GET 请求也不会重试
+     */
+    boolean value() default true;
+}
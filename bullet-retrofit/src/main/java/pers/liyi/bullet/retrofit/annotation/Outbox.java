@@ -0,0 +1,24 @@
+package pers.liyi.bullet.retrofit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明离线时可以暂存到发件箱、在网络恢复后自动重新发送的修改类接口，作用于 Retrofit 的接口方法上，例如：
+ * <pre>
+ * &#64;Outbox
+ * &#64;POST("comment")
+ * Observable&lt;Comment&gt; postComment(&#64;Body Comment comment);
+ * </pre>
+ * 请求会自动携带 Idempotency-Key 请求头（已设置时使用设置的值），服务器需要据此对重复的请求去重；
+ * 离线或暂时性的失败时请求被暂存，本次调用以 {@link pers.liyi.bullet.retrofit.outbox.OutboxQueuedException} 结束，
+ * 重新发送的结果通过 {@link pers.liyi.bullet.retrofit.outbox.OfflineOutbox#setListener} 回调
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Outbox {
+}
@@ -0,0 +1,29 @@
+package pers.liyi.bullet.retrofit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import pers.liyi.bullet.retrofit.constant.RequestPriority;
+
+/**
+ * 接口的请求优先级，作用于 Retrofit 的接口方法上，例如：
+ * <pre>
+ * &#64;Priority(RequestPriority.BACKGROUND)
+ * &#64;POST("analytics/report")
+ * Observable&lt;Result&gt; report(&#64;Body Event event);
+ * </pre>
+ * 通过 {@link pers.liyi.bullet.retrofit.response.ApiResponse#setPriority(int)} 设置的优先级会覆盖此配置
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Priority {
+
+    /**
+     * 优先级，取值见 {@link RequestPriority}
+     */
+    int value();
+}
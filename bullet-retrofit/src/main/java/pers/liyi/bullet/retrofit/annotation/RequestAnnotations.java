@@ -0,0 +1,54 @@
+package pers.liyi.bullet.retrofit.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.NonNull;
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * 在拦截器中读取请求对应的 Retrofit 接口方法上的注解，读取结果会被缓存，避免每次请求都进行反射
+ */
+public final class RequestAnnotations {
+    // 未配置注解时的占位符
+    private static final Object NONE = new Object();
+    // 接口方法 -> (注解类型 -> 注解)
+    private static final ConcurrentHashMap<Method, ConcurrentHashMap<Class<?>, Object>> sCache = new ConcurrentHashMap<>();
+
+    private RequestAnnotations() {
+    }
+
+    /**
+     * 获取请求对应的接口方法上的注解
+     *
+     * @param request 请求
+     * @param type    注解类型
+     * @return 不是由 Retrofit 创建的请求或未配置该注解时返回 null
+     */
+    public static <A extends Annotation> A get(@NonNull Request request, @NonNull Class<A> type) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation == null) {
+            return null;
+        }
+        Method method = invocation.method();
+        ConcurrentHashMap<Class<?>, Object> annotations = sCache.get(method);
+        if (annotations == null) {
+            annotations = new ConcurrentHashMap<>();
+            ConcurrentHashMap<Class<?>, Object> existing = sCache.putIfAbsent(method, annotations);
+            if (existing != null) {
+                annotations = existing;
+            }
+        }
+        Object annotation = annotations.get(type);
+        if (annotation == null) {
+            annotation = method.getAnnotation(type);
+            if (annotation == null) {
+                annotation = NONE;
+            }
+            annotations.put(type, annotation);
+        }
+        return annotation == NONE ? null : type.cast(annotation);
+    }
+}
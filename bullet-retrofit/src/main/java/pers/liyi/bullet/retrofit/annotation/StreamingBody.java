@@ -0,0 +1,28 @@
+package pers.liyi.bullet.retrofit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记接口的 &#64;Body 在发送时才流式序列化，作用于 Retrofit 的接口方法上，例如：
+ * <pre>
+ * &#64;StreamingBody
+ * &#64;POST("logs")
+ * Observable&lt;Result&gt; upload(&#64;Body List&lt;Log&gt; logs);
+ * </pre>
+ * 适用于很大的请求对象，注意：
+ * <p>
+ * 1. 请求体的长度未知，使用分块传输，部分服务器不支持（返回 411）
+ * 2. 发送时才序列化，对象在发起请求后被修改会影响发送的内容
+ * 3. 日志中不会输出请求体
+ * <p>
+ * 只在使用 {@link pers.liyi.bullet.retrofit.converter.StreamingGsonConverterFactory} 时生效
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StreamingBody {
+}
@@ -0,0 +1,33 @@
+package pers.liyi.bullet.retrofit.batch;
+
+import java.io.IOException;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 批量请求的编解码器，负责将多个请求合并为一个请求，并将批量响应拆分为每个请求各自的响应
+ */
+public interface BatchCodec {
+
+    /**
+     * 将多个请求合并为一个批量请求
+     *
+     * @param requests 需要合并的请求，至少包含两个
+     * @return 批量请求
+     */
+    @NonNull
+    Request encode(@NonNull List<Request> requests) throws IOException;
+
+    /**
+     * 将批量响应拆分为每个请求各自的响应
+     *
+     * @param response 批量请求的响应，调用方会在解码完成后关闭
+     * @param requests 合并前的请求
+     * @return 与 requests 顺序一一对应的响应
+     */
+    @NonNull
+    List<Response> decode(@NonNull Response response, @NonNull List<Request> requests) throws IOException;
+}
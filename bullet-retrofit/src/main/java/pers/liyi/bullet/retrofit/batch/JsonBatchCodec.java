@@ -0,0 +1,144 @@
+package pers.liyi.bullet.retrofit.batch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * 默认的 JSON 格式批量请求编解码器
+ * <p>
+ * 批量请求体：
+ * <pre>
+ * [{"method": "GET", "url": "https://...", "headers": {"name": "value"}, "body": "..."}, ...]
+ * </pre>
+ * 批量响应体，顺序与请求一致：
+ * <pre>
+ * [{"code": 200, "headers": {"name": "value"}, "body": "..."}, ...]
+ * </pre>
+ * 请求体和响应体均按 UTF-8 文本传输，因此只适用于文本类型的接口
+ */
+public class JsonBatchCodec implements BatchCodec {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    // 服务端的批量请求接口地址
+    private final String mBatchUrl;
+
+    public JsonBatchCodec(@NonNull String batchUrl) {
+        this.mBatchUrl = batchUrl;
+    }
+
+    @NonNull
+    @Override
+    public Request encode(@NonNull List<Request> requests) throws IOException {
+        Buffer buffer = new Buffer();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(buffer.outputStream(), UTF_8));
+        writer.beginArray();
+        for (Request request : requests) {
+            writer.beginObject();
+            writer.name("method").value(request.method());
+            writer.name("url").value(request.url().toString());
+            writer.name("headers");
+            writeHeaders(writer, request);
+            RequestBody body = request.body();
+            if (body != null) {
+                Buffer content = new Buffer();
+                body.writeTo(content);
+                writer.name("body").value(content.readUtf8());
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.close();
+        return new Request.Builder()
+                .url(mBatchUrl)
+                .post(RequestBody.create(buffer.readByteString(), JSON))
+                .build();
+    }
+
+    private void writeHeaders(JsonWriter writer, Request request) throws IOException {
+        writer.beginObject();
+        Headers headers = request.headers();
+        for (int i = 0, size = headers.size(); i < size; i++) {
+            writer.name(headers.name(i)).value(headers.value(i));
+        }
+        RequestBody body = request.body();
+        if (body != null && body.contentType() != null && headers.get("Content-Type") == null) {
+            writer.name("Content-Type").value(body.contentType().toString());
+        }
+        writer.endObject();
+    }
+
+    @NonNull
+    @Override
+    public List<Response> decode(@NonNull Response response, @NonNull List<Request> requests) throws IOException {
+        ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            throw new IOException("Batch request failed: " + response.code());
+        }
+        JsonArray array;
+        try {
+            array = new JsonParser().parse(body.charStream()).getAsJsonArray();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed batch response", e);
+        }
+        if (array.size() != requests.size()) {
+            throw new IOException("Batch response size " + array.size() + " does not match request size " + requests.size());
+        }
+        try {
+            return decodeParts(array, response, requests);
+        } catch (RuntimeException e) {
+            // 子响应缺少字段或字段类型不正确
+            throw new IOException("Malformed batch response", e);
+        }
+    }
+
+    private List<Response> decodeParts(JsonArray array, Response response, List<Request> requests) {
+        List<Response> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            JsonObject item = array.get(i).getAsJsonObject();
+            Headers.Builder headers = new Headers.Builder();
+            JsonElement headersElement = item.get("headers");
+            if (headersElement != null && headersElement.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> header : headersElement.getAsJsonObject().entrySet()) {
+                    headers.add(header.getKey(), header.getValue().getAsString());
+                }
+            }
+            Headers partHeaders = headers.build();
+            String contentType = partHeaders.get("Content-Type");
+            JsonElement bodyElement = item.get("body");
+            String content = bodyElement == null || bodyElement.isJsonNull() ? ""
+                    : bodyElement.isJsonPrimitive() ? bodyElement.getAsString() : bodyElement.toString();
+            responses.add(new Response.Builder()
+                    .request(requests.get(i))
+                    .protocol(response.protocol())
+                    .code(item.get("code").getAsInt())
+                    .message("")
+                    .headers(partHeaders)
+                    .body(ResponseBody.create(content, contentType != null ? MediaType.parse(contentType) : JSON))
+                    .sentRequestAtMillis(response.sentRequestAtMillis())
+                    .receivedResponseAtMillis(response.receivedResponseAtMillis())
+                    .build());
+        }
+        return responses;
+    }
+}
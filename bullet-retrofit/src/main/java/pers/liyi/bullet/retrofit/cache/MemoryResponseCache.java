@@ -0,0 +1,116 @@
+package pers.liyi.bullet.retrofit.cache;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 内存响应缓存，缓存的是已经解析完成的响应对象，命中时无需读取磁盘和重新解析 json
+ * <p>
+ * 1. 按条目数量限制大小，超出后按 LRU 淘汰
+ * 2. 支持默认有效期和按接口路径配置的有效期
+ * 3. 过期后的 stale-while-revalidate 时间内，仍可直接返回旧数据，同时在后台刷新
+ * <p>
+ * 注意：缓存的对象会被多个请求共享，使用方不应修改返回的对象
+ */
+public class MemoryResponseCache {
+    // 缓存存储器
+    private final LruCache<String, Entry> mCache;
+    // 默认有效期，单位毫秒
+    private final long mDefaultTtl;
+    // 过期后允许返回旧数据并后台刷新的时间，单位毫秒
+    private final long mStaleWhileRevalidate;
+    // 接口路径前缀 -> 有效期，单位毫秒
+    private final Map<String, Long> mTtlMap;
+
+    /**
+     * @param maxEntries           最大缓存条目数
+     * @param defaultTtl           默认有效期，单位秒，小于等于 0 时只缓存 ttlMap 中配置的接口
+     * @param staleWhileRevalidate 过期后允许返回旧数据并后台刷新的时间，单位秒
+     * @param ttlMap               接口路径前缀（如 "/user/profile"）与有效期（单位秒）的映射
+     */
+    public MemoryResponseCache(int maxEntries, int defaultTtl, int staleWhileRevalidate, Map<String, Integer> ttlMap) {
+        this.mCache = new LruCache<>(maxEntries);
+        this.mDefaultTtl = defaultTtl * 1000L;
+        this.mStaleWhileRevalidate = staleWhileRevalidate * 1000L;
+        this.mTtlMap = new HashMap<>();
+        if (ttlMap != null) {
+            for (Map.Entry<String, Integer> entry : ttlMap.entrySet()) {
+                mTtlMap.put(entry.getKey(), entry.getValue() * 1000L);
+            }
+        }
+    }
+
+    /**
+     * 获取接口的有效期，优先使用最长匹配的路径前缀的配置
+     *
+     * @param path 接口路径
+     * @return 有效期，单位毫秒，小于等于 0 表示不缓存
+     */
+    public long getTtl(@NonNull String path) {
+        long ttl = mDefaultTtl;
+        int matchedLength = -1;
+        for (Map.Entry<String, Long> entry : mTtlMap.entrySet()) {
+            String prefix = entry.getKey();
+            if (prefix.length() > matchedLength && path.startsWith(prefix)) {
+                ttl = entry.getValue();
+                matchedLength = prefix.length();
+            }
+        }
+        return ttl;
+    }
+
+    public long getStaleWhileRevalidate() {
+        return mStaleWhileRevalidate;
+    }
+
+    public Entry get(@NonNull String key) {
+        return mCache.get(key);
+    }
+
+    public void put(@NonNull String key, @NonNull Object value) {
+        mCache.put(key, new Entry(value, SystemClock.elapsedRealtime()));
+    }
+
+    public void remove(@NonNull String key) {
+        mCache.remove(key);
+    }
+
+    public void evictAll() {
+        mCache.evictAll();
+    }
+
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * 缓存条目
+     */
+    public static final class Entry {
+        // 解析完成的响应对象
+        private final Object value;
+        // 写入缓存的时间
+        private final long storedAt;
+
+        Entry(Object value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * 缓存已存在的时间，单位毫秒
+         */
+        public long getAge() {
+            return SystemClock.elapsedRealtime() - storedAt;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package pers.liyi.bullet.retrofit.circuit;
+
+import android.os.SystemClock;
+
+/**
+ * 单个域名的熔断器
+ * <p>
+ * 使用固定大小的环形数组记录最近 windowSize 个请求的结果，
+ * 请求数达到最小请求数后，失败率或慢请求比例超过阈值时打开熔断器；
+ * 打开一段时间后进入半开状态，放行少量探测请求，全部成功时关闭，任意一个失败时重新打开。
+ * 状态只在持有锁时修改，请求量很大时锁只保护几次数组读写，开销可以忽略
+ */
+public class CircuitBreaker {
+    private final String mHost;
+    private final CircuitBreakerRegistry.Settings mSettings;
+    private final CircuitBreakerRegistry mRegistry;
+
+    // 以下字段由 this 保护
+    private int mState = CircuitState.CLOSED;
+    // 最近请求的结果：0 成功，1 失败，2 慢请求，3 失败且慢
+    private final byte[] mWindow;
+    private int mWindowIndex;
+    private int mWindowCount;
+    private int mFailureCount;
+    private int mSlowCount;
+    // 打开状态的结束时间
+    private long mOpenUntil;
+    // 半开状态下剩余可放行的探测请求数和已成功的探测请求数
+    private int mHalfOpenPermits;
+    private int mHalfOpenSuccesses;
+
+    CircuitBreaker(String host, CircuitBreakerRegistry.Settings settings, CircuitBreakerRegistry registry) {
+        this.mHost = host;
+        this.mSettings = settings;
+        this.mRegistry = registry;
+        this.mWindow = new byte[settings.windowSize];
+    }
+
+    public String getHost() {
+        return mHost;
+    }
+
+    /**
+     * 当前状态，见 {@link CircuitState}
+     */
+    public synchronized int getState() {
+        return mState;
+    }
+
+    /**
+     * 请求发送前调用
+     *
+     * @return 是否允许发送请求
+     */
+    public boolean tryAcquire() {
+        CircuitStateChange change = null;
+        boolean permitted;
+        synchronized (this) {
+            if (mState == CircuitState.OPEN) {
+                if (SystemClock.elapsedRealtime() < mOpenUntil) {
+                    return false;
+                }
+                change = transitionTo(CircuitState.HALF_OPEN);
+            }
+            if (mState == CircuitState.HALF_OPEN) {
+                permitted = mHalfOpenPermits > 0;
+                if (permitted) {
+                    mHalfOpenPermits--;
+                }
+            } else {
+                permitted = true;
+            }
+        }
+        mRegistry.publish(change);
+        return permitted;
+    }
+
+    /**
+     * 请求结束后调用
+     *
+     * @param durationMillis 请求耗时
+     * @param failed         是否失败
+     */
+    public void onResult(long durationMillis, boolean failed) {
+        boolean slow = durationMillis >= mSettings.slowCallDurationMillis;
+        CircuitStateChange change = null;
+        synchronized (this) {
+            if (mState == CircuitState.HALF_OPEN) {
+                if (failed || slow) {
+                    change = transitionTo(CircuitState.OPEN);
+                } else if (++mHalfOpenSuccesses >= mSettings.halfOpenCalls) {
+                    change = transitionTo(CircuitState.CLOSED);
+                }
+            } else if (mState == CircuitState.CLOSED) {
+                record(failed, slow);
+                if (mWindowCount >= mSettings.minimumCalls
+                        && (getFailureRate() >= mSettings.failureRateThreshold
+                        || getSlowCallRate() >= mSettings.slowCallRateThreshold)) {
+                    change = transitionTo(CircuitState.OPEN);
+                }
+            }
+        }
+        mRegistry.publish(change);
+    }
+
+    /**
+     * 请求被取消等不计入统计的情况，半开状态下归还探测名额
+     */
+    public synchronized void onIgnored() {
+        if (mState == CircuitState.HALF_OPEN) {
+            mHalfOpenPermits++;
+        }
+    }
+
+    /**
+     * 最近请求的失败率，单位百分比
+     */
+    public synchronized float getFailureRate() {
+        return mWindowCount == 0 ? 0 : mFailureCount * 100f / mWindowCount;
+    }
+
+    /**
+     * 最近请求的慢请求比例，单位百分比
+     */
+    public synchronized float getSlowCallRate() {
+        return mWindowCount == 0 ? 0 : mSlowCount * 100f / mWindowCount;
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (mWindowCount == mWindow.length) {
+            // 窗口已满，移除最早的结果
+            byte old = mWindow[mWindowIndex];
+            mFailureCount -= old & 1;
+            mSlowCount -= (old >> 1) & 1;
+        } else {
+            mWindowCount++;
+        }
+        byte outcome = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        mWindow[mWindowIndex] = outcome;
+        mFailureCount += outcome & 1;
+        mSlowCount += (outcome >> 1) & 1;
+        mWindowIndex = (mWindowIndex + 1) % mWindow.length;
+    }
+
+    private CircuitStateChange transitionTo(int state) {
+        int from = mState;
+        CircuitStateChange change = new CircuitStateChange(mHost, from, state, getFailureRate(), getSlowCallRate());
+        mState = state;
+        switch (state) {
+            case CircuitState.OPEN:
+                mOpenUntil = SystemClock.elapsedRealtime() + mSettings.openDurationMillis;
+                break;
+            case CircuitState.HALF_OPEN:
+                mHalfOpenPermits = mSettings.halfOpenCalls;
+                mHalfOpenSuccesses = 0;
+                break;
+            case CircuitState.CLOSED:
+                // 重新开始统计
+                mWindowIndex = 0;
+                mWindowCount = 0;
+                mFailureCount = 0;
+                mSlowCount = 0;
+                break;
+            default:
+                break;
+        }
+        return change;
+    }
+}
@@ -0,0 +1,21 @@
+package pers.liyi.bullet.retrofit.circuit;
+
+import java.io.IOException;
+
+/**
+ * 熔断器处于打开状态，请求未发送直接失败
+ */
+public class CircuitBreakerOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String host;
+
+    public CircuitBreakerOpenException(String host) {
+        super("Circuit breaker is open for " + host);
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
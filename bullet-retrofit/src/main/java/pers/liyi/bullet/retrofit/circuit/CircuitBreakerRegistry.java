@@ -0,0 +1,101 @@
+package pers.liyi.bullet.retrofit.circuit;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * 按域名管理熔断器，并提供熔断器状态变化的事件流
+ */
+public class CircuitBreakerRegistry {
+    private final Settings mSettings;
+    // 域名 -> 熔断器
+    private final ConcurrentHashMap<String, CircuitBreaker> mBreakers = new ConcurrentHashMap<>();
+    private final Subject<CircuitStateChange> mChangeSubject = PublishSubject.<CircuitStateChange>create().toSerialized();
+
+    /**
+     * @param windowSize             统计的最近请求数量
+     * @param minimumCalls           开始计算失败率所需的最小请求数量
+     * @param failureRateThreshold   打开熔断器的失败率阈值，单位百分比
+     * @param slowCallRateThreshold  打开熔断器的慢请求比例阈值，单位百分比
+     * @param slowCallDurationMillis 慢请求的耗时阈值
+     * @param openDurationMillis     熔断器打开后进入半开状态前的等待时间
+     * @param halfOpenCalls          半开状态下放行的探测请求数量
+     */
+    public CircuitBreakerRegistry(int windowSize, int minimumCalls, float failureRateThreshold,
+                                  float slowCallRateThreshold, long slowCallDurationMillis,
+                                  long openDurationMillis, int halfOpenCalls) {
+        this.mSettings = new Settings(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold,
+                slowCallDurationMillis, openDurationMillis, halfOpenCalls);
+    }
+
+    /**
+     * 获取域名对应的熔断器，不存在时创建
+     *
+     * @param host 域名，格式为 host:port
+     */
+    @NonNull
+    public CircuitBreaker get(@NonNull String host) {
+        CircuitBreaker breaker = mBreakers.get(host);
+        if (breaker == null) {
+            breaker = new CircuitBreaker(host, mSettings, this);
+            CircuitBreaker existing = mBreakers.putIfAbsent(host, breaker);
+            if (existing != null) {
+                breaker = existing;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * 获取域名对应的熔断器状态，见 {@link CircuitState}
+     */
+    public int getState(@NonNull String host) {
+        CircuitBreaker breaker = mBreakers.get(host);
+        return breaker != null ? breaker.getState() : CircuitState.CLOSED;
+    }
+
+    /**
+     * 熔断器状态变化的事件流，事件在状态变化的线程中发出
+     */
+    public Observable<CircuitStateChange> observe() {
+        return mChangeSubject;
+    }
+
+    /**
+     * 移除所有的熔断器，重新开始统计
+     */
+    public void reset() {
+        mBreakers.clear();
+    }
+
+    void publish(CircuitStateChange change) {
+        if (change != null) {
+            mChangeSubject.onNext(change);
+        }
+    }
+
+    static final class Settings {
+        final int windowSize;
+        final int minimumCalls;
+        final float failureRateThreshold;
+        final float slowCallRateThreshold;
+        final long slowCallDurationMillis;
+        final long openDurationMillis;
+        final int halfOpenCalls;
+
+        Settings(int windowSize, int minimumCalls, float failureRateThreshold, float slowCallRateThreshold,
+                 long slowCallDurationMillis, long openDurationMillis, int halfOpenCalls) {
+            this.windowSize = Math.max(1, windowSize);
+            this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+            this.failureRateThreshold = failureRateThreshold;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            this.slowCallDurationMillis = slowCallDurationMillis;
+            this.openDurationMillis = openDurationMillis;
+            this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        }
+    }
+}
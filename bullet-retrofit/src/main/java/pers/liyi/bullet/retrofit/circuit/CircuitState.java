@@ -0,0 +1,35 @@
+package pers.liyi.bullet.retrofit.circuit;
+
+/**
+ * 熔断器状态
+ */
+public final class CircuitState {
+    /**
+     * 关闭，请求正常发送，同时统计失败率和慢请求比例
+     */
+    public static final int CLOSED = 0;
+    /**
+     * 打开，请求直接失败，等待一段时间后进入半开状态
+     */
+    public static final int OPEN = 1;
+    /**
+     * 半开，只允许少量的探测请求，全部成功后关闭，否则重新打开
+     */
+    public static final int HALF_OPEN = 2;
+
+    private CircuitState() {
+    }
+
+    public static String toString(int state) {
+        switch (state) {
+            case CLOSED:
+                return "CLOSED";
+            case OPEN:
+                return "OPEN";
+            case HALF_OPEN:
+                return "HALF_OPEN";
+            default:
+                return String.valueOf(state);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pers.liyi.bullet.retrofit.circuit;
+
+/**
+ * 熔断器的状态变化事件
+ */
+public final class CircuitStateChange {
+    // 域名，格式为 host:port
+    private final String host;
+    // 变化前的状态，见 {@link CircuitState}
+    private final int fromState;
+    // 变化后的状态，见 {@link CircuitState}
+    private final int toState;
+    // 变化时的失败率，单位百分比
+    private final float failureRate;
+    // 变化时的慢请求比例，单位百分比
+    private final float slowCallRate;
+
+    CircuitStateChange(String host, int fromState, int toState, float failureRate, float slowCallRate) {
+        this.host = host;
+        this.fromState = fromState;
+        this.toState = toState;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getFromState() {
+        return fromState;
+    }
+
+    public int getToState() {
+        return toState;
+    }
+
+    public float getFailureRate() {
+        return failureRate;
+    }
+
+    public float getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    @Override
+    public String toString() {
+        return host + ": " + CircuitState.toString(fromState) + " -> " + CircuitState.toString(toState)
+                + " (failure " + failureRate + "%, slow " + slowCallRate + "%)";
+    }
+}
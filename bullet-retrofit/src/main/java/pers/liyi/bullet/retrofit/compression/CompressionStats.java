@@ -0,0 +1,87 @@
+package pers.liyi.bullet.retrofit.compression;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压缩统计，记录压缩前后的字节数，用于评估按流量计费的网络下节省的流量
+ * <p>
+ * 响应体的字节数在响应体读取完毕或关闭时记录，未读取的部分不计入
+ */
+public class CompressionStats {
+    // 压缩的请求数量
+    private final AtomicLong mRequestCount = new AtomicLong();
+    // 请求体压缩前的字节数
+    private final AtomicLong mRequestRawBytes = new AtomicLong();
+    // 请求体压缩后的字节数
+    private final AtomicLong mRequestEncodedBytes = new AtomicLong();
+    // 解码的响应数量
+    private final AtomicLong mResponseCount = new AtomicLong();
+    // 响应体解码前（网络传输）的字节数
+    private final AtomicLong mResponseEncodedBytes = new AtomicLong();
+    // 响应体解码后的字节数
+    private final AtomicLong mResponseDecodedBytes = new AtomicLong();
+
+    public void recordRequest(long rawBytes, long encodedBytes) {
+        mRequestCount.incrementAndGet();
+        mRequestRawBytes.addAndGet(rawBytes);
+        mRequestEncodedBytes.addAndGet(encodedBytes);
+    }
+
+    public void recordResponse(long encodedBytes, long decodedBytes) {
+        mResponseCount.incrementAndGet();
+        mResponseEncodedBytes.addAndGet(encodedBytes);
+        mResponseDecodedBytes.addAndGet(decodedBytes);
+    }
+
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public long getRequestRawBytes() {
+        return mRequestRawBytes.get();
+    }
+
+    public long getRequestEncodedBytes() {
+        return mRequestEncodedBytes.get();
+    }
+
+    public long getResponseCount() {
+        return mResponseCount.get();
+    }
+
+    public long getResponseEncodedBytes() {
+        return mResponseEncodedBytes.get();
+    }
+
+    public long getResponseDecodedBytes() {
+        return mResponseDecodedBytes.get();
+    }
+
+    /**
+     * 请求体和响应体一共节省的字节数
+     */
+    public long getSavedBytes() {
+        return getRequestRawBytes() - getRequestEncodedBytes()
+                + getResponseDecodedBytes() - getResponseEncodedBytes();
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void reset() {
+        mRequestCount.set(0);
+        mRequestRawBytes.set(0);
+        mRequestEncodedBytes.set(0);
+        mResponseCount.set(0);
+        mResponseEncodedBytes.set(0);
+        mResponseDecodedBytes.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "requests=%d %d->%d bytes, responses=%d %d->%d bytes, saved=%d bytes",
+                getRequestCount(), getRequestRawBytes(), getRequestEncodedBytes(),
+                getResponseCount(), getResponseEncodedBytes(), getResponseDecodedBytes(), getSavedBytes());
+    }
+}
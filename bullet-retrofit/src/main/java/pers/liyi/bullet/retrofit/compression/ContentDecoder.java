@@ -0,0 +1,40 @@
+package pers.liyi.bullet.retrofit.compression;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okio.Source;
+
+/**
+ * 响应体的解码器，对应响应头 Content-Encoding 中的一种编码
+ * <p>
+ * 内置 {@link GzipDecoder}；Brotli、zstd 等编码需要引入对应的解码库后自行实现，例如使用 org.brotli:dec：
+ * <pre>
+ * public class BrotliDecoder implements ContentDecoder {
+ *     public String encoding() {
+ *         return "br";
+ *     }
+ *
+ *     public Source decode(Source source) throws IOException {
+ *         return Okio.source(new BrotliInputStream(Okio.buffer(source).inputStream()));
+ *     }
+ * }
+ * </pre>
+ */
+public interface ContentDecoder {
+
+    /**
+     * 编码名称，用于请求头 Accept-Encoding 和匹配响应头 Content-Encoding，例如 gzip、br、zstd
+     */
+    @NonNull
+    String encoding();
+
+    /**
+     * 解码响应体，在读取响应体的线程中调用
+     *
+     * @param source 编码后的响应体
+     * @return 解码后的响应体，关闭时需要同时关闭 source
+     */
+    @NonNull
+    Source decode(@NonNull Source source) throws IOException;
+}
@@ -0,0 +1,24 @@
+package pers.liyi.bullet.retrofit.compression;
+
+import androidx.annotation.NonNull;
+import okio.GzipSource;
+import okio.Source;
+
+/**
+ * gzip 解码器
+ */
+public class GzipDecoder implements ContentDecoder {
+    public static final String ENCODING = "gzip";
+
+    @NonNull
+    @Override
+    public String encoding() {
+        return ENCODING;
+    }
+
+    @NonNull
+    @Override
+    public Source decode(@NonNull Source source) {
+        return new GzipSource(source);
+    }
+}
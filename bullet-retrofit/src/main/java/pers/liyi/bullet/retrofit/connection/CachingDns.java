@@ -0,0 +1,165 @@
+package pers.liyi.bullet.retrofit.connection;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import androidx.annotation.NonNull;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Dns;
+
+/**
+ * 带缓存的 DNS 解析
+ * <p>
+ * 1. 解析结果在有效期内直接返回，不再发起 DNS 查询
+ * 2. 过期后的一段时间内仍返回旧的结果，同时在后台刷新，请求不需要等待 DNS 查询
+ * 3. 超过旧数据可用时间后同步解析，解析失败时仍返回旧的结果，都没有时抛出 {@link UnknownHostException}
+ * 4. 同一个域名同时只有一次 DNS 查询，并发的请求共享查询结果
+ */
+public class CachingDns implements Dns {
+    private static final String TAG = "CachingDns";
+
+    private final Dns mDelegate;
+    private final long mTtlMillis;
+    private final long mStaleMillis;
+    // 域名 -> 解析结果
+    private final ConcurrentHashMap<String, Entry> mCache = new ConcurrentHashMap<>();
+    // 域名 -> 正在进行的查询
+    private final ConcurrentHashMap<String, FutureTask<List<InetAddress>>> mInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate    实际执行查询的 DNS
+     * @param ttlMillis   解析结果的有效期
+     * @param staleMillis 过期后仍可返回旧结果并在后台刷新的时间
+     */
+    public CachingDns(@NonNull Dns delegate, long ttlMillis, long staleMillis) {
+        this.mDelegate = delegate;
+        this.mTtlMillis = ttlMillis;
+        this.mStaleMillis = staleMillis;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        Entry entry = mCache.get(hostname);
+        if (entry != null) {
+            long age = SystemClock.elapsedRealtime() - entry.resolvedAt;
+            if (age < mTtlMillis) {
+                return entry.addresses;
+            }
+            if (age < mTtlMillis + mStaleMillis) {
+                refreshAsync(hostname);
+                return entry.addresses;
+            }
+        }
+        try {
+            return resolve(hostname);
+        } catch (UnknownHostException e) {
+            if (entry != null) {
+                // 网络异常时旧的地址往往仍然可用，由连接阶段决定是否失败
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在后台预先解析域名，已经缓存且未过期的域名不会重复解析
+     */
+    public void prefetch(@NonNull String... hostnames) {
+        for (String hostname : hostnames) {
+            Entry entry = mCache.get(hostname);
+            if (entry == null || SystemClock.elapsedRealtime() - entry.resolvedAt >= mTtlMillis) {
+                refreshAsync(hostname);
+            }
+        }
+    }
+
+    /**
+     * 删除域名的缓存，例如网络切换后
+     */
+    public void evict(@NonNull String hostname) {
+        mCache.remove(hostname);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        mCache.clear();
+    }
+
+    private void refreshAsync(final String hostname) {
+        if (mInFlight.containsKey(hostname)) {
+            return;
+        }
+        Schedulers.io().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resolve(hostname);
+                } catch (UnknownHostException e) {
+                    Log.w(TAG, "Failed to resolve " + hostname + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * 解析域名并更新缓存，同一个域名已有查询时等待其结果
+     */
+    private List<InetAddress> resolve(final String hostname) throws UnknownHostException {
+        FutureTask<List<InetAddress>> task = new FutureTask<>(new Callable<List<InetAddress>>() {
+            @Override
+            public List<InetAddress> call() throws Exception {
+                List<InetAddress> addresses = Collections.unmodifiableList(mDelegate.lookup(hostname));
+                mCache.put(hostname, new Entry(addresses, SystemClock.elapsedRealtime()));
+                return addresses;
+            }
+        });
+        FutureTask<List<InetAddress>> running = mInFlight.putIfAbsent(hostname, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                mInFlight.remove(hostname, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unknownHost(hostname, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownHostException) {
+                throw (UnknownHostException) e.getCause();
+            }
+            throw unknownHost(hostname, e.getCause());
+        }
+    }
+
+    private static UnknownHostException unknownHost(String hostname, Throwable cause) {
+        UnknownHostException e = new UnknownHostException("Failed to resolve " + hostname);
+        e.initCause(cause);
+        return e;
+    }
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package pers.liyi.bullet.retrofit.connection;
+
+import android.util.Log;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 连接预热，在启动阶段提前完成 DNS 解析、TCP 连接和 TLS 握手
+ * <p>
+ * 1. 向域名发送 HEAD 请求，响应关闭后连接回到共享的连接池，之后的请求可以直接复用
+ * 2. 使用与默认 OkHttpClient 共享连接池和线程池的客户端，但去掉所有的拦截器和缓存，
+ * 预热请求不会被记录到日志、重试、熔断、负载均衡和请求耗时的统计中
+ * 3. 请求异步执行，失败时只打印日志，不影响正常请求
+ */
+public class ConnectionPrewarmer {
+    private static final String TAG = "ConnectionPrewarmer";
+
+    private final OkHttpClient mClient;
+
+    public ConnectionPrewarmer(@NonNull OkHttpClient client) {
+        OkHttpClient.Builder builder = client.newBuilder()
+                .cache(null)
+                .eventListener(EventListener.NONE);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        this.mClient = builder.build();
+    }
+
+    /**
+     * 预热域名的连接
+     *
+     * @param url         域名，只使用其中的协议、主机地址和端口
+     * @param connections 预热的连接数，HTTP/2 的域名所有请求复用同一个连接，设置多个没有意义
+     */
+    public void prewarm(@NonNull String url, int connections) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            Log.w(TAG, "Invalid url: " + url);
+            return;
+        }
+        Request request = new Request.Builder()
+                .url(httpUrl.resolve("/"))
+                .head()
+                .build();
+        for (int i = 0; i < Math.max(1, connections); i++) {
+            mClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    response.close();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    Log.w(TAG, "Failed to prewarm " + call.request().url() + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 预热多个域名的连接
+     */
+    public void prewarm(@NonNull String[] urls, int connectionsPerHost) {
+        for (String url : urls) {
+            prewarm(url, connectionsPerHost);
+        }
+    }
+}
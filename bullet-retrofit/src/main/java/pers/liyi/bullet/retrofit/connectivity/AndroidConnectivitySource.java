@@ -0,0 +1,67 @@
+package pers.liyi.bullet.retrofit.connectivity;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresPermission;
+import pers.liyi.bullet.retrofit.NetworkUtil;
+
+import static android.Manifest.permission.ACCESS_NETWORK_STATE;
+
+/**
+ * 基于 {@link ConnectivityManager.NetworkCallback} 的网络连接状态来源
+ */
+public class AndroidConnectivitySource implements ConnectivitySource {
+    private Context mContext;
+    private ConnectivityManager.NetworkCallback mNetworkCallback;
+
+    public AndroidConnectivitySource(@NonNull Context context) {
+        this.mContext = context.getApplicationContext();
+    }
+
+    @Override
+    @RequiresPermission(ACCESS_NETWORK_STATE)
+    public boolean isConnected() {
+        return NetworkUtil.isConnected(mContext);
+    }
+
+    @Override
+    @RequiresPermission(ACCESS_NETWORK_STATE)
+    public void start(final Callback callback) {
+        if (mNetworkCallback != null) {
+            return;
+        }
+        mNetworkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                callback.onConnectivityChanged(true);
+            }
+
+            @Override
+            public void onLost(Network network) {
+                // 某个网络断开时，可能仍有其他可用网络，需要重新查询
+                callback.onConnectivityChanged(isConnected());
+            }
+        };
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        getConnectivityManager().registerNetworkCallback(request, mNetworkCallback);
+    }
+
+    @Override
+    public void stop() {
+        if (mNetworkCallback != null) {
+            getConnectivityManager().unregisterNetworkCallback(mNetworkCallback);
+            mNetworkCallback = null;
+        }
+    }
+
+    private ConnectivityManager getConnectivityManager() {
+        return (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+}
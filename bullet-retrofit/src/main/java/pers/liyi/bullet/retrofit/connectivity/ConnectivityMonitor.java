@@ -0,0 +1,67 @@
+package pers.liyi.bullet.retrofit.connectivity;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.functions.Predicate;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * 网络连接状态监听器
+ * <p>
+ * 由状态来源的回调更新当前的连接状态并保存在 volatile 变量中，
+ * 读取状态时无需再通过 ConnectivityManager 进行跨进程查询
+ */
+public class ConnectivityMonitor {
+    private final ConnectivitySource mSource;
+    // 当前是否已连接网络
+    private volatile boolean mConnected;
+    // 网络连接状态的变化流
+    private final Subject<Boolean> mStateSubject;
+
+    public ConnectivityMonitor(@NonNull ConnectivitySource source) {
+        this.mSource = source;
+        this.mConnected = source.isConnected();
+        this.mStateSubject = BehaviorSubject.createDefault(mConnected).toSerialized();
+        source.start(new ConnectivitySource.Callback() {
+            @Override
+            public void onConnectivityChanged(boolean connected) {
+                mConnected = connected;
+                mStateSubject.onNext(connected);
+            }
+        });
+    }
+
+    /**
+     * 当前是否已连接网络
+     */
+    public boolean isConnected() {
+        return mConnected;
+    }
+
+    /**
+     * 网络连接状态的变化流，订阅时会先收到当前状态，之后只在在线/离线切换时收到通知
+     */
+    public Observable<Boolean> observe() {
+        return mStateSubject.distinctUntilChanged();
+    }
+
+    /**
+     * 网络从离线恢复到在线的事件流，可用于恢复等待中的请求
+     */
+    public Observable<Boolean> observeOnline() {
+        return observe().skip(1).filter(new Predicate<Boolean>() {
+            @Override
+            public boolean test(Boolean connected) throws Exception {
+                return connected;
+            }
+        });
+    }
+
+    /**
+     * 停止监听
+     */
+    public void release() {
+        mSource.stop();
+    }
+}
@@ -0,0 +1,34 @@
+package pers.liyi.bullet.retrofit.connectivity;
+
+/**
+ * 网络连接状态来源，测试时可替换为自定义的实现
+ */
+public interface ConnectivitySource {
+
+    /**
+     * 查询当前的网络连接状态
+     */
+    boolean isConnected();
+
+    /**
+     * 开始监听网络连接状态的变化
+     *
+     * @param callback 状态变化回调
+     */
+    void start(Callback callback);
+
+    /**
+     * 停止监听网络连接状态的变化
+     */
+    void stop();
+
+    interface Callback {
+
+        /**
+         * 网络连接状态发生变化
+         *
+         * @param connected 是否已连接网络
+         */
+        void onConnectivityChanged(boolean connected);
+    }
+}
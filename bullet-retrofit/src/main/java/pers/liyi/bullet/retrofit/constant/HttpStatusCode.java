@@ -44,6 +44,11 @@ public final class HttpStatusCode {
      * {@link pers.liyi.bullet.retrofit.R.string#bullet_http_status_err_uri_long}
      */
     public static final int REQUEST_URI_LONG = 414;
+    /**
+     * 请求过于频繁
+     * {@link pers.liyi.bullet.retrofit.R.string#bullet_http_status_err_too_many_requests}
+     */
+    public static final int TOO_MANY_REQUESTS = 429;
     /**
      * 服务器错误
      * {@link pers.liyi.bullet.retrofit.R.string#bullet_http_status_err_server_error}
@@ -24,4 +24,12 @@ public final class NetworkErrorType {
      * 数据解析错误
      */
     public static final int PARSE_ERROR = 1004;
+    /**
+     * 服务器故障，熔断器已打开，请求未发送
+     */
+    public static final int CIRCUIT_OPEN_ERROR = 1005;
+    /**
+     * 网络不可用，请求已保存到离线发件箱
+     */
+    public static final int OUTBOX_QUEUED_ERROR = 1006;
 }
@@ -0,0 +1,23 @@
+package pers.liyi.bullet.retrofit.constant;
+
+/**
+ * 请求优先级
+ */
+public final class RequestPriority {
+    /**
+     * 未指定，使用接口上 {@link pers.liyi.bullet.retrofit.annotation.Priority} 的配置或 {@link #NORMAL}
+     */
+    public static final int UNSPECIFIED = -1;
+    /**
+     * 用户正在等待的请求，如页面首屏数据
+     */
+    public static final int USER_BLOCKING = 0;
+    /**
+     * 普通请求
+     */
+    public static final int NORMAL = 1;
+    /**
+     * 后台请求，如预加载、统计、同步等，存在用户正在等待的请求时延后执行
+     */
+    public static final int BACKGROUND = 2;
+}
@@ -0,0 +1,97 @@
+package pers.liyi.bullet.retrofit.converter;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import okhttp3.ResponseBody;
+import pers.liyi.bullet.retrofit.listener.OnJsonElementListener;
+
+/**
+ * 增量读取 json 数组的响应，每次只解析一个元素，不会把整个数组读入内存
+ * <p>
+ * 作为 Retrofit 接口的返回类型使用，需要同时添加 &#64;Streaming 注解，否则响应体仍会被完整读入内存：
+ * <pre>
+ * &#64;Streaming
+ * &#64;GET("item/list")
+ * Observable&lt;JsonArrayReader&lt;Item&gt;&gt; getItems();
+ * </pre>
+ * 读取会进行网络 IO，不能在主线程中调用；读取完成或不再需要时必须调用 {@link #close()}
+ */
+public class JsonArrayReader<T> implements Closeable {
+    private final ResponseBody mBody;
+    private final JsonReader mReader;
+    private final TypeAdapter<T> mAdapter;
+    private boolean mStarted;
+    private boolean mFinished;
+    private int mIndex;
+
+    JsonArrayReader(@NonNull ResponseBody body, @NonNull JsonReader reader, @NonNull TypeAdapter<T> adapter) {
+        this.mBody = body;
+        this.mReader = reader;
+        this.mAdapter = adapter;
+    }
+
+    /**
+     * 是否还有下一个元素
+     */
+    @WorkerThread
+    public boolean hasNext() throws IOException {
+        if (mFinished) {
+            return false;
+        }
+        if (!mStarted) {
+            mReader.beginArray();
+            mStarted = true;
+        }
+        if (mReader.hasNext()) {
+            return true;
+        }
+        mReader.endArray();
+        mFinished = true;
+        if (mReader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonIOException("JSON document was not fully consumed.");
+        }
+        return false;
+    }
+
+    /**
+     * 解析下一个元素，调用前需要通过 {@link #hasNext()} 判断
+     */
+    @WorkerThread
+    public T next() throws IOException {
+        if (!mStarted) {
+            hasNext();
+        }
+        mIndex++;
+        return mAdapter.read(mReader);
+    }
+
+    /**
+     * 依次解析所有的元素并回调，完成后自动关闭
+     *
+     * @return 元素的数量
+     */
+    @WorkerThread
+    public int forEach(@NonNull OnJsonElementListener<T> listener) throws IOException {
+        try {
+            while (hasNext()) {
+                listener.onElement(next(), mIndex - 1);
+            }
+            return mIndex;
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        mBody.close();
+    }
+}
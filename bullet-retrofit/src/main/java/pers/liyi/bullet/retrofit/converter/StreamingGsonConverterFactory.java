@@ -0,0 +1,142 @@
+package pers.liyi.bullet.retrofit.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import androidx.annotation.NonNull;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import pers.liyi.bullet.retrofit.annotation.StreamingBody;
+import pers.liyi.bullet.retrofit.request.JsonRequestBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * 流式的 Gson 转化器，用于替代 GsonConverterFactory
+ * <p>
+ * 请求体通过 JsonWriter 直接序列化到 Okio 的 Buffer 中，不再先转换为 String，长度已知；
+ * 接口标记了 {@link StreamingBody} 时，请求体在发送时才序列化到 BufferedSink 中，使用分块传输；
+ * 响应体直接从 BufferedSource 中解析；
+ * 返回类型为 {@link JsonArrayReader} 时，数组中的元素会在读取时逐个解析
+ */
+public final class StreamingGsonConverterFactory extends Converter.Factory {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final MediaType MEDIA_TYPE = MediaType.get("application/json; charset=UTF-8");
+
+    private final Gson mGson;
+
+    public static StreamingGsonConverterFactory create() {
+        return create(new Gson());
+    }
+
+    public static StreamingGsonConverterFactory create(@NonNull Gson gson) {
+        return new StreamingGsonConverterFactory(gson);
+    }
+
+    private StreamingGsonConverterFactory(Gson gson) {
+        this.mGson = gson;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(type) == JsonArrayReader.class) {
+            if (!(type instanceof ParameterizedType)) {
+                throw new IllegalArgumentException("JsonArrayReader must be parameterized as JsonArrayReader<Foo>");
+            }
+            Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+            return new ArrayReaderConverter<>(mGson, mGson.getAdapter(TypeToken.get(elementType)));
+        }
+        return new ResponseConverter<>(mGson, mGson.getAdapter(TypeToken.get(type)));
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+        boolean streaming = false;
+        for (Annotation annotation : methodAnnotations) {
+            if (annotation instanceof StreamingBody) {
+                streaming = true;
+                break;
+            }
+        }
+        return new RequestConverter<>(mGson, mGson.getAdapter(TypeToken.get(type)), streaming);
+    }
+
+    private static JsonReader newJsonReader(Gson gson, ResponseBody body) {
+        MediaType contentType = body.contentType();
+        Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+        return gson.newJsonReader(new InputStreamReader(body.source().inputStream(), charset));
+    }
+
+    private static final class RequestConverter<T> implements Converter<T, RequestBody> {
+        private final Gson mGson;
+        private final TypeAdapter<T> mAdapter;
+        private final boolean mStreaming;
+
+        RequestConverter(Gson gson, TypeAdapter<T> adapter, boolean streaming) {
+            this.mGson = gson;
+            this.mAdapter = adapter;
+            this.mStreaming = streaming;
+        }
+
+        @Override
+        public RequestBody convert(@NonNull T value) throws IOException {
+            if (mStreaming) {
+                return new JsonRequestBody<>(mGson, mAdapter, value, MEDIA_TYPE);
+            }
+            return JsonRequestBody.buffered(mGson, mAdapter, value, MEDIA_TYPE);
+        }
+    }
+
+    private static final class ResponseConverter<T> implements Converter<ResponseBody, T> {
+        private final Gson mGson;
+        private final TypeAdapter<T> mAdapter;
+
+        ResponseConverter(Gson gson, TypeAdapter<T> adapter) {
+            this.mGson = gson;
+            this.mAdapter = adapter;
+        }
+
+        @Override
+        public T convert(@NonNull ResponseBody value) throws IOException {
+            try {
+                JsonReader reader = newJsonReader(mGson, value);
+                T result = mAdapter.read(reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("JSON document was not fully consumed.");
+                }
+                return result;
+            } finally {
+                value.close();
+            }
+        }
+    }
+
+    private static final class ArrayReaderConverter<T> implements Converter<ResponseBody, JsonArrayReader<T>> {
+        private final Gson mGson;
+        private final TypeAdapter<T> mAdapter;
+
+        ArrayReaderConverter(Gson gson, TypeAdapter<T> adapter) {
+            this.mGson = gson;
+            this.mAdapter = adapter;
+        }
+
+        @Override
+        public JsonArrayReader<T> convert(@NonNull ResponseBody value) {
+            // 响应体由 JsonArrayReader 负责关闭
+            return new JsonArrayReader<>(value, newJsonReader(mGson, value), mAdapter);
+        }
+    }
+}
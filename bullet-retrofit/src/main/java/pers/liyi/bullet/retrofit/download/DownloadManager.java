@@ -0,0 +1,413 @@
+package pers.liyi.bullet.retrofit.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.listener.ProgressDispatcher;
+import pers.liyi.bullet.retrofit.response.ApiResponse;
+import retrofit2.HttpException;
+
+/**
+ * 支持断点续传的下载管理器
+ * <p>
+ * 1. 下载过程中数据写入 "文件名.tmp"，同时在 "文件名.meta" 中保存 ETag/Last-Modified 等元数据
+ * 2. 再次下载时通过 Range 和 If-Range 请求头从已下载的位置继续，服务器资源发生变化时重新下载
+ * 3. 下载完成后将临时文件重命名为目标文件，并删除元数据
+ * 4. 可以通过 tag 暂停、恢复和取消下载，暂停时保留已下载的数据，取消时删除
+ * 5. 大文件可以使用多个连接分段并行下载，见 {@link SegmentedDownloader}
+ */
+public class DownloadManager {
+    // 每次从网络读取的最大字节数
+    private static final long BUFFER_SIZE = 64 * 1024;
+    // 临时文件后缀
+    static final String SUFFIX_TEMP = ".tmp";
+    // 元数据文件后缀
+    static final String SUFFIX_META = ".meta";
+
+    private final OkHttpClient mClient;
+    private final SegmentedDownloader mSegmentedDownloader;
+    // 下载标记 -> 下载任务
+    private final ConcurrentHashMap<String, DownloadTask> mTasks = new ConcurrentHashMap<>();
+
+    /**
+     * @param client 下载使用的 OkHttpClient，不应包含会读取完整响应体的拦截器（如日志拦截器）
+     */
+    public DownloadManager(@NonNull OkHttpClient client) {
+        this.mClient = client;
+        this.mSegmentedDownloader = new SegmentedDownloader(client);
+    }
+
+    /**
+     * 开始下载，如果目标文件存在未完成的下载，则从断点处继续
+     *
+     * @param tag              下载标记
+     * @param url              下载地址
+     * @param file             下载完成后保存的文件
+     * @param progressListener 下载进度监听，进度范围为 0~100
+     * @param listener         下载结果回调
+     */
+    public void start(@NonNull String tag, @NonNull String url, @NonNull File file,
+                      OnProgressListener progressListener, ApiResponseListener<File> listener) {
+        start(tag, url, file, 1, progressListener, listener);
+    }
+
+    /**
+     * 开始多连接分段下载，服务器不支持 Range 请求时自动使用单连接下载
+     *
+     * @param tag              下载标记
+     * @param url              下载地址
+     * @param file             下载完成后保存的文件
+     * @param segments         并行下载的连接数
+     * @param progressListener 下载进度监听，进度范围为 0~100
+     * @param listener         下载结果回调
+     */
+    public void start(@NonNull String tag, @NonNull String url, @NonNull File file, int segments,
+                      OnProgressListener progressListener, ApiResponseListener<File> listener) {
+        DownloadTask task = new DownloadTask(tag, url, file, segments, progressListener, listener);
+        DownloadTask old = mTasks.put(tag, task);
+        CountDownLatch previous = null;
+        if (old != null) {
+            old.stop();
+            previous = old.worker;
+        }
+        execute(task, previous);
+    }
+
+    /**
+     * 暂停下载，保留已下载的数据
+     */
+    public void pause(@NonNull String tag) {
+        DownloadTask task = mTasks.get(tag);
+        if (task != null) {
+            task.stop();
+        }
+    }
+
+    /**
+     * 恢复已暂停的下载
+     */
+    public void resume(@NonNull String tag) {
+        DownloadTask task = mTasks.get(tag);
+        if (task != null && !task.isRunning()) {
+            execute(task, task.worker);
+        }
+    }
+
+    /**
+     * 取消下载，并删除已下载的数据
+     */
+    public void cancel(@NonNull String tag) {
+        DownloadTask task = mTasks.remove(tag);
+        if (task != null) {
+            task.cancelled = true;
+            task.cancel();
+            // 下载线程仍在运行时，由下载线程在退出前删除，避免与写入冲突
+            synchronized (task) {
+                if (!task.isWorking()) {
+                    deleteTemp(task.file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 下载是否正在进行
+     */
+    public boolean isRunning(@NonNull String tag) {
+        DownloadTask task = mTasks.get(tag);
+        return task != null && task.isRunning();
+    }
+
+    /**
+     * 获取已下载的字节数
+     */
+    public long getDownloadedLength(@NonNull File file) {
+        File temp = new File(file.getPath() + SUFFIX_TEMP);
+        return temp.exists() ? temp.length() : 0;
+    }
+
+    /**
+     * @param previous 同一文件上一次下载的线程，新的下载需要等待其退出后才能写入文件
+     */
+    private void execute(final DownloadTask task, final CountDownLatch previous) {
+        ApiResponse<File> observer = new ApiResponse<>(task.tag, task.listener);
+        task.observer = observer;
+        task.running = true;
+        final CountDownLatch worker = new CountDownLatch(1);
+        task.worker = worker;
+        // 下载线程是否已开始，取消订阅时下载线程可能还未被调度
+        final AtomicBoolean started = new AtomicBoolean();
+        Observable.create(new ObservableOnSubscribe<File>() {
+            @Override
+            public void subscribe(ObservableEmitter<File> emitter) throws Exception {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    if (previous != null) {
+                        try {
+                            previous.await();
+                        } catch (InterruptedException e) {
+                            // 等待期间被暂停或取消
+                            return;
+                        }
+                    }
+                    File file = download(task, emitter);
+                    if (file != null) {
+                        emitter.onNext(file);
+                        emitter.onComplete();
+                    }
+                } finally {
+                    finished(task, worker);
+                }
+            }
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnComplete(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        mTasks.remove(task.tag, task);
+                    }
+                })
+                .doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        task.running = false;
+                        if (started.compareAndSet(false, true)) {
+                            // 下载线程没有开始，不会再写入文件
+                            finished(task, worker);
+                        }
+                    }
+                })
+                .subscribe(observer);
+    }
+
+    /**
+     * 执行下载
+     *
+     * @return 下载完成的文件，下载被暂停或取消时返回 null
+     */
+    private File download(DownloadTask task, final ObservableEmitter<File> emitter) throws IOException {
+        File temp = new File(task.file.getPath() + SUFFIX_TEMP);
+        File meta = new File(task.file.getPath() + SUFFIX_META);
+        DownloadRecord record = DownloadRecord.read(meta);
+        // 已有单连接下载的断点时，继续使用单连接下载
+        boolean singleInProgress = record != null && task.url.equals(record.getUrl())
+                && !record.isSegmented() && temp.length() > 0;
+        if (task.segments > 1 && !singleInProgress) {
+            try {
+                File file = mSegmentedDownloader.download(task, emitter);
+                return file != null ? file : stopped(task);
+            } catch (SegmentedDownloader.RangeNotSupportedException e) {
+                // 服务器不支持 Range 请求，使用单连接下载
+                record = null;
+            } catch (IOException e) {
+                if (emitter.isDisposed()) {
+                    return stopped(task);
+                }
+                throw e;
+            }
+        }
+        if (record == null || !task.url.equals(record.getUrl()) || record.isSegmented()) {
+            // 没有可用的断点信息，从头开始下载
+            record = new DownloadRecord(task.url);
+            deleteTemp(task.file);
+        }
+        long downloaded = temp.exists() ? temp.length() : 0;
+        if (downloaded > 0 && downloaded == record.getTotalLength()) {
+            return complete(task.file, temp, meta);
+        }
+
+        Request.Builder builder = new Request.Builder().url(task.url);
+        if (downloaded > 0) {
+            builder.header("Range", "bytes=" + downloaded + "-");
+            if (record.getValidator() != null) {
+                // 服务器资源未变化时返回 206，否则返回完整的 200
+                builder.header("If-Range", record.getValidator());
+            }
+        }
+        final Call call = mClient.newCall(builder.build());
+        emitter.setCancellable(new Cancellable() {
+            @Override
+            public void cancel() throws Exception {
+                call.cancel();
+            }
+        });
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            if (emitter.isDisposed()) {
+                return stopped(task);
+            }
+            throw e;
+        }
+        try {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new HttpException(retrofit2.Response.error(
+                        body != null ? body : ResponseBody.create("", null), response));
+            }
+            boolean append = downloaded > 0 && response.code() == 206;
+            if (append && !isSameResource(record, response, downloaded)) {
+                // 服务器资源已变化，但仍返回了部分内容，丢弃本地数据后不带 Range 重新下载
+                response.close();
+                deleteTemp(task.file);
+                return download(task, emitter);
+            }
+            if (!append) {
+                downloaded = 0;
+            }
+            long total = parseTotalLength(response, downloaded);
+            record.setETag(response.header("ETag"));
+            record.setLastModified(response.header("Last-Modified"));
+            record.setTotalLength(total);
+            record.write(meta);
+
+            ProgressDispatcher dispatcher = task.progressListener != null
+                    ? new ProgressDispatcher(task.progressListener, task.tag, 100f) : null;
+            BufferedSource source = body.source();
+            BufferedSink sink = Okio.buffer(append ? Okio.appendingSink(temp) : Okio.sink(temp));
+            try {
+                try {
+                    long read;
+                    while ((read = source.read(sink.getBuffer(), BUFFER_SIZE)) != -1) {
+                        sink.emitCompleteSegments();
+                        downloaded += read;
+                        if (dispatcher != null) {
+                            dispatcher.update(downloaded, total);
+                        }
+                    }
+                } finally {
+                    // 取消订阅会中断下载线程，此时关闭文件也可能抛出 InterruptedIOException
+                    sink.close();
+                }
+            } catch (IOException e) {
+                if (emitter.isDisposed()) {
+                    return stopped(task);
+                }
+                throw e;
+            }
+            if (total > 0 && downloaded != total) {
+                throw new IOException("Download incomplete: " + downloaded + "/" + total);
+            }
+            return complete(task.file, temp, meta);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * 下载线程退出，任务已被取消时删除已下载的数据
+     */
+    private void finished(DownloadTask task, CountDownLatch worker) {
+        synchronized (task) {
+            if (task.cancelled) {
+                deleteTemp(task.file);
+            }
+            worker.countDown();
+        }
+    }
+
+    /**
+     * 下载被暂停或取消，取消时删除已下载的数据
+     */
+    File stopped(DownloadTask task) {
+        if (task.cancelled) {
+            deleteTemp(task.file);
+        }
+        return null;
+    }
+
+    /**
+     * 206 响应中的 ETag/Last-Modified、起始位置和总大小需要与本地记录的一致，防止拼接不同版本的数据
+     */
+    private boolean isSameResource(DownloadRecord record, Response response, long downloaded) {
+        String contentRange = response.header("Content-Range");
+        if (contentRange != null) {
+            // 格式为 bytes start-end/total
+            int start = contentRange.indexOf(' ');
+            int dash = contentRange.indexOf('-');
+            if (start >= 0 && dash > start) {
+                try {
+                    if (Long.parseLong(contentRange.substring(start + 1, dash).trim()) != downloaded) {
+                        return false;
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        long total = parseTotalLength(response, downloaded);
+        if (record.getTotalLength() > 0 && total > 0 && record.getTotalLength() != total) {
+            return false;
+        }
+        String eTag = response.header("ETag");
+        if (record.getETag() != null && eTag != null) {
+            return record.getETag().equals(eTag);
+        }
+        String lastModified = response.header("Last-Modified");
+        if (record.getLastModified() != null && lastModified != null) {
+            return record.getLastModified().equals(lastModified);
+        }
+        return true;
+    }
+
+    /**
+     * 解析文件的总大小，优先读取 Content-Range 中的总大小
+     */
+    private long parseTotalLength(Response response, long downloaded) {
+        String contentRange = response.header("Content-Range");
+        if (contentRange != null) {
+            int index = contentRange.lastIndexOf('/');
+            if (index >= 0 && index < contentRange.length() - 1) {
+                try {
+                    return Long.parseLong(contentRange.substring(index + 1).trim());
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        long contentLength = response.body().contentLength();
+        return contentLength < 0 ? -1 : downloaded + contentLength;
+    }
+
+    /**
+     * 下载完成，将临时文件重命名为目标文件
+     */
+    static File complete(File file, File temp, File meta) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete " + file);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Failed to rename " + temp + " to " + file);
+        }
+        meta.delete();
+        return file;
+    }
+
+    static void deleteTemp(File file) {
+        new File(file.getPath() + SUFFIX_TEMP).delete();
+        new File(file.getPath() + SUFFIX_META).delete();
+    }
+}
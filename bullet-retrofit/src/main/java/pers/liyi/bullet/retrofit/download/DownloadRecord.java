@@ -0,0 +1,129 @@
+package pers.liyi.bullet.retrofit.download;
+
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * 断点续传的元数据，以 json 的形式保存在下载文件旁
+ */
+public class DownloadRecord {
+    private static final Gson sGson = new Gson();
+
+    // 下载地址
+    private String url;
+    // 服务器返回的 ETag
+    private String eTag;
+    // 服务器返回的 Last-Modified
+    private String lastModified;
+    // 文件的总大小，未知时为 -1
+    private long totalLength = -1;
+    // 分段下载时每一段已下载的字节数，单连接下载时为 null
+    private long[] segmentDownloaded;
+
+    public DownloadRecord() {
+    }
+
+    public DownloadRecord(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    public void setTotalLength(long totalLength) {
+        this.totalLength = totalLength;
+    }
+
+    public long[] getSegmentDownloaded() {
+        return segmentDownloaded;
+    }
+
+    public void setSegmentDownloaded(long[] segmentDownloaded) {
+        this.segmentDownloaded = segmentDownloaded;
+    }
+
+    /**
+     * 是否为分段下载的记录
+     */
+    public boolean isSegmented() {
+        return segmentDownloaded != null && segmentDownloaded.length > 0;
+    }
+
+    /**
+     * 断点续传时用于 If-Range 的校验值，优先使用 ETag
+     */
+    public String getValidator() {
+        return eTag != null ? eTag : lastModified;
+    }
+
+    /**
+     * 读取元数据
+     *
+     * @return 文件不存在或解析失败时返回 null
+     */
+    public static DownloadRecord read(@NonNull File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        BufferedSource source = null;
+        try {
+            source = Okio.buffer(Okio.source(file));
+            return sGson.fromJson(source.readUtf8(), DownloadRecord.class);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            closeQuietly(source);
+        }
+    }
+
+    /**
+     * 写入元数据
+     */
+    public void write(@NonNull File file) throws IOException {
+        BufferedSink sink = null;
+        try {
+            sink = Okio.buffer(Okio.sink(file));
+            sink.writeUtf8(sGson.toJson(this));
+        } finally {
+            closeQuietly(sink);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package pers.liyi.bullet.retrofit.download;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.response.ApiResponse;
+
+/**
+ * 下载任务
+ */
+final class DownloadTask {
+    final String tag;
+    final String url;
+    final File file;
+    // 分段下载的连接数，小于等于 1 时使用单连接下载
+    final int segments;
+    final OnProgressListener progressListener;
+    final ApiResponseListener<File> listener;
+    volatile ApiResponse<File> observer;
+    // 是否正在下载
+    volatile boolean running;
+    // 是否已被取消
+    volatile boolean cancelled;
+    // 最近一次下载的线程，线程结束后计数归零
+    volatile CountDownLatch worker;
+
+    DownloadTask(String tag, String url, File file, int segments,
+                 OnProgressListener progressListener, ApiResponseListener<File> listener) {
+        this.tag = tag;
+        this.url = url;
+        this.file = file;
+        this.segments = segments;
+        this.progressListener = progressListener;
+        this.listener = listener;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 下载线程是否仍在写入文件，暂停或取消后线程需要等待请求结束才会退出
+     */
+    boolean isWorking() {
+        CountDownLatch w = worker;
+        return w != null && w.getCount() > 0;
+    }
+
+    /**
+     * 停止下载，不回调取消
+     */
+    void stop() {
+        ApiResponse<File> o = observer;
+        if (o != null && !o.isDisposed()) {
+            o.dispose();
+        }
+    }
+
+    /**
+     * 取消下载，并回调取消
+     */
+    void cancel() {
+        ApiResponse<File> o = observer;
+        if (o != null) {
+            o.cancel();
+        }
+    }
+}
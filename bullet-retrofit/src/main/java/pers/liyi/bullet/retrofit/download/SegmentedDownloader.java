@@ -0,0 +1,321 @@
+package pers.liyi.bullet.retrofit.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.ObservableEmitter;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import pers.liyi.bullet.retrofit.listener.ProgressDispatcher;
+
+/**
+ * 多连接分段下载
+ * <p>
+ * 1. 先通过 "Range: bytes=0-0" 探测文件的总大小和服务器是否支持 Range 请求
+ * 2. 预先分配临时文件的大小，将文件分为多段，通过共享的 OkHttpClient 并行下载
+ * 3. 每一段直接写入临时文件中对应的位置，各段的进度保存在元数据中，用于断点续传
+ * 4. 所有段的进度汇总后通过同一个进度监听回调
+ */
+final class SegmentedDownloader {
+    // 每一段的最小字节数，文件较小时减少分段数
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    // 每一段的读取缓冲区大小
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 每一段每下载该字节数后保存一次断点
+    private static final long SAVE_INTERVAL = 1024 * 1024;
+
+    private final OkHttpClient mClient;
+
+    SegmentedDownloader(OkHttpClient client) {
+        this.mClient = client;
+    }
+
+    /**
+     * 执行分段下载
+     *
+     * @return 下载完成的文件，下载被暂停或取消时返回 null
+     * @throws RangeNotSupportedException 服务器不支持 Range 请求
+     */
+    File download(final DownloadTask task, ObservableEmitter<File> emitter) throws IOException {
+        final File temp = new File(task.file.getPath() + DownloadManager.SUFFIX_TEMP);
+        final File meta = new File(task.file.getPath() + DownloadManager.SUFFIX_META);
+        // 正在进行的请求，取消下载或某一段失败时全部取消
+        final SegmentCalls calls = new SegmentCalls();
+        emitter.setCancellable(new Cancellable() {
+            @Override
+            public void cancel() throws Exception {
+                calls.cancelAll();
+            }
+        });
+
+        // 探测文件的总大小
+        Call probe = calls.add(mClient.newCall(new Request.Builder().url(task.url).header("Range", "bytes=0-0").build()));
+        final long total;
+        String eTag;
+        String lastModified;
+        Response probeResponse = probe.execute();
+        try {
+            total = probeResponse.code() == 206 ? parseTotalLength(probeResponse.header("Content-Range")) : -1;
+            if (total <= 0) {
+                throw new RangeNotSupportedException();
+            }
+            eTag = probeResponse.header("ETag");
+            lastModified = probeResponse.header("Last-Modified");
+        } finally {
+            probeResponse.close();
+            calls.remove(probe);
+        }
+
+        DownloadRecord record = DownloadRecord.read(meta);
+        boolean resumable = record != null
+                && task.url.equals(record.getUrl())
+                && record.isSegmented()
+                && record.getTotalLength() == total
+                && equalsOrNull(record.getETag(), eTag)
+                && equalsOrNull(record.getLastModified(), lastModified)
+                && temp.length() == total;
+        if (!resumable) {
+            DownloadManager.deleteTemp(task.file);
+            int count = (int) Math.max(1, Math.min(task.segments, total / MIN_SEGMENT_SIZE));
+            record = new DownloadRecord(task.url);
+            record.setETag(eTag);
+            record.setLastModified(lastModified);
+            record.setTotalLength(total);
+            record.setSegmentDownloaded(new long[count]);
+        }
+        record.write(meta);
+
+        final DownloadRecord segmentRecord = record;
+        final long[] segmentDownloaded = record.getSegmentDownloaded();
+        final int count = segmentDownloaded.length;
+        final long segmentSize = total / count;
+        long downloaded = 0;
+        for (long length : segmentDownloaded) {
+            downloaded += length;
+        }
+        final AtomicLong totalDownloaded = new AtomicLong(downloaded);
+        final ProgressDispatcher dispatcher = task.progressListener != null
+                ? new ProgressDispatcher(task.progressListener, task.tag, 100f) : null;
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(temp, "rw");
+        try {
+            // 预先分配文件的大小，各段直接写入对应的位置
+            randomAccessFile.setLength(total);
+            final FileChannel channel = randomAccessFile.getChannel();
+            final AtomicReference<Throwable> error = new AtomicReference<>();
+            final CountDownLatch finished = new CountDownLatch(count);
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                final long start = index * segmentSize;
+                final long end = index == count - 1 ? total - 1 : start + segmentSize - 1;
+                if (start + segmentDownloaded[index] > end) {
+                    finished.countDown();
+                    continue;
+                }
+                // 不能通过中断停止下载线程，中断会关闭共享的 FileChannel，因此只通过取消请求来停止
+                Schedulers.io().scheduleDirect(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            downloadSegment(task, segmentRecord, meta, channel, index, start, end,
+                                    calls, totalDownloaded, dispatcher);
+                        } catch (Throwable e) {
+                            // 第一个失败的段取消其他段的请求
+                            if (error.compareAndSet(null, e)) {
+                                calls.cancelAll();
+                            }
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                });
+            }
+            // 等待所有段结束后才能关闭文件
+            awaitUninterruptibly(finished, calls);
+            Throwable e = error.get();
+            if (e != null) {
+                if (emitter.isDisposed()) {
+                    return null;
+                }
+                if (e instanceof IOException) {
+                    throw (IOException) e;
+                }
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                throw new IOException(e);
+            }
+        } finally {
+            // 取消后断点会被删除，不再重新写入
+            if (!task.cancelled) {
+                saveRecord(segmentRecord, meta);
+            }
+            randomAccessFile.close();
+        }
+        if (emitter.isDisposed()) {
+            return null;
+        }
+        return DownloadManager.complete(task.file, temp, meta);
+    }
+
+    /**
+     * 下载其中一段
+     */
+    private void downloadSegment(DownloadTask task, DownloadRecord record, File meta, FileChannel channel,
+                                 int index, long start, long end, SegmentCalls calls,
+                                 AtomicLong totalDownloaded, ProgressDispatcher dispatcher) throws IOException {
+        long position = start + record.getSegmentDownloaded()[index];
+        Request.Builder builder = new Request.Builder()
+                .url(task.url)
+                .header("Range", "bytes=" + position + "-" + end);
+        if (record.getValidator() != null) {
+            builder.header("If-Range", record.getValidator());
+        }
+        Call call = calls.add(mClient.newCall(builder.build()));
+        Response response = call.execute();
+        try {
+            ResponseBody body = response.body();
+            // 资源发生变化时服务器会返回 200，此时不能继续拼接
+            if (response.code() != 206 || body == null) {
+                throw new IOException("Segment " + index + " unexpected response code: " + response.code());
+            }
+            BufferedSource source = body.source();
+            byte[] bytes = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long unsaved = 0;
+            int read;
+            while (position <= end && (read = source.read(bytes, 0, (int) Math.min(BUFFER_SIZE, end - position + 1))) != -1) {
+                buffer.clear();
+                buffer.limit(read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                synchronized (record) {
+                    record.getSegmentDownloaded()[index] += read;
+                }
+                long downloaded = totalDownloaded.addAndGet(read);
+                if (dispatcher != null) {
+                    synchronized (dispatcher) {
+                        dispatcher.update(downloaded, record.getTotalLength());
+                    }
+                }
+                unsaved += read;
+                if (unsaved >= SAVE_INTERVAL) {
+                    saveRecord(record, meta);
+                    unsaved = 0;
+                }
+            }
+            if (position <= end) {
+                throw new IOException("Segment " + index + " incomplete: " + position + "/" + end);
+            }
+        } finally {
+            response.close();
+            calls.remove(call);
+        }
+    }
+
+    /**
+     * 等待所有段结束，下载线程被中断（取消订阅）时先取消所有请求，再继续等待
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch, SegmentCalls calls) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                calls.cancelAll();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void saveRecord(DownloadRecord record, File meta) {
+        synchronized (record) {
+            try {
+                record.write(meta);
+            } catch (IOException ignored) {
+                // 保存断点失败只会导致下次多下载一部分数据
+            }
+        }
+    }
+
+    /**
+     * 解析 Content-Range 中的总大小，例如 "bytes 0-0/1024"
+     */
+    private static long parseTotalLength(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int index = contentRange.lastIndexOf('/');
+        if (index < 0 || index == contentRange.length() - 1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(index + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean equalsOrNull(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 下载中的请求，取消后新加入的请求立即被取消，避免加入与取消同时发生时遗漏
+     */
+    private static final class SegmentCalls {
+        private final List<Call> mCalls = new ArrayList<>();
+        private boolean mCancelled;
+
+        synchronized Call add(Call call) {
+            if (mCancelled) {
+                call.cancel();
+            } else {
+                mCalls.add(call);
+            }
+            return call;
+        }
+
+        synchronized void remove(Call call) {
+            mCalls.remove(call);
+        }
+
+        synchronized void cancelAll() {
+            mCancelled = true;
+            for (Call call : mCalls) {
+                call.cancel();
+            }
+            mCalls.clear();
+        }
+    }
+
+    /**
+     * 服务器不支持 Range 请求
+     */
+    static final class RangeNotSupportedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RangeNotSupportedException() {
+            super("Range requests are not supported");
+        }
+    }
+}
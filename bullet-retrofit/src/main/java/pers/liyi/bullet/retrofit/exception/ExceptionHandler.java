@@ -12,8 +12,10 @@ import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 
 import pers.liyi.bullet.retrofit.R;
+import pers.liyi.bullet.retrofit.circuit.CircuitBreakerOpenException;
 import pers.liyi.bullet.retrofit.constant.HttpStatusCode;
 import pers.liyi.bullet.retrofit.constant.NetworkErrorType;
+import pers.liyi.bullet.retrofit.outbox.OutboxQueuedException;
 import retrofit2.HttpException;
 
 /**
@@ -22,12 +24,29 @@ import retrofit2.HttpException;
 public class ExceptionHandler {
 
     /**
-     * 异常解析
+     * 异常解析，并打印异常信息
      *
      * @param e
      * @return {@link ApiError}
      */
     public static ApiError parseException(Throwable e) {
+        ApiError error = classify(e);
+        Log.e("Bullet-Http-Exception",
+                "\n==================================================================" +
+                        "\n== Http Error Code >>> " + error.getCode() +
+                        "\n== Http Error Cause >>> " + e.getCause() +
+                        "\n== Http Error Message >>> " + e.getMessage() +
+                        "\n==================================================================");
+        return error;
+    }
+
+    /**
+     * 异常分类，与 {@link #parseException(Throwable)} 相同但不打印异常信息，可用于重试等频繁调用的场景
+     *
+     * @param e
+     * @return {@link ApiError}
+     */
+    public static ApiError classify(Throwable e) {
         ApiError error = new ApiError();
         if (e instanceof HttpException) {
             HttpException httpException = (HttpException) e;
@@ -57,6 +76,9 @@ public class ExceptionHandler {
                 case HttpStatusCode.REQUEST_URI_LONG:
                     msgResId = R.string.bullet_http_status_err_uri_long;
                     break;
+                case HttpStatusCode.TOO_MANY_REQUESTS:
+                    msgResId = R.string.bullet_http_status_err_too_many_requests;
+                    break;
                 case HttpStatusCode.SERVER_ERROR:
                     msgResId = R.string.bullet_http_status_err_server_error;
                     break;
@@ -77,6 +99,12 @@ public class ExceptionHandler {
             }
             error.setCode(httpException.code());
             error.setCusErrId(msgResId);
+        } else if (e instanceof OutboxQueuedException) {
+            error.setCode(NetworkErrorType.OUTBOX_QUEUED_ERROR);
+            error.setCusErrId(R.string.bullet_http_network_err_outbox_queued);
+        } else if (e instanceof CircuitBreakerOpenException) {
+            error.setCode(NetworkErrorType.CIRCUIT_OPEN_ERROR);
+            error.setCusErrId(R.string.bullet_http_network_err_circuit_open);
         } else if (e instanceof ConnectException || e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException) {
             error.setCode(NetworkErrorType.UNCONNECT_ERROR);
             error.setCusErrId(R.string.bullet_http_network_err_unconnect);
@@ -92,12 +120,33 @@ public class ExceptionHandler {
         }
         error.setMessage(e.getMessage());
         error.setThrowable(e);
-        Log.e("Bullet-Http-Exception",
-                "\n==================================================================" +
-                        "\n== Http Error Code >>> " + error.getCode() +
-                        "\n== Http Error Cause >>> " + e.getCause() +
-                        "\n== Http Error Message >>> " + e.getMessage() +
-                        "\n==================================================================");
         return error;
     }
+
+    /**
+     * 异常是否为暂时性的错误，重新请求可能成功
+     */
+    public static boolean isRetryable(Throwable e) {
+        return isRetryable(classify(e).getCode());
+    }
+
+    /**
+     * 错误码是否为暂时性的错误，重新请求可能成功
+     *
+     * @param code HTTP 状态码或 {@link NetworkErrorType} 中的错误类型
+     */
+    public static boolean isRetryable(int code) {
+        switch (code) {
+            case HttpStatusCode.REQUEST_TIMEOUT:
+            case HttpStatusCode.TOO_MANY_REQUESTS:
+            case HttpStatusCode.SERVER_ERROR:
+            case HttpStatusCode.GATEWAY_ERROR:
+            case HttpStatusCode.SERVICE_UNAVAILABLE:
+            case HttpStatusCode.GATEWAY_TIMEOUT:
+            case NetworkErrorType.UNCONNECT_ERROR:
+                return true;
+            default:
+                return false;
+        }
+    }
 }
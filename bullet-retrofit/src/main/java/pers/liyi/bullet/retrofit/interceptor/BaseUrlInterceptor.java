@@ -1,71 +1,100 @@
 package pers.liyi.bullet.retrofit.interceptor;
 
 import java.io.IOException;
-import java.util.List;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
 import java.util.Map;
 
+import androidx.annotation.NonNull;
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
+import pers.liyi.bullet.retrofit.route.HostGroup;
+import pers.liyi.bullet.retrofit.route.HostRoutingTable;
 
 /**
  * 使用拦截器在代码中动态更换 BaseUrl，原理如下：
  * <p>
- * 1. 将所有的 BaseUrl 放在一个 Map<String,String> 中
- * 2. 自定义 @Header("key: value") 作为请求标记，根据 value 去 BaseUrl 的 Map 中寻找应该使用哪个 BaseUrl
- * 3. 在请求前拦截 BaseUrl，并更改
+ * 1. 将所有的 BaseUrl 编译为不可变的 {@link HostRoutingTable}，每个 key 可以对应一组按权重或故障转移选择的域名
+ * 2. 自定义 @Header("key: value") 作为请求标记，根据 value 在路由表中直接查找应该使用哪个 BaseUrl
+ * 3. 在请求前拦截 BaseUrl，并更改；value 未配置时使用原来的 BaseUrl
+ * 4. 路由表可以在运行时整体替换，替换通过 volatile 引用完成，请求过程中无需加锁
+ * 5. 域名无法连接时标记为不可用，并在本次请求中切换到同组的其他域名
  */
 public class BaseUrlInterceptor implements Interceptor {
     // 自定义的 @Header("key:value") 中的 key
-    private String hostKeyInHeader;
-    // BaseUrl 存储器
-    private Map<String, String> hostMap;
+    private final String hostKeyInHeader;
+    // 当前使用的路由表
+    private volatile HostRoutingTable routingTable;
 
     public BaseUrlInterceptor(String hostKeyInHeader, Map<String, String> hostMap) {
+        this(hostKeyInHeader, HostRoutingTable.compile(hostMap));
+    }
+
+    public BaseUrlInterceptor(String hostKeyInHeader, @NonNull HostRoutingTable routingTable) {
         this.hostKeyInHeader = hostKeyInHeader;
-        this.hostMap = hostMap;
+        this.routingTable = routingTable;
+    }
+
+    /**
+     * 替换路由表，之后发起的请求立即使用新的路由表
+     */
+    public void setRoutingTable(@NonNull HostRoutingTable routingTable) {
+        this.routingTable = routingTable;
+    }
+
+    public HostRoutingTable getRoutingTable() {
+        return routingTable;
     }
 
     @Override
     public Response intercept(Chain chain) throws IOException {
         // 获取原始的 originalRequest
         Request originalRequest = chain.request();
-        // 获取老的 url
-        HttpUrl oldUrl = originalRequest.url();
-        // 获取 originalRequest 的创建者 builder
-        Request.Builder builder = originalRequest.newBuilder();
-        // 获取指定的头信息的集合
-        List<String> urlnameList = originalRequest.headers(hostKeyInHeader);
-        if (urlnameList != null && urlnameList.size() > 0) {
-            // 删除原有配置中的值,就是 namesAndValues 集合里的值
-            builder.removeHeader(hostKeyInHeader);
-            // 获取头信息中配置的 value
-            String urlname = urlnameList.get(0);
-            HttpUrl baseURL = null;
-            // 根据头信息中配置的 value，来匹配新的 baseUrl 地址
-            for (Map.Entry<String, String> entry : hostMap.entrySet()) {
-                String key = entry.getKey();
-                String host = entry.getValue();
-                if (key.equals(urlname)) {
-                    baseURL = HttpUrl.parse(host);
-                    break;
+        // 获取头信息中配置的 value
+        String urlname = originalRequest.header(hostKeyInHeader);
+        if (urlname == null) {
+            return chain.proceed(originalRequest);
+        }
+        // 删除原有配置中的值，避免发送到服务器
+        Request request = originalRequest.newBuilder().removeHeader(hostKeyInHeader).build();
+        HostGroup group = routingTable.get(urlname);
+        if (group == null) {
+            // 未配置该 key 时使用原来的 BaseUrl
+            return chain.proceed(request);
+        }
+        HttpUrl baseUrl = group.select();
+        // 每个域名最多尝试一次，不可用标记时长很短时也不会在几个域名之间反复切换
+        int remaining = group.getUrls().size();
+        while (true) {
+            try {
+                Response response = chain.proceed(request.newBuilder().url(replaceHost(request.url(), baseUrl)).build());
+                group.markUp(baseUrl);
+                return response;
+            } catch (ConnectException | UnknownHostException e) {
+                // 请求还未发送到服务器，可以安全地切换到同组的其他域名
+                group.markDown(baseUrl);
+                HttpUrl other = chain.call().isCanceled() || --remaining <= 0 ? null : group.selectOther(baseUrl);
+                if (other == null) {
+                    throw e;
                 }
+                baseUrl = other;
             }
-            // 重建新的 HttpUrl，需要重新设置的 url 部分
-            HttpUrl newHttpUrl = oldUrl.newBuilder()
-                    // http 协议如：http 或者 https
-                    .scheme(baseURL.scheme())
-                    // 主机地址
-                    .host(baseURL.host())
-                    // 端口
-                    .port(baseURL.port())
-                    .build();
-            // 获取处理后的新 newRequest
-            Request newRequest = builder.url(newHttpUrl).build();
-            return chain.proceed(newRequest);
-        } else {
-            return chain.proceed(originalRequest);
         }
     }
+
+    /**
+     * 重建新的 HttpUrl，只替换协议、主机地址和端口
+     */
+    private static HttpUrl replaceHost(HttpUrl oldUrl, HttpUrl baseUrl) {
+        return oldUrl.newBuilder()
+                // http 协议如：http 或者 https
+                .scheme(baseUrl.scheme())
+                // 主机地址
+                .host(baseUrl.host())
+                // 端口
+                .port(baseUrl.port())
+                .build();
+    }
 }
@@ -0,0 +1,232 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import pers.liyi.bullet.retrofit.annotation.Batchable;
+import pers.liyi.bullet.retrofit.annotation.RequestAnnotations;
+import pers.liyi.bullet.retrofit.batch.BatchCodec;
+
+/**
+ * 批量请求拦截器，将时间窗口内的 {@link Batchable} 请求合并为一个请求发送
+ * <p>
+ * 窗口内的第一个请求作为发起者，等待时间窗口结束或请求数量达到上限后，
+ * 通过 {@link BatchCodec} 编码并发送批量请求，再将拆分后的响应分发给窗口内的其他请求；
+ * 窗口内只有一个请求时，按普通请求直接发送。
+ * 批量请求失败时，窗口内的所有请求都会收到同一个异常；
+ * 发送批量请求的请求被取消时，由窗口内其他未取消的请求重新发送，不会影响其他请求
+ */
+public class BatchInterceptor implements Interceptor {
+    // 等待批量结果时检查请求是否被取消的间隔（毫秒）
+    private static final long CANCEL_CHECK_INTERVAL = 100;
+
+    private final BatchCodec mCodec;
+    private final long mWindowMillis;
+    private final int mMaxSize;
+    private final Object mLock = new Object();
+    // 当前正在收集请求的批次，由 mLock 保护
+    private Batch mCurrent;
+
+    public BatchInterceptor(@NonNull BatchCodec codec, long windowMillis, int maxSize) {
+        this.mCodec = codec;
+        this.mWindowMillis = windowMillis;
+        this.mMaxSize = Math.max(1, maxSize);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (RequestAnnotations.get(request, Batchable.class) == null) {
+            return chain.proceed(request);
+        }
+        Batch batch;
+        int index;
+        boolean sealed = false;
+        synchronized (mLock) {
+            if (mCurrent == null) {
+                mCurrent = new Batch();
+            }
+            batch = mCurrent;
+            index = batch.requests.size();
+            batch.requests.add(request);
+            if (batch.requests.size() >= mMaxSize) {
+                // 达到数量上限，后续的请求进入新的批次
+                mCurrent = null;
+                sealed = true;
+            }
+        }
+        if (sealed) {
+            batch.seal();
+        }
+        if (index == 0) {
+            return lead(chain, batch);
+        }
+        return join(chain, batch, index);
+    }
+
+    /**
+     * 由批次中的第一个请求等待时间窗口结束，窗口内有多个请求时再加入批次等待结果
+     */
+    private Response lead(Chain chain, Batch batch) throws IOException {
+        try {
+            batch.awaitSealed(mWindowMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Request> requests;
+        synchronized (mLock) {
+            if (mCurrent == batch) {
+                mCurrent = null;
+            }
+            requests = new ArrayList<>(batch.requests);
+        }
+        if (requests.size() == 1) {
+            return chain.proceed(requests.get(0));
+        }
+        batch.start(requests);
+        return join(chain, batch, 0);
+    }
+
+    /**
+     * 等待批量请求完成，并返回指定位置的响应
+     * <p>
+     * 批次中没有正在发送的请求时（发送者被取消），由当前请求发送批量请求
+     */
+    private Response join(Chain chain, Batch batch, int index) throws IOException {
+        Call call = chain.call();
+        try {
+            while (!batch.isDone()) {
+                if (call.isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+                List<Request> requests = batch.claim(call);
+                if (requests != null) {
+                    send(chain, batch, requests);
+                } else {
+                    batch.awaitDone(CANCEL_CHECK_INTERVAL);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for batch response");
+        }
+        return batch.get(index);
+    }
+
+    /**
+     * 编码并发送批量请求，将拆分后的响应分发给批次中的所有请求
+     */
+    private void send(Chain chain, Batch batch, List<Request> requests) throws IOException {
+        List<Response> responses;
+        try {
+            Response response = chain.proceed(mCodec.encode(requests));
+            try {
+                responses = mCodec.decode(response, requests);
+            } finally {
+                response.close();
+            }
+            if (responses.size() != requests.size()) {
+                throw new IOException("Batch codec returned " + responses.size() + " responses for " + requests.size() + " requests");
+            }
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                // 只是发送者被取消，交给批次中的其他请求重新发送
+                batch.release(chain.call());
+                return;
+            }
+            batch.fail(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            batch.fail(new IOException("Batch request failed", e));
+            throw e;
+        }
+        batch.complete(responses);
+    }
+
+    /**
+     * 一个批次，requests 由外部的 mLock 保护
+     */
+    private static final class Batch {
+        final List<Request> requests = new ArrayList<>();
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private boolean mSealed;
+        // 需要发送的请求，窗口结束后设置
+        private List<Request> mPending;
+        // 正在发送批量请求的 Call
+        private Call mSender;
+        private volatile List<Response> mResponses;
+        private volatile IOException mError;
+
+        synchronized void seal() {
+            mSealed = true;
+            notifyAll();
+        }
+
+        synchronized void awaitSealed(long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            long remaining = timeoutMillis;
+            while (!mSealed && remaining > 0) {
+                wait(remaining);
+                remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+            mSealed = true;
+        }
+
+        synchronized void start(List<Request> requests) {
+            mPending = requests;
+        }
+
+        /**
+         * 没有正在发送的请求时，由指定的 Call 负责发送
+         *
+         * @return 需要发送的请求，不需要发送时返回 null
+         */
+        synchronized List<Request> claim(Call call) {
+            if (mPending == null || mSender != null || isDone()) {
+                return null;
+            }
+            mSender = call;
+            return mPending;
+        }
+
+        synchronized void release(Call call) {
+            if (mSender == call) {
+                mSender = null;
+            }
+        }
+
+        void complete(List<Response> responses) {
+            mResponses = responses;
+            mDone.countDown();
+        }
+
+        void fail(IOException error) {
+            mError = error;
+            mDone.countDown();
+        }
+
+        boolean isDone() {
+            return mDone.getCount() == 0;
+        }
+
+        void awaitDone(long timeoutMillis) throws InterruptedException {
+            mDone.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        Response get(int index) throws IOException {
+            if (mError != null) {
+                throw mError;
+            }
+            return mResponses.get(index);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+import pers.liyi.bullet.retrofit.annotation.CachePolicy;
+import pers.liyi.bullet.retrofit.annotation.RequestAnnotations;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
+
+/**
+ * 缓存策略拦截器，需要作为应用拦截器添加，并配合 {@link OfflineCacheControlInterceptor} 使用
+ * <p>
+ * 1. 离线时 GET、HEAD 请求强制读取缓存，过期时间读取 {@link CachePolicy#maxStale()}；其他请求不会被缓存，按原样发送
+ * 2. 在线时，对配置了 {@link CachePolicy#staleWhileRevalidate()} 的 GET 请求优先读取缓存，
+ * 缓存已过期但仍在允许范围内时，直接返回旧缓存，同时在后台发起请求刷新缓存
+ * 3. 配置了 {@link CachePolicy#noStore()} 的请求不读取也不写入缓存
+ */
+public class CachePolicyInterceptor implements Interceptor {
+    // 离线时默认允许使用的过期缓存的最大时间为 30 天
+    private static final int DEFAULT_MAX_STALE = 60 * 60 * 24 * 30;
+    // 后台刷新请求的标记，带有此请求头的请求直接访问网络
+    private static final String HEADER_REVALIDATE = "Bullet-Revalidate";
+    // 缓存过期时 OkHttp 添加的警告头
+    private static final String WARNING_STALE = "110";
+
+    private ConnectivityMonitor mConnectivityMonitor;
+    // 用于发起后台刷新请求
+    private volatile Call.Factory mCallFactory;
+
+    public CachePolicyInterceptor(@NonNull ConnectivityMonitor monitor) {
+        this.mConnectivityMonitor = monitor;
+    }
+
+    /**
+     * 设置发起后台刷新请求的 Call.Factory，一般为添加了本拦截器的 OkHttpClient，未设置时不会进行后台刷新
+     */
+    public void setCallFactory(Call.Factory callFactory) {
+        this.mCallFactory = callFactory;
+    }
+
+    /**
+     * 获取请求对应的接口方法上配置的缓存策略
+     *
+     * @return 未配置时返回 null
+     */
+    public static CachePolicy getCachePolicy(@NonNull Request request) {
+        return RequestAnnotations.get(request, CachePolicy.class);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        // 后台刷新请求，跳过缓存直接访问网络
+        if (request.header(HEADER_REVALIDATE) != null) {
+            return chain.proceed(request.newBuilder()
+                    .removeHeader(HEADER_REVALIDATE)
+                    .cacheControl(CacheControl.FORCE_NETWORK)
+                    .build());
+        }
+        CachePolicy policy = getCachePolicy(request);
+        if (policy != null && policy.noStore()) {
+            return chain.proceed(request.newBuilder()
+                    .cacheControl(new CacheControl.Builder().noStore().noCache().build())
+                    .build());
+        }
+        Request offlineRequest = offlineRequest(request, policy);
+        if (offlineRequest != null) {
+            return chain.proceed(offlineRequest);
+        }
+        String method = request.method();
+        if (policy == null || policy.staleWhileRevalidate() <= 0 || !"GET".equals(method)) {
+            return chain.proceed(request);
+        }
+        // 先只读取缓存，允许读取过期时间在 staleWhileRevalidate 以内的缓存
+        Response cached = chain.proceed(request.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(policy.staleWhileRevalidate(), TimeUnit.SECONDS)
+                        .build())
+                .build());
+        if (!cached.isSuccessful()) {
+            // 没有可用的缓存（OkHttp 返回 504），直接请求网络
+            cached.close();
+            return chain.proceed(request);
+        }
+        if (isStale(cached)) {
+            revalidate(request);
+        }
+        return cached;
+    }
+
+    /**
+     * 离线时将请求改为强制读取缓存
+     *
+     * @return 在线或请求不可能被缓存时返回 null
+     */
+    Request offlineRequest(@NonNull Request request, CachePolicy policy) {
+        String method = request.method();
+        // 每个请求只判断一次网络状态；只有 GET、HEAD 可能被缓存，其他请求强制读取缓存只会得到 504
+        if (!("GET".equals(method) || "HEAD".equals(method)) || mConnectivityMonitor.isConnected()) {
+            return null;
+        }
+        int maxStale = (policy != null && policy.maxStale() >= 0) ? policy.maxStale() : DEFAULT_MAX_STALE;
+        return request.newBuilder()
+                // 强制使用缓存
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(maxStale, TimeUnit.SECONDS)
+                        .build())
+                .build();
+    }
+
+    /**
+     * 缓存是否已过期
+     */
+    private boolean isStale(Response response) {
+        for (String warning : response.headers("Warning")) {
+            if (warning.startsWith(WARNING_STALE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在后台发起请求，读取完整的响应体以写入 {@link Cache}
+     */
+    private void revalidate(Request request) {
+        Call.Factory callFactory = mCallFactory;
+        if (callFactory == null) {
+            return;
+        }
+        callFactory.newCall(request.newBuilder().header(HEADER_REVALIDATE, "1").build())
+                .enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        // 刷新失败时保留旧缓存，等待下一次请求
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) throws IOException {
+                        ResponseBody body = response.body();
+                        try {
+                            if (body != null) {
+                                body.source().readAll(Okio.blackhole());
+                            }
+                        } finally {
+                            response.close();
+                        }
+                    }
+                });
+    }
+}
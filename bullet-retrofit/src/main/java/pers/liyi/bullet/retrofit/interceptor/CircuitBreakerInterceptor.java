@@ -0,0 +1,55 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import pers.liyi.bullet.retrofit.circuit.CircuitBreaker;
+import pers.liyi.bullet.retrofit.circuit.CircuitBreakerOpenException;
+import pers.liyi.bullet.retrofit.circuit.CircuitBreakerRegistry;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+
+/**
+ * 按域名熔断的拦截器，需要添加在多域名拦截器之后，保证按最终请求的域名统计
+ * <p>
+ * 熔断器打开时直接抛出 {@link CircuitBreakerOpenException}，不再等待连接超时；
+ * 网络异常（请求被取消除外）和 {@link ExceptionHandler#isRetryable(int)} 中的暂时性 HTTP 错误计为失败
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+    private final CircuitBreakerRegistry mRegistry;
+
+    public CircuitBreakerInterceptor(@NonNull CircuitBreakerRegistry registry) {
+        this.mRegistry = registry;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        HttpUrl url = chain.request().url();
+        String host = url.host() + ":" + url.port();
+        CircuitBreaker breaker = mRegistry.get(host);
+        if (!breaker.tryAcquire()) {
+            throw new CircuitBreakerOpenException(host);
+        }
+        long start = SystemClock.elapsedRealtime();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                breaker.onIgnored();
+            } else {
+                breaker.onResult(SystemClock.elapsedRealtime() - start, true);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            breaker.onIgnored();
+            throw e;
+        }
+        breaker.onResult(SystemClock.elapsedRealtime() - start, ExceptionHandler.isRetryable(response.code()));
+        return response;
+    }
+}
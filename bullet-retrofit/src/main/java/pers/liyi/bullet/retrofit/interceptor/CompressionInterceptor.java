@@ -0,0 +1,220 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.ForwardingSource;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Source;
+import pers.liyi.bullet.retrofit.compression.CompressionStats;
+import pers.liyi.bullet.retrofit.compression.ContentDecoder;
+import pers.liyi.bullet.retrofit.compression.GzipDecoder;
+
+/**
+ * 压缩拦截器，需要作为网络拦截器添加
+ * <p>
+ * 1. 请求体为文本类型（json、xml、表单等）且不小于 requestThreshold 时使用 gzip 压缩，压缩后没有变小则按原样发送；
+ * 需要服务器支持解析 Content-Encoding: gzip 的请求体
+ * 2. 将 OkHttp 默认的 Accept-Encoding: gzip 替换为所有解码器支持的编码，并由对应的 {@link ContentDecoder} 解码响应体，
+ * 业务代码中手动设置了 Accept-Encoding 或者断点续传的请求不做处理
+ * 3. 压缩前后的字节数记录在 {@link CompressionStats} 中
+ * <p>
+ * 解码在网络拦截器中完成，磁盘缓存中保存的是解码后的响应体
+ */
+public class CompressionInterceptor implements Interceptor {
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    // 编码名称 -> 解码器，按优先级排列
+    private final Map<String, ContentDecoder> mDecoders = new LinkedHashMap<>();
+    // 替换后的 Accept-Encoding
+    private final String mAcceptEncoding;
+    // 压缩请求体的最小字节数，为 0 时不压缩请求体
+    private final long mRequestThreshold;
+    private final CompressionStats mStats;
+
+    /**
+     * @param decoders         响应体解码器，排在前面的编码优先；未包含 gzip 时自动添加 {@link GzipDecoder}
+     * @param requestThreshold 压缩请求体的最小字节数，为 0 时不压缩请求体
+     * @param stats            压缩统计
+     */
+    public CompressionInterceptor(@Nullable List<ContentDecoder> decoders, long requestThreshold, @NonNull CompressionStats stats) {
+        if (decoders != null) {
+            for (ContentDecoder decoder : decoders) {
+                mDecoders.put(decoder.encoding().toLowerCase(Locale.US), decoder);
+            }
+        }
+        if (!mDecoders.containsKey(GzipDecoder.ENCODING)) {
+            mDecoders.put(GzipDecoder.ENCODING, new GzipDecoder());
+        }
+        StringBuilder acceptEncoding = new StringBuilder();
+        for (String encoding : mDecoders.keySet()) {
+            if (acceptEncoding.length() > 0) {
+                acceptEncoding.append(", ");
+            }
+            acceptEncoding.append(encoding);
+        }
+        this.mAcceptEncoding = acceptEncoding.toString();
+        this.mRequestThreshold = requestThreshold;
+        this.mStats = stats;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (mRequestThreshold > 0) {
+            request = compressRequest(request);
+        }
+        // 只有 Accept-Encoding 是由 OkHttp 自动添加时才替换，此时 OkHttp 也不会再解压响应体
+        boolean negotiate = GzipDecoder.ENCODING.equals(request.header(HEADER_ACCEPT_ENCODING))
+                && chain.call().request().header(HEADER_ACCEPT_ENCODING) == null;
+        if (!negotiate) {
+            return chain.proceed(request);
+        }
+        Response response = chain.proceed(request.newBuilder().header(HEADER_ACCEPT_ENCODING, mAcceptEncoding).build());
+        String encoding = response.header(HEADER_CONTENT_ENCODING);
+        ContentDecoder decoder = encoding != null ? mDecoders.get(encoding.trim().toLowerCase(Locale.US)) : null;
+        ResponseBody body = response.body();
+        if (decoder == null || body == null) {
+            return response;
+        }
+        // 缓存按请求头 Vary 匹配时使用替换前的 Accept-Encoding
+        Response.Builder builder = response.newBuilder()
+                .request(chain.request())
+                .removeHeader(HEADER_CONTENT_ENCODING)
+                .removeHeader("Content-Length");
+        if (!hasBody(response) || body.contentLength() == 0) {
+            return builder.build();
+        }
+        CountingSource encoded = new CountingSource(body.source(), null);
+        Source decoded = new CountingSource(decoder.decode(encoded), encoded);
+        return builder.body(ResponseBody.create(Okio.buffer(decoded), body.contentType(), -1)).build();
+    }
+
+    /**
+     * 压缩请求体
+     */
+    private Request compressRequest(Request request) throws IOException {
+        RequestBody body = request.body();
+        if (body == null || request.header(HEADER_CONTENT_ENCODING) != null
+                || body.isDuplex() || body.isOneShot() || !isCompressible(body.contentType())) {
+            return request;
+        }
+        long contentLength = body.contentLength();
+        if (contentLength >= 0 && contentLength < mRequestThreshold) {
+            return request;
+        }
+        // 长度未知的请求体（例如流式的 json 请求体）需要先写入内存才能得知长度
+        Buffer raw = new Buffer();
+        body.writeTo(raw);
+        ByteString rawBytes = raw.readByteString();
+        ByteString sendBytes = rawBytes;
+        boolean gzip = false;
+        if (rawBytes.size() >= mRequestThreshold) {
+            Buffer compressed = new Buffer();
+            BufferedSink sink = Okio.buffer(new GzipSink(compressed));
+            try {
+                sink.write(rawBytes);
+            } finally {
+                sink.close();
+            }
+            if (compressed.size() < rawBytes.size()) {
+                sendBytes = compressed.readByteString();
+                gzip = true;
+                mStats.recordRequest(rawBytes.size(), sendBytes.size());
+            }
+        }
+        if (!gzip && contentLength >= 0) {
+            return request;
+        }
+        Request.Builder builder = request.newBuilder()
+                .method(request.method(), RequestBody.create(sendBytes, body.contentType()))
+                // 长度已知，不再使用分块传输
+                .removeHeader("Transfer-Encoding")
+                .header("Content-Length", String.valueOf(sendBytes.size()));
+        if (gzip) {
+            builder.header(HEADER_CONTENT_ENCODING, GzipDecoder.ENCODING);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 文本类型的请求体压缩效果较好，图片、文件等已经压缩过的数据不再压缩
+     */
+    private static boolean isCompressible(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        if ("text".equals(contentType.type())) {
+            return true;
+        }
+        String subtype = contentType.subtype();
+        return subtype.contains("json") || subtype.contains("xml")
+                || subtype.contains("javascript") || subtype.equals("x-www-form-urlencoded");
+    }
+
+    /**
+     * HEAD 请求以及 204、304 等响应没有响应体，不需要解码
+     */
+    private static boolean hasBody(Response response) {
+        if ("HEAD".equals(response.request().method())) {
+            return false;
+        }
+        int code = response.code();
+        return (code >= 200 || code < 100) && code != 204 && code != 304;
+    }
+
+    /**
+     * 统计读取的字节数，作为解码后的响应体时，在读取完毕或关闭时记录到统计中
+     */
+    private final class CountingSource extends ForwardingSource {
+        // 解码前的响应体，为 null 时表示自身就是解码前的响应体
+        private final CountingSource mEncoded;
+        private long mCount;
+        private boolean mRecorded;
+
+        CountingSource(Source delegate, CountingSource encoded) {
+            super(delegate);
+            this.mEncoded = encoded;
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read == -1) {
+                record();
+            } else {
+                mCount += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            record();
+            super.close();
+        }
+
+        private void record() {
+            if (mEncoded != null && !mRecorded) {
+                mRecorded = true;
+                mStats.recordResponse(mEncoded.mCount, mCount);
+            }
+        }
+    }
+}
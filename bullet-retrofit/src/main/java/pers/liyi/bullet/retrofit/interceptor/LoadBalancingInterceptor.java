@@ -0,0 +1,94 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+import pers.liyi.bullet.retrofit.route.HostPool;
+import pers.liyi.bullet.retrofit.route.HostState;
+
+/**
+ * 客户端负载均衡拦截器，需要添加在多域名拦截器之后、熔断拦截器之前
+ * <p>
+ * 1. 只处理域名属于 {@link HostPool} 的请求，由域名池选择本次实际使用的域名，只替换协议、主机地址和端口
+ * 2. 记录每个域名正在进行的请求数和响应延迟，网络异常（请求被取消除外）和暂时性 HTTP 错误计为失败
+ * 3. 域名无法连接时请求还未发送到服务器，在本次请求中切换到其他域名，每个域名最多尝试一次，全部失败时抛出最后一次的异常
+ */
+public class LoadBalancingInterceptor implements Interceptor {
+    private final HostPool mHostPool;
+
+    public LoadBalancingInterceptor(@NonNull HostPool hostPool) {
+        this.mHostPool = hostPool;
+    }
+
+    public HostPool getHostPool() {
+        return mHostPool;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!mHostPool.contains(request.url())) {
+            return chain.proceed(request);
+        }
+        HostState host = mHostPool.select((HostState) null);
+        // 本次请求中已经连接失败的域名
+        Set<HostState> tried = null;
+        while (true) {
+            mHostPool.onStart(host);
+            long start = SystemClock.elapsedRealtime();
+            Response response;
+            try {
+                response = chain.proceed(request.newBuilder().url(replaceHost(request.url(), host.getUrl())).build());
+            } catch (ConnectException | UnknownHostException e) {
+                mHostPool.onFinish(host, SystemClock.elapsedRealtime() - start, true);
+                if (chain.call().isCanceled()) {
+                    throw e;
+                }
+                if (tried == null) {
+                    tried = new HashSet<>();
+                }
+                tried.add(host);
+                HostState other = mHostPool.select(tried);
+                if (other == null) {
+                    throw e;
+                }
+                host = other;
+                continue;
+            } catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    mHostPool.onIgnored(host);
+                } else {
+                    mHostPool.onFinish(host, SystemClock.elapsedRealtime() - start, true);
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                mHostPool.onIgnored(host);
+                throw e;
+            }
+            mHostPool.onFinish(host, SystemClock.elapsedRealtime() - start, ExceptionHandler.isRetryable(response.code()));
+            return response;
+        }
+    }
+
+    /**
+     * 重建新的 HttpUrl，只替换协议、主机地址和端口
+     */
+    private static HttpUrl replaceHost(HttpUrl oldUrl, HttpUrl baseUrl) {
+        return oldUrl.newBuilder()
+                .scheme(baseUrl.scheme())
+                .host(baseUrl.host())
+                .port(baseUrl.port())
+                .build();
+    }
+}
@@ -1,64 +1,129 @@
 package pers.liyi.bullet.retrofit.interceptor;
 
-import android.util.Log;
-
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ThreadLocalRandom;
 
-import okhttp3.Connection;
-import okhttp3.Headers;
-import okhttp3.HttpUrl;
+import androidx.annotation.NonNull;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import pers.liyi.bullet.retrofit.log.NetworkLogEvent;
+import pers.liyi.bullet.retrofit.log.NetworkLogger;
 
 /**
  * 日志拦截器
+ * <p>
+ * 1. 按采样率记录请求，未被采样的请求不做任何处理
+ * 2. 请求线程只截取有限长度的文本请求体和响应体，并将记录放入 {@link NetworkLogger} 的缓冲区，
+ * 格式化、脱敏和写入都在后台线程中进行
+ * 3. 响应体通过 peekBody 截取，不会消费原始的响应体，流式读取的接口不受影响
  */
 public class LogInterceptor implements Interceptor {
-    private final String TAG = "Bullet-" + this.getClass().getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final NetworkLogger mLogger;
+    private final double mSampleRate;
+    private final long mMaxBodyBytes;
+
+    /**
+     * 只输出到 Logcat，记录所有的请求
+     * <p>
+     * 不创建后台写入任务，日志在请求线程中直接输出，不需要释放
+     */
+    public LogInterceptor() {
+        this(new NetworkLogger(256, NetworkLogger.DEFAULT_REDACT_HEADERS, true, null, 0, 1, 0), 1, 64 * 1024);
+    }
+
+    /**
+     * @param logger       日志写入器
+     * @param sampleRate   采样率，0 ~ 1
+     * @param maxBodyBytes 请求体和响应体最多截取的字节数，为 0 时不截取
+     */
+    public LogInterceptor(@NonNull NetworkLogger logger, double sampleRate, long maxBodyBytes) {
+        this.mLogger = logger;
+        this.mSampleRate = sampleRate;
+        this.mMaxBodyBytes = maxBodyBytes;
+    }
+
+    public NetworkLogger getLogger() {
+        return mLogger;
+    }
 
     @Override
     public Response intercept(Chain chain) throws IOException {
-        // 这个 chain 里面包含了 request 和 response，所以你要什么都可以从这里拿
-        // =========== 发送 ===========
-        Request originalRequest = chain.request();
-        // 请求发起的时间
-        long requestTime = System.currentTimeMillis();
-        HttpUrl requestUrl = originalRequest.url();
-        Connection requestConnection = chain.connection();
-        Headers requestHeaders = originalRequest.headers();
-        // 打印发送信息
-        Log.d(TAG, "\n===============================================================" +
-                "\n== LogInterceptor===发送===requestUrl= " + requestUrl +
-                "\n== LogInterceptor===发送===requestConnection= " + requestConnection +
-                "\n== LogInterceptor===发送===requestHeaders= " + requestHeaders +
-                "\n===============================================================");
+        Request request = chain.request();
+        if (mSampleRate <= 0 || (mSampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= mSampleRate)) {
+            return chain.proceed(request);
+        }
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String requestBody = captureRequestBody(request.body());
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            mLogger.log(new NetworkLogEvent(timestamp, request.method(), request.url().toString(), request.headers(),
+                    requestBody, 0, null, null, elapsedMillis(start), e.toString()));
+            throw e;
+        }
+        String responseBody = captureResponseBody(response);
+        mLogger.log(new NetworkLogEvent(timestamp, request.method(), request.url().toString(), request.headers(),
+                requestBody, response.code(), response.headers(), responseBody, elapsedMillis(start), null));
+        return response;
+    }
+
+    /**
+     * 只截取长度已知且不超过上限的文本请求体，避免重复写入大文件或流式的请求体
+     */
+    private String captureRequestBody(RequestBody body) throws IOException {
+        if (body == null || mMaxBodyBytes <= 0 || !isText(body.contentType())) {
+            return null;
+        }
+        long length = body.contentLength();
+        if (length < 0 || length > mMaxBodyBytes) {
+            return "(" + (length < 0 ? "streaming" : length + "-byte") + " body omitted)";
+        }
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer.readString(charsetOf(body.contentType()));
+    }
+
+    private String captureResponseBody(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null || mMaxBodyBytes <= 0 || !isText(body.contentType())) {
+            return null;
+        }
+        byte[] bytes = response.peekBody(mMaxBodyBytes).bytes();
+        String text = new String(bytes, charsetOf(body.contentType()));
+        boolean truncated = body.contentLength() > mMaxBodyBytes
+                || (body.contentLength() < 0 && bytes.length == mMaxBodyBytes);
+        return truncated ? text + "...(truncated)" : text;
+    }
+
+    private static boolean isText(MediaType type) {
+        if (type == null) {
+            return false;
+        }
+        String subtype = type.subtype();
+        // 流式响应会一直阻塞到读取足够的字节，不截取
+        if (subtype.equals("event-stream") || subtype.contains("ndjson") || subtype.contains("json-seq")) {
+            return false;
+        }
+        return "text".equals(type.type()) || subtype.contains("json") || subtype.contains("xml")
+                || subtype.equals("x-www-form-urlencoded");
+    }
+
+    private static Charset charsetOf(MediaType type) {
+        Charset charset = type != null ? type.charset(UTF_8) : null;
+        return charset != null ? charset : UTF_8;
+    }
 
-        // =========== 接收 ===========
-        // 收到响应的时间
-        long responseTime = System.currentTimeMillis();
-        Response response = chain.proceed(chain.request());
-        MediaType mediaType = response.body().contentType();
-//        ResponseBody responseBody = response.peekBody(1024 * 1024);
-        HttpUrl responseUrl = response.request().url();
-        Headers responseHeaders = response.headers();
-        String content = response.body().string();
-        // 延迟时间
-        long delayTime = responseTime - requestTime;
-        // 打印接收信息
-        Log.d(TAG, "\n===============================================================" +
-                "\n== LogInterceptor===接收===requestUrl= " + responseUrl +
-                "\n== LogInterceptor===接收===responseHeaders= " + responseHeaders +
-                "\n== LogInterceptor===接收===delayTime= " + delayTime +
-                "\n== LogInterceptor===接收===content= " + content +
-                "\n===============================================================");
-        // 因为 OkHttp 请求回调中 response.body().string() 只能有效调用一次，调用后就会被关闭，
-        // 那么在返回结果时就会报错：java.lang.IllegalStateException: closed
-        // 所以需要重构一个新的有效的 response
-        return response.newBuilder()
-                .body(ResponseBody.create(mediaType, content))
-                .build();
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000;
     }
 }
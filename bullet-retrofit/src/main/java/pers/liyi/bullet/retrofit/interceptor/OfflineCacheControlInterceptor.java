@@ -4,50 +4,63 @@ import android.content.Context;
 
 import java.io.IOException;
 
-import androidx.annotation.RequiresPermission;
-import pers.liyi.bullet.retrofit.NetworkUtil;
-import okhttp3.CacheControl;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
-
-import static android.Manifest.permission.ACCESS_NETWORK_STATE;
+import pers.liyi.bullet.retrofit.annotation.CachePolicy;
+import pers.liyi.bullet.retrofit.connectivity.AndroidConnectivitySource;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
 
 /**
- * 离线读取本地缓存，在线获取最新数据(可读取单个请求的请求头，亦可统一设置)
+ * 在线获取最新数据时，设置响应的缓存策略(可读取接口上的 {@link CachePolicy}，亦可读取单个请求的请求头)，需要作为网络拦截器添加
+ * <p>
+ * 离线读取本地缓存由应用拦截器 {@link CachePolicyInterceptor} 处理，因为离线时请求不会到达网络拦截器
  */
 public class OfflineCacheControlInterceptor implements Interceptor {
-    private Context mContext;
+    // 兼容旧的用法，离线时自行强制读取缓存；为 null 时离线判断交由 CachePolicyInterceptor 处理
+    private CachePolicyInterceptor mOfflineInterceptor;
+
+    public OfflineCacheControlInterceptor() {
+    }
 
+    /**
+     * 与旧版本一样，离线时强制读取缓存，此时需要作为应用拦截器添加
+     *
+     * @deprecated 离线判断已移至 {@link CachePolicyInterceptor}，请使用 {@link #OfflineCacheControlInterceptor()}
+     */
+    @Deprecated
     public OfflineCacheControlInterceptor(Context context) {
-        this.mContext = context;
+        this(new ConnectivityMonitor(new AndroidConnectivitySource(context)));
+    }
+
+    OfflineCacheControlInterceptor(ConnectivityMonitor monitor) {
+        this.mOfflineInterceptor = new CachePolicyInterceptor(monitor);
     }
 
     @Override
-    @RequiresPermission(ACCESS_NETWORK_STATE)
     public Response intercept(Chain chain) throws IOException {
         Request originalRequest = chain.request();
-        if (!NetworkUtil.isConnected(mContext)) {
-            originalRequest = originalRequest.newBuilder()
-                    // 强制使用缓存
-                    .cacheControl(CacheControl.FORCE_CACHE).build();
+        CachePolicy policy = CachePolicyInterceptor.getCachePolicy(originalRequest);
+        if (mOfflineInterceptor != null) {
+            Request offlineRequest = mOfflineInterceptor.offlineRequest(originalRequest, policy);
+            if (offlineRequest != null) {
+                return chain.proceed(offlineRequest);
+            }
         }
         Response response = chain.proceed(originalRequest);
-        if (NetworkUtil.isConnected(mContext)) {
-            // 有网络的时候，读取接口上的 @Headers 里的配置，你可以在这里进行统一的设置
-            String cacheControl = originalRequest.cacheControl().toString();
-            return response.newBuilder()
-                    // 清除头信息，因为服务器如果不支持，会返回一些干扰信息，不清除下面无法生效
-                    .removeHeader("Pragma")
-                    .header("Cache-Control", cacheControl)
-                    .build();
+        String cacheControl;
+        if (policy != null && policy.noStore()) {
+            cacheControl = "no-store";
+        } else if (policy != null && policy.maxAge() >= 0) {
+            cacheControl = "public, max-age=" + policy.maxAge();
         } else {
-            // 设置缓存的最大失效时间为 30 天
-            int maxStale = 60 * 60 * 24 * 30;
-            return response.newBuilder()
-                    .removeHeader("Pragma")
-                    .header("Cache-Control", "public, only-if-cached, max-stale=" + maxStale)
-                    .build();
+            // 读取接口上的 @Headers 里的配置，你可以在这里进行统一的设置
+            cacheControl = originalRequest.cacheControl().toString();
         }
+        return response.newBuilder()
+                // 清除头信息，因为服务器如果不支持，会返回一些干扰信息，不清除下面无法生效
+                .removeHeader("Pragma")
+                .header("Cache-Control", cacheControl)
+                .build();
     }
 }
@@ -0,0 +1,80 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+import androidx.annotation.NonNull;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import pers.liyi.bullet.retrofit.annotation.Outbox;
+import pers.liyi.bullet.retrofit.annotation.RequestAnnotations;
+import pers.liyi.bullet.retrofit.circuit.CircuitBreakerOpenException;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+import pers.liyi.bullet.retrofit.outbox.OfflineOutbox;
+import pers.liyi.bullet.retrofit.outbox.OutboxQueuedException;
+
+/**
+ * 离线发件箱拦截器，只处理接口方法上配置了 {@link Outbox} 注解的修改类请求（GET、HEAD 除外）
+ * <p>
+ * 1. 请求未携带 Idempotency-Key 时自动生成，服务器可以据此丢弃重复的请求
+ * 2. 离线时不发送请求，直接保存到发件箱并抛出 {@link OutboxQueuedException}
+ * 3. 在线时遇到网络异常（请求被取消除外）或 {@link ExceptionHandler#isRetryable(int)} 中的暂时性 HTTP 错误，同样保存到发件箱
+ * 4. 请求体无法保存时（例如超过大小上限）按原来的结果返回
+ * <p>
+ * 需要添加在重试拦截器之前，重试全部失败后再保存到发件箱
+ */
+public class OutboxInterceptor implements Interceptor {
+    public static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final OfflineOutbox mOutbox;
+    private final ConnectivityMonitor mConnectivityMonitor;
+
+    public OutboxInterceptor(@NonNull OfflineOutbox outbox, @NonNull ConnectivityMonitor connectivityMonitor) {
+        this.mOutbox = outbox;
+        this.mConnectivityMonitor = connectivityMonitor;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header(OfflineOutbox.HEADER_REPLAY) != null) {
+            // 发件箱重新发送的请求，失败时由发件箱继续保存
+            return chain.proceed(request.newBuilder().removeHeader(OfflineOutbox.HEADER_REPLAY).build());
+        }
+        String method = request.method();
+        if ("GET".equals(method) || "HEAD".equals(method) || RequestAnnotations.get(request, Outbox.class) == null) {
+            return chain.proceed(request);
+        }
+        String key = request.header(HEADER_IDEMPOTENCY_KEY);
+        if (key == null) {
+            key = UUID.randomUUID().toString();
+            request = request.newBuilder().header(HEADER_IDEMPOTENCY_KEY, key).build();
+        }
+        if (!mConnectivityMonitor.isConnected() && mOutbox.enqueue(request, key)) {
+            throw new OutboxQueuedException(key, null);
+        }
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            if (!chain.call().isCanceled() && isTransient(e) && mOutbox.enqueue(request, key)) {
+                throw new OutboxQueuedException(key, e);
+            }
+            throw e;
+        }
+        if (ExceptionHandler.isRetryable(response.code()) && mOutbox.enqueue(request, key)) {
+            response.close();
+            throw new OutboxQueuedException(key, null);
+        }
+        return response;
+    }
+
+    private static boolean isTransient(IOException e) {
+        return e instanceof UnknownHostException
+                || e instanceof CircuitBreakerOpenException
+                || ExceptionHandler.isRetryable(e);
+    }
+}
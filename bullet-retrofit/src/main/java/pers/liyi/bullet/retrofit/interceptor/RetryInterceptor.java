@@ -0,0 +1,148 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+import androidx.annotation.NonNull;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import pers.liyi.bullet.retrofit.annotation.Idempotent;
+import pers.liyi.bullet.retrofit.annotation.RequestAnnotations;
+import pers.liyi.bullet.retrofit.constant.HttpStatusCode;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+import pers.liyi.bullet.retrofit.retry.RetryBudget;
+
+/**
+ * 失败重试拦截器
+ * <p>
+ * 1. 是否重试由 {@link ExceptionHandler#isRetryable} 判断，只重试超时、连接失败、429 和 5xx 等暂时性错误
+ * 2. 只重试幂等的请求，规则见 {@link Idempotent}；请求体只能写入一次的请求不会重试
+ * 3. 重试间隔按指数退避并加入随机抖动，服务器返回 Retry-After 时优先使用
+ * 4. 每次重试都需要从全局的 {@link RetryBudget} 中获取令牌，令牌耗尽时直接返回失败
+ */
+public class RetryInterceptor implements Interceptor {
+    private static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    // 最大重试次数
+    private final int mMaxRetries;
+    // 首次重试的基础等待时间（毫秒），之后每次翻倍
+    private final long mBaseDelay;
+    // 最大等待时间（毫秒），Retry-After 超过该值时不再重试
+    private final long mMaxDelay;
+    private final RetryBudget mBudget;
+
+    public RetryInterceptor(int maxRetries, long baseDelayMillis, long maxDelayMillis, @NonNull RetryBudget budget) {
+        this.mMaxRetries = Math.max(0, maxRetries);
+        this.mBaseDelay = Math.max(1, baseDelayMillis);
+        this.mMaxDelay = Math.max(mBaseDelay, maxDelayMillis);
+        this.mBudget = budget;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean retryable = mMaxRetries > 0 && isIdempotent(request);
+        for (int attempt = 0; ; attempt++) {
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (!retryable || attempt >= mMaxRetries || chain.call().isCanceled()
+                        || !ExceptionHandler.isRetryable(e) || !mBudget.tryAcquire()) {
+                    throw e;
+                }
+                sleep(backoff(attempt), e);
+                continue;
+            }
+            if (!retryable || attempt >= mMaxRetries || !ExceptionHandler.isRetryable(response.code())) {
+                return response;
+            }
+            long delay = retryAfter(response);
+            if (delay < 0) {
+                delay = backoff(attempt);
+            }
+            if (delay > mMaxDelay || !mBudget.tryAcquire()) {
+                // 服务器要求等待的时间过长，或重试预算已耗尽，直接返回失败的响应
+                return response;
+            }
+            response.close();
+            sleep(delay, null);
+        }
+    }
+
+    /**
+     * 请求是否幂等
+     */
+    private boolean isIdempotent(Request request) {
+        RequestBody body = request.body();
+        if (body != null && (body.isOneShot() || body.isDuplex())) {
+            return false;
+        }
+        Idempotent idempotent = RequestAnnotations.get(request, Idempotent.class);
+        if (idempotent != null) {
+            return idempotent.value();
+        }
+        if (request.header(HEADER_IDEMPOTENCY_KEY) != null) {
+            return true;
+        }
+        switch (request.method()) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+            case "OPTIONS":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 指数退避的等待时间，在 [上限 / 2, 上限] 之间随机，避免大量请求同时重试
+     */
+    private long backoff(int attempt) {
+        long cap = attempt >= 30 ? mMaxDelay : Math.min(mMaxDelay, mBaseDelay << attempt);
+        long half = cap / 2;
+        return half + ThreadLocalRandom.current().nextLong(cap - half + 1);
+    }
+
+    /**
+     * 解析 Retry-After 响应头，只对 429 和 503 生效
+     *
+     * @return 等待时间（毫秒），没有该响应头或格式错误时返回 -1
+     */
+    private static long retryAfter(Response response) {
+        if (response.code() != HttpStatusCode.TOO_MANY_REQUESTS
+                && response.code() != HttpStatusCode.SERVICE_UNAVAILABLE) {
+            return -1;
+        }
+        String value = response.header(HEADER_RETRY_AFTER);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate(HEADER_RETRY_AFTER);
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    private static void sleep(long millis, IOException cause) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting to retry");
+            if (cause != null) {
+                interrupted.initCause(cause);
+            }
+            throw interrupted;
+        }
+    }
+}
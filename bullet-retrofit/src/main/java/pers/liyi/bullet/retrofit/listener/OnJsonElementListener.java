@@ -0,0 +1,14 @@
+package pers.liyi.bullet.retrofit.listener;
+
+/**
+ * json 数组元素的解析回调，每解析出一个元素回调一次
+ */
+public interface OnJsonElementListener<T> {
+    /**
+     * 解析出一个元素
+     *
+     * @param element 元素
+     * @param index   元素在数组中的位置
+     */
+    void onElement(T element, int index);
+}
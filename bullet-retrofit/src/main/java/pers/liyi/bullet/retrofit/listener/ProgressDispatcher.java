@@ -0,0 +1,129 @@
+package pers.liyi.bullet.retrofit.listener;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 进度分发器，将 io 线程中的进度节流后分发到主线程
+ * <p>
+ * 1. 距离上次分发的时间不小于最小间隔，且进度变化不小于最小百分比时才分发，完成时只分发一次
+ * 2. 重试、重新开始或回退导致进度变小时，清空节流状态并立即分发，也可以主动调用 {@link #reset()}
+ * 3. 主线程中最多只有一个待执行的分发任务，执行时读取的是最新的进度
+ * 4. 复用同一个 Runnable，分发过程中不产生新的对象
+ */
+public class ProgressDispatcher {
+    // 默认的最小分发间隔，单位毫秒
+    public static final long DEFAULT_MIN_INTERVAL = 100;
+    // 默认的最小进度变化，单位百分比
+    public static final float DEFAULT_MIN_PERCENT_DELTA = 1f;
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final OnProgressListener mListener;
+    private final String mTag;
+    // 进度的比例，1 表示 0~1，100 表示 0~100
+    private final float mScale;
+    private long mMinInterval = DEFAULT_MIN_INTERVAL;
+    private float mMinPercentDelta = DEFAULT_MIN_PERCENT_DELTA;
+
+    // 最新的进度，由 io 线程写入、主线程读取
+    private volatile long mTotalSize;
+    private volatile long mCurrentSize;
+    // 是否有待执行的分发任务
+    private final AtomicBoolean mPending = new AtomicBoolean(false);
+    // 上次分发的时间和进度，仅在 io 线程中访问
+    private long mLastDispatchTime;
+    private float mLastDispatchPercent = -1;
+    // 上次更新的字节数，用于发现进度回退
+    private long mLastSize;
+    // 完成的进度是否已经分发
+    private boolean mFinishDispatched;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mPending.set(false);
+            long current = mCurrentSize;
+            long total = mTotalSize;
+            mListener.onProgress(total > 0 ? current * mScale / total : 0, total, mTag);
+        }
+    };
+
+    /**
+     * @param listener 进度监听
+     * @param tag      进度监听的标记
+     * @param scale    进度的比例，1 表示进度范围为 0~1，100 表示进度范围为 0~100
+     */
+    public ProgressDispatcher(@NonNull OnProgressListener listener, String tag, float scale) {
+        this.mListener = listener;
+        this.mTag = tag;
+        this.mScale = scale;
+    }
+
+    /**
+     * 设置节流参数
+     *
+     * @param minInterval     最小分发间隔，单位毫秒
+     * @param minPercentDelta 最小进度变化，单位百分比
+     */
+    public void setThrottle(long minInterval, float minPercentDelta) {
+        this.mMinInterval = minInterval;
+        this.mMinPercentDelta = minPercentDelta;
+    }
+
+    /**
+     * 清空节流状态，重试或重新开始时调用，之后的第一次更新会立即分发
+     */
+    public void reset() {
+        mLastDispatchTime = 0;
+        mLastDispatchPercent = -1;
+        mLastSize = 0;
+        mFinishDispatched = false;
+    }
+
+    /**
+     * 更新进度，在 io 线程中调用
+     *
+     * @param currentSize 当前已处理的字节数
+     * @param totalSize   总字节数，未知时为 -1
+     */
+    public void update(long currentSize, long totalSize) {
+        mTotalSize = totalSize;
+        mCurrentSize = currentSize;
+        boolean rollback = currentSize < mLastSize;
+        if (rollback) {
+            reset();
+        }
+        mLastSize = currentSize;
+        boolean finished = totalSize > 0 && currentSize >= totalSize;
+        if (finished) {
+            if (mFinishDispatched) {
+                return;
+            }
+            mFinishDispatched = true;
+        } else {
+            long now = SystemClock.uptimeMillis();
+            if (!rollback && now - mLastDispatchTime < mMinInterval) {
+                return;
+            }
+            // 总大小未知时只按时间间隔节流
+            if (totalSize > 0) {
+                float percent = currentSize * 100f / totalSize;
+                if (!rollback && percent - mLastDispatchPercent < mMinPercentDelta) {
+                    return;
+                }
+                mLastDispatchPercent = percent;
+            }
+            mLastDispatchTime = now;
+        }
+        // 已有待执行的分发任务时，不再重复提交，执行时会读取最新的进度
+        if (mPending.compareAndSet(false, true)) {
+            sMainHandler.post(mDispatchRunnable);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package pers.liyi.bullet.retrofit.log;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多生产者单消费者的无锁环形缓冲区
+ * <p>
+ * 生产者通过 CAS 占用槽位后写入，缓冲区已满时直接丢弃并计数，不会阻塞请求线程；
+ * 消费者按顺序读取，遇到已占用但尚未写入的槽位时停止，等待下一次读取
+ */
+final class LogRingBuffer<T> {
+    private final AtomicReferenceArray<T> mSlots;
+    private final int mMask;
+    // 下一个写入的位置
+    private final AtomicLong mTail = new AtomicLong();
+    // 下一个读取的位置，只由消费者修改
+    private final AtomicLong mHead = new AtomicLong();
+    // 缓冲区已满时丢弃的数量
+    private final AtomicLong mDropped = new AtomicLong();
+
+    /**
+     * @param capacity 容量，会向上取整为 2 的幂
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mSlots = new AtomicReferenceArray<>(size);
+        this.mMask = size - 1;
+    }
+
+    /**
+     * 写入一个元素
+     *
+     * @return 缓冲区已满时返回 false
+     */
+    boolean offer(T item) {
+        while (true) {
+            long tail = mTail.get();
+            if (tail - mHead.get() >= mSlots.length()) {
+                mDropped.incrementAndGet();
+                return false;
+            }
+            if (mTail.compareAndSet(tail, tail + 1)) {
+                mSlots.lazySet((int) (tail & mMask), item);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 读取所有已写入的元素，只能在同一个线程中调用
+     *
+     * @param output 读取的元素
+     * @param max    最多读取的数量
+     * @return 读取的数量
+     */
+    int drain(List<T> output, int max) {
+        long head = mHead.get();
+        int count = 0;
+        while (count < max) {
+            int index = (int) (head & mMask);
+            T item = mSlots.get(index);
+            if (item == null) {
+                break;
+            }
+            mSlots.lazySet(index, null);
+            output.add(item);
+            head++;
+            count++;
+        }
+        mHead.lazySet(head);
+        return count;
+    }
+
+    /**
+     * 返回并清零丢弃的数量
+     */
+    long takeDropped() {
+        return mDropped.getAndSet(0);
+    }
+}
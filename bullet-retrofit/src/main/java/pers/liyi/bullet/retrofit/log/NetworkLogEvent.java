@@ -0,0 +1,49 @@
+package pers.liyi.bullet.retrofit.log;
+
+import androidx.annotation.NonNull;
+import okhttp3.Headers;
+
+/**
+ * 一次请求的日志记录，请求线程只负责填充字段，格式化和脱敏都在后台线程中进行
+ * <p>
+ * {@link Headers} 是不可变对象，直接引用即可，不需要复制
+ */
+public final class NetworkLogEvent {
+    final long timestamp;
+    final String method;
+    final String url;
+    final Headers requestHeaders;
+    final String requestBody;
+    final int code;
+    final Headers responseHeaders;
+    final String responseBody;
+    final long durationMillis;
+    final String error;
+
+    /**
+     * @param timestamp       请求开始的时间
+     * @param method          请求方法
+     * @param url             请求地址
+     * @param requestHeaders  请求头
+     * @param requestBody     截取的请求体，未截取时为 null
+     * @param code            响应码，请求失败时为 0
+     * @param responseHeaders 响应头，请求失败时为 null
+     * @param responseBody    截取的响应体，未截取时为 null
+     * @param durationMillis  请求耗时
+     * @param error           请求失败的原因，成功时为 null
+     */
+    public NetworkLogEvent(long timestamp, @NonNull String method, @NonNull String url, @NonNull Headers requestHeaders,
+                           String requestBody, int code, Headers responseHeaders, String responseBody,
+                           long durationMillis, String error) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.url = url;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = requestBody;
+        this.code = code;
+        this.responseHeaders = responseHeaders;
+        this.responseBody = responseBody;
+        this.durationMillis = durationMillis;
+        this.error = error;
+    }
+}
@@ -0,0 +1,224 @@
+package pers.liyi.bullet.retrofit.log;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Headers;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * 网络日志的后台写入器
+ * <p>
+ * 1. 请求线程只调用 {@link #log(NetworkLogEvent)} 将记录放入无锁的环形缓冲区，缓冲区已满时丢弃
+ * 2. 后台线程定期批量取出记录，脱敏后格式化，输出到 Logcat 和（或）滚动的日志文件；
+ * 未设置写入间隔时不创建后台任务，在调用 log 的线程中立即写入
+ * 3. 日志文件超过大小上限后重命名为 network.1.log、network.2.log ...，超过数量上限的旧文件被删除
+ */
+public class NetworkLogger {
+    /**
+     * 默认需要脱敏的请求头和响应头
+     */
+    public static final String[] DEFAULT_REDACT_HEADERS = {
+            "Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie"
+    };
+
+    private static final String TAG = "Bullet-NetworkLog";
+    private static final String FILE_NAME = "network";
+    private static final String FILE_SUFFIX = ".log";
+    // 每次最多取出的记录数量
+    private static final int BATCH_SIZE = 64;
+
+    private final LogRingBuffer<NetworkLogEvent> mBuffer;
+    private final Set<String> mRedactHeaders;
+    private final boolean mLogcatEnable;
+    private final File mDir;
+    private final long mMaxFileSize;
+    private final int mMaxFiles;
+    private final SimpleDateFormat mDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private final List<NetworkLogEvent> mBatch = new ArrayList<>(BATCH_SIZE);
+    private Disposable mFlushDisposable;
+    // 没有后台写入任务，每次记录后立即写入
+    private final boolean mFlushOnLog;
+
+    /**
+     * @param bufferSize          环形缓冲区的容量
+     * @param redactHeaders       需要脱敏的请求头和响应头，不区分大小写
+     * @param logcatEnable        是否输出到 Logcat
+     * @param dir                 日志文件目录，为 null 时不写入文件
+     * @param maxFileSize         单个日志文件的大小上限
+     * @param maxFiles            最多保留的日志文件数量，包括正在写入的文件
+     * @param flushIntervalMillis 后台写入的间隔，小于等于 0 时不创建后台任务
+     */
+    public NetworkLogger(int bufferSize, @NonNull String[] redactHeaders, boolean logcatEnable,
+                         File dir, long maxFileSize, int maxFiles, long flushIntervalMillis) {
+        this.mBuffer = new LogRingBuffer<>(bufferSize);
+        this.mRedactHeaders = new HashSet<>();
+        for (String name : redactHeaders) {
+            mRedactHeaders.add(name.toLowerCase(Locale.US));
+        }
+        this.mLogcatEnable = logcatEnable;
+        this.mDir = dir;
+        this.mMaxFileSize = maxFileSize;
+        this.mMaxFiles = Math.max(1, maxFiles);
+        this.mFlushOnLog = flushIntervalMillis <= 0;
+        if (!mFlushOnLog) {
+            this.mFlushDisposable = Schedulers.io().schedulePeriodicallyDirect(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 记录一次请求，有后台写入任务时不会阻塞调用线程
+     *
+     * @return 缓冲区已满被丢弃时返回 false
+     */
+    public boolean log(@NonNull NetworkLogEvent event) {
+        boolean offered = mBuffer.offer(event);
+        if (mFlushOnLog) {
+            flush();
+        }
+        return offered;
+    }
+
+    /**
+     * 立即写入缓冲区中的所有记录，例如在上传日志文件之前
+     */
+    public synchronized void flush() {
+        StringBuilder text = null;
+        long dropped = mBuffer.takeDropped();
+        if (dropped > 0) {
+            text = new StringBuilder();
+            text.append(mDateFormat.format(new Date())).append(" dropped ").append(dropped).append(" events\n");
+        }
+        while (mBuffer.drain(mBatch, BATCH_SIZE) > 0) {
+            if (text == null) {
+                text = new StringBuilder();
+            }
+            for (NetworkLogEvent event : mBatch) {
+                int start = text.length();
+                format(event, text);
+                if (mLogcatEnable) {
+                    Log.d(TAG, text.substring(start));
+                }
+            }
+            mBatch.clear();
+        }
+        if (text != null && mDir != null) {
+            write(text.toString());
+        }
+    }
+
+    /**
+     * 当前正在写入的日志文件，未设置日志目录时返回 null
+     */
+    public File getLogFile() {
+        return mDir != null ? new File(mDir, FILE_NAME + FILE_SUFFIX) : null;
+    }
+
+    /**
+     * 停止后台写入，并写入剩余的记录
+     */
+    public void release() {
+        synchronized (this) {
+            if (mFlushDisposable != null) {
+                mFlushDisposable.dispose();
+                mFlushDisposable = null;
+            }
+        }
+        flush();
+    }
+
+    private void format(NetworkLogEvent event, StringBuilder out) {
+        out.append(mDateFormat.format(new Date(event.timestamp))).append(' ')
+                .append(event.method).append(' ').append(event.url).append(" -> ");
+        if (event.error != null) {
+            out.append("FAILED ").append(event.error);
+        } else {
+            out.append(event.code);
+        }
+        out.append(" (").append(event.durationMillis).append("ms)\n");
+        appendHeaders(event.requestHeaders, "  > ", out);
+        appendBody(event.requestBody, "  > ", out);
+        if (event.responseHeaders != null) {
+            appendHeaders(event.responseHeaders, "  < ", out);
+        }
+        appendBody(event.responseBody, "  < ", out);
+    }
+
+    private void appendHeaders(Headers headers, String prefix, StringBuilder out) {
+        for (int i = 0, size = headers.size(); i < size; i++) {
+            String name = headers.name(i);
+            out.append(prefix).append(name).append(": ")
+                    .append(mRedactHeaders.contains(name.toLowerCase(Locale.US)) ? "<redacted>" : headers.value(i))
+                    .append('\n');
+        }
+    }
+
+    private static void appendBody(String body, String prefix, StringBuilder out) {
+        if (body != null && !body.isEmpty()) {
+            out.append(prefix).append(body).append('\n');
+        }
+    }
+
+    private void write(String text) {
+        File file = getLogFile();
+        BufferedSink sink = null;
+        try {
+            if (!mDir.exists() && !mDir.mkdirs()) {
+                return;
+            }
+            if (file.length() >= mMaxFileSize) {
+                rotate();
+            }
+            sink = Okio.buffer(Okio.appendingSink(file));
+            sink.writeUtf8(text);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write network log: " + e.getMessage());
+        } finally {
+            if (sink != null) {
+                try {
+                    sink.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * network.log -> network.1.log -> network.2.log ...，超过数量上限的文件被删除
+     */
+    private void rotate() {
+        if (mMaxFiles == 1) {
+            getLogFile().delete();
+            return;
+        }
+        File oldest = new File(mDir, FILE_NAME + "." + (mMaxFiles - 1) + FILE_SUFFIX);
+        if (oldest.exists()) {
+            oldest.delete();
+        }
+        for (int i = mMaxFiles - 2; i >= 0; i--) {
+            File from = i == 0 ? new File(mDir, FILE_NAME + FILE_SUFFIX) : new File(mDir, FILE_NAME + "." + i + FILE_SUFFIX);
+            if (from.exists()) {
+                from.renameTo(new File(mDir, FILE_NAME + "." + (i + 1) + FILE_SUFFIX));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个域名下一个接口的统计数据
+ */
+final class EndpointMetrics {
+    final String host;
+    final String endpoint;
+    final LatencyHistogram[] phases = new LatencyHistogram[MetricsPhase.COUNT];
+    // 网络异常导致失败的请求数
+    final AtomicLong failures = new AtomicLong();
+    // 响应码 >= 400 的请求数
+    final AtomicLong httpErrors = new AtomicLong();
+
+    EndpointMetrics(String host, String endpoint) {
+        this.host = host;
+        this.endpoint = endpoint;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    MetricsSnapshot snapshot() {
+        long[] counts = new long[MetricsPhase.COUNT];
+        long[] p50 = new long[MetricsPhase.COUNT];
+        long[] p95 = new long[MetricsPhase.COUNT];
+        long[] p99 = new long[MetricsPhase.COUNT];
+        long[] max = new long[MetricsPhase.COUNT];
+        for (int i = 0; i < phases.length; i++) {
+            counts[i] = phases[i].getCount();
+            p50[i] = phases[i].getPercentile(50);
+            p95[i] = phases[i].getPercentile(95);
+            p99[i] = phases[i].getPercentile(99);
+            max[i] = phases[i].getMax();
+        }
+        return new MetricsSnapshot(host, endpoint, failures.get(), httpErrors.get(), counts, p50, p95, p99, max);
+    }
+
+    void reset() {
+        for (LatencyHistogram histogram : phases) {
+            histogram.reset();
+        }
+        failures.set(0);
+        httpErrors.set(0);
+    }
+}
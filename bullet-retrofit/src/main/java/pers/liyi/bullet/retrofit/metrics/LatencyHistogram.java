@@ -0,0 +1,115 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的耗时直方图
+ * <p>
+ * 桶的上界按近似指数增长，覆盖 1 毫秒到 60 秒，记录时只做一次二分查找和原子自增，不创建任何对象；
+ * 百分位数返回所在桶的上界，误差不超过相邻两个桶的间距
+ */
+public final class LatencyHistogram {
+    // 每个桶的上界（毫秒，包含），最后一个桶记录超过 60 秒的耗时
+    private static final long[] BOUNDS = {
+            1, 2, 3, 4, 5, 6, 8, 10, 12, 15, 20, 25, 30, 40, 50, 60, 80, 100, 120, 150,
+            200, 250, 300, 400, 500, 600, 800, 1000, 1200, 1500, 2000, 2500, 3000, 4000, 5000, 6000,
+            8000, 10000, 15000, 20000, 30000, 60000
+    };
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long millis) {
+        if (millis < 0) {
+            return;
+        }
+        mBuckets.incrementAndGet(bucketOf(millis));
+        mCount.incrementAndGet();
+        mSum.addAndGet(millis);
+        long max;
+        while (millis > (max = mMax.get())) {
+            if (mMax.compareAndSet(max, millis)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * 平均耗时，没有记录时返回 0
+     */
+    public long getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : mSum.get() / count;
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * 百分位数
+     *
+     * @param percentile 0 ~ 100
+     * @return 没有记录时返回 0
+     */
+    public long getPercentile(double percentile) {
+        long count = 0;
+        long[] buckets = new long[mBuckets.length()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = mBuckets.get(i);
+            count += buckets[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank && buckets[i] > 0) {
+                // 桶的上界可能大于实际的最大值
+                return i < BOUNDS.length ? Math.min(BOUNDS[i], mMax.get()) : mMax.get();
+            }
+        }
+        return mMax.get();
+    }
+
+    /**
+     * 清空记录
+     */
+    public void reset() {
+        for (int i = 0; i < mBuckets.length(); i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    private static int bucketOf(long millis) {
+        int low = 0;
+        int high = BOUNDS.length - 1;
+        if (millis > BOUNDS[high]) {
+            return BOUNDS.length;
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BOUNDS[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,21 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+import android.util.Log;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 使用 Logcat 输出统计数据，每个接口一行，阶段耗时的格式为 [p50/p95/p99]
+ */
+public class LogMetricsReporter implements MetricsReporter {
+    private static final String TAG = "BulletMetrics";
+
+    @Override
+    public void report(@NonNull List<MetricsSnapshot> snapshots) {
+        for (MetricsSnapshot snapshot : snapshots) {
+            Log.i(TAG, snapshot.toString());
+        }
+    }
+}
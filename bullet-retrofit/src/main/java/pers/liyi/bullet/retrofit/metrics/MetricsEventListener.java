@@ -0,0 +1,234 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.NonNull;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
+import retrofit2.http.OPTIONS;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * 记录请求各个阶段耗时的 EventListener，每个请求对应一个实例，只在请求结束时写入 {@link MetricsRegistry}
+ * <p>
+ * 1. 域名使用实际连接的域名，即多域名和负载均衡拦截器替换后的域名
+ * 2. 接口使用 Retrofit 接口方法上的路径模板，例如 "GET /users/{id}"，不是由 Retrofit 创建的请求使用实际路径
+ * 3. 同一个请求被重试或重定向时，各阶段记录最后一次的耗时
+ */
+public class MetricsEventListener extends EventListener {
+    // 接口方法 -> 接口模板
+    private static final ConcurrentHashMap<Method, String> sTemplates = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry mRegistry;
+    private String mHost;
+    private long mCallStart;
+    private long mDnsStart;
+    private long mConnectStart;
+    private long mSecureConnectStart;
+    private long mRequestStart;
+    private long mRequestEnd;
+    private long mResponseBodyStart;
+    private int mCode;
+    // 各阶段的耗时，-1 表示没有经过该阶段
+    private final long[] mDurations = new long[MetricsPhase.COUNT];
+
+    MetricsEventListener(MetricsRegistry registry) {
+        this.mRegistry = registry;
+        for (int i = 0; i < mDurations.length; i++) {
+            mDurations[i] = -1;
+        }
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        mCallStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        mDnsStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        mDurations[MetricsPhase.DNS] = SystemClock.elapsedRealtime() - mDnsStart;
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        mConnectStart = SystemClock.elapsedRealtime();
+        mSecureConnectStart = 0;
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        mSecureConnectStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        mDurations[MetricsPhase.TLS] = SystemClock.elapsedRealtime() - mSecureConnectStart;
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+                           Protocol protocol) {
+        // TCP 连接的耗时不包含 TLS 握手
+        long end = mSecureConnectStart != 0 ? mSecureConnectStart : SystemClock.elapsedRealtime();
+        mDurations[MetricsPhase.CONNECT] = end - mConnectStart;
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        HttpUrl url = connection.route().address().url();
+        mHost = url.host() + ":" + url.port();
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        mRequestStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+        mRequestEnd = SystemClock.elapsedRealtime();
+        mDurations[MetricsPhase.REQUEST] = mRequestEnd - mRequestStart;
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        mRequestEnd = SystemClock.elapsedRealtime();
+        mDurations[MetricsPhase.REQUEST] = mRequestEnd - mRequestStart;
+    }
+
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        // responseHeadersStart 在开始等待响应时就会回调，以读取到响应头的时间作为首字节时间
+        mDurations[MetricsPhase.TTFB] = SystemClock.elapsedRealtime() - mRequestEnd;
+        mCode = response.code();
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        mResponseBodyStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        mDurations[MetricsPhase.RESPONSE_BODY] = SystemClock.elapsedRealtime() - mResponseBodyStart;
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        finish(call, false);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        finish(call, !call.isCanceled());
+    }
+
+    private void finish(Call call, boolean failed) {
+        mDurations[MetricsPhase.TOTAL] = SystemClock.elapsedRealtime() - mCallStart;
+        Request request = call.request();
+        String host = mHost;
+        if (host == null) {
+            host = request.url().host() + ":" + request.url().port();
+        }
+        EndpointMetrics metrics = mRegistry.get(host, endpointOf(request));
+        for (int phase = 0; phase < mDurations.length; phase++) {
+            if (mDurations[phase] >= 0) {
+                metrics.phases[phase].record(mDurations[phase]);
+            }
+        }
+        if (failed) {
+            metrics.failures.incrementAndGet();
+        } else if (mCode >= 400) {
+            metrics.httpErrors.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取请求的接口模板
+     */
+    static String endpointOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation == null) {
+            return request.method() + " " + request.url().encodedPath();
+        }
+        Method method = invocation.method();
+        String template = sTemplates.get(method);
+        if (template == null) {
+            template = request.method() + " " + pathOf(method);
+            sTemplates.put(method, template);
+        }
+        return template;
+    }
+
+    private static String pathOf(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            String path = null;
+            if (annotation instanceof GET) {
+                path = ((GET) annotation).value();
+            } else if (annotation instanceof POST) {
+                path = ((POST) annotation).value();
+            } else if (annotation instanceof PUT) {
+                path = ((PUT) annotation).value();
+            } else if (annotation instanceof DELETE) {
+                path = ((DELETE) annotation).value();
+            } else if (annotation instanceof PATCH) {
+                path = ((PATCH) annotation).value();
+            } else if (annotation instanceof HEAD) {
+                path = ((HEAD) annotation).value();
+            } else if (annotation instanceof OPTIONS) {
+                path = ((OPTIONS) annotation).value();
+            } else if (annotation instanceof HTTP) {
+                path = ((HTTP) annotation).path();
+            }
+            if (path != null && !path.isEmpty()) {
+                return path.startsWith("/") || path.contains("://") ? path : "/" + path;
+            }
+        }
+        // 使用 @Url 动态指定地址的接口，以方法名代替路径
+        return method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+    }
+
+    /**
+     * 为每个请求创建 {@link MetricsEventListener}
+     */
+    public static final class Factory implements EventListener.Factory {
+        private final MetricsRegistry mRegistry;
+
+        public Factory(@NonNull MetricsRegistry registry) {
+            this.mRegistry = registry;
+        }
+
+        @NonNull
+        @Override
+        public EventListener create(@NonNull Call call) {
+            return new MetricsEventListener(mRegistry);
+        }
+    }
+}
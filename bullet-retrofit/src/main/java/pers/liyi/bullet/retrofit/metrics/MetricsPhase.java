@@ -0,0 +1,64 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+/**
+ * 请求的各个阶段
+ */
+public final class MetricsPhase {
+    /**
+     * DNS 解析
+     */
+    public static final int DNS = 0;
+    /**
+     * TCP 连接，不包含 TLS 握手
+     */
+    public static final int CONNECT = 1;
+    /**
+     * TLS 握手
+     */
+    public static final int TLS = 2;
+    /**
+     * 发送请求头和请求体
+     */
+    public static final int REQUEST = 3;
+    /**
+     * 请求发送完成到收到响应头（time to first byte）
+     */
+    public static final int TTFB = 4;
+    /**
+     * 读取响应体
+     */
+    public static final int RESPONSE_BODY = 5;
+    /**
+     * 整个请求，从开始到结束
+     */
+    public static final int TOTAL = 6;
+
+    /**
+     * 阶段的数量
+     */
+    public static final int COUNT = 7;
+
+    private MetricsPhase() {
+    }
+
+    public static String toString(int phase) {
+        switch (phase) {
+            case DNS:
+                return "dns";
+            case CONNECT:
+                return "connect";
+            case TLS:
+                return "tls";
+            case REQUEST:
+                return "request";
+            case TTFB:
+                return "ttfb";
+            case RESPONSE_BODY:
+                return "body";
+            case TOTAL:
+                return "total";
+            default:
+                return String.valueOf(phase);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 请求统计数据的注册表，按实际请求的域名和接口模板分别统计各个阶段的耗时
+ * <p>
+ * 统计的接口数量有上限，超过后新的接口合并统计到所在域名的 {@link #OVERFLOW_ENDPOINT} 中，避免占用过多内存
+ */
+public class MetricsRegistry {
+    /**
+     * 超过接口数量上限后合并统计使用的接口名
+     */
+    public static final String OVERFLOW_ENDPOINT = "(other)";
+
+    private final int mMaxEndpoints;
+    // 域名 + 接口模板 -> 统计数据
+    private final ConcurrentHashMap<String, EndpointMetrics> mMetrics = new ConcurrentHashMap<>();
+    private Disposable mReportDisposable;
+
+    /**
+     * @param maxEndpoints 最多统计的接口数量
+     */
+    public MetricsRegistry(int maxEndpoints) {
+        this.mMaxEndpoints = maxEndpoints;
+    }
+
+    EndpointMetrics get(String host, String endpoint) {
+        String key = host + ' ' + endpoint;
+        EndpointMetrics metrics = mMetrics.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (mMetrics.size() >= mMaxEndpoints) {
+            endpoint = OVERFLOW_ENDPOINT;
+            key = host + ' ' + endpoint;
+        }
+        metrics = new EndpointMetrics(host, endpoint);
+        EndpointMetrics existing = mMetrics.putIfAbsent(key, metrics);
+        return existing != null ? existing : metrics;
+    }
+
+    /**
+     * 所有接口的统计快照，按整个请求的 p95 耗时从高到低排序
+     */
+    @NonNull
+    public List<MetricsSnapshot> snapshot() {
+        List<MetricsSnapshot> snapshots = new ArrayList<>(mMetrics.size());
+        for (EndpointMetrics metrics : mMetrics.values()) {
+            snapshots.add(metrics.snapshot());
+        }
+        Collections.sort(snapshots, new Comparator<MetricsSnapshot>() {
+            @Override
+            public int compare(MetricsSnapshot o1, MetricsSnapshot o2) {
+                long p1 = o1.getP95(MetricsPhase.TOTAL);
+                long p2 = o2.getP95(MetricsPhase.TOTAL);
+                return p1 < p2 ? 1 : (p1 == p2 ? 0 : -1);
+            }
+        });
+        return snapshots;
+    }
+
+    /**
+     * 指定接口的统计快照
+     *
+     * @param host     域名，包含端口，例如 "api.example.com:443"
+     * @param endpoint 接口模板，例如 "GET /users/{id}"
+     * @return 没有该接口的统计数据时返回 null
+     */
+    public MetricsSnapshot snapshot(@NonNull String host, @NonNull String endpoint) {
+        EndpointMetrics metrics = mMetrics.get(host + ' ' + endpoint);
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
+    /**
+     * 清空所有的统计数据
+     */
+    public void reset() {
+        mMetrics.clear();
+    }
+
+    /**
+     * 开始定期输出统计数据
+     *
+     * @param reporter         输出方式
+     * @param intervalSeconds  输出间隔
+     * @param resetAfterReport 输出后是否清空统计数据，清空后每次输出的都是一个间隔内的数据
+     */
+    public synchronized void startReporting(@NonNull final MetricsReporter reporter, long intervalSeconds,
+                                            final boolean resetAfterReport) {
+        stopReporting();
+        mReportDisposable = Observable.interval(intervalSeconds, intervalSeconds, TimeUnit.SECONDS, Schedulers.io())
+                .subscribe(new Consumer<Long>() {
+                    @Override
+                    public void accept(Long tick) throws Exception {
+                        List<MetricsSnapshot> snapshots = snapshot();
+                        if (resetAfterReport) {
+                            reset();
+                        }
+                        if (!snapshots.isEmpty()) {
+                            reporter.report(snapshots);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 停止定期输出统计数据
+     */
+    public synchronized void stopReporting() {
+        if (mReportDisposable != null) {
+            mReportDisposable.dispose();
+            mReportDisposable = null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 定期输出统计数据，例如打印日志或上报到服务器
+ */
+public interface MetricsReporter {
+
+    /**
+     * 在后台线程中调用
+     *
+     * @param snapshots 所有接口的统计快照，按整个请求的 p95 耗时从高到低排序
+     */
+    void report(@NonNull List<MetricsSnapshot> snapshots);
+}
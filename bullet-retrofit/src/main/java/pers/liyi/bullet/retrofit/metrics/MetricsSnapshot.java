@@ -0,0 +1,109 @@
+package pers.liyi.bullet.retrofit.metrics;
+
+/**
+ * 一个域名下一个接口的统计快照，耗时的单位均为毫秒
+ */
+public final class MetricsSnapshot {
+    private final String mHost;
+    private final String mEndpoint;
+    private final long mFailures;
+    private final long mHttpErrors;
+    private final long[] mCounts;
+    private final long[] mP50;
+    private final long[] mP95;
+    private final long[] mP99;
+    private final long[] mMax;
+
+    MetricsSnapshot(String host, String endpoint, long failures, long httpErrors,
+                    long[] counts, long[] p50, long[] p95, long[] p99, long[] max) {
+        this.mHost = host;
+        this.mEndpoint = endpoint;
+        this.mFailures = failures;
+        this.mHttpErrors = httpErrors;
+        this.mCounts = counts;
+        this.mP50 = p50;
+        this.mP95 = p95;
+        this.mP99 = p99;
+        this.mMax = max;
+    }
+
+    /**
+     * 实际请求的域名，包含端口
+     */
+    public String getHost() {
+        return mHost;
+    }
+
+    /**
+     * 接口模板，例如 "GET /users/{id}"，不是由 Retrofit 创建的请求为 "GET /users/1"
+     */
+    public String getEndpoint() {
+        return mEndpoint;
+    }
+
+    /**
+     * 完成的请求数，包括失败的请求
+     */
+    public long getRequestCount() {
+        return mCounts[MetricsPhase.TOTAL];
+    }
+
+    /**
+     * 网络异常导致失败的请求数
+     */
+    public long getFailureCount() {
+        return mFailures;
+    }
+
+    /**
+     * 响应码 >= 400 的请求数
+     */
+    public long getHttpErrorCount() {
+        return mHttpErrors;
+    }
+
+    /**
+     * 阶段的记录次数，复用连接的请求不会记录 DNS、连接和 TLS 阶段
+     *
+     * @param phase {@link MetricsPhase}
+     */
+    public long getCount(int phase) {
+        return mCounts[phase];
+    }
+
+    public long getP50(int phase) {
+        return mP50[phase];
+    }
+
+    public long getP95(int phase) {
+        return mP95[phase];
+    }
+
+    public long getP99(int phase) {
+        return mP99[phase];
+    }
+
+    public long getMax(int phase) {
+        return mMax[phase];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append(mHost).append(' ').append(mEndpoint)
+                .append(" n=").append(getRequestCount())
+                .append(" failures=").append(mFailures)
+                .append(" httpErrors=").append(mHttpErrors);
+        for (int phase = 0; phase < MetricsPhase.COUNT; phase++) {
+            if (mCounts[phase] == 0) {
+                continue;
+            }
+            builder.append(' ').append(MetricsPhase.toString(phase))
+                    .append('[').append(mP50[phase])
+                    .append('/').append(mP95[phase])
+                    .append('/').append(mP99[phase])
+                    .append(']');
+        }
+        return builder.toString();
+    }
+}
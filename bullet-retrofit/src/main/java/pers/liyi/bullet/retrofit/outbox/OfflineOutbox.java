@@ -0,0 +1,337 @@
+package pers.liyi.bullet.retrofit.outbox;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+import retrofit2.HttpException;
+
+/**
+ * 离线发件箱，暂存离线或暂时性失败的修改类请求，并在网络恢复后重新发送
+ * <p>
+ * 1. 请求按 Idempotency-Key 去重，同一个 key 在等待期间只保存一次
+ * 2. 每次暂存和结束都追加写入日志文件，应用重启后仍会继续发送
+ * 3. 按暂存的顺序开始发送，最多同时发送 maxConcurrency 个请求，设置为 1 时严格按顺序发送；
+ * 遇到暂时性的失败时停止本轮发送，剩余的请求等待下一次网络恢复或 {@link #replay()}；
+ * 同一个请求连续 maxAttempts 次暂时性失败后放弃该请求并回调失败，避免一个请求永远阻塞之后的请求（次数只记录在内存中）
+ * 4. 发送成功或遇到不可重试的错误（例如 4xx）时请求结束，结果在主线程中通过监听器回调，回调中的 tag 为 Idempotency-Key
+ */
+public class OfflineOutbox {
+    private static final String TAG = "Bullet-OfflineOutbox";
+    /**
+     * 重新发送的请求携带的请求头，避免再次被暂存
+     */
+    public static final String HEADER_REPLAY = "Bullet-Outbox-Replay";
+    // 同一个请求默认最多允许的暂时性失败次数
+    private static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private final OutboxJournal mJournal;
+    // Idempotency-Key -> 等待中的请求，按暂存的顺序排列
+    private final LinkedHashMap<String, OutboxEntry> mPending;
+    private final int mMaxConcurrency;
+    private final long mMaxBodySize;
+    private final int mMaxAttempts;
+    // Idempotency-Key -> 暂时性失败的次数，由 this 保护
+    private final Map<String, Integer> mAttempts = new HashMap<>();
+    private final AtomicBoolean mReplaying = new AtomicBoolean();
+    // 发送过程中再次触发发送时，本轮结束后重新发送
+    private volatile boolean mReplayAgain;
+    private volatile ApiResponseListener<OutboxResult> mListener;
+    private volatile Call.Factory mCallFactory;
+    private Disposable mConnectivityDisposable;
+
+    /**
+     * @param dir            日志文件目录
+     * @param maxConcurrency 重新发送时的最大并发数
+     * @param maxBodySize    可以暂存的请求体大小上限，超过时请求直接失败
+     */
+    public OfflineOutbox(@NonNull File dir, int maxConcurrency, long maxBodySize) {
+        this(dir, maxConcurrency, maxBodySize, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param dir            日志文件目录
+     * @param maxConcurrency 重新发送时的最大并发数
+     * @param maxBodySize    可以暂存的请求体大小上限，超过时请求直接失败
+     * @param maxAttempts    同一个请求重新发送时最多允许的暂时性失败次数，达到后放弃该请求
+     */
+    public OfflineOutbox(@NonNull File dir, int maxConcurrency, long maxBodySize, int maxAttempts) {
+        this.mJournal = new OutboxJournal(dir);
+        this.mMaxConcurrency = Math.max(1, maxConcurrency);
+        this.mMaxBodySize = maxBodySize;
+        this.mMaxAttempts = Math.max(1, maxAttempts);
+        LinkedHashMap<String, OutboxEntry> pending;
+        try {
+            pending = mJournal.load();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to load outbox journal: " + e.getMessage());
+            pending = new LinkedHashMap<>();
+        }
+        this.mPending = pending;
+    }
+
+    /**
+     * 设置重新发送结果的监听器
+     */
+    public void setListener(ApiResponseListener<OutboxResult> listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * 开始监听网络状态，网络恢复时自动发送，当前在线时立即发送上次未完成的请求
+     *
+     * @param callFactory 发送请求使用的 OkHttpClient
+     * @param monitor     网络连接状态监听器
+     */
+    public synchronized void start(@NonNull Call.Factory callFactory, @NonNull ConnectivityMonitor monitor) {
+        this.mCallFactory = callFactory;
+        if (mConnectivityDisposable != null) {
+            mConnectivityDisposable.dispose();
+        }
+        mConnectivityDisposable = monitor.observeOnline().subscribe(new Consumer<Boolean>() {
+            @Override
+            public void accept(Boolean online) {
+                replay();
+            }
+        });
+        if (monitor.isConnected()) {
+            replay();
+        }
+    }
+
+    /**
+     * 停止监听网络状态
+     */
+    public synchronized void release() {
+        if (mConnectivityDisposable != null) {
+            mConnectivityDisposable.dispose();
+            mConnectivityDisposable = null;
+        }
+    }
+
+    /**
+     * 暂存请求，相同 Idempotency-Key 的请求正在等待时不重复保存
+     *
+     * @return 请求体长度未知或超过上限，无法暂存时返回 false
+     */
+    public boolean enqueue(@NonNull Request request, @NonNull String key) throws IOException {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                return true;
+            }
+        }
+        // 在锁外读取请求体
+        OutboxEntry entry = OutboxEntry.from(request, key, mMaxBodySize);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (!mPending.containsKey(key)) {
+                mJournal.add(entry);
+                mPending.put(key, entry);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 等待中的请求数量
+     */
+    public synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * 等待中的请求，按暂存的顺序排列
+     */
+    public synchronized List<OutboxEntry> getPending() {
+        return new ArrayList<>(mPending.values());
+    }
+
+    /**
+     * 放弃等待中的请求
+     *
+     * @return 请求是否存在
+     */
+    public boolean remove(@NonNull String key) {
+        return markDone(key);
+    }
+
+    /**
+     * 立即发送所有等待中的请求
+     */
+    public void replay() {
+        final Call.Factory callFactory = mCallFactory;
+        if (callFactory == null) {
+            return;
+        }
+        if (!mReplaying.compareAndSet(false, true)) {
+            mReplayAgain = true;
+            return;
+        }
+        mReplayAgain = false;
+        List<OutboxEntry> entries = getPending();
+        // 遇到暂时性的失败后，尚未开始的请求不再发送，保证顺序
+        final AtomicBoolean halted = new AtomicBoolean();
+        Observable.fromIterable(entries)
+                .concatMapEager(new Function<OutboxEntry, ObservableSource<Outcome>>() {
+                    @Override
+                    public ObservableSource<Outcome> apply(final OutboxEntry entry) {
+                        return Observable.fromCallable(new Callable<Outcome>() {
+                            @Override
+                            public Outcome call() {
+                                return halted.get() ? Outcome.SKIPPED : send(callFactory, entry, halted);
+                            }
+                        }).subscribeOn(Schedulers.io());
+                    }
+                }, mMaxConcurrency, 1)
+                .observeOn(AndroidSchedulers.mainThread())
+                .doFinally(new Action() {
+                    @Override
+                    public void run() {
+                        mReplaying.set(false);
+                        if (mReplayAgain && !halted.get()) {
+                            replay();
+                        }
+                    }
+                })
+                .subscribe(new Consumer<Outcome>() {
+                    @Override
+                    public void accept(Outcome outcome) {
+                        deliver(outcome);
+                    }
+                }, new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) {
+                        Log.w(TAG, "Outbox replay failed: " + throwable.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 发送请求，在 io 线程中执行
+     *
+     * @return 暂时性的失败时返回 {@link Outcome#SKIPPED}，请求继续保存在发件箱中
+     */
+    private Outcome send(Call.Factory callFactory, OutboxEntry entry, AtomicBoolean halted) {
+        Request request = entry.toRequest().newBuilder().header(HEADER_REPLAY, "1").build();
+        Response response;
+        try {
+            response = callFactory.newCall(request).execute();
+        } catch (IOException e) {
+            if (!giveUp(entry)) {
+                halted.set(true);
+                return Outcome.SKIPPED;
+            }
+            markDone(entry.getKey());
+            return new Outcome(new OutboxResult(entry, 0, null), e);
+        }
+        try {
+            if (ExceptionHandler.isRetryable(response.code()) && !giveUp(entry)) {
+                halted.set(true);
+                return Outcome.SKIPPED;
+            }
+            ResponseBody body = response.body();
+            String content = null;
+            if (body != null) {
+                try {
+                    content = body.string();
+                } catch (IOException e) {
+                    // 请求已经被服务器处理，响应体读取失败时不再重新发送
+                    Log.w(TAG, "Failed to read outbox response: " + e.getMessage());
+                }
+            }
+            markDone(entry.getKey());
+            if (response.isSuccessful()) {
+                return new Outcome(new OutboxResult(entry, response.code(), content), null);
+            }
+            ResponseBody errorBody = ResponseBody.create(content != null ? content : "",
+                    body != null ? body.contentType() : null);
+            return new Outcome(new OutboxResult(entry, response.code(), content),
+                    new HttpException(retrofit2.Response.error(errorBody, response)));
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * 记录一次暂时性的失败
+     *
+     * @return 失败次数达到上限，需要放弃该请求时返回 true
+     */
+    private synchronized boolean giveUp(OutboxEntry entry) {
+        Integer attempts = mAttempts.get(entry.getKey());
+        attempts = attempts == null ? 1 : attempts + 1;
+        if (attempts >= mMaxAttempts) {
+            Log.w(TAG, "Giving up outbox request after " + attempts + " attempts: " + entry.getKey());
+            return true;
+        }
+        mAttempts.put(entry.getKey(), attempts);
+        return false;
+    }
+
+    private boolean markDone(String key) {
+        synchronized (this) {
+            mAttempts.remove(key);
+            if (mPending.remove(key) == null) {
+                return false;
+            }
+            try {
+                mJournal.done(key, mPending.values());
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write outbox journal: " + e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    private void deliver(Outcome outcome) {
+        ApiResponseListener<OutboxResult> listener = mListener;
+        if (listener == null || outcome == Outcome.SKIPPED) {
+            return;
+        }
+        String key = outcome.result.getKey();
+        if (outcome.error == null) {
+            listener.onSuccess(key, outcome.result);
+            listener.onComplete(key);
+        } else {
+            listener.onError(key, ExceptionHandler.parseException(outcome.error));
+        }
+    }
+
+    private static final class Outcome {
+        static final Outcome SKIPPED = new Outcome(null, null);
+
+        final OutboxResult result;
+        final Throwable error;
+
+        Outcome(OutboxResult result, Throwable error) {
+            this.result = result;
+            this.error = error;
+        }
+    }
+}
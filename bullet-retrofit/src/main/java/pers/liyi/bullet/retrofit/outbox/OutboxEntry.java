@@ -0,0 +1,119 @@
+package pers.liyi.bullet.retrofit.outbox;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * 发件箱中暂存的请求，以 json 的形式写入日志文件
+ */
+public final class OutboxEntry {
+    // Idempotency-Key，同时作为去重的标识
+    private String key;
+    private String method;
+    private String url;
+    // 请求头，按 name、value 交替排列
+    private List<String> headers;
+    private String contentType;
+    // base64 编码的请求体，没有请求体时为 null
+    private String body;
+    // 暂存的时间
+    private long createdAt;
+
+    OutboxEntry() {
+    }
+
+    /**
+     * 根据请求创建，请求体长度未知或超过上限时返回 null
+     * <p>
+     * 不保存身份凭证相关的请求头（Authorization、Cookie 等），避免以明文写入日志文件；
+     * 重新发送时会再次经过 OkHttpClient 的拦截器，由添加凭证的拦截器重新添加
+     */
+    static OutboxEntry from(@NonNull Request request, @NonNull String key, long maxBodySize) throws IOException {
+        OutboxEntry entry = new OutboxEntry();
+        entry.key = key;
+        entry.method = request.method();
+        entry.url = request.url().toString();
+        entry.headers = new ArrayList<>();
+        Headers headers = request.headers();
+        for (int i = 0, size = headers.size(); i < size; i++) {
+            if (isCacheHeader(headers.name(i))) {
+                // 缓存指令（例如离线时添加的 only-if-cached）只对当时的请求有效，重新发送时会导致直接返回 504
+                continue;
+            }
+            if (isCredentialHeader(headers.name(i))) {
+                continue;
+            }
+            entry.headers.add(headers.name(i));
+            entry.headers.add(headers.value(i));
+        }
+        RequestBody requestBody = request.body();
+        if (requestBody != null) {
+            long contentLength = requestBody.contentLength();
+            // 长度未知时无法在读取前判断是否超过上限，不进行暂存
+            if (contentLength < 0 || contentLength > maxBodySize) {
+                return null;
+            }
+            Buffer buffer = new Buffer();
+            requestBody.writeTo(buffer);
+            if (buffer.size() > maxBodySize) {
+                return null;
+            }
+            MediaType type = requestBody.contentType();
+            entry.contentType = type != null ? type.toString() : null;
+            entry.body = buffer.readByteString().base64();
+        }
+        entry.createdAt = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * 重新构建请求
+     */
+    Request toRequest() {
+        Request.Builder builder = new Request.Builder().url(url);
+        for (int i = 0; i + 1 < headers.size(); i += 2) {
+            builder.addHeader(headers.get(i), headers.get(i + 1));
+        }
+        RequestBody requestBody = null;
+        if (body != null) {
+            ByteString bytes = ByteString.decodeBase64(body);
+            requestBody = RequestBody.create(bytes != null ? bytes : ByteString.EMPTY,
+                    contentType != null ? MediaType.parse(contentType) : null);
+        }
+        return builder.method(method, requestBody).build();
+    }
+
+    private static boolean isCacheHeader(String name) {
+        return "Cache-Control".equalsIgnoreCase(name) || "Pragma".equalsIgnoreCase(name);
+    }
+
+    private static boolean isCredentialHeader(String name) {
+        return "Authorization".equalsIgnoreCase(name) || "Proxy-Authorization".equalsIgnoreCase(name)
+                || "Cookie".equalsIgnoreCase(name);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,129 @@
+package pers.liyi.bullet.retrofit.outbox;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * 发件箱的追加写日志，每行一条 json 记录：暂存请求（add）或请求已结束（done）
+ * <p>
+ * 启动时按顺序重放所有记录得到仍在等待的请求；崩溃导致的不完整的最后一行会被忽略；
+ * 已结束的记录过多时，只保留等待中的请求重写日志文件
+ */
+final class OutboxJournal {
+    private static final String OP_ADD = "add";
+    private static final String OP_DONE = "done";
+    // 已结束的记录超过该数量且多于等待中的请求时重写日志文件
+    private static final int COMPACT_THRESHOLD = 64;
+    private static final Gson sGson = new Gson();
+
+    private final File mFile;
+    private int mDoneCount;
+
+    OutboxJournal(File dir) {
+        this.mFile = new File(dir, "outbox.journal");
+    }
+
+    /**
+     * 读取日志，返回等待中的请求，按暂存的顺序排列
+     */
+    LinkedHashMap<String, OutboxEntry> load() throws IOException {
+        LinkedHashMap<String, OutboxEntry> pending = new LinkedHashMap<>();
+        if (!mFile.exists()) {
+            return pending;
+        }
+        BufferedSource source = Okio.buffer(Okio.source(mFile));
+        try {
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                Record record;
+                try {
+                    record = sGson.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    continue;
+                }
+                if (record == null || record.key == null) {
+                    continue;
+                }
+                if (OP_ADD.equals(record.op) && record.entry != null) {
+                    pending.put(record.key, record.entry);
+                } else if (OP_DONE.equals(record.op)) {
+                    pending.remove(record.key);
+                    mDoneCount++;
+                }
+            }
+        } finally {
+            source.close();
+        }
+        return pending;
+    }
+
+    void add(OutboxEntry entry) throws IOException {
+        append(new Record(OP_ADD, entry.getKey(), entry));
+    }
+
+    /**
+     * 记录请求已结束
+     *
+     * @param pending 当前仍在等待的请求，用于重写日志文件
+     */
+    void done(String key, Collection<OutboxEntry> pending) throws IOException {
+        append(new Record(OP_DONE, key, null));
+        if (++mDoneCount > COMPACT_THRESHOLD && mDoneCount > pending.size()) {
+            compact(pending);
+        }
+    }
+
+    private void append(Record record) throws IOException {
+        File dir = mFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+        BufferedSink sink = Okio.buffer(Okio.appendingSink(mFile));
+        try {
+            sink.writeUtf8(sGson.toJson(record)).writeByte('\n');
+        } finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * 写入临时文件后替换，替换失败时保留原来的日志文件
+     */
+    private void compact(Collection<OutboxEntry> pending) throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        BufferedSink sink = Okio.buffer(Okio.sink(temp));
+        try {
+            for (OutboxEntry entry : pending) {
+                sink.writeUtf8(sGson.toJson(new Record(OP_ADD, entry.getKey(), entry))).writeByte('\n');
+            }
+        } finally {
+            sink.close();
+        }
+        if (temp.renameTo(mFile)) {
+            mDoneCount = 0;
+        } else {
+            temp.delete();
+        }
+    }
+
+    private static final class Record {
+        String op;
+        String key;
+        OutboxEntry entry;
+
+        Record(String op, String key, OutboxEntry entry) {
+            this.op = op;
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+}
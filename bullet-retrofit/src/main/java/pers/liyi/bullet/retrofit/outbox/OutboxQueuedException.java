@@ -0,0 +1,24 @@
+package pers.liyi.bullet.retrofit.outbox;
+
+import java.io.IOException;
+
+/**
+ * 请求已经暂存到发件箱，将在网络恢复后自动重新发送
+ */
+public class OutboxQueuedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String mKey;
+
+    public OutboxQueuedException(String key, Throwable cause) {
+        super("Request queued in outbox: " + key, cause);
+        this.mKey = key;
+    }
+
+    /**
+     * 请求的 Idempotency-Key，重新发送的结果通过该值回调
+     */
+    public String getKey() {
+        return mKey;
+    }
+}
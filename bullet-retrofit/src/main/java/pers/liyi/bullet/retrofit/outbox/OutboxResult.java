@@ -0,0 +1,41 @@
+package pers.liyi.bullet.retrofit.outbox;
+
+/**
+ * 发件箱中的请求重新发送成功后的结果
+ */
+public final class OutboxResult {
+    private final OutboxEntry mEntry;
+    private final int mCode;
+    private final String mBody;
+
+    OutboxResult(OutboxEntry entry, int code, String body) {
+        this.mEntry = entry;
+        this.mCode = code;
+        this.mBody = body;
+    }
+
+    /**
+     * 请求的 Idempotency-Key，与 {@link OutboxQueuedException#getKey()} 对应
+     */
+    public String getKey() {
+        return mEntry.getKey();
+    }
+
+    public OutboxEntry getEntry() {
+        return mEntry;
+    }
+
+    /**
+     * HTTP 状态码
+     */
+    public int getCode() {
+        return mCode;
+    }
+
+    /**
+     * 响应体
+     */
+    public String getBody() {
+        return mBody;
+    }
+}
@@ -0,0 +1,120 @@
+package pers.liyi.bullet.retrofit.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Function3;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 有依赖关系的多个请求组成的流水线，例如 登录 -> 获取用户信息 -> 获取配置
+ * <p>
+ * 1. {@link #then(Function)} 使用上一步的结果发起下一个请求，{@link #map(Function)}、{@link #doOnNext(Consumer)}
+ * 对结果进行转换或保存，这些中间步骤都在执行请求的 io 线程中进行，不会切换到主线程
+ * 2. {@link #zip} 同时发起多个互不依赖的请求，全部返回后再合并结果
+ * 3. 通过 {@link pers.liyi.bullet.retrofit.ApiClient#call(ApiPipeline, pers.liyi.bullet.retrofit.listener.ApiResponseListener)}
+ * 订阅时，只有最终的结果（或任意一步的错误）回到主线程回调，取消时正在进行的请求一并取消
+ *
+ * @param <T> 当前步骤的结果类型
+ */
+public final class ApiPipeline<T> {
+    private final Observable<T> mObservable;
+
+    private ApiPipeline(Observable<T> observable) {
+        this.mObservable = observable;
+    }
+
+    /**
+     * 以一个请求作为流水线的第一步
+     */
+    public static <T> ApiPipeline<T> start(@NonNull Observable<T> first) {
+        return new ApiPipeline<>(first);
+    }
+
+    /**
+     * 同时发起两个请求，全部返回后合并结果
+     */
+    public static <A, B, R> ApiPipeline<R> zip(@NonNull Observable<A> a, @NonNull Observable<B> b,
+                                               @NonNull BiFunction<? super A, ? super B, ? extends R> zipper) {
+        return new ApiPipeline<>(Observable.zip(parallel(a), parallel(b), zipper));
+    }
+
+    /**
+     * 同时发起三个请求，全部返回后合并结果
+     */
+    public static <A, B, C, R> ApiPipeline<R> zip(@NonNull Observable<A> a, @NonNull Observable<B> b, @NonNull Observable<C> c,
+                                                  @NonNull Function3<? super A, ? super B, ? super C, ? extends R> zipper) {
+        return new ApiPipeline<>(Observable.zip(parallel(a), parallel(b), parallel(c), zipper));
+    }
+
+    /**
+     * 同时发起多个返回类型相同的请求，全部返回后按请求的顺序合并为列表
+     */
+    public static <T> ApiPipeline<List<T>> zip(@NonNull List<? extends Observable<? extends T>> observables) {
+        if (observables.isEmpty()) {
+            return new ApiPipeline<>(Observable.just((List<T>) new ArrayList<T>()));
+        }
+        List<Observable<? extends T>> sources = new ArrayList<>(observables.size());
+        for (Observable<? extends T> observable : observables) {
+            sources.add(parallel(observable));
+        }
+        return new ApiPipeline<>(Observable.zip(sources, new Function<Object[], List<T>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<T> apply(Object[] results) {
+                List<T> list = new ArrayList<>(results.length);
+                for (Object result : results) {
+                    list.add((T) result);
+                }
+                return list;
+            }
+        }));
+    }
+
+    /**
+     * 使用当前步骤的结果发起下一个请求，可以返回 {@link #zip} 创建的流水线的 {@link #toObservable()} 实现分叉
+     *
+     * @param next 在 io 线程中调用
+     */
+    public <R> ApiPipeline<R> then(@NonNull Function<? super T, ? extends ObservableSource<? extends R>> next) {
+        return new ApiPipeline<>(mObservable.<R>concatMap(next));
+    }
+
+    /**
+     * 转换当前步骤的结果
+     *
+     * @param mapper 在 io 线程中调用
+     */
+    public <R> ApiPipeline<R> map(@NonNull Function<? super T, ? extends R> mapper) {
+        return new ApiPipeline<>(mObservable.<R>map(mapper));
+    }
+
+    /**
+     * 处理当前步骤的结果，例如保存登录获取的 token，不改变结果
+     *
+     * @param consumer 在 io 线程中调用，抛出异常时流水线以该异常结束
+     */
+    public ApiPipeline<T> doOnNext(@NonNull Consumer<? super T> consumer) {
+        return new ApiPipeline<>(mObservable.doOnNext(consumer));
+    }
+
+    /**
+     * 转换为 Observable，未指定线程
+     */
+    public Observable<T> toObservable() {
+        return mObservable;
+    }
+
+    /**
+     * Retrofit 的 RxJava 适配器同步执行请求，需要分别订阅在 io 线程中才能同时进行
+     */
+    private static <T> Observable<T> parallel(Observable<T> observable) {
+        return observable.subscribeOn(Schedulers.io());
+    }
+}
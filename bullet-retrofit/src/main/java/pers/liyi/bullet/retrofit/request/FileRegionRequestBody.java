@@ -0,0 +1,95 @@
+package pers.liyi.bullet.retrofit.request;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * 文件区域请求体，发送文件中从 offset 开始的 length 个字节
+ * <p>
+ * 通过 {@link FileChannel#transferTo} 直接写入 {@link BufferedSink}（BufferedSink 本身就是 WritableByteChannel），
+ * 不再经过额外的 Source 和字节数组；每次写入都重新打开文件，重试时会从区域的起始位置重新发送
+ */
+public class FileRegionRequestBody extends RequestBody {
+    // 每次传输的最大字节数，同时也是写入回调的粒度
+    private static final long TRANSFER_SIZE = 64 * 1024;
+
+    private final File mFile;
+    private final long mOffset;
+    private final long mLength;
+    private final MediaType mContentType;
+    private WriteListener mWriteListener;
+
+    /**
+     * 发送整个文件
+     */
+    public FileRegionRequestBody(@NonNull File file, @Nullable MediaType contentType) {
+        this(file, 0, file.length(), contentType);
+    }
+
+    public FileRegionRequestBody(@NonNull File file, long offset, long length, @Nullable MediaType contentType) {
+        this.mFile = file;
+        this.mOffset = offset;
+        this.mLength = length;
+        this.mContentType = contentType;
+    }
+
+    /**
+     * 设置写入回调，在发送请求的线程中回调
+     */
+    public FileRegionRequestBody setWriteListener(WriteListener listener) {
+        this.mWriteListener = listener;
+        return this;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return mContentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return mLength;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        FileInputStream input = new FileInputStream(mFile);
+        try {
+            FileChannel channel = input.getChannel();
+            long written = 0;
+            while (written < mLength) {
+                long count = channel.transferTo(mOffset + written, Math.min(TRANSFER_SIZE, mLength - written), sink);
+                if (count <= 0) {
+                    throw new IOException("Unexpected end of file: " + mFile);
+                }
+                written += count;
+                if (mWriteListener != null) {
+                    mWriteListener.onWrite(written, mLength);
+                }
+            }
+            sink.flush();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 写入回调
+     */
+    public interface WriteListener {
+        /**
+         * @param bytesWritten  本次发送中已写入的字节数，重试时从 0 开始
+         * @param contentLength 区域的总字节数
+         */
+        void onWrite(long bytesWritten, long contentLength);
+    }
+}
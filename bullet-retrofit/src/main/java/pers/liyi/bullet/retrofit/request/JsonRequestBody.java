@@ -0,0 +1,72 @@
+package pers.liyi.bullet.retrofit.request;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+/**
+ * 流式的 json 请求体
+ * <p>
+ * 发送时才将对象序列化，并直接写入 {@link BufferedSink}，不会先把整个对象转换为 String 或字节数组；
+ * 由于无法提前得知长度，请求体使用分块传输。每次写入都会重新序列化，因此可以重复发送
+ * <p>
+ * 默认应使用 {@link #buffered}，只在请求对象很大时使用流式的请求体
+ */
+public class JsonRequestBody<T> extends RequestBody {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Gson mGson;
+    private final TypeAdapter<T> mAdapter;
+    private final T mValue;
+    private final MediaType mContentType;
+
+    public JsonRequestBody(@NonNull Gson gson, @NonNull TypeAdapter<T> adapter, T value, @Nullable MediaType contentType) {
+        this.mGson = gson;
+        this.mAdapter = adapter;
+        this.mValue = value;
+        this.mContentType = contentType;
+    }
+
+    /**
+     * 立即将对象序列化为字节，创建长度已知的请求体，之后修改对象不会影响发送的内容
+     */
+    public static <T> RequestBody buffered(@NonNull Gson gson, @NonNull TypeAdapter<T> adapter, T value,
+                                           @Nullable MediaType contentType) throws IOException {
+        Buffer buffer = new Buffer();
+        new JsonRequestBody<>(gson, adapter, value, contentType).writeTo(buffer);
+        return RequestBody.create(buffer.readByteString(), contentType);
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return mContentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        Charset charset = mContentType != null ? mContentType.charset(UTF_8) : UTF_8;
+        // 不能关闭 writer，否则会关闭 sink
+        Writer writer = new OutputStreamWriter(sink.outputStream(), charset);
+        JsonWriter jsonWriter = mGson.newJsonWriter(writer);
+        mAdapter.write(jsonWriter, mValue);
+        jsonWriter.flush();
+    }
+}
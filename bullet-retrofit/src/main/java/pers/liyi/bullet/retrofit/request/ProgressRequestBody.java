@@ -1,11 +1,9 @@
 package pers.liyi.bullet.retrofit.request;
 
-import android.os.Handler;
-import android.os.Looper;
-
 import java.io.IOException;
 
 import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.listener.ProgressDispatcher;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.Buffer;
@@ -15,24 +13,34 @@ import okio.Okio;
 import okio.Sink;
 
 /**
- * 带进度的上传请求体
+ * 带进度的上传请求体，进度范围为 0~1
  */
 public class ProgressRequestBody extends RequestBody {
     private RequestBody delegate;
-    private OnProgressListener progressListener;
-    private BufferedSink bufferedSink;
-    private Handler handler = new Handler(Looper.getMainLooper());
-    private String tag;
+    private ProgressDispatcher progressDispatcher;
 
     public ProgressRequestBody(RequestBody delegate, OnProgressListener progressListener) {
-        this.delegate = delegate;
-        this.progressListener = progressListener;
+        this(delegate, progressListener, null);
     }
 
     public ProgressRequestBody(RequestBody requestBody, OnProgressListener progressListener, String tag) {
         this.delegate = requestBody;
-        this.progressListener = progressListener;
-        this.tag = tag;
+        if (progressListener != null) {
+            this.progressDispatcher = new ProgressDispatcher(progressListener, tag, 1f);
+        }
+    }
+
+    /**
+     * 设置进度回调的节流参数
+     *
+     * @param minInterval     最小回调间隔，单位毫秒
+     * @param minPercentDelta 最小进度变化，单位百分比
+     */
+    public ProgressRequestBody setProgressThrottle(long minInterval, float minPercentDelta) {
+        if (progressDispatcher != null) {
+            progressDispatcher.setThrottle(minInterval, minPercentDelta);
+        }
+        return this;
     }
 
     @Override
@@ -57,9 +65,11 @@ public class ProgressRequestBody extends RequestBody {
             delegate.writeTo(sink);
             return;
         }
-        if (bufferedSink == null) {
-            bufferedSink = Okio.buffer(new WrapSink(sink));
+        // 每次写入都重新包装，重试时进度从 0 开始，且不会写入上一次已关闭的 sink
+        if (progressDispatcher != null) {
+            progressDispatcher.reset();
         }
+        BufferedSink bufferedSink = Okio.buffer(new WrapSink(sink));
         // 写入数据
         delegate.writeTo(bufferedSink);
         // 刷新，必须调用 flush，否则最后一部分数据可能不会被写入
@@ -81,24 +91,9 @@ public class ProgressRequestBody extends RequestBody {
                 totalSize = contentLength();
             }
             bytesWriten += byteCount;
-            if (progressListener != null) {
-                handler.post(new ProgressUpdater(bytesWriten, totalSize));
+            if (progressDispatcher != null) {
+                progressDispatcher.update(bytesWriten, totalSize);
             }
         }
     }
-
-    private class ProgressUpdater implements Runnable {
-        private long uploaded;
-        private long totalSize;
-
-        public ProgressUpdater(long uploaded, long total) {
-            this.uploaded = uploaded;
-            this.totalSize = total;
-        }
-
-        @Override
-        public void run() {
-            progressListener.onProgress(uploaded * 1f / totalSize, totalSize, tag);
-        }
-    }
 }
@@ -1,8 +1,11 @@
 package pers.liyi.bullet.retrofit.request;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -13,6 +16,7 @@ import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.upload.UploadFile;
 
 
 public class RequestCreator {
@@ -39,7 +43,7 @@ public class RequestCreator {
      */
     public static RequestBody createFormBody(Object object) {
         if (object == null) return null;
-        return RequestBody.create(obj2Str(object),MEDIATYPE_FORM);
+        return createJsonBody(object, MEDIATYPE_FORM, false);
     }
 
     /**
@@ -50,7 +54,20 @@ public class RequestCreator {
      */
     public static RequestBody createJsonBody(Object object) {
         if (object == null) return null;
-        return RequestBody.create(obj2Str(object),MEDIATYPE_JSON);
+        return createJsonBody(object, MEDIATYPE_JSON, false);
+    }
+
+    /**
+     * 创建流式的 json 类型请求体，发送时才将对象序列化到输出流中，适用于很大的请求对象
+     * <p>
+     * 请求体的长度未知，使用分块传输；对象在发起请求后被修改会影响发送的内容
+     *
+     * @param object 参数对象
+     * @return {@link RequestBody}
+     */
+    public static RequestBody createStreamingJsonBody(Object object) {
+        if (object == null) return null;
+        return createJsonBody(object, MEDIATYPE_JSON, true);
     }
 
     /**
@@ -62,7 +79,7 @@ public class RequestCreator {
      */
     public static RequestBody createFileBody(@NonNull MediaType mediaType, File file) {
         if (file == null || !file.exists()) return null;
-        return RequestBody.create(file,mediaType);
+        return new FileRegionRequestBody(file, mediaType);
     }
 
     /**
@@ -156,6 +173,24 @@ public class RequestCreator {
         return parts;
     }
 
+    /**
+     * 创建带进度的多文件上传请求体
+     *
+     * @param name  与服务器约定的 key
+     * @param files 文件集合，每个文件可以设置各自的类型、标记和进度监听
+     * @return {@link List<MultipartBody.Part>}
+     */
+    public static List<MultipartBody.Part> createMultipartBodyParts(@NonNull String name, List<UploadFile> files) {
+        if (files == null || files.isEmpty()) return null;
+        List<MultipartBody.Part> parts = new ArrayList<>(files.size());
+        for (UploadFile file : files) {
+            MultipartBody.Part part = createMultipartBodyPart(file.getMediaType(), name, file.getFile(),
+                    file.getProgressListener(), file.getTag());
+            parts.add(part);
+        }
+        return parts;
+    }
+
     /**
      * 创建多文件上传请求体
      *
@@ -163,7 +198,10 @@ public class RequestCreator {
      * @param name
      * @param files     Object[] 中有两个元素，第一个元素为 OnProgressListener ,第二个元素为 OnProgressListener 的tag
      * @return
+     * @deprecated 使用 {@link #createMultipartBodyParts(String, List)}，
+     * 需要每个文件独立上传时使用 {@link pers.liyi.bullet.retrofit.upload.MultiFileUploader}
      */
+    @Deprecated
     public static List<MultipartBody.Part> createMultipartBodyParts(@NonNull MediaType mediaType, @NonNull String name,
                                                                     LinkedHashMap<File, Object[]> files) {
         if (files == null || files.isEmpty()) return null;
@@ -252,6 +290,32 @@ public class RequestCreator {
         return builder.build();
     }
 
+    /**
+     * 创建带参数和进度的多文件上传请求体
+     *
+     * @param params  与文件一起上传的参数
+     * @param fileKey 与服务器约定的 key
+     * @param files   文件集合，每个文件可以设置各自的类型、标记和进度监听
+     * @return {@link MultipartBody}
+     */
+    public static MultipartBody createMultipartBody(Map<String, String> params, @NonNull String fileKey,
+                                                    List<UploadFile> files) {
+        if (files == null || files.isEmpty()) return null;
+        MultipartBody.Builder builder = new MultipartBody.Builder();
+        // 携带参数
+        if (params != null && !params.isEmpty()) {
+            for (Map.Entry<String, String> entry : params.entrySet()) {
+                builder.addFormDataPart(entry.getKey(), entry.getValue());
+            }
+        }
+        for (UploadFile file : files) {
+            builder.addFormDataPart(fileKey, file.getFile().getName(), createFileBody(file.getMediaType(), file.getFile(),
+                    file.getProgressListener(), file.getTag()));
+        }
+        builder.setType(MultipartBody.FORM);
+        return builder.build();
+    }
+
     /**
      * 创建带参数多文件上传请求体
      *
@@ -260,7 +324,10 @@ public class RequestCreator {
      * @param fileKey
      * @param files     Object[] 中有两个元素，第一个元素为 OnProgressListener ,第二个元素为 OnProgressListener 的tag
      * @return
+     * @deprecated 使用 {@link #createMultipartBody(Map, String, List)}，
+     * 需要每个文件独立上传时使用 {@link pers.liyi.bullet.retrofit.upload.MultiFileUploader}
      */
+    @Deprecated
     public static MultipartBody createMultipartBody(@NonNull MediaType mediaType, Map<String, String> params,
                                                     @NonNull String fileKey, LinkedHashMap<File, Object[]> files) {
         if (files == null || files.isEmpty()) return null;
@@ -281,10 +348,25 @@ public class RequestCreator {
         return builder.build();
     }
 
-    private static String obj2Str(Object obj) {
+    /**
+     * 创建 json 请求体，通过 JsonWriter 直接序列化，不再先转换为 String
+     *
+     * @param streaming 是否在发送时才序列化，否则立即序列化为长度已知的请求体
+     */
+    @SuppressWarnings("unchecked")
+    private static RequestBody createJsonBody(Object obj, MediaType mediaType, boolean streaming) {
         if (sGson == null) {
             sGson = new Gson();
         }
-        return sGson.toJson(obj);
+        TypeAdapter<Object> adapter = (TypeAdapter<Object>) sGson.getAdapter(obj.getClass());
+        if (streaming) {
+            return new JsonRequestBody<>(sGson, adapter, obj, mediaType);
+        }
+        try {
+            return JsonRequestBody.buffered(sGson, adapter, obj, mediaType);
+        } catch (IOException e) {
+            // 写入内存不会发生 IO 异常，只可能是序列化失败
+            throw new JsonIOException(e);
+        }
     }
 }
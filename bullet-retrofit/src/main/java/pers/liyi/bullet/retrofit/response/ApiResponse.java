@@ -1,15 +1,18 @@
 package pers.liyi.bullet.retrofit.response;
 
 import io.reactivex.observers.DisposableObserver;
+import pers.liyi.bullet.retrofit.constant.RequestPriority;
 import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
 import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
 
 /**
  * Retrofit2.0 中的网络请求响应基类
  */
-public class ApiResponse<T> extends DisposableObserver<T> {
+public class ApiResponse<T> extends DisposableObserver<T> implements Cancelable {
     // 请求标记
     private String tag = null;
+    // 请求优先级
+    private int priority = RequestPriority.UNSPECIFIED;
     // 网络请求响应监听
     private ApiResponseListener<T> responseListener;
 
@@ -31,10 +34,25 @@ public class ApiResponse<T> extends DisposableObserver<T> {
         this.tag = tag;
     }
 
+    @Override
     public String getTag() {
         return tag;
     }
 
+    /**
+     * 设置请求优先级，需要在订阅前设置，会覆盖接口上 @Priority 的配置
+     *
+     * @param priority 取值见 {@link RequestPriority}
+     */
+    public ApiResponse<T> setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
     @Override
     protected void onStart() {
         super.onStart();
@@ -72,6 +90,7 @@ public class ApiResponse<T> extends DisposableObserver<T> {
     /**
      * 取消请求
      */
+    @Override
     public void cancel() {
         if (responseListener != null) {
             responseListener.onCancel(tag);
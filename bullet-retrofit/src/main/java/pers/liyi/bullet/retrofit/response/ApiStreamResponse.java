@@ -0,0 +1,95 @@
+package pers.liyi.bullet.retrofit.response;
+
+import io.reactivex.subscribers.ResourceSubscriber;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+
+/**
+ * 流式响应的订阅者，与 {@link ApiResponse} 的回调相同，但每解析出一条记录就回调一次 onSuccess
+ * <p>
+ * 默认一次请求所有的记录，由 observeOn 的缓冲区控制读取速度；
+ * 调用 {@link #setInitialRequest(long)} 后可以通过 {@link #requestMore(long)} 自行控制读取的数量
+ */
+public class ApiStreamResponse<T> extends ResourceSubscriber<T> implements Cancelable {
+    // 请求标记
+    private String tag = null;
+    // 订阅时请求的记录数量
+    private long initialRequest = Long.MAX_VALUE;
+    // 网络请求响应监听
+    private ApiResponseListener<T> responseListener;
+
+    public ApiStreamResponse(ApiResponseListener<T> listener) {
+        this.responseListener = listener;
+    }
+
+    public ApiStreamResponse(String tag, ApiResponseListener<T> listener) {
+        this.tag = tag;
+        this.responseListener = listener;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    @Override
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * 设置订阅时请求的记录数量，需要在订阅前设置
+     */
+    public ApiStreamResponse<T> setInitialRequest(long initialRequest) {
+        this.initialRequest = initialRequest;
+        return this;
+    }
+
+    /**
+     * 继续请求记录，服务器的数据只有在被请求后才会继续读取
+     */
+    public void requestMore(long n) {
+        request(n);
+    }
+
+    @Override
+    protected void onStart() {
+        if (responseListener != null) {
+            responseListener.onStart(tag);
+        }
+        request(initialRequest);
+    }
+
+    @Override
+    public void onNext(T t) {
+        if (responseListener != null) {
+            responseListener.onSuccess(tag, t);
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        if (responseListener != null) {
+            responseListener.onError(tag, ExceptionHandler.parseException(e));
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (responseListener != null) {
+            responseListener.onComplete(tag);
+        }
+    }
+
+    /**
+     * 取消请求，同时关闭连接
+     */
+    @Override
+    public void cancel() {
+        if (responseListener != null) {
+            responseListener.onCancel(tag);
+        }
+        if (!isDisposed()) {
+            dispose();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package pers.liyi.bullet.retrofit.response;
+
+/**
+ * 可以按标记取消的请求，由 {@link pers.liyi.bullet.retrofit.ApiClient} 统一管理
+ */
+public interface Cancelable {
+
+    /**
+     * 请求标记，为 null 时自动生成
+     */
+    String getTag();
+
+    /**
+     * 取消请求
+     */
+    void cancel();
+}
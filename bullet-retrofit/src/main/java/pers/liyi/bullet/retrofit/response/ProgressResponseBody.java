@@ -1,11 +1,9 @@
 package pers.liyi.bullet.retrofit.response;
 
-import android.os.Handler;
-import android.os.Looper;
-
 import java.io.IOException;
 
 import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.listener.ProgressDispatcher;
 import okhttp3.MediaType;
 import okhttp3.ResponseBody;
 import okio.Buffer;
@@ -15,22 +13,33 @@ import okio.Okio;
 import okio.Source;
 
 /**
- * 带进度的响应体
+ * 带进度的响应体，进度范围为 0~100
  */
 public class ProgressResponseBody extends ResponseBody {
     private ResponseBody mDelegate;
     //  BufferedSource 是 okio 库中的输入流，这里就当作 inputStream 来使用。
     private BufferedSource mBufferedSource;
-    // 下载进度监听的标记
-    private String mTag;
-    // 下载进度监听
-    private OnProgressListener mProgressListener;
-    private Handler mHandler = new Handler(Looper.getMainLooper());
+    // 下载进度分发器
+    private ProgressDispatcher mProgressDispatcher;
 
     public ProgressResponseBody(ResponseBody responseBody, String progressListenerTag, OnProgressListener listener) {
         this.mDelegate = responseBody;
-        this.mTag = progressListenerTag;
-        this.mProgressListener = listener;
+        if (listener != null) {
+            this.mProgressDispatcher = new ProgressDispatcher(listener, progressListenerTag, 100f);
+        }
+    }
+
+    /**
+     * 设置进度回调的节流参数
+     *
+     * @param minInterval     最小回调间隔，单位毫秒
+     * @param minPercentDelta 最小进度变化，单位百分比
+     */
+    public ProgressResponseBody setProgressThrottle(long minInterval, float minPercentDelta) {
+        if (mProgressDispatcher != null) {
+            mProgressDispatcher.setThrottle(minInterval, minPercentDelta);
+        }
+        return this;
     }
 
     @Override
@@ -67,26 +76,11 @@ public class ProgressResponseBody extends ResponseBody {
             }
             // 增加当前读取的字节数，如果读取完成了 bytesRead 会返回-1
             this.totalBytesRead += (bytesRead != -1 ? bytesRead : 0);
-            // 实时发送读取进度、当前已读取的字节和总字节
-            if (mProgressListener != null) {
-                mHandler.post(new ProgressUpdater(totalBytesRead, totalSize));
+            // 发送读取进度，由分发器节流后回调到主线程
+            if (mProgressDispatcher != null) {
+                mProgressDispatcher.update(totalBytesRead, totalSize);
             }
             return bytesRead;
         }
     }
-
-    private class ProgressUpdater implements Runnable {
-        private long readed;
-        private long totalSize;
-
-        public ProgressUpdater(long uploaded, long total) {
-            this.readed = uploaded;
-            this.totalSize = total;
-        }
-
-        @Override
-        public void run() {
-            mProgressListener.onProgress(readed / totalSize * 100f, totalSize, mTag);
-        }
-    }
 }
@@ -0,0 +1,61 @@
+package pers.liyi.bullet.retrofit.retry;
+
+import android.os.SystemClock;
+
+/**
+ * 全局的重试预算，基于令牌桶实现
+ * <p>
+ * 每次重试消耗一个令牌，令牌按固定速率补充，桶满后不再增加；
+ * 服务器故障时大量请求同时失败，令牌耗尽后不再重试，避免重试请求放大故障
+ */
+public class RetryBudget {
+    // 桶的容量
+    private final double mCapacity;
+    // 每毫秒补充的令牌数
+    private final double mRefillPerMillis;
+    // 当前的令牌数，由 this 保护
+    private double mTokens;
+    private long mLastRefillTime;
+
+    /**
+     * @param capacity        桶的容量，即短时间内最多允许的重试次数
+     * @param refillPerSecond 每秒补充的令牌数，即持续故障时每秒最多允许的重试次数
+     */
+    public RetryBudget(int capacity, double refillPerSecond) {
+        this.mCapacity = Math.max(0, capacity);
+        this.mRefillPerMillis = Math.max(0, refillPerSecond) / 1000;
+        this.mTokens = mCapacity;
+        this.mLastRefillTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * 尝试获取一次重试的令牌
+     *
+     * @return 预算不足时返回 false
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (mTokens >= 1) {
+            mTokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前剩余的令牌数
+     */
+    public synchronized int getAvailableTokens() {
+        refill();
+        return (int) mTokens;
+    }
+
+    private void refill() {
+        long now = SystemClock.elapsedRealtime();
+        long elapsed = now - mLastRefillTime;
+        if (elapsed > 0) {
+            mTokens = Math.min(mCapacity, mTokens + elapsed * mRefillPerMillis);
+            mLastRefillTime = now;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package pers.liyi.bullet.retrofit.route;
+
+import androidx.annotation.NonNull;
+import okhttp3.HttpUrl;
+
+/**
+ * 域名健康检查，默认实现见 {@link HttpHealthCheck}，测试时可以替换为本地的模拟实现
+ */
+public interface HealthCheck {
+    /**
+     * 检查域名是否可用，在 io 线程中调用
+     *
+     * @param host 域名
+     * @return 是否可用
+     */
+    boolean check(@NonNull HttpUrl host);
+}
@@ -0,0 +1,158 @@
+package pers.liyi.bullet.retrofit.route;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import androidx.annotation.NonNull;
+import okhttp3.HttpUrl;
+
+/**
+ * 同一个 key 对应的一组域名
+ * <p>
+ * 1. {@link #MODE_WEIGHTED}：按权重随机选择域名
+ * 2. {@link #MODE_FAILOVER}：优先使用排在前面的域名，不可用时依次使用后面的域名
+ * <p>
+ * 域名连接失败后会在一段时间内被标记为不可用，选择时跳过；所有域名都不可用时仍按原规则选择
+ */
+public final class HostGroup {
+    /**
+     * 按权重随机选择
+     */
+    public static final int MODE_WEIGHTED = 0;
+    /**
+     * 按顺序故障转移
+     */
+    public static final int MODE_FAILOVER = 1;
+
+    // 默认的不可用标记时长
+    static final long DEFAULT_DOWN_DURATION = 30 * 1000;
+
+    private final int mMode;
+    private final HttpUrl[] mUrls;
+    // 权重的前缀和，用于按权重随机选择
+    private final int[] mCumulativeWeights;
+    private final int mTotalWeight;
+    // 每个域名不可用状态的结束时间，0 表示可用
+    private final AtomicLongArray mDownUntil;
+    private final long mDownDuration;
+
+    HostGroup(int mode, HttpUrl[] urls, int[] weights, long downDuration) {
+        if (urls.length == 0) {
+            throw new IllegalArgumentException("Host group must not be empty");
+        }
+        this.mMode = mode;
+        this.mUrls = urls;
+        this.mCumulativeWeights = new int[urls.length];
+        int total = 0;
+        for (int i = 0; i < urls.length; i++) {
+            int weight = weights != null ? weights[i] : 1;
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Host weight must be positive: " + urls[i]);
+            }
+            total += weight;
+            mCumulativeWeights[i] = total;
+        }
+        this.mTotalWeight = total;
+        this.mDownUntil = new AtomicLongArray(urls.length);
+        this.mDownDuration = downDuration;
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    public List<HttpUrl> getUrls() {
+        return Collections.unmodifiableList(Arrays.asList(mUrls));
+    }
+
+    /**
+     * 选择本次请求使用的域名
+     */
+    @NonNull
+    public HttpUrl select() {
+        if (mUrls.length == 1) {
+            return mUrls[0];
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (mMode == MODE_FAILOVER) {
+            for (int i = 0; i < mUrls.length; i++) {
+                if (mDownUntil.get(i) <= now) {
+                    return mUrls[i];
+                }
+            }
+            return mUrls[0];
+        }
+        int index = pickWeighted(ThreadLocalRandom.current().nextInt(mTotalWeight));
+        if (mDownUntil.get(index) <= now) {
+            return mUrls[index];
+        }
+        // 随机到的域名不可用时，从它之后依次寻找可用的域名
+        for (int i = 1; i < mUrls.length; i++) {
+            int next = (index + i) % mUrls.length;
+            if (mDownUntil.get(next) <= now) {
+                return mUrls[next];
+            }
+        }
+        return mUrls[index];
+    }
+
+    /**
+     * 选择除 exclude 之外的下一个可用域名，用于连接失败后在本次请求中切换域名
+     *
+     * @return 没有其他可用的域名时返回 null
+     */
+    public HttpUrl selectOther(@NonNull HttpUrl exclude) {
+        long now = SystemClock.elapsedRealtime();
+        int start = indexOf(exclude);
+        for (int i = 1; i < mUrls.length; i++) {
+            int next = (start + i) % mUrls.length;
+            if (mDownUntil.get(next) <= now && !sameHost(mUrls[next], exclude)) {
+                return mUrls[next];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 标记域名连接失败，一段时间内不再优先选择
+     */
+    public void markDown(@NonNull HttpUrl url) {
+        int index = indexOf(url);
+        if (index >= 0) {
+            mDownUntil.set(index, SystemClock.elapsedRealtime() + mDownDuration);
+        }
+    }
+
+    /**
+     * 标记域名已恢复
+     */
+    public void markUp(@NonNull HttpUrl url) {
+        int index = indexOf(url);
+        if (index >= 0 && mDownUntil.get(index) != 0) {
+            mDownUntil.set(index, 0);
+        }
+    }
+
+    private int pickWeighted(int value) {
+        int index = Arrays.binarySearch(mCumulativeWeights, value + 1);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int indexOf(HttpUrl url) {
+        for (int i = 0; i < mUrls.length; i++) {
+            if (sameHost(mUrls[i], url)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean sameHost(HttpUrl a, HttpUrl b) {
+        return a.port() == b.port() && a.host().equals(b.host()) && a.scheme().equals(b.scheme());
+    }
+}
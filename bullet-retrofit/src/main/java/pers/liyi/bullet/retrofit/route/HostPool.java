@@ -0,0 +1,231 @@
+package pers.liyi.bullet.retrofit.route;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.HttpUrl;
+
+/**
+ * 提供相同接口的一组域名，按延迟和负载选择请求使用的域名
+ * <p>
+ * 1. {@link #STRATEGY_POWER_OF_TWO}：随机选取两个可用域名，使用评分较低的一个，评分综合了延迟的 EWMA 和正在进行的请求数
+ * 2. {@link #STRATEGY_LEAST_OUTSTANDING}：使用正在进行的请求数最少的域名，相同时使用延迟较低的
+ * 3. 域名连续失败达到阈值后被摘除一段时间，多次摘除时时长翻倍；所有域名都被摘除时仍从全部域名中选择
+ * 4. 设置了 {@link HealthCheck} 时定期检查所有域名，检查失败立即摘除，检查成功立即恢复
+ */
+public class HostPool {
+    /**
+     * 两次随机选择（power of two choices）
+     */
+    public static final int STRATEGY_POWER_OF_TWO = 0;
+    /**
+     * 最少正在进行的请求
+     */
+    public static final int STRATEGY_LEAST_OUTSTANDING = 1;
+
+    private final HostState[] mHosts;
+    private final int mStrategy;
+    private final int mMaxConsecutiveFailures;
+    private final long mEjectionMillis;
+    private Disposable mHealthCheckDisposable;
+
+    /**
+     * @param urls                   域名列表
+     * @param strategy               选择策略
+     * @param maxConsecutiveFailures 连续失败多少次后摘除
+     * @param ejectionMillis         首次摘除的时长
+     * @param decayMillis            延迟 EWMA 的衰减时间常数
+     */
+    public HostPool(@NonNull List<String> urls, int strategy, int maxConsecutiveFailures,
+                    long ejectionMillis, long decayMillis) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("Host pool must not be empty");
+        }
+        this.mHosts = new HostState[urls.size()];
+        for (int i = 0; i < mHosts.length; i++) {
+            mHosts[i] = new HostState(HttpUrl.get(urls.get(i)), decayMillis);
+        }
+        this.mStrategy = strategy;
+        this.mMaxConsecutiveFailures = Math.max(1, maxConsecutiveFailures);
+        this.mEjectionMillis = ejectionMillis;
+    }
+
+    /**
+     * 所有域名的状态
+     */
+    public List<HostState> getHosts() {
+        return Collections.unmodifiableList(Arrays.asList(mHosts));
+    }
+
+    /**
+     * 域名是否属于该域名池
+     */
+    public boolean contains(@NonNull HttpUrl url) {
+        return find(url) != null;
+    }
+
+    /**
+     * 选择本次请求使用的域名
+     *
+     * @param exclude 需要排除的域名，例如本次请求中已经连接失败的域名，可以为 null
+     */
+    @NonNull
+    public HostState select(HostState exclude) {
+        HostState host = select(exclude != null
+                ? Collections.singleton(exclude) : Collections.<HostState>emptySet());
+        return host != null ? host : mHosts[0];
+    }
+
+    /**
+     * 选择本次请求使用的域名
+     *
+     * @param excluded 需要排除的域名，例如本次请求中已经连接失败的所有域名
+     * @return 所有域名都被排除时返回 null
+     */
+    @Nullable
+    public HostState select(@NonNull Set<HostState> excluded) {
+        if (mHosts.length == 1) {
+            return excluded.contains(mHosts[0]) ? null : mHosts[0];
+        }
+        if (mStrategy == STRATEGY_LEAST_OUTSTANDING) {
+            HostState best = leastOutstanding(excluded, false);
+            return best != null ? best : leastOutstanding(excluded, true);
+        }
+        HostState best = powerOfTwo(excluded);
+        return best != null ? best : leastOutstanding(excluded, true);
+    }
+
+    /**
+     * 请求开始，调用后必须调用 {@link #onFinish} 或 {@link #onIgnored}
+     */
+    public void onStart(@NonNull HostState host) {
+        host.onStart();
+    }
+
+    public void onFinish(@NonNull HostState host, long latencyMillis, boolean failed) {
+        host.onFinish(latencyMillis, failed, mMaxConsecutiveFailures, mEjectionMillis);
+    }
+
+    public void onIgnored(@NonNull HostState host) {
+        host.onIgnored();
+    }
+
+    /**
+     * 开始定期健康检查
+     *
+     * @param healthCheck     健康检查
+     * @param intervalSeconds 检查间隔
+     */
+    public synchronized void startHealthCheck(@NonNull final HealthCheck healthCheck, long intervalSeconds) {
+        stopHealthCheck();
+        mHealthCheckDisposable = Observable.interval(0, intervalSeconds, TimeUnit.SECONDS, Schedulers.io())
+                .subscribe(new Consumer<Long>() {
+                    @Override
+                    public void accept(Long tick) throws Exception {
+                        checkAll(healthCheck);
+                    }
+                });
+    }
+
+    /**
+     * 停止定期健康检查
+     */
+    public synchronized void stopHealthCheck() {
+        if (mHealthCheckDisposable != null) {
+            mHealthCheckDisposable.dispose();
+            mHealthCheckDisposable = null;
+        }
+    }
+
+    /**
+     * 立即检查所有的域名，在调用线程中执行
+     */
+    public void checkAll(@NonNull HealthCheck healthCheck) {
+        for (HostState host : mHosts) {
+            long start = SystemClock.elapsedRealtime();
+            if (healthCheck.check(host.getUrl())) {
+                host.restore();
+                host.record(SystemClock.elapsedRealtime() - start, false, mMaxConsecutiveFailures, mEjectionMillis);
+            } else {
+                host.ejectNow(mEjectionMillis);
+            }
+        }
+    }
+
+    HostState find(HttpUrl url) {
+        for (HostState host : mHosts) {
+            if (HostGroup.sameHost(host.getUrl(), url)) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    private HostState powerOfTwo(Set<HostState> excluded) {
+        List<HostState> candidates = null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 大多数情况下域名都可用，直接随机选取两个，避免创建候选列表
+        int a = random.nextInt(mHosts.length);
+        int b = random.nextInt(mHosts.length - 1);
+        if (b >= a) {
+            b++;
+        }
+        HostState first = mHosts[a];
+        HostState second = mHosts[b];
+        if (isAvailable(first, excluded) && isAvailable(second, excluded)) {
+            return first.score() <= second.score() ? first : second;
+        }
+        candidates = new ArrayList<>(mHosts.length);
+        for (HostState host : mHosts) {
+            if (isAvailable(host, excluded)) {
+                candidates.add(host);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        a = random.nextInt(candidates.size());
+        b = random.nextInt(candidates.size() - 1);
+        if (b >= a) {
+            b++;
+        }
+        first = candidates.get(a);
+        second = candidates.get(b);
+        return first.score() <= second.score() ? first : second;
+    }
+
+    private HostState leastOutstanding(Set<HostState> excluded, boolean includeEjected) {
+        HostState best = null;
+        for (HostState host : mHosts) {
+            if (excluded.contains(host) || (!includeEjected && host.isEjected())) {
+                continue;
+            }
+            if (best == null
+                    || host.getOutstanding() < best.getOutstanding()
+                    || (host.getOutstanding() == best.getOutstanding() && host.getEwmaLatency() < best.getEwmaLatency())) {
+                best = host;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isAvailable(HostState host, Set<HostState> excluded) {
+        return !excluded.contains(host) && !host.isEjected();
+    }
+}
@@ -0,0 +1,111 @@
+package pers.liyi.bullet.retrofit.route;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import okhttp3.HttpUrl;
+
+/**
+ * 不可变的域名路由表，创建时将所有的域名解析为 HttpUrl，请求时按 key 直接查找
+ * <p>
+ * 路由表创建后不再修改，需要更换域名时创建新的路由表并整体替换，例如：
+ * <pre>
+ * HostRoutingTable table = new HostRoutingTable.Builder()
+ *         .host("user", "https://user.example.com")
+ *         .weighted("feed", new String[]{"https://feed1.example.com", "https://feed2.example.com"}, new int[]{3, 1})
+ *         .failover("pay", "https://pay.example.com", "https://pay-backup.example.com")
+ *         .build();
+ * </pre>
+ */
+public final class HostRoutingTable {
+    private final Map<String, HostGroup> mGroups;
+
+    private HostRoutingTable(Map<String, HostGroup> groups) {
+        this.mGroups = Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * 将 key -> BaseUrl 的 Map 编译为路由表，每个 key 只对应一个域名
+     *
+     * @throws IllegalArgumentException BaseUrl 格式错误
+     */
+    public static HostRoutingTable compile(Map<String, String> hostMap) {
+        Builder builder = new Builder();
+        if (hostMap != null) {
+            for (Map.Entry<String, String> entry : hostMap.entrySet()) {
+                builder.host(entry.getKey(), entry.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取 key 对应的域名组
+     *
+     * @return 未配置时返回 null
+     */
+    public HostGroup get(String key) {
+        return mGroups.get(key);
+    }
+
+    public Set<String> keys() {
+        return mGroups.keySet();
+    }
+
+    public boolean isEmpty() {
+        return mGroups.isEmpty();
+    }
+
+    public static final class Builder {
+        private final Map<String, HostGroup> mGroups = new HashMap<>();
+        private long mDownDuration = HostGroup.DEFAULT_DOWN_DURATION;
+
+        /**
+         * 设置域名连接失败后被标记为不可用的时长，需要在添加域名之前设置
+         */
+        public Builder setDownDuration(long downDurationMillis) {
+            this.mDownDuration = downDurationMillis;
+            return this;
+        }
+
+        /**
+         * 添加单个域名
+         */
+        public Builder host(@NonNull String key, @NonNull String url) {
+            return add(key, HostGroup.MODE_FAILOVER, new String[]{url}, null);
+        }
+
+        /**
+         * 添加按权重随机选择的一组域名
+         */
+        public Builder weighted(@NonNull String key, @NonNull String[] urls, @NonNull int[] weights) {
+            if (urls.length != weights.length) {
+                throw new IllegalArgumentException("urls and weights must have the same length");
+            }
+            return add(key, HostGroup.MODE_WEIGHTED, urls, weights);
+        }
+
+        /**
+         * 添加按顺序故障转移的一组域名，排在前面的优先使用
+         */
+        public Builder failover(@NonNull String key, @NonNull String... urls) {
+            return add(key, HostGroup.MODE_FAILOVER, urls, null);
+        }
+
+        private Builder add(String key, int mode, String[] urls, int[] weights) {
+            HttpUrl[] parsed = new HttpUrl[urls.length];
+            for (int i = 0; i < urls.length; i++) {
+                parsed[i] = HttpUrl.get(urls[i]);
+            }
+            mGroups.put(key, new HostGroup(mode, parsed, weights, mDownDuration));
+            return this;
+        }
+
+        public HostRoutingTable build() {
+            return new HostRoutingTable(new HashMap<>(mGroups));
+        }
+    }
+}
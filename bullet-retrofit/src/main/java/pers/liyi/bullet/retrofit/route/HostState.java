@@ -0,0 +1,134 @@
+package pers.liyi.bullet.retrofit.route;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+
+/**
+ * 负载均衡中单个域名的状态：正在进行的请求数、延迟的指数加权移动平均值（EWMA）和摘除状态
+ */
+public final class HostState {
+    private final HttpUrl mUrl;
+    // EWMA 的衰减时间常数（毫秒），越大越平滑
+    private final double mDecayMillis;
+    private final AtomicInteger mOutstanding = new AtomicInteger();
+
+    // 以下字段由 this 保护
+    private double mEwmaLatency;
+    private long mLastSampleTime;
+    private int mConsecutiveFailures;
+    // 连续被摘除的次数，用于计算摘除时长
+    private int mEjections;
+    // 摘除状态的结束时间，0 表示未摘除
+    private volatile long mEjectedUntil;
+
+    HostState(HttpUrl url, long decayMillis) {
+        this.mUrl = url;
+        this.mDecayMillis = Math.max(1, decayMillis);
+    }
+
+    public HttpUrl getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * 正在进行的请求数
+     */
+    public int getOutstanding() {
+        return mOutstanding.get();
+    }
+
+    /**
+     * 延迟的 EWMA（毫秒），没有样本时为 0
+     */
+    public synchronized double getEwmaLatency() {
+        return mEwmaLatency;
+    }
+
+    /**
+     * 是否已被摘除
+     */
+    public boolean isEjected() {
+        long until = mEjectedUntil;
+        return until != 0 && SystemClock.elapsedRealtime() < until;
+    }
+
+    /**
+     * 负载评分，越小越优先：延迟越高、正在进行的请求越多，评分越高
+     */
+    double score() {
+        return (getEwmaLatency() + 1) * (mOutstanding.get() + 1);
+    }
+
+    void onStart() {
+        mOutstanding.incrementAndGet();
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param latencyMillis          请求耗时
+     * @param failed                 是否失败
+     * @param maxConsecutiveFailures 连续失败多少次后摘除
+     * @param baseEjectionMillis     首次摘除的时长，之后每次翻倍，最多 8 倍
+     */
+    void onFinish(long latencyMillis, boolean failed, int maxConsecutiveFailures, long baseEjectionMillis) {
+        mOutstanding.decrementAndGet();
+        record(latencyMillis, failed, maxConsecutiveFailures, baseEjectionMillis);
+    }
+
+    /**
+     * 请求被取消等不计入统计的情况
+     */
+    void onIgnored() {
+        mOutstanding.decrementAndGet();
+    }
+
+    synchronized void record(long latencyMillis, boolean failed, int maxConsecutiveFailures, long baseEjectionMillis) {
+        long now = SystemClock.elapsedRealtime();
+        if (!failed) {
+            // 按距离上次样本的时间衰减，长时间没有请求时新样本的权重更大
+            if (mLastSampleTime == 0) {
+                mEwmaLatency = latencyMillis;
+            } else {
+                double weight = Math.exp(-(now - mLastSampleTime) / mDecayMillis);
+                mEwmaLatency = mEwmaLatency * weight + latencyMillis * (1 - weight);
+            }
+            mLastSampleTime = now;
+            mConsecutiveFailures = 0;
+            if (mEjectedUntil != 0 && now >= mEjectedUntil) {
+                // 摘除结束后请求成功，恢复正常
+                mEjectedUntil = 0;
+                mEjections = 0;
+            }
+            return;
+        }
+        if (++mConsecutiveFailures >= maxConsecutiveFailures) {
+            eject(now, baseEjectionMillis);
+        }
+    }
+
+    /**
+     * 健康检查成功，立即恢复
+     */
+    synchronized void restore() {
+        mEjectedUntil = 0;
+        mEjections = 0;
+        mConsecutiveFailures = 0;
+    }
+
+    /**
+     * 健康检查失败，立即摘除
+     */
+    synchronized void ejectNow(long baseEjectionMillis) {
+        eject(SystemClock.elapsedRealtime(), baseEjectionMillis);
+    }
+
+    private void eject(long now, long baseEjectionMillis) {
+        mEjections = Math.min(mEjections + 1, 4);
+        mEjectedUntil = now + (baseEjectionMillis << (mEjections - 1));
+        mConsecutiveFailures = 0;
+    }
+}
@@ -0,0 +1,46 @@
+package pers.liyi.bullet.retrofit.route;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 通过 GET 请求健康检查地址判断域名是否可用，返回 2xx 时视为可用
+ */
+public class HttpHealthCheck implements HealthCheck {
+    private final Call.Factory mCallFactory;
+    private final String mPath;
+
+    /**
+     * @param callFactory 发起健康检查请求的 OkHttpClient，不应包含负载均衡拦截器
+     * @param path        健康检查的路径，例如 "health"
+     */
+    public HttpHealthCheck(@NonNull Call.Factory callFactory, @NonNull String path) {
+        this.mCallFactory = callFactory;
+        this.mPath = path;
+    }
+
+    @Override
+    public boolean check(@NonNull HttpUrl host) {
+        HttpUrl url = host.resolve(mPath);
+        if (url == null) {
+            return false;
+        }
+        Request request = new Request.Builder().url(url).header("Cache-Control", "no-cache").build();
+        Response response = null;
+        try {
+            response = mCallFactory.newCall(request).execute();
+            return response.isSuccessful();
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+}
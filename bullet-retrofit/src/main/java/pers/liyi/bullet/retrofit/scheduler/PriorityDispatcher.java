@@ -0,0 +1,280 @@
+package pers.liyi.bullet.retrofit.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import pers.liyi.bullet.retrofit.constant.RequestPriority;
+
+/**
+ * 按优先级调度请求的分发器
+ * <p>
+ * 1. 请求按优先级分为用户等待、普通和后台三条通道，每条通道有独立的最大并发数
+ * 2. 同一个域名同时进行的请求数有上限，超过时在队列中等待
+ * 3. 存在正在进行或等待中的用户等待请求时，后台请求延后执行
+ * 4. 线程数由并发上限决定，不会像 Schedulers.io() 一样无限增长
+ */
+public class PriorityDispatcher {
+    private static final int LANE_COUNT = 3;
+
+    // 每条通道的最大并发数
+    private final int[] mMaxRequests;
+    // 同一个域名的最大并发数
+    private final int mMaxRequestsPerHost;
+    private final ExecutorService mExecutorService;
+
+    // 每条通道中等待执行的任务
+    private final List<ArrayDeque<Task>> mReadyTasks = new ArrayList<>(LANE_COUNT);
+    // 每条通道中正在执行的任务数
+    private final int[] mRunningCounts = new int[LANE_COUNT];
+    // 每条通道中正在解析域名的任务数，与正在执行的任务一起受通道最大并发数的限制
+    private final int[] mResolvingCounts = new int[LANE_COUNT];
+    // 域名 -> 正在执行的任务数
+    private final Map<String, Integer> mRunningPerHost = new HashMap<>();
+
+    /**
+     * @param maxUserBlockingRequests 用户等待通道的最大并发数
+     * @param maxNormalRequests       普通通道的最大并发数
+     * @param maxBackgroundRequests   后台通道的最大并发数
+     * @param maxRequestsPerHost      同一个域名的最大并发数
+     */
+    public PriorityDispatcher(int maxUserBlockingRequests, int maxNormalRequests,
+                              int maxBackgroundRequests, int maxRequestsPerHost) {
+        this.mMaxRequests = new int[]{maxUserBlockingRequests, maxNormalRequests, maxBackgroundRequests};
+        this.mMaxRequestsPerHost = maxRequestsPerHost;
+        for (int i = 0; i < LANE_COUNT; i++) {
+            mReadyTasks.add(new ArrayDeque<Task>());
+        }
+        this.mExecutorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "Bullet-Priority-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 获取指定优先级和域名的调度器，用于 subscribeOn
+     *
+     * @param priority 优先级，取值见 {@link RequestPriority}
+     * @param host     请求的域名，未知时为 null，不受域名并发数的限制
+     */
+    public Scheduler scheduler(int priority, String host) {
+        return Schedulers.from(new LaneExecutor(toLane(priority), host, null));
+    }
+
+    /**
+     * 获取指定优先级的调度器，域名在任务被分发时才在工作线程中解析
+     * <p>
+     * 解析域名可能需要创建请求（执行转换器、序列化请求体），不应在订阅的线程中进行
+     *
+     * @param priority 优先级，取值见 {@link RequestPriority}
+     * @param resolver 解析请求的域名，返回 null 时不受域名并发数的限制
+     */
+    public Scheduler scheduler(int priority, @NonNull HostResolver resolver) {
+        return Schedulers.from(new LaneExecutor(toLane(priority), null, resolver));
+    }
+
+    /**
+     * 等待执行的任务数
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (ArrayDeque<Task> tasks : mReadyTasks) {
+            count += tasks.size();
+        }
+        return count;
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public synchronized int getRunningCount() {
+        int count = 0;
+        for (int running : mRunningCounts) {
+            count += running;
+        }
+        return count;
+    }
+
+    private int toLane(int priority) {
+        if (priority < RequestPriority.USER_BLOCKING || priority > RequestPriority.BACKGROUND) {
+            return RequestPriority.NORMAL;
+        }
+        return priority;
+    }
+
+    private void enqueue(Task task) {
+        synchronized (this) {
+            mReadyTasks.get(task.lane).add(task);
+        }
+        promoteAndExecute();
+    }
+
+    private void finished(Task task) {
+        synchronized (this) {
+            mRunningCounts[task.lane]--;
+            if (task.host != null) {
+                Integer running = mRunningPerHost.get(task.host);
+                if (running == null || running <= 1) {
+                    mRunningPerHost.remove(task.host);
+                } else {
+                    mRunningPerHost.put(task.host, running - 1);
+                }
+            }
+        }
+        promoteAndExecute();
+    }
+
+    /**
+     * 按优先级从高到低，将满足并发限制的任务交给线程池执行
+     */
+    private void promoteAndExecute() {
+        List<Task> executableTasks = new ArrayList<>();
+        List<Task> resolvingTasks = new ArrayList<>();
+        synchronized (this) {
+            for (int lane = 0; lane < LANE_COUNT; lane++) {
+                // 存在用户等待的请求时，延后执行后台请求
+                if (lane == RequestPriority.BACKGROUND
+                        && (mRunningCounts[RequestPriority.USER_BLOCKING] > 0
+                        || mResolvingCounts[RequestPriority.USER_BLOCKING] > 0
+                        || !mReadyTasks.get(RequestPriority.USER_BLOCKING).isEmpty())) {
+                    continue;
+                }
+                Iterator<Task> iterator = mReadyTasks.get(lane).iterator();
+                // 正在解析域名的任务同样占用线程，计入通道的并发数
+                while (iterator.hasNext() && mRunningCounts[lane] + mResolvingCounts[lane] < mMaxRequests[lane]) {
+                    Task task = iterator.next();
+                    if (task.resolver != null) {
+                        // 域名未解析，先在工作线程中解析，解析后重新入队
+                        iterator.remove();
+                        mResolvingCounts[lane]++;
+                        resolvingTasks.add(task);
+                        continue;
+                    }
+                    Integer hostRunning = task.host != null ? mRunningPerHost.get(task.host) : null;
+                    if (hostRunning != null && hostRunning >= mMaxRequestsPerHost) {
+                        continue;
+                    }
+                    iterator.remove();
+                    mRunningCounts[lane]++;
+                    if (task.host != null) {
+                        mRunningPerHost.put(task.host, hostRunning == null ? 1 : hostRunning + 1);
+                    }
+                    executableTasks.add(task);
+                }
+            }
+        }
+        for (Task task : resolvingTasks) {
+            mExecutorService.execute(new ResolveHost(task));
+        }
+        for (Task task : executableTasks) {
+            mExecutorService.execute(task);
+        }
+    }
+
+    private void resolved(Task task, String host) {
+        synchronized (this) {
+            task.host = host;
+            task.resolver = null;
+            mResolvingCounts[task.lane]--;
+            // 解析前已在队列中，放回队首
+            mReadyTasks.get(task.lane).addFirst(task);
+        }
+        promoteAndExecute();
+    }
+
+    /**
+     * 在任务被分发时解析请求的域名
+     */
+    public interface HostResolver {
+
+        /**
+         * 在工作线程中调用
+         *
+         * @return 请求的域名，未知时为 null
+         */
+        String resolveHost();
+    }
+
+    /**
+     * 某一条通道、某一个域名的执行器
+     */
+    private final class LaneExecutor implements Executor {
+        private final int lane;
+        private final String host;
+        private final HostResolver resolver;
+
+        LaneExecutor(int lane, String host, HostResolver resolver) {
+            this.lane = lane;
+            this.host = host;
+            this.resolver = resolver;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            enqueue(new Task(lane, host, resolver, command));
+        }
+    }
+
+    private final class Task implements Runnable {
+        final int lane;
+        // 以下两个字段只在持有分发器的锁时修改
+        String host;
+        HostResolver resolver;
+        final Runnable delegate;
+
+        Task(int lane, String host, HostResolver resolver, Runnable delegate) {
+            this.lane = lane;
+            this.host = host;
+            this.resolver = resolver;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            try {
+                delegate.run();
+            } finally {
+                finished(this);
+            }
+        }
+    }
+
+    private final class ResolveHost implements Runnable {
+        private final Task task;
+
+        ResolveHost(Task task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            String host;
+            try {
+                host = task.resolver.resolveHost();
+            } catch (RuntimeException e) {
+                host = null;
+            }
+            resolved(task, host);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pers.liyi.bullet.retrofit.stream;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import androidx.annotation.NonNull;
+import okio.BufferedSource;
+
+/**
+ * NDJSON（每行一个 JSON 对象）解析器，忽略空行
+ */
+public class NdjsonParser<T> implements StreamParser<T> {
+    private final TypeAdapter<T> mAdapter;
+
+    public NdjsonParser(@NonNull Gson gson, @NonNull Class<T> type) {
+        this.mAdapter = gson.getAdapter(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    public NdjsonParser(@NonNull Gson gson, @NonNull Type type) {
+        this.mAdapter = (TypeAdapter<T>) gson.getAdapter(TypeToken.get(type));
+    }
+
+    @NonNull
+    @Override
+    public StreamParser<T> newParser() {
+        // 无状态，可以在多个订阅之间共享
+        return this;
+    }
+
+    @Override
+    public T next(@NonNull BufferedSource source) throws IOException {
+        String line;
+        do {
+            line = source.readUtf8Line();
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+        try {
+            return mAdapter.fromJson(line);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed NDJSON line: " + line, e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package pers.liyi.bullet.retrofit.stream;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.functions.Consumer;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import retrofit2.Call;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * 将流式的响应转换为支持背压的 {@link Flowable}
+ * <p>
+ * 1. 订阅时执行请求，之后每当下游请求数据时才从响应体中读取并解析下一条记录，下游处理不过来时不会继续读取
+ * 2. 请求失败时发出 {@link HttpException}，与普通请求的错误处理一致
+ * 3. 取消订阅时取消请求，阻塞在读取上的线程会立即返回，并关闭响应体
+ * <p>
+ * 接口需要使用 @Streaming 注解并返回 Call&lt;ResponseBody&gt;，否则 Retrofit 会先读取完整的响应体
+ */
+public final class ResponseStream {
+
+    private ResponseStream() {
+    }
+
+    /**
+     * @param call   返回流式响应的请求，每次订阅都会 clone 一个新的请求
+     * @param parser 记录解析器，每次订阅都通过 {@link StreamParser#newParser()} 获取本次使用的解析器
+     */
+    public static <T> Flowable<T> flowable(@NonNull Call<ResponseBody> call, @NonNull final StreamParser<T> parser) {
+        return flowable(call, new Callable<StreamParser<T>>() {
+            @Override
+            public StreamParser<T> call() {
+                return parser.newParser();
+            }
+        });
+    }
+
+    /**
+     * @param call          返回流式响应的请求，每次订阅都会 clone 一个新的请求
+     * @param parserFactory 每次订阅时创建新的记录解析器
+     */
+    public static <T> Flowable<T> flowable(@NonNull final Call<ResponseBody> call,
+                                           @NonNull final Callable<StreamParser<T>> parserFactory) {
+        return Flowable.defer(new Callable<Flowable<T>>() {
+            @Override
+            public Flowable<T> call() throws Exception {
+                final Call<ResponseBody> newCall = call.clone();
+                final StreamParser<T> parser = parserFactory.call();
+                return Flowable.generate(
+                        new Callable<ResponseBody>() {
+                            @Override
+                            public ResponseBody call() throws Exception {
+                                Response<ResponseBody> response;
+                                try {
+                                    response = newCall.execute();
+                                } catch (IOException e) {
+                                    if (newCall.isCanceled()) {
+                                        // 请求过程中被取消，由生成器直接结束
+                                        return null;
+                                    }
+                                    throw e;
+                                }
+                                if (!response.isSuccessful() || response.body() == null) {
+                                    throw new HttpException(response);
+                                }
+                                return response.body();
+                            }
+                        },
+                        new BiConsumer<ResponseBody, Emitter<T>>() {
+                            @Override
+                            public void accept(ResponseBody body, Emitter<T> emitter) throws Exception {
+                                if (body == null) {
+                                    emitter.onComplete();
+                                    return;
+                                }
+                                BufferedSource source = body.source();
+                                T item;
+                                try {
+                                    item = parser.next(source);
+                                } catch (IOException e) {
+                                    if (newCall.isCanceled()) {
+                                        // 取消订阅导致的读取失败，下游已经不再接收，避免成为无法投递的异常
+                                        emitter.onComplete();
+                                        return;
+                                    }
+                                    throw e;
+                                }
+                                if (item == null) {
+                                    emitter.onComplete();
+                                } else {
+                                    emitter.onNext(item);
+                                }
+                            }
+                        },
+                        new Consumer<ResponseBody>() {
+                            @Override
+                            public void accept(ResponseBody body) {
+                                if (body != null) {
+                                    body.close();
+                                }
+                            }
+                        })
+                        .doOnCancel(new Action() {
+                            @Override
+                            public void run() {
+                                newCall.cancel();
+                            }
+                        });
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package pers.liyi.bullet.retrofit.stream;
+
+/**
+ * 服务器推送事件（Server-Sent Events）
+ */
+public final class SseEvent {
+    private final String mId;
+    private final String mEvent;
+    private final String mData;
+    private final long mRetry;
+
+    SseEvent(String id, String event, String data, long retry) {
+        this.mId = id;
+        this.mEvent = event;
+        this.mData = data;
+        this.mRetry = retry;
+    }
+
+    /**
+     * 事件 id，未设置时为 null
+     */
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * 事件类型，未设置时为 "message"
+     */
+    public String getEvent() {
+        return mEvent;
+    }
+
+    /**
+     * 事件数据，多行 data 以换行符连接
+     */
+    public String getData() {
+        return mData;
+    }
+
+    /**
+     * 服务器建议的重连间隔（毫秒），未设置时为 -1
+     */
+    public long getRetry() {
+        return mRetry;
+    }
+
+    @Override
+    public String toString() {
+        return "SseEvent{id=" + mId + ", event=" + mEvent + ", data=" + mData + "}";
+    }
+}
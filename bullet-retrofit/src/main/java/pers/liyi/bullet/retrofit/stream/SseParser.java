@@ -0,0 +1,73 @@
+package pers.liyi.bullet.retrofit.stream;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okio.BufferedSource;
+
+/**
+ * text/event-stream 解析器，按空行分隔事件，忽略注释行（以 ":" 开头）和没有数据的事件
+ * <p>
+ * 会记录最近一次的事件 id，每个流需要使用单独的实例，{@link ResponseStream} 在每次订阅时通过 {@link #newParser()} 创建
+ */
+public class SseParser implements StreamParser<SseEvent> {
+    private static final String DEFAULT_EVENT = "message";
+
+    // 最近一次的事件 id，规范要求在之后的事件中沿用
+    private String mLastId;
+
+    @NonNull
+    @Override
+    public StreamParser<SseEvent> newParser() {
+        return new SseParser();
+    }
+
+    @Override
+    public SseEvent next(@NonNull BufferedSource source) throws IOException {
+        String event = null;
+        StringBuilder data = null;
+        long retry = -1;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (data != null) {
+                    return new SseEvent(mLastId, event != null ? event : DEFAULT_EVENT, data.toString(), retry);
+                }
+                event = null;
+                retry = -1;
+                continue;
+            }
+            if (line.startsWith(":")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(line.startsWith(" ", colon + 1) ? colon + 2 : colon + 1);
+            switch (field) {
+                case "data":
+                    if (data == null) {
+                        data = new StringBuilder(value);
+                    } else {
+                        data.append('\n').append(value);
+                    }
+                    break;
+                case "event":
+                    event = value;
+                    break;
+                case "id":
+                    mLastId = value;
+                    break;
+                case "retry":
+                    try {
+                        retry = Long.parseLong(value);
+                    } catch (NumberFormatException ignored) {
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        // 流结束时丢弃不完整的事件
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package pers.liyi.bullet.retrofit.stream;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okio.BufferedSource;
+
+/**
+ * 从响应体中逐条解析记录，只在下游请求数据时被调用，每次只读取一条记录所需的数据
+ */
+public interface StreamParser<T> {
+
+    /**
+     * 每次订阅时调用，获取本次订阅使用的解析器
+     *
+     * @return 有状态的解析器（例如 {@link SseParser}）需要返回新的实例，无状态的解析器可以返回自身
+     */
+    @NonNull
+    StreamParser<T> newParser();
+
+    /**
+     * 读取下一条记录
+     *
+     * @param source 响应体
+     * @return 响应体已经读取完毕时返回 null
+     */
+    T next(@NonNull BufferedSource source) throws IOException;
+}
@@ -0,0 +1,82 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * 基于 Content-Range 的分块上传协议
+ * <p>
+ * 1. 向创建地址发送 POST 请求创建会话，服务器在 Location 响应头中返回上传地址
+ * 2. 每个分块通过 PUT 发送到上传地址，携带 Content-Range 和 Content-MD5 请求头
+ * 3. 服务器对中间分块返回 2xx 或 308，对最后一个分块返回 2xx
+ */
+public class ContentRangeUploadProtocol implements UploadProtocol {
+    private final String mCreateUrl;
+    private final MediaType mContentType;
+
+    /**
+     * @param createUrl   创建会话的地址
+     * @param contentType 文件类型
+     */
+    public ContentRangeUploadProtocol(@NonNull String createUrl, @Nullable MediaType contentType) {
+        this.mCreateUrl = createUrl;
+        this.mContentType = contentType;
+    }
+
+    @Nullable
+    @Override
+    public Request createSession(@NonNull UploadSession session) {
+        Request.Builder builder = new Request.Builder()
+                .url(mCreateUrl)
+                .header("X-Upload-Content-Length", String.valueOf(session.getLength()))
+                .post(RequestBody.create(new byte[0], null));
+        if (mContentType != null) {
+            builder.header("X-Upload-Content-Type", mContentType.toString());
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    @Override
+    public String parseSessionId(@NonNull Response response) throws IOException {
+        String location = response.header("Location");
+        if (location == null) {
+            throw new IOException("Upload session response has no Location header");
+        }
+        // 相对地址按创建会话的请求地址解析
+        HttpUrl url = response.request().url().resolve(location);
+        if (url == null) {
+            throw new IOException("Malformed upload session location: " + location);
+        }
+        return url.toString();
+    }
+
+    @NonNull
+    @Override
+    public Request createChunk(@NonNull UploadSession session, @NonNull UploadChunk chunk, @NonNull RequestBody body) {
+        return new Request.Builder()
+                .url(session.getSessionId())
+                .header("Content-Range", chunk.getContentRange())
+                .header("Content-MD5", chunk.getMd5())
+                .put(body)
+                .build();
+    }
+
+    @Override
+    public boolean isChunkAcknowledged(@NonNull UploadChunk chunk, @NonNull Response response) {
+        return response.isSuccessful() || (!chunk.isLast() && response.code() == 308);
+    }
+
+    @Nullable
+    @Override
+    public Request createComplete(@NonNull UploadSession session) {
+        return null;
+    }
+}
@@ -0,0 +1,300 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.ObservableSource;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Call;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.listener.ProgressDispatcher;
+import pers.liyi.bullet.retrofit.request.FileRegionRequestBody;
+import pers.liyi.bullet.retrofit.response.ApiResponse;
+import retrofit2.HttpException;
+
+/**
+ * 多文件并行上传
+ * <p>
+ * 1. 每个文件使用独立的请求上传，同时进行的请求数量不超过最大并发数
+ * 2. 单个文件失败时按指数退避重试，重试次数用完后记录失败结果，不影响其他文件
+ * 3. 所有文件的进度汇总为一个总进度，每个文件也可以单独设置进度监听
+ * 4. 全部文件结束后，按传入的顺序回调每个文件的 {@link UploadResult}
+ */
+public class MultiFileUploader {
+    // 默认的最大并发数
+    public static final int DEFAULT_MAX_CONCURRENCY = 3;
+    // 默认的单个文件最大重试次数
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    // 默认的首次重试等待时间，之后每次翻倍
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+
+    private final OkHttpClient mClient;
+    private final RequestFactory mRequestFactory;
+    private int mMaxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private int mMaxRetries = DEFAULT_MAX_RETRIES;
+    private long mRetryDelay = DEFAULT_RETRY_DELAY;
+    // 上传标记 -> 订阅者
+    private final ConcurrentHashMap<String, ApiResponse<List<UploadResult>>> mUploads = new ConcurrentHashMap<>();
+
+    /**
+     * @param client         上传使用的 OkHttpClient，不应包含会读取完整请求体的拦截器（如日志拦截器）
+     * @param requestFactory 为每个文件创建上传请求
+     */
+    public MultiFileUploader(@NonNull OkHttpClient client, @NonNull RequestFactory requestFactory) {
+        this.mClient = client;
+        this.mRequestFactory = requestFactory;
+    }
+
+    /**
+     * 创建以 multipart/form-data 上传单个文件的请求工厂
+     *
+     * @param url     上传地址
+     * @param fileKey 与服务器约定的 key
+     * @param params  与文件一起上传的参数
+     */
+    public static RequestFactory multipart(@NonNull final String url, @NonNull final String fileKey,
+                                           final Map<String, String> params) {
+        return new RequestFactory() {
+            @NonNull
+            @Override
+            public Request create(@NonNull UploadFile file, @NonNull RequestBody body) {
+                MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+                if (params != null) {
+                    for (Map.Entry<String, String> entry : params.entrySet()) {
+                        builder.addFormDataPart(entry.getKey(), entry.getValue());
+                    }
+                }
+                builder.addFormDataPart(fileKey, file.getFile().getName(), body);
+                return new Request.Builder().url(url).post(builder.build()).build();
+            }
+        };
+    }
+
+    /**
+     * 设置同时上传的最大文件数量
+     */
+    public MultiFileUploader setMaxConcurrency(int maxConcurrency) {
+        this.mMaxConcurrency = Math.max(1, maxConcurrency);
+        return this;
+    }
+
+    /**
+     * 设置单个文件的最大重试次数
+     */
+    public MultiFileUploader setMaxRetries(int maxRetries) {
+        this.mMaxRetries = Math.max(0, maxRetries);
+        return this;
+    }
+
+    /**
+     * 设置首次重试的等待时间，单位毫秒，之后每次翻倍
+     */
+    public MultiFileUploader setRetryDelay(long retryDelay) {
+        this.mRetryDelay = Math.max(0, retryDelay);
+        return this;
+    }
+
+    /**
+     * 开始上传
+     *
+     * @param tag              上传标记，可用于取消上传
+     * @param files            需要上传的文件
+     * @param progressListener 总进度监听，进度范围为 0~1
+     * @param listener         上传结果回调，只要全部文件都已结束就会回调成功，每个文件的结果见 {@link UploadResult}
+     */
+    public void upload(@NonNull String tag, @NonNull List<UploadFile> files, OnProgressListener progressListener,
+                       ApiResponseListener<List<UploadResult>> listener) {
+        long total = 0;
+        for (UploadFile file : files) {
+            total += file.getFile().length();
+        }
+        final UploadProgress progress = new UploadProgress(progressListener, tag, total);
+        final List<UploadFile> snapshot = new ArrayList<>(files);
+        final ApiResponse<List<UploadResult>> observer = new ApiResponse<>(tag, listener);
+        ApiResponse<List<UploadResult>> old = mUploads.put(tag, observer);
+        if (old != null) {
+            old.cancel();
+        }
+        final String uploadTag = tag;
+        Observable.range(0, snapshot.size())
+                .flatMap(new Function<Integer, ObservableSource<IndexedResult>>() {
+                    @Override
+                    public ObservableSource<IndexedResult> apply(final Integer index) throws Exception {
+                        return Observable.create(new ObservableOnSubscribe<IndexedResult>() {
+                            @Override
+                            public void subscribe(ObservableEmitter<IndexedResult> emitter) throws Exception {
+                                UploadResult result = uploadFile(snapshot.get(index), progress, emitter);
+                                if (result != null) {
+                                    emitter.onNext(new IndexedResult(index, result));
+                                    emitter.onComplete();
+                                }
+                            }
+                        }).subscribeOn(Schedulers.io());
+                    }
+                }, mMaxConcurrency)
+                .toList()
+                .map(new Function<List<IndexedResult>, List<UploadResult>>() {
+                    @Override
+                    public List<UploadResult> apply(List<IndexedResult> results) throws Exception {
+                        // 按传入的顺序返回结果
+                        Collections.sort(results, new Comparator<IndexedResult>() {
+                            @Override
+                            public int compare(IndexedResult o1, IndexedResult o2) {
+                                return o1.index - o2.index;
+                            }
+                        });
+                        List<UploadResult> list = new ArrayList<>(results.size());
+                        for (IndexedResult result : results) {
+                            list.add(result.result);
+                        }
+                        return list;
+                    }
+                })
+                .toObservable()
+                .observeOn(AndroidSchedulers.mainThread())
+                .doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        mUploads.remove(uploadTag, observer);
+                    }
+                })
+                .subscribe(observer);
+    }
+
+    /**
+     * 取消上传
+     */
+    public void cancel(@NonNull String tag) {
+        ApiResponse<List<UploadResult>> observer = mUploads.remove(tag);
+        if (observer != null) {
+            observer.cancel();
+        }
+    }
+
+    /**
+     * 上传单个文件，失败时按指数退避重试
+     *
+     * @return 上传结果，上传被取消时返回 null
+     */
+    private UploadResult uploadFile(UploadFile file, UploadProgress progress,
+                                    ObservableEmitter<IndexedResult> emitter) {
+        final ProgressDispatcher fileDispatcher = file.getProgressListener() != null
+                ? new ProgressDispatcher(file.getProgressListener(), file.getTag(), 1f) : null;
+        for (int attempt = 0; ; attempt++) {
+            final UploadProgress.Part part = progress.newPart();
+            if (fileDispatcher != null) {
+                // 重试时单个文件的进度从 0 开始
+                fileDispatcher.reset();
+            }
+            FileRegionRequestBody body = new FileRegionRequestBody(file.getFile(), file.getMediaType())
+                    .setWriteListener(new FileRegionRequestBody.WriteListener() {
+                        @Override
+                        public void onWrite(long bytesWritten, long contentLength) {
+                            part.update(bytesWritten);
+                            if (fileDispatcher != null) {
+                                fileDispatcher.update(bytesWritten, contentLength);
+                            }
+                        }
+                    });
+            Throwable error;
+            boolean retryable;
+            try {
+                String result = execute(mRequestFactory.create(file, body), emitter);
+                return new UploadResult(file, result, null, attempt + 1);
+            } catch (IOException e) {
+                error = e;
+                retryable = true;
+            } catch (HttpException e) {
+                error = e;
+                retryable = UploadManager.isRetryable(e.code());
+            } catch (RuntimeException e) {
+                error = e;
+                retryable = false;
+            }
+            if (emitter.isDisposed()) {
+                return null;
+            }
+            part.rollback();
+            if (!retryable || attempt >= mMaxRetries || !sleep(mRetryDelay << attempt)) {
+                return new UploadResult(file, null, ExceptionHandler.parseException(error), attempt + 1);
+            }
+        }
+    }
+
+    private String execute(Request request, ObservableEmitter<IndexedResult> emitter) throws IOException {
+        final Call call = mClient.newCall(request);
+        emitter.setCancellable(new Cancellable() {
+            @Override
+            public void cancel() throws Exception {
+                call.cancel();
+            }
+        });
+        Response response = call.execute();
+        try {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful()) {
+                throw new HttpException(retrofit2.Response.error(
+                        body != null ? body : ResponseBody.create("", null), response));
+            }
+            return body != null ? body.string() : "";
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * @return 等待过程中被中断时返回 false
+     */
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 为每个文件创建上传请求
+     */
+    public interface RequestFactory {
+        /**
+         * @param file 需要上传的文件
+         * @param body 文件内容的请求体，需要原样放入请求中以统计进度
+         */
+        @NonNull
+        Request create(@NonNull UploadFile file, @NonNull RequestBody body);
+    }
+
+    private static final class IndexedResult {
+        final int index;
+        final UploadResult result;
+
+        IndexedResult(int index, UploadResult result) {
+            this.index = index;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package pers.liyi.bullet.retrofit.upload;
+
+/**
+ * 上传分块
+ */
+public final class UploadChunk {
+    // 分块序号，从 0 开始
+    private final int index;
+    // 分块在文件中的起始位置
+    private final long offset;
+    // 分块的字节数
+    private final long length;
+    // 文件的总字节数
+    private final long totalLength;
+    // 分块内容的 MD5，Base64 编码，可直接用于 Content-MD5 请求头
+    private final String md5;
+
+    UploadChunk(int index, long offset, long length, long totalLength, String md5) {
+        this.index = index;
+        this.offset = offset;
+        this.length = length;
+        this.totalLength = totalLength;
+        this.md5 = md5;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    /**
+     * 是否为最后一个分块
+     */
+    public boolean isLast() {
+        return offset + length >= totalLength;
+    }
+
+    /**
+     * Content-Range 请求头的值，例如 "bytes 0-1023/4096"
+     */
+    public String getContentRange() {
+        if (length == 0) {
+            return "bytes */" + totalLength;
+        }
+        return "bytes " + offset + "-" + (offset + length - 1) + "/" + totalLength;
+    }
+}
@@ -0,0 +1,51 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import java.io.File;
+
+import androidx.annotation.NonNull;
+import okhttp3.MediaType;
+import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+
+/**
+ * 需要上传的文件，替代原来 Object[]{OnProgressListener, tag} 的约定
+ */
+public final class UploadFile {
+    private final File file;
+    private final MediaType mediaType;
+    // 文件的标记，进度和结果中使用，默认为文件路径
+    private String tag;
+    // 单个文件的上传进度监听，进度范围为 0~1
+    private OnProgressListener progressListener;
+
+    public UploadFile(@NonNull File file, MediaType mediaType) {
+        this.file = file;
+        this.mediaType = mediaType;
+        this.tag = file.getPath();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public UploadFile setTag(@NonNull String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    public OnProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public UploadFile setProgressListener(OnProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+}
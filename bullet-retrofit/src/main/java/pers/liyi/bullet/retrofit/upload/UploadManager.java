@@ -0,0 +1,424 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.HashingSink;
+import okio.Okio;
+import pers.liyi.bullet.retrofit.exception.ExceptionHandler;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.request.FileRegionRequestBody;
+import pers.liyi.bullet.retrofit.response.ApiResponse;
+import retrofit2.HttpException;
+
+/**
+ * 支持断点续传的分块上传管理器
+ * <p>
+ * 1. 文件按固定大小切分为分块，每个分块计算 MD5 后通过 {@link FileRegionRequestBody} 发送
+ * 2. 分块失败时只重试该分块，网络异常和暂时性的 HTTP 错误会按指数退避重试
+ * 3. 会话状态保存在会话目录中，上传中断后再次上传同一个 tag 时从最后一个已确认的分块继续
+ * 4. 可以通过 tag 暂停、恢复和取消上传，取消时删除会话状态
+ */
+public class UploadManager {
+    // 默认的分块大小
+    public static final long DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    // 默认的分块最大重试次数
+    public static final int DEFAULT_MAX_CHUNK_RETRIES = 3;
+    // 首次重试的等待时间，之后每次翻倍
+    private static final long RETRY_BASE_DELAY = 500;
+    // 计算 MD5 时每次读取的字节数
+    private static final long HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final OkHttpClient mClient;
+    private final File mSessionDir;
+    private volatile int mMaxChunkRetries = DEFAULT_MAX_CHUNK_RETRIES;
+    // 上传标记 -> 上传任务
+    private final ConcurrentHashMap<String, UploadTask> mTasks = new ConcurrentHashMap<>();
+
+    /**
+     * @param client     上传使用的 OkHttpClient，不应包含会读取完整请求体的拦截器（如日志拦截器）
+     * @param sessionDir 保存会话状态的目录
+     */
+    public UploadManager(@NonNull OkHttpClient client, @NonNull File sessionDir) {
+        this.mClient = client;
+        this.mSessionDir = sessionDir;
+    }
+
+    /**
+     * 设置每个分块的最大重试次数
+     */
+    public UploadManager setMaxChunkRetries(int maxChunkRetries) {
+        this.mMaxChunkRetries = Math.max(0, maxChunkRetries);
+        return this;
+    }
+
+    /**
+     * 开始上传，如果该 tag 存在未完成的会话且文件未发生变化，则从断点处继续
+     *
+     * @param tag              上传标记
+     * @param file             需要上传的文件
+     * @param mediaType        文件类型
+     * @param protocol         分块上传协议
+     * @param progressListener 上传进度监听，进度范围为 0~1
+     * @param listener         上传结果回调，返回最后一个请求的响应体
+     */
+    public void start(@NonNull String tag, @NonNull File file, MediaType mediaType, @NonNull UploadProtocol protocol,
+                      OnProgressListener progressListener, ApiResponseListener<String> listener) {
+        start(tag, file, mediaType, protocol, DEFAULT_CHUNK_SIZE, progressListener, listener);
+    }
+
+    /**
+     * 开始上传，如果该 tag 存在未完成的会话且文件和分块大小均未发生变化，则从断点处继续
+     *
+     * @param chunkSize 分块大小
+     */
+    public void start(@NonNull String tag, @NonNull File file, MediaType mediaType, @NonNull UploadProtocol protocol,
+                      long chunkSize, OnProgressListener progressListener, ApiResponseListener<String> listener) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        UploadTask task = new UploadTask(tag, file, mediaType, protocol, chunkSize, progressListener, listener);
+        UploadTask old = mTasks.put(tag, task);
+        CountDownLatch previous = null;
+        if (old != null) {
+            old.stop();
+            previous = old.worker;
+        }
+        execute(task, previous);
+    }
+
+    /**
+     * 暂停上传，保留会话状态
+     */
+    public void pause(@NonNull String tag) {
+        UploadTask task = mTasks.get(tag);
+        if (task != null) {
+            task.stop();
+        }
+    }
+
+    /**
+     * 恢复已暂停的上传
+     */
+    public void resume(@NonNull String tag) {
+        UploadTask task = mTasks.get(tag);
+        if (task != null && !task.isRunning()) {
+            execute(task, task.worker);
+        }
+    }
+
+    /**
+     * 取消上传，并删除会话状态
+     */
+    public void cancel(@NonNull String tag) {
+        UploadTask task = mTasks.remove(tag);
+        if (task != null) {
+            task.cancelled = true;
+            task.cancel();
+            // 上传线程仍在运行时，由上传线程在退出前删除，避免与写入冲突
+            synchronized (task) {
+                if (!task.isWorking()) {
+                    getSessionFile(tag).delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * 上传是否正在进行
+     */
+    public boolean isRunning(@NonNull String tag) {
+        UploadTask task = mTasks.get(tag);
+        return task != null && task.isRunning();
+    }
+
+    /**
+     * 获取已被服务器确认的字节数
+     */
+    public long getUploadedLength(@NonNull String tag) {
+        UploadSession session = UploadSession.read(getSessionFile(tag));
+        return session != null ? session.getAcknowledgedLength() : 0;
+    }
+
+    /**
+     * @param previous 同一会话上一次上传的线程，新的上传需要等待其退出后才能读写会话状态
+     */
+    private void execute(final UploadTask task, final CountDownLatch previous) {
+        ApiResponse<String> observer = new ApiResponse<>(task.tag, task.listener);
+        task.observer = observer;
+        task.running = true;
+        final CountDownLatch worker = new CountDownLatch(1);
+        task.worker = worker;
+        // 上传线程是否已开始，取消订阅时上传线程可能还未被调度
+        final AtomicBoolean started = new AtomicBoolean();
+        Observable.create(new ObservableOnSubscribe<String>() {
+            @Override
+            public void subscribe(ObservableEmitter<String> emitter) throws Exception {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    if (previous != null) {
+                        try {
+                            previous.await();
+                        } catch (InterruptedException e) {
+                            // 等待期间被暂停或取消
+                            return;
+                        }
+                    }
+                    String result = upload(task, emitter);
+                    if (result != null) {
+                        emitter.onNext(result);
+                        emitter.onComplete();
+                    }
+                } finally {
+                    finished(task, worker);
+                }
+            }
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnComplete(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        mTasks.remove(task.tag, task);
+                    }
+                })
+                .doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        task.running = false;
+                        if (started.compareAndSet(false, true)) {
+                            // 上传线程没有开始，不会再读写会话状态
+                            finished(task, worker);
+                        }
+                    }
+                })
+                .subscribe(observer);
+    }
+
+    /**
+     * 执行上传
+     *
+     * @return 上传结果，上传被暂停或取消时返回 null
+     */
+    private String upload(UploadTask task, ObservableEmitter<String> emitter) throws IOException {
+        if (!task.file.exists()) {
+            throw new IOException("File not found: " + task.file);
+        }
+        File sessionFile = getSessionFile(task.tag);
+        UploadSession session = UploadSession.read(sessionFile);
+        try {
+            if (session == null || !session.matches(task.file, task.chunkSize)) {
+                // 没有可用的会话，重新创建
+                session = new UploadSession(task.file, task.chunkSize);
+                Request request = task.protocol.createSession(session);
+                if (request != null) {
+                    Response response = execute(request, emitter);
+                    try {
+                        checkSuccessful(response);
+                        session.setSessionId(task.protocol.parseSessionId(response));
+                    } finally {
+                        response.close();
+                    }
+                } else {
+                    session.setSessionId(task.tag);
+                }
+                if (!mSessionDir.exists()) {
+                    mSessionDir.mkdirs();
+                }
+                session.write(sessionFile);
+            }
+
+            UploadProgress progress = new UploadProgress(task.progressListener, task.tag, session.getLength());
+            progress.add(session.getAcknowledgedLength());
+            String result = null;
+            for (int i = session.getAcknowledgedChunks(); i < session.getChunkCount(); i++) {
+                UploadChunk chunk = createChunk(task.file, session, i);
+                result = uploadChunk(task, session, chunk, progress, emitter);
+                session.setAcknowledgedChunks(i + 1);
+                session.write(sessionFile);
+            }
+            Request complete = task.protocol.createComplete(session);
+            if (complete != null) {
+                Response response = execute(complete, emitter);
+                try {
+                    checkSuccessful(response);
+                    result = readBody(response);
+                } finally {
+                    response.close();
+                }
+            }
+            sessionFile.delete();
+            return result != null ? result : "";
+        } catch (IOException e) {
+            if (emitter.isDisposed()) {
+                return stopped(task);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 上传一个分块，失败时按指数退避重试
+     *
+     * @return 分块的响应体
+     */
+    private String uploadChunk(UploadTask task, UploadSession session, UploadChunk chunk,
+                               UploadProgress progress, ObservableEmitter<String> emitter) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            final UploadProgress.Part part = progress.newPart();
+            FileRegionRequestBody body = new FileRegionRequestBody(task.file, chunk.getOffset(), chunk.getLength(), task.mediaType)
+                    .setWriteListener(new FileRegionRequestBody.WriteListener() {
+                        @Override
+                        public void onWrite(long bytesWritten, long contentLength) {
+                            part.update(bytesWritten);
+                        }
+                    });
+            Request request = task.protocol.createChunk(session, chunk, body);
+            Response response = null;
+            IOException error = null;
+            try {
+                response = execute(request, emitter);
+                if (task.protocol.isChunkAcknowledged(chunk, response)) {
+                    part.update(chunk.getLength());
+                    return readBody(response);
+                }
+                if (!isRetryable(response.code()) || attempt >= mMaxChunkRetries) {
+                    checkSuccessful(response);
+                    throw new IOException("Chunk " + chunk.getIndex() + " was not acknowledged: " + response.code());
+                }
+            } catch (IOException e) {
+                if (emitter.isDisposed() || attempt >= mMaxChunkRetries) {
+                    throw e;
+                }
+                error = e;
+            } finally {
+                if (response != null) {
+                    response.close();
+                }
+            }
+            part.rollback();
+            sleep(RETRY_BASE_DELAY << attempt, error);
+        }
+    }
+
+    private Response execute(Request request, ObservableEmitter<String> emitter) throws IOException {
+        final Call call = mClient.newCall(request);
+        emitter.setCancellable(new Cancellable() {
+            @Override
+            public void cancel() throws Exception {
+                call.cancel();
+            }
+        });
+        return call.execute();
+    }
+
+    /**
+     * 计算分块的 MD5
+     */
+    private UploadChunk createChunk(File file, UploadSession session, int index) throws IOException {
+        long offset = index * session.getChunkSize();
+        long length = Math.min(session.getChunkSize(), session.getLength() - offset);
+        HashingSink hashingSink = HashingSink.md5(Okio.blackhole());
+        BufferedSource source = Okio.buffer(Okio.source(file));
+        try {
+            source.skip(offset);
+            Buffer buffer = new Buffer();
+            long remaining = length;
+            while (remaining > 0) {
+                long read = source.read(buffer, Math.min(HASH_BUFFER_SIZE, remaining));
+                if (read == -1) {
+                    throw new IOException("Unexpected end of file: " + file);
+                }
+                hashingSink.write(buffer, read);
+                remaining -= read;
+            }
+        } finally {
+            source.close();
+        }
+        ByteString md5 = hashingSink.hash();
+        return new UploadChunk(index, offset, length, session.getLength(), md5.base64());
+    }
+
+    /**
+     * 暂时性的错误可以重试，见 {@link ExceptionHandler#isRetryable(int)}
+     */
+    static boolean isRetryable(int code) {
+        return ExceptionHandler.isRetryable(code);
+    }
+
+    private static void checkSuccessful(Response response) {
+        if (!response.isSuccessful()) {
+            ResponseBody body = response.body();
+            throw new HttpException(retrofit2.Response.error(
+                    body != null ? body : ResponseBody.create("", null), response));
+        }
+    }
+
+    private static String readBody(Response response) throws IOException {
+        ResponseBody body = response.body();
+        return body != null ? body.string() : "";
+    }
+
+    private static void sleep(long millis, IOException cause) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting to retry");
+            if (cause != null) {
+                interrupted.initCause(cause);
+            }
+            throw interrupted;
+        }
+    }
+
+    /**
+     * 上传线程退出，任务已被取消时删除会话状态
+     */
+    private void finished(UploadTask task, CountDownLatch worker) {
+        synchronized (task) {
+            if (task.cancelled) {
+                getSessionFile(task.tag).delete();
+            }
+            worker.countDown();
+        }
+    }
+
+    /**
+     * 上传被暂停或取消，取消时删除会话状态
+     */
+    private String stopped(UploadTask task) {
+        if (task.cancelled) {
+            getSessionFile(task.tag).delete();
+        }
+        return null;
+    }
+
+    private File getSessionFile(String tag) {
+        return new File(mSessionDir, ByteString.encodeUtf8(tag).md5().hex());
+    }
+}
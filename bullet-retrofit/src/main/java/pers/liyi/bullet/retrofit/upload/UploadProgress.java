@@ -0,0 +1,79 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.listener.ProgressDispatcher;
+
+/**
+ * 汇总多个分块或多个文件的上传进度，进度范围为 0~1
+ * <p>
+ * 每个正在发送的分块对应一个 {@link Part}，发送失败重试时回退该分块已计入的字节数
+ */
+final class UploadProgress {
+    private final ProgressDispatcher mDispatcher;
+    private final long mTotal;
+    private final AtomicLong mUploaded = new AtomicLong();
+
+    UploadProgress(OnProgressListener listener, String tag, long total) {
+        this.mDispatcher = listener != null ? new ProgressDispatcher(listener, tag, 1f) : null;
+        this.mTotal = total;
+    }
+
+    /**
+     * 计入已确认上传的字节数，例如断点续传时已上传的分块
+     */
+    void add(long bytes) {
+        dispatch(mUploaded.addAndGet(bytes));
+    }
+
+    Part newPart() {
+        return new Part();
+    }
+
+    long getUploaded() {
+        return mUploaded.get();
+    }
+
+    private void dispatch(long uploaded) {
+        if (mDispatcher != null) {
+            // 多个线程同时上传时，分发器的节流状态需要串行访问
+            synchronized (mDispatcher) {
+                mDispatcher.update(uploaded, mTotal);
+            }
+        }
+    }
+
+    /**
+     * 一个分块的一次发送
+     */
+    final class Part {
+        // 本次发送已计入总进度的字节数
+        private long mWritten;
+
+        /**
+         * 更新本次发送已写入的字节数
+         */
+        void update(long written) {
+            long delta = written - mWritten;
+            mWritten = written;
+            dispatch(mUploaded.addAndGet(delta));
+        }
+
+        /**
+         * 发送失败，回退本次发送计入的字节数
+         */
+        void rollback() {
+            long written = mWritten;
+            mWritten = 0;
+            long uploaded = mUploaded.addAndGet(-written);
+            if (mDispatcher != null) {
+                synchronized (mDispatcher) {
+                    // 立即分发回退后的进度
+                    mDispatcher.reset();
+                    mDispatcher.update(uploaded, mTotal);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * 分块上传协议，由具体的服务器接口实现，默认实现见 {@link ContentRangeUploadProtocol}
+ */
+public interface UploadProtocol {
+
+    /**
+     * 创建上传会话的请求
+     *
+     * @return 不需要创建会话时返回 null
+     */
+    @Nullable
+    Request createSession(@NonNull UploadSession session);
+
+    /**
+     * 从创建会话的响应中解析会话标识
+     */
+    @NonNull
+    String parseSessionId(@NonNull Response response) throws IOException;
+
+    /**
+     * 上传分块的请求
+     *
+     * @param body 分块的请求体
+     */
+    @NonNull
+    Request createChunk(@NonNull UploadSession session, @NonNull UploadChunk chunk, @NonNull RequestBody body);
+
+    /**
+     * 服务器是否已确认收到该分块
+     */
+    boolean isChunkAcknowledged(@NonNull UploadChunk chunk, @NonNull Response response);
+
+    /**
+     * 所有分块上传完成后的请求
+     *
+     * @return 不需要时返回 null，此时最后一个分块的响应即为上传结果
+     */
+    @Nullable
+    Request createComplete(@NonNull UploadSession session);
+}
@@ -0,0 +1,47 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import pers.liyi.bullet.retrofit.exception.ApiError;
+
+/**
+ * 单个文件的上传结果
+ */
+public final class UploadResult {
+    private final UploadFile file;
+    // 上传成功时的响应体
+    private final String body;
+    // 上传失败时的错误信息
+    private final ApiError error;
+    // 发送的次数，包括重试
+    private final int attempts;
+
+    UploadResult(UploadFile file, String body, ApiError error, int attempts) {
+        this.file = file;
+        this.body = body;
+        this.error = error;
+        this.attempts = attempts;
+    }
+
+    public UploadFile getFile() {
+        return file;
+    }
+
+    public String getTag() {
+        return file.getTag();
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public ApiError getError() {
+        return error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
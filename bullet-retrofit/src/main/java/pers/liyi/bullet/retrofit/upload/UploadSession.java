@@ -0,0 +1,136 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * 分块上传的会话状态，以 json 的形式保存，上传中断后从最后一个已确认的分块继续
+ */
+public class UploadSession {
+    private static final Gson sGson = new Gson();
+
+    // 上传的文件路径
+    private String path;
+    // 创建会话时文件的大小和修改时间，用于判断文件是否发生变化
+    private long length;
+    private long lastModified;
+    // 分块大小
+    private long chunkSize;
+    // 服务器返回的会话标识，例如上传地址
+    private String sessionId;
+    // 已被服务器确认的分块数量
+    private int acknowledgedChunks;
+
+    public UploadSession() {
+    }
+
+    UploadSession(File file, long chunkSize) {
+        this.path = file.getAbsolutePath();
+        this.length = file.length();
+        this.lastModified = file.lastModified();
+        this.chunkSize = chunkSize;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public int getAcknowledgedChunks() {
+        return acknowledgedChunks;
+    }
+
+    void setAcknowledgedChunks(int acknowledgedChunks) {
+        this.acknowledgedChunks = acknowledgedChunks;
+    }
+
+    /**
+     * 分块数量，空文件也会作为一个空的分块上传
+     */
+    public int getChunkCount() {
+        return length == 0 ? 1 : (int) ((length + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * 已被服务器确认的字节数
+     */
+    public long getAcknowledgedLength() {
+        return Math.min(length, acknowledgedChunks * chunkSize);
+    }
+
+    /**
+     * 会话是否仍可用于继续上传该文件
+     */
+    boolean matches(File file, long chunkSize) {
+        return file.getAbsolutePath().equals(path)
+                && file.length() == length
+                && file.lastModified() == lastModified
+                && this.chunkSize == chunkSize
+                && sessionId != null;
+    }
+
+    /**
+     * 读取会话状态
+     *
+     * @return 文件不存在或解析失败时返回 null
+     */
+    public static UploadSession read(@NonNull File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        BufferedSource source = null;
+        try {
+            source = Okio.buffer(Okio.source(file));
+            return sGson.fromJson(source.readUtf8(), UploadSession.class);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            closeQuietly(source);
+        }
+    }
+
+    /**
+     * 写入会话状态
+     */
+    public void write(@NonNull File file) throws IOException {
+        BufferedSink sink = null;
+        try {
+            sink = Okio.buffer(Okio.sink(file));
+            sink.writeUtf8(sGson.toJson(this));
+        } finally {
+            closeQuietly(sink);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import okhttp3.MediaType;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+import pers.liyi.bullet.retrofit.listener.OnProgressListener;
+import pers.liyi.bullet.retrofit.response.ApiResponse;
+
+/**
+ * 分块上传任务
+ */
+final class UploadTask {
+    final String tag;
+    final File file;
+    final MediaType mediaType;
+    final UploadProtocol protocol;
+    final long chunkSize;
+    final OnProgressListener progressListener;
+    final ApiResponseListener<String> listener;
+    volatile ApiResponse<String> observer;
+    // 是否正在上传
+    volatile boolean running;
+    // 是否已被取消
+    volatile boolean cancelled;
+    // 最近一次上传的线程，线程结束后计数归零
+    volatile CountDownLatch worker;
+
+    UploadTask(String tag, File file, MediaType mediaType, UploadProtocol protocol, long chunkSize,
+               OnProgressListener progressListener, ApiResponseListener<String> listener) {
+        this.tag = tag;
+        this.file = file;
+        this.mediaType = mediaType;
+        this.protocol = protocol;
+        this.chunkSize = chunkSize;
+        this.progressListener = progressListener;
+        this.listener = listener;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 上传线程是否仍在运行，暂停或取消后线程需要等待请求结束才会退出
+     */
+    boolean isWorking() {
+        CountDownLatch w = worker;
+        return w != null && w.getCount() > 0;
+    }
+
+    /**
+     * 停止上传，不回调取消
+     */
+    void stop() {
+        ApiResponse<String> o = observer;
+        if (o != null && !o.isDisposed()) {
+            o.dispose();
+        }
+    }
+
+    /**
+     * 取消上传，并回调取消
+     */
+    void cancel() {
+        ApiResponse<String> o = observer;
+        if (o != null) {
+            o.cancel();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.http.Body;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityCallAdapterFactoryTest {
+    private MockWebServer mServer;
+    private Api mApi;
+    // 请求体被序列化的次数
+    private final AtomicInteger mConversions = new AtomicInteger();
+
+    interface Api {
+        @POST("echo")
+        Observable<String> echo(@Body String body);
+
+        @Headers("Domain-Name: user")
+        @POST("echo")
+        Observable<String> routed(@Body String body);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mApi = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(new CountingConverterFactory())
+                .addCallAdapterFactory(new PriorityCallAdapterFactory("Domain-Name"))
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build()
+                .create(Api.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void resolvingHostDoesNotBuildTheRequestTwice() {
+        mServer.enqueue(new MockResponse().setBody("a"));
+        mServer.enqueue(new MockResponse().setBody("b"));
+        Observable<String> observable = mApi.echo("body");
+        assertTrue(observable instanceof ApiObservable);
+
+        assertEquals(mServer.getHostName(), ((ApiObservable<?>) observable).resolveHost());
+        assertEquals("a", observable.blockingFirst());
+        assertEquals(1, mConversions.get());
+
+        // 重新订阅时创建新的请求
+        assertEquals("b", observable.blockingFirst());
+        assertEquals(2, mConversions.get());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void routeKeyIsReadFromHeadersAnnotation() {
+        Observable<String> observable = mApi.routed("body");
+
+        assertEquals("user", ((ApiObservable<?>) observable).resolveHost());
+        // 不需要创建请求
+        assertEquals(0, mConversions.get());
+    }
+
+    /**
+     * 记录请求体序列化次数的转换器
+     */
+    private final class CountingConverterFactory extends Converter.Factory {
+
+        @Override
+        public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                              Annotation[] methodAnnotations, Retrofit retrofit) {
+            return new Converter<String, RequestBody>() {
+                @Override
+                public RequestBody convert(String value) {
+                    mConversions.incrementAndGet();
+                    return RequestBody.create(value, null);
+                }
+            };
+        }
+
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+            return new Converter<ResponseBody, String>() {
+                @Override
+                public String convert(ResponseBody value) throws IOException {
+                    return value.string();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package pers.liyi.bullet.retrofit.adapter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class RequestKeyTest {
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final String URL = "http://example.com/items";
+
+    @Test
+    public void sameBodyHasSameKey() {
+        String key = RequestKey.of(post(RequestBody.create("{\"a\":1}", JSON)));
+
+        assertNotNull(key);
+        assertEquals(key, RequestKey.of(post(RequestBody.create("{\"a\":1}", JSON))));
+        assertNotEquals(key, RequestKey.of(post(RequestBody.create("{\"a\":2}", JSON))));
+    }
+
+    @Test
+    public void largeBodyIsNotCoalescable() {
+        assertNull(RequestKey.of(post(RequestBody.create(new byte[64 * 1024 + 1], JSON))));
+    }
+
+    @Test
+    public void bodyOfUnknownLengthIsNotRead() {
+        final AtomicInteger writes = new AtomicInteger();
+        // 流式的请求体，长度未知
+        RequestBody body = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                writes.incrementAndGet();
+                sink.writeUtf8("{}");
+            }
+        };
+
+        assertNull(RequestKey.of(post(body)));
+        assertEquals(0, writes.get());
+    }
+
+    private static Request post(RequestBody body) {
+        return new Request.Builder().url(URL).post(body).build();
+    }
+}
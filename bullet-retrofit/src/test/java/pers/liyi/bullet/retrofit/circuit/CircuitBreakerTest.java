@@ -0,0 +1,151 @@
+package pers.liyi.bullet.retrofit.circuit;
+
+import org.junit.Test;
+
+import io.reactivex.observers.TestObserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    private static final String HOST = "example.com:443";
+    // 打开后立即可以进入半开状态，测试不依赖时钟
+    private static final long NO_WAIT = 0;
+    // 打开后在测试期间一直保持打开
+    private static final long LONG_WAIT = 60 * 1000;
+
+    @Test
+    public void opensWhenFailureRateReachesThreshold() {
+        CircuitBreaker breaker = newRegistry(10, 4, LONG_WAIT, 1).get(HOST);
+
+        breaker.onResult(10, false);
+        breaker.onResult(10, true);
+        breaker.onResult(10, true);
+        // 未达到最小请求数，不计算失败率
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onResult(10, true);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void opensWhenSlowCallRateReachesThreshold() {
+        CircuitBreaker breaker = newRegistry(10, 4, LONG_WAIT, 1).get(HOST);
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(500, false);
+        }
+        assertEquals(100f, breaker.getSlowCallRate(), 0);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void oldResultsLeaveTheWindow() {
+        // 失败率阈值为 100%，只有窗口内全部失败时才会打开
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(4, 4, 100, 100, 1000, LONG_WAIT, 1);
+        CircuitBreaker breaker = registry.get(HOST);
+
+        breaker.onResult(10, true);
+        breaker.onResult(10, true);
+        breaker.onResult(10, false);
+        breaker.onResult(10, false);
+        assertEquals(50f, breaker.getFailureRate(), 0);
+
+        breaker.onResult(10, false);
+        breaker.onResult(10, false);
+        assertEquals(0f, breaker.getFailureRate(), 0);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenClosesAfterProbesSucceed() {
+        CircuitBreakerRegistry registry = newRegistry(4, 2, NO_WAIT, 2);
+        TestObserver<CircuitStateChange> changes = registry.observe().test();
+        CircuitBreaker breaker = registry.get(HOST);
+        open(breaker);
+
+        // 只放行两个探测请求
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onResult(10, false);
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        breaker.onResult(10, false);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        // 关闭后重新开始统计
+        assertEquals(0f, breaker.getFailureRate(), 0);
+
+        changes.assertValueCount(3);
+        assertTransition(changes.values().get(0), CircuitState.CLOSED, CircuitState.OPEN);
+        assertTransition(changes.values().get(1), CircuitState.OPEN, CircuitState.HALF_OPEN);
+        assertTransition(changes.values().get(2), CircuitState.HALF_OPEN, CircuitState.CLOSED);
+    }
+
+    @Test
+    public void halfOpenFailureReopens() {
+        CircuitBreaker breaker = newRegistry(4, 2, NO_WAIT, 2).get(HOST);
+        open(breaker);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(10, true);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void slowProbeReopens() {
+        CircuitBreaker breaker = newRegistry(4, 2, NO_WAIT, 2).get(HOST);
+        open(breaker);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(500, false);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void ignoredProbeReturnsPermit() {
+        CircuitBreaker breaker = newRegistry(4, 2, NO_WAIT, 1).get(HOST);
+        open(breaker);
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        // 被取消的探测请求归还名额
+        breaker.onIgnored();
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void registryKeepsOneBreakerPerHost() {
+        CircuitBreakerRegistry registry = newRegistry(4, 2, LONG_WAIT, 1);
+        open(registry.get(HOST));
+
+        assertEquals(CircuitState.OPEN, registry.getState(HOST));
+        assertEquals(CircuitState.CLOSED, registry.getState("other.com:443"));
+        registry.reset();
+        assertEquals(CircuitState.CLOSED, registry.getState(HOST));
+    }
+
+    /**
+     * 失败率和慢请求比例的阈值均为 50%，耗时 100ms 以上为慢请求
+     */
+    private static CircuitBreakerRegistry newRegistry(int windowSize, int minimumCalls,
+                                                      long openDurationMillis, int halfOpenCalls) {
+        return new CircuitBreakerRegistry(windowSize, minimumCalls, 50, 50, 100, openDurationMillis, halfOpenCalls);
+    }
+
+    private static void open(CircuitBreaker breaker) {
+        while (breaker.getState() != CircuitState.OPEN) {
+            breaker.onResult(10, true);
+        }
+    }
+
+    private static void assertTransition(CircuitStateChange change, int from, int to) {
+        assertEquals(HOST, change.getHost());
+        assertEquals(from, change.getFromState());
+        assertEquals(to, change.getToState());
+    }
+}
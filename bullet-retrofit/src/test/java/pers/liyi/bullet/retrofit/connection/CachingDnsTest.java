@@ -0,0 +1,185 @@
+package pers.liyi.bullet.retrofit.connection;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.annotation.NonNull;
+import okhttp3.Dns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 有效期只使用 0 或很长的时间，测试不依赖时钟的推进
+ */
+public class CachingDnsTest {
+    private static final String HOST = "example.com";
+    private static final long LONG = 60 * 60 * 1000;
+
+    @Test
+    public void freshEntryIsServedFromCache() throws Exception {
+        FakeDns delegate = new FakeDns();
+        CachingDns dns = new CachingDns(delegate, LONG, 0);
+
+        assertEquals(delegate.address(1), dns.lookup(HOST).get(0));
+        assertEquals(delegate.address(1), dns.lookup(HOST).get(0));
+        assertEquals(1, delegate.calls.get());
+
+        dns.evict(HOST);
+        assertEquals(delegate.address(2), dns.lookup(HOST).get(0));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void expiredEntryIsResolvedAgain() throws Exception {
+        FakeDns delegate = new FakeDns();
+        // 没有有效期，每次都重新查询
+        CachingDns dns = new CachingDns(delegate, 0, 0);
+
+        assertEquals(delegate.address(1), dns.lookup(HOST).get(0));
+        assertEquals(delegate.address(2), dns.lookup(HOST).get(0));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void staleEntryIsServedWhileRefreshingInBackground() throws Exception {
+        FakeDns delegate = new FakeDns();
+        CachingDns dns = new CachingDns(delegate, 0, LONG);
+        assertEquals(delegate.address(1), dns.lookup(HOST).get(0));
+
+        delegate.blocked = new CountDownLatch(1);
+        // 旧的结果立即返回，不等待后台刷新
+        assertEquals(delegate.address(1), dns.lookup(HOST).get(0));
+        delegate.blocked.countDown();
+        assertTrue(delegate.awaitCalls(2));
+        awaitAddress(dns, delegate.address(2));
+    }
+
+    @Test
+    public void failedLookupFallsBackToOldEntry() throws Exception {
+        FakeDns delegate = new FakeDns();
+        CachingDns dns = new CachingDns(delegate, 0, 0);
+        InetAddress address = dns.lookup(HOST).get(0);
+
+        delegate.failure.set(new UnknownHostException(HOST));
+        assertEquals(address, dns.lookup(HOST).get(0));
+    }
+
+    @Test
+    public void failedLookupWithoutCacheThrows() {
+        FakeDns delegate = new FakeDns();
+        delegate.failure.set(new UnknownHostException(HOST));
+        CachingDns dns = new CachingDns(delegate, LONG, LONG);
+
+        try {
+            dns.lookup(HOST);
+            fail();
+        } catch (UnknownHostException expected) {
+        }
+    }
+
+    @Test
+    public void concurrentLookupsShareOneQuery() throws Exception {
+        final FakeDns delegate = new FakeDns();
+        delegate.blocked = new CountDownLatch(1);
+        final CachingDns dns = new CachingDns(delegate, LONG, 0);
+        final CountDownLatch done = new CountDownLatch(4);
+        final AtomicInteger succeeded = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (dns.lookup(HOST).get(0).equals(delegate.address(1))) {
+                            succeeded.incrementAndGet();
+                        }
+                    } catch (UnknownHostException ignored) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        assertTrue(delegate.awaitCalls(1));
+        Thread.sleep(100);
+        delegate.blocked.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(4, succeeded.get());
+        assertEquals(1, delegate.calls.get());
+    }
+
+    @Test
+    public void prefetchSkipsFreshEntries() throws Exception {
+        FakeDns delegate = new FakeDns();
+        CachingDns dns = new CachingDns(delegate, LONG, 0);
+        dns.prefetch(HOST);
+        assertTrue(delegate.awaitCalls(1));
+        awaitAddress(dns, delegate.address(1));
+
+        dns.prefetch(HOST);
+        Thread.sleep(100);
+        assertEquals(1, delegate.calls.get());
+    }
+
+    private static void awaitAddress(CachingDns dns, InetAddress expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!dns.lookup(HOST).get(0).equals(expected)) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 每次查询返回不同地址的 DNS，第 n 次查询返回 10.0.0.n
+     */
+    private static final class FakeDns implements Dns {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicReference<UnknownHostException> failure = new AtomicReference<>();
+        // 不为 null 时查询阻塞到计数归零
+        volatile CountDownLatch blocked;
+
+        @NonNull
+        @Override
+        public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+            int call = calls.incrementAndGet();
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new UnknownHostException(hostname);
+                }
+            }
+            UnknownHostException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+            return Collections.singletonList(address(call));
+        }
+
+        InetAddress address(int call) throws UnknownHostException {
+            return InetAddress.getByAddress(HOST, new byte[]{10, 0, 0, (byte) call});
+        }
+
+        boolean awaitCalls(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (calls.get() < count) {
+                if (System.currentTimeMillis() > deadline) {
+                    return false;
+                }
+                Thread.sleep(10);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pers.liyi.bullet.retrofit.connectivity;
+
+import org.junit.Test;
+
+import io.reactivex.observers.TestObserver;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectivityMonitorTest {
+
+    @Test
+    public void readsInitialStateFromSource() {
+        assertTrue(new ConnectivityMonitor(new FakeConnectivitySource(true)).isConnected());
+        assertFalse(new ConnectivityMonitor(new FakeConnectivitySource(false)).isConnected());
+    }
+
+    @Test
+    public void updatesStateFromCallbacks() {
+        FakeConnectivitySource source = new FakeConnectivitySource(true);
+        ConnectivityMonitor monitor = new ConnectivityMonitor(source);
+
+        source.setConnected(false);
+        assertFalse(monitor.isConnected());
+        source.setConnected(true);
+        assertTrue(monitor.isConnected());
+    }
+
+    @Test
+    public void observeEmitsCurrentStateThenTransitions() {
+        FakeConnectivitySource source = new FakeConnectivitySource(true);
+        ConnectivityMonitor monitor = new ConnectivityMonitor(source);
+        TestObserver<Boolean> observer = monitor.observe().test();
+
+        source.setConnected(false);
+        source.setConnected(true);
+
+        observer.assertValues(true, false, true);
+    }
+
+    @Test
+    public void repeatedCallbacksForSameStateAreCollapsed() {
+        FakeConnectivitySource source = new FakeConnectivitySource(false);
+        ConnectivityMonitor monitor = new ConnectivityMonitor(source);
+        TestObserver<Boolean> observer = monitor.observe().test();
+
+        // 多个网络依次可用时，系统会多次回调 onAvailable
+        source.setConnected(true);
+        source.setConnected(true);
+        source.setConnected(true);
+        source.setConnected(false);
+        source.setConnected(false);
+
+        observer.assertValues(false, true, false);
+    }
+
+    @Test
+    public void observeOnlineEmitsOnlyWhenComingBackOnline() {
+        FakeConnectivitySource source = new FakeConnectivitySource(true);
+        ConnectivityMonitor monitor = new ConnectivityMonitor(source);
+        TestObserver<Boolean> observer = monitor.observeOnline().test();
+
+        // 订阅时的当前状态不算恢复
+        observer.assertNoValues();
+        source.setConnected(true);
+        observer.assertNoValues();
+
+        source.setConnected(false);
+        observer.assertNoValues();
+        source.setConnected(true);
+        source.setConnected(true);
+        observer.assertValues(true);
+
+        source.setConnected(false);
+        source.setConnected(true);
+        observer.assertValues(true, true);
+    }
+
+    @Test
+    public void releaseStopsSource() {
+        FakeConnectivitySource source = new FakeConnectivitySource(true);
+        ConnectivityMonitor monitor = new ConnectivityMonitor(source);
+
+        monitor.release();
+
+        assertTrue(source.isStopped());
+    }
+}
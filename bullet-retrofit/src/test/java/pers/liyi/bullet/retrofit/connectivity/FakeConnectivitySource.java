@@ -0,0 +1,46 @@
+package pers.liyi.bullet.retrofit.connectivity;
+
+/**
+ * 测试用的网络连接状态来源，通过 {@link #setConnected(boolean)} 模拟系统回调
+ */
+public class FakeConnectivitySource implements ConnectivitySource {
+    private volatile boolean mConnected;
+    private volatile Callback mCallback;
+    private volatile boolean mStopped;
+
+    public FakeConnectivitySource(boolean connected) {
+        this.mConnected = connected;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return mConnected;
+    }
+
+    @Override
+    public void start(Callback callback) {
+        this.mCallback = callback;
+        this.mStopped = false;
+    }
+
+    @Override
+    public void stop() {
+        this.mCallback = null;
+        this.mStopped = true;
+    }
+
+    /**
+     * 模拟系统的网络状态回调，与 NetworkCallback 一样，同一状态可能重复回调
+     */
+    public void setConnected(boolean connected) {
+        mConnected = connected;
+        Callback callback = mCallback;
+        if (callback != null) {
+            callback.onConnectivityChanged(connected);
+        }
+    }
+
+    public boolean isStopped() {
+        return mStopped;
+    }
+}
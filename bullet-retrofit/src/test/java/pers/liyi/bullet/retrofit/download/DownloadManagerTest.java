@@ -0,0 +1,170 @@
+package pers.liyi.bullet.retrofit.download;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
+import pers.liyi.bullet.retrofit.exception.ApiError;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DownloadManagerTest {
+    private static final int SIZE = 2 * 1024 * 1024;
+    private static final ByteString DATA;
+
+    static {
+        byte[] bytes = new byte[SIZE];
+        new Random(2).nextBytes(bytes);
+        DATA = ByteString.of(bytes);
+    }
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private DownloadManager mManager;
+    private File mFile;
+    // 限速，保证暂停时仍在下载中
+    private volatile boolean mThrottle;
+    private final List<Throwable> mUndeliverable = new CopyOnWriteArrayList<>();
+
+    @BeforeClass
+    public static void setUpClass() {
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(new Function<Callable<Scheduler>, Scheduler>() {
+            @Override
+            public Scheduler apply(Callable<Scheduler> scheduler) {
+                return Schedulers.trampoline();
+            }
+        });
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        RxJavaPlugins.setErrorHandler(new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable) {
+                mUndeliverable.add(throwable);
+            }
+        });
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request.getHeader("Range"));
+            }
+        });
+        mServer.start();
+        mManager = new DownloadManager(new OkHttpClient());
+        mFile = new File(mTemporaryFolder.getRoot(), "file.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RxJavaPlugins.setErrorHandler(null);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void pauseAndResumeImmediatelyKeepsFileIntact() throws Exception {
+        mThrottle = true;
+        final AtomicReference<ApiError> error = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        ApiResponseListener<File> listener = new ApiResponseListener<File>() {
+            @Override
+            public void onError(String tag, ApiError e) {
+                error.set(e);
+                latch.countDown();
+            }
+
+            @Override
+            public void onComplete(String tag) {
+                latch.countDown();
+            }
+        };
+        mManager.start("file", mServer.url("/file").toString(), mFile, null, listener);
+        // 暂停后立即恢复，旧的下载线程可能仍在写入临时文件
+        for (int i = 0; i < 5; i++) {
+            awaitDownloaded(mManager.getDownloadedLength(mFile) + 1);
+            mManager.pause("file");
+            mManager.resume("file");
+        }
+        mThrottle = false;
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertEquals(DATA, Okio.buffer(Okio.source(mFile)).readByteString());
+        assertEquals(mUndeliverable.toString(), 0, mUndeliverable.size());
+    }
+
+    @Test
+    public void cancelAfterPauseDeletesTempFiles() throws Exception {
+        mThrottle = true;
+        mManager.start("file", mServer.url("/file").toString(), mFile, null, null);
+        awaitDownloaded(1);
+        mManager.pause("file");
+        mManager.cancel("file");
+
+        File temp = new File(mFile.getPath() + DownloadManager.SUFFIX_TEMP);
+        File meta = new File(mFile.getPath() + DownloadManager.SUFFIX_META);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (temp.exists() || meta.exists()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+        assertFalse(mManager.isRunning("file"));
+    }
+
+    private void awaitDownloaded(long length) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mManager.getDownloadedLength(mFile) < length) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private MockResponse respond(String range) {
+        int start = 0;
+        MockResponse response = new MockResponse().setHeader("ETag", "\"v1\"");
+        if (range != null) {
+            // 格式为 bytes=start-
+            start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            response.setResponseCode(206)
+                    .setHeader("Content-Range", "bytes " + start + "-" + (SIZE - 1) + "/" + SIZE);
+        }
+        response.setBody(new Buffer().write(DATA.substring(start, SIZE)));
+        if (mThrottle) {
+            response.throttleBody(16 * 1024, 20, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,220 @@
+package pers.liyi.bullet.retrofit.download;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
+import pers.liyi.bullet.retrofit.exception.ApiError;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedDownloaderTest {
+    // 4 段，每段 1MB
+    private static final int SIZE = 4 * 1024 * 1024;
+    private static final int SEGMENT_SIZE = SIZE / 4;
+    private static final ByteString DATA;
+
+    static {
+        byte[] bytes = new byte[SIZE];
+        new Random(1).nextBytes(bytes);
+        DATA = ByteString.of(bytes);
+    }
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private DownloadManager mManager;
+    private File mFile;
+    // 第二段第一次请求时返回 500
+    private final AtomicBoolean mFailSecondSegment = new AtomicBoolean();
+    // 限速，保证其他段在失败时仍在下载中
+    private volatile boolean mThrottle;
+    // 下载结束后仍在运行的段抛出的异常，例如写入已关闭的文件
+    private final List<Throwable> mUndeliverable = new CopyOnWriteArrayList<>();
+
+    @BeforeClass
+    public static void setUpClass() {
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(new Function<Callable<Scheduler>, Scheduler>() {
+            @Override
+            public Scheduler apply(Callable<Scheduler> scheduler) {
+                return Schedulers.trampoline();
+            }
+        });
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        RxJavaPlugins.setErrorHandler(new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable) {
+                mUndeliverable.add(throwable);
+            }
+        });
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request.getHeader("Range"));
+            }
+        });
+        mServer.start();
+        mManager = new DownloadManager(new OkHttpClient());
+        mFile = new File(mTemporaryFolder.getRoot(), "file.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RxJavaPlugins.setErrorHandler(null);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void downloadsAllSegmentsIntoOneFile() throws Exception {
+        assertNull(download().get());
+
+        assertEquals(DATA, Okio.buffer(Okio.source(mFile)).readByteString());
+        // 探测请求 + 4 段
+        assertEquals(5, mServer.getRequestCount());
+        assertFalse(new File(mFile.getPath() + DownloadManager.SUFFIX_TEMP).exists());
+        assertFalse(new File(mFile.getPath() + DownloadManager.SUFFIX_META).exists());
+    }
+
+    @Test
+    public void failedSegmentCancelsOthersAndResumesCleanly() throws Exception {
+        mFailSecondSegment.set(true);
+        mThrottle = true;
+
+        long start = System.nanoTime();
+        ApiError error = download().get();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertNotNull(error);
+        // 失败的是第二段的请求，而不是被关闭的文件
+        assertTrue(String.valueOf(error.getMessage()), error.getMessage().contains("500"));
+        // 限速下完整下载需要十几秒，其他段应当被立即取消
+        assertTrue("elapsed " + elapsed, elapsed < 5000);
+        assertFalse(mFile.exists());
+        // 所有段都在回调失败之前结束，之后不会再有段写入已关闭的文件
+        Thread.sleep(500);
+        assertEquals(mUndeliverable.toString(), 0, mUndeliverable.size());
+
+        mThrottle = false;
+        assertNull(download().get());
+        assertEquals(DATA, Okio.buffer(Okio.source(mFile)).readByteString());
+    }
+
+    @Test
+    public void cancelDuringDownloadDeletesTempFiles() throws Exception {
+        mThrottle = true;
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        mManager.start("file", mServer.url("/file").toString(), mFile, 4, null, new ApiResponseListener<File>() {
+            @Override
+            public void onCancel(String tag) {
+                cancelled.countDown();
+            }
+        });
+        File temp = new File(mFile.getPath() + DownloadManager.SUFFIX_TEMP);
+        File meta = new File(mFile.getPath() + DownloadManager.SUFFIX_META);
+        // 等待各段开始写入
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mManager.getDownloadedLength(mFile) == 0 || !meta.exists()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+
+        mManager.cancel("file");
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+
+        // 下载线程在所有段结束后删除临时文件和断点
+        deadline = System.currentTimeMillis() + 5000;
+        while (temp.exists() || meta.exists()) {
+            assertTrue("temp " + temp.exists() + ", meta " + meta.exists(), System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+        Thread.sleep(500);
+        assertFalse(temp.exists());
+        assertFalse(meta.exists());
+        assertFalse(mFile.exists());
+        assertEquals(mUndeliverable.toString(), 0, mUndeliverable.size());
+    }
+
+    private MockResponse respond(String range) {
+        if (range == null) {
+            return new MockResponse().setBody(new Buffer().write(DATA));
+        }
+        // 格式为 bytes=start-end
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(bounds[0]);
+        int end = bounds.length > 1 ? Integer.parseInt(bounds[1]) : SIZE - 1;
+        if (start == SEGMENT_SIZE && mFailSecondSegment.compareAndSet(true, false)) {
+            return new MockResponse().setResponseCode(500);
+        }
+        MockResponse response = new MockResponse()
+                .setResponseCode(206)
+                .setHeader("ETag", "\"v1\"")
+                .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + SIZE)
+                .setBody(new Buffer().write(DATA.substring(start, end + 1)));
+        if (mThrottle && end - start > 0) {
+            response.throttleBody(64 * 1024, 250, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    /**
+     * 下载并等待结束
+     *
+     * @return 下载失败时的错误
+     */
+    private AtomicReference<ApiError> download() throws InterruptedException {
+        final AtomicReference<ApiError> error = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        mManager.start("file", mServer.url("/file").toString(), mFile, 4, null, new ApiResponseListener<File>() {
+            @Override
+            public void onError(String tag, ApiError e) {
+                error.set(e);
+                latch.countDown();
+            }
+
+            @Override
+            public void onComplete(String tag) {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        return error;
+    }
+}
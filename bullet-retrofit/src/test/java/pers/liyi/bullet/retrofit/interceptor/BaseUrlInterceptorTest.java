@@ -0,0 +1,116 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import pers.liyi.bullet.retrofit.route.HostGroup;
+import pers.liyi.bullet.retrofit.route.HostRoutingTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class BaseUrlInterceptorTest {
+    private static final String HOST_KEY = "Domain-Name";
+
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void failsOverToNextHostAndRemembersDownHost() throws Exception {
+        String down = unreachableUrl();
+        HostRoutingTable table = new HostRoutingTable.Builder()
+                .failover("pay", down, mServer.url("/").toString())
+                .build();
+        OkHttpClient client = newClient(table);
+        mServer.enqueue(new MockResponse().setBody("first"));
+        mServer.enqueue(new MockResponse().setBody("second"));
+
+        assertEquals("first", execute(client, "pay"));
+        RecordedRequest recorded = mServer.takeRequest();
+        assertEquals("/pay/data", recorded.getPath());
+        // 路由请求头不会发送到服务器
+        assertNull(recorded.getHeader(HOST_KEY));
+
+        // 不可用的域名在标记期间被跳过
+        HostGroup group = table.get("pay");
+        assertEquals(mServer.url("/"), group.select());
+        assertEquals("second", execute(client, "pay"));
+    }
+
+    @Test(timeout = 10000)
+    public void allHostsDownFailsAfterTryingEachOnce() throws IOException {
+        // 不可用标记立即过期，每个域名也只尝试一次
+        HostRoutingTable table = new HostRoutingTable.Builder()
+                .setDownDuration(0)
+                .failover("pay", unreachableUrl(), unreachableUrl(), unreachableUrl())
+                .build();
+        OkHttpClient client = newClient(table);
+
+        try {
+            execute(client, "pay");
+            fail();
+        } catch (ConnectException expected) {
+        }
+    }
+
+    @Test
+    public void unknownKeyKeepsOriginalUrl() throws Exception {
+        OkHttpClient client = newClient(new HostRoutingTable.Builder().build());
+        mServer.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals("ok", execute(client, "unknown"));
+        RecordedRequest recorded = mServer.takeRequest();
+        assertEquals("/pay/data", recorded.getPath());
+        assertNull(recorded.getHeader(HOST_KEY));
+    }
+
+    private OkHttpClient newClient(HostRoutingTable table) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new BaseUrlInterceptor(HOST_KEY, table))
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    private String execute(OkHttpClient client, String key) throws IOException {
+        HttpUrl url = mServer.url("/pay/data");
+        Response response = client.newCall(new Request.Builder().url(url).header(HOST_KEY, key).build()).execute();
+        try {
+            return response.body().string();
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * 启动后立即关闭的服务器地址，连接时会被拒绝
+     */
+    private static String unreachableUrl() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        String url = server.url("/").toString();
+        server.shutdown();
+        return url;
+    }
+}
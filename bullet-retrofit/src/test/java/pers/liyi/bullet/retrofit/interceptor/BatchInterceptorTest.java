@@ -0,0 +1,177 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import pers.liyi.bullet.retrofit.annotation.Batchable;
+import pers.liyi.bullet.retrofit.batch.BatchCodec;
+import retrofit2.Invocation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchInterceptorTest {
+    private static final MediaType TEXT = MediaType.get("text/plain");
+
+    private MockWebServer mServer;
+    private OkHttpClient mClient;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        // 批量响应的内容为请求路径按行拼接
+        mServer.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setBody(request.getBody().readUtf8())
+                        .setBodyDelay(500, TimeUnit.MILLISECONDS);
+            }
+        });
+        mServer.start();
+        mClient = new OkHttpClient.Builder()
+                .addInterceptor(new BatchInterceptor(new LineBatchCodec(mServer.url("/batch").toString()), 200, 10))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void requestsInWindowAreMerged() throws Exception {
+        Caller a = start("/a");
+        Caller b = start("/b");
+        Caller c = start("/c");
+
+        assertEquals("/a", a.await());
+        assertEquals("/b", b.await());
+        assertEquals("/c", c.await());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void cancelledLeaderDoesNotFailFollowers() throws Exception {
+        Caller leader = start("/a");
+        Thread.sleep(50);
+        Caller b = start("/b");
+        Caller c = start("/c");
+        // 等待批量请求发出后取消发起者
+        Thread.sleep(400);
+        leader.call.cancel();
+
+        assertEquals("/b", b.await());
+        assertEquals("/c", c.await());
+        leader.await();
+        assertNotNull(leader.error);
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    private Caller start(String path) throws NoSuchMethodException {
+        Request request = new Request.Builder()
+                .url(mServer.url(path))
+                .tag(Invocation.class, Invocation.of(Api.class.getMethod("get"), Collections.emptyList()))
+                .build();
+        Caller caller = new Caller(mClient.newCall(request));
+        caller.start();
+        return caller;
+    }
+
+    interface Api {
+        @Batchable
+        Object get();
+    }
+
+    private static final class Caller extends Thread {
+        final Call call;
+        volatile String body;
+        volatile IOException error;
+
+        Caller(Call call) {
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Response response = call.execute();
+                try {
+                    body = response.body().string();
+                } finally {
+                    response.close();
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        String await() throws InterruptedException {
+            join(5000);
+            assertTrue(!isAlive());
+            if (body != null) {
+                assertNull(error);
+            }
+            return body;
+        }
+    }
+
+    /**
+     * 将请求路径按行拼接为批量请求，响应按行拆分
+     */
+    private static final class LineBatchCodec implements BatchCodec {
+        private final String mUrl;
+
+        LineBatchCodec(String url) {
+            this.mUrl = url;
+        }
+
+        @NonNull
+        @Override
+        public Request encode(@NonNull List<Request> requests) {
+            StringBuilder builder = new StringBuilder();
+            for (Request request : requests) {
+                builder.append(request.url().encodedPath()).append('\n');
+            }
+            return new Request.Builder().url(mUrl).post(RequestBody.create(builder.toString(), TEXT)).build();
+        }
+
+        @NonNull
+        @Override
+        public List<Response> decode(@NonNull Response response, @NonNull List<Request> requests) throws IOException {
+            String[] lines = response.body().string().split("\n");
+            List<Response> responses = new ArrayList<>();
+            for (int i = 0; i < lines.length; i++) {
+                responses.add(new Response.Builder()
+                        .request(requests.get(i))
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(lines[i], TEXT))
+                        .build());
+            }
+            return responses;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import okhttp3.Cache;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
+import pers.liyi.bullet.retrofit.connectivity.FakeConnectivitySource;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachePolicyInterceptorTest {
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private FakeConnectivitySource mSource;
+    private OkHttpClient mClient;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mSource = new FakeConnectivitySource(true);
+        mClient = new OkHttpClient.Builder()
+                .addInterceptor(new CachePolicyInterceptor(new ConnectivityMonitor(mSource)))
+                .addNetworkInterceptor(new OfflineCacheControlInterceptor())
+                .cache(new Cache(mTemporaryFolder.newFolder(), 1024 * 1024))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void onlineRequestsGoToNetwork() throws IOException {
+        mServer.enqueue(new MockResponse().setBody("first"));
+        mServer.enqueue(new MockResponse().setBody("second"));
+
+        assertEquals("first", get("/data"));
+        assertEquals("second", get("/data"));
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void offlineRequestsAreServedFromCache() throws IOException {
+        mServer.enqueue(new MockResponse().setBody("cached"));
+        assertEquals("cached", get("/data"));
+
+        mSource.setConnected(false);
+
+        assertEquals("cached", get("/data"));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void offlineWithoutCacheReturnsGatewayTimeout() throws IOException {
+        mSource.setConnected(false);
+
+        Response response = mClient.newCall(new Request.Builder().url(mServer.url("/missing")).build()).execute();
+        try {
+            assertEquals(504, response.code());
+        } finally {
+            response.close();
+        }
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void backOnlineRequestsGoToNetworkAgain() throws IOException {
+        mServer.enqueue(new MockResponse().setBody("first"));
+        mServer.enqueue(new MockResponse().setBody("fresh"));
+        get("/data");
+
+        mSource.setConnected(false);
+        get("/data");
+        mSource.setConnected(true);
+
+        assertEquals("fresh", get("/data"));
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void offlinePostIsNotForcedToCache() throws IOException {
+        mServer.enqueue(new MockResponse().setBody("created"));
+        mSource.setConnected(false);
+
+        Response response = mClient.newCall(new Request.Builder()
+                .url(mServer.url("/items"))
+                .post(RequestBody.create("{}", MediaType.get("application/json")))
+                .build()).execute();
+        try {
+            // 修改类请求不会被缓存，强制读取缓存只会得到 504
+            assertEquals(200, response.code());
+            assertEquals("created", response.body().string());
+        } finally {
+            response.close();
+        }
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void legacyOfflineInterceptorStillForcesCache() throws IOException {
+        // 旧版本的用法，只添加带网络状态判断的 OfflineCacheControlInterceptor
+        OfflineCacheControlInterceptor interceptor = new OfflineCacheControlInterceptor(new ConnectivityMonitor(mSource));
+        mClient = new OkHttpClient.Builder()
+                .addInterceptor(interceptor)
+                .addNetworkInterceptor(interceptor)
+                .cache(new Cache(mTemporaryFolder.newFolder(), 1024 * 1024))
+                .build();
+        mServer.enqueue(new MockResponse().setBody("cached"));
+        assertEquals("cached", get("/data"));
+
+        mSource.setConnected(false);
+
+        assertEquals("cached", get("/data"));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    private String get(String path) throws IOException {
+        Response response = mClient.newCall(new Request.Builder().url(mServer.url(path)).build()).execute();
+        try {
+            return response.body().string();
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+import pers.liyi.bullet.retrofit.compression.CompressionStats;
+import pers.liyi.bullet.retrofit.compression.ContentDecoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionInterceptorTest {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String TEXT = repeat("{\"name\":\"bullet\"}", 100);
+
+    private MockWebServer mServer;
+    private final CompressionStats mStats = new CompressionStats();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void decodesGzipResponseAndStripsEncodingHeaders() throws Exception {
+        Buffer gzipped = gzip(TEXT);
+        long encodedSize = gzipped.size();
+        mServer.enqueue(new MockResponse().setHeader("Content-Encoding", "gzip").setBody(gzipped));
+        OkHttpClient client = newClient(null, 0);
+
+        Response response = client.newCall(new Request.Builder().url(mServer.url("/")).build()).execute();
+        try {
+            assertNull(response.header("Content-Encoding"));
+            assertNull(response.header("Content-Length"));
+            assertEquals(TEXT, response.body().string());
+        } finally {
+            response.close();
+        }
+        assertEquals("gzip", mServer.takeRequest().getHeader("Accept-Encoding"));
+        assertEquals(1, mStats.getResponseCount());
+        assertEquals(encodedSize, mStats.getResponseEncodedBytes());
+        assertEquals(TEXT.length(), mStats.getResponseDecodedBytes());
+    }
+
+    @Test
+    public void customDecoderIsNegotiatedFirst() throws Exception {
+        FakeDecoder decoder = new FakeDecoder();
+        mServer.enqueue(new MockResponse().setHeader("Content-Encoding", "BR").setBody(TEXT));
+        OkHttpClient client = newClient(Collections.<ContentDecoder>singletonList(decoder), 0);
+
+        Response response = client.newCall(new Request.Builder().url(mServer.url("/")).build()).execute();
+        try {
+            assertNull(response.header("Content-Encoding"));
+            assertEquals(TEXT, response.body().string());
+        } finally {
+            response.close();
+        }
+        assertTrue(decoder.used.get());
+        assertEquals("br, gzip", mServer.takeRequest().getHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void manualAcceptEncodingIsLeftAlone() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("Content-Encoding", "gzip").setBody(gzip(TEXT)));
+        OkHttpClient client = newClient(null, 0);
+
+        Response response = client.newCall(new Request.Builder()
+                .url(mServer.url("/"))
+                .header("Accept-Encoding", "gzip")
+                .build()).execute();
+        try {
+            // 业务代码自行处理编码，响应体保持原样
+            assertEquals("gzip", response.header("Content-Encoding"));
+            assertEquals(TEXT, gunzip(response.body().source()));
+        } finally {
+            response.close();
+        }
+        assertEquals(0, mStats.getResponseCount());
+    }
+
+    @Test
+    public void bodilessResponseKeepsWorking() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(204).setHeader("Content-Encoding", "gzip"));
+        OkHttpClient client = newClient(null, 0);
+
+        Response response = client.newCall(new Request.Builder().url(mServer.url("/")).build()).execute();
+        try {
+            assertEquals(204, response.code());
+            assertNull(response.header("Content-Encoding"));
+            assertEquals("", response.body().string());
+        } finally {
+            response.close();
+        }
+    }
+
+    @Test
+    public void largeTextRequestIsCompressed() throws Exception {
+        mServer.enqueue(new MockResponse());
+        OkHttpClient client = newClient(null, 100);
+
+        client.newCall(new Request.Builder()
+                .url(mServer.url("/"))
+                .post(RequestBody.create(TEXT, JSON))
+                .build()).execute().close();
+
+        RecordedRequest recorded = mServer.takeRequest();
+        assertEquals("gzip", recorded.getHeader("Content-Encoding"));
+        assertEquals(String.valueOf(recorded.getBodySize()), recorded.getHeader("Content-Length"));
+        assertEquals(TEXT, gunzip(recorded.getBody()));
+        assertEquals(1, mStats.getRequestCount());
+        assertEquals(TEXT.length(), mStats.getRequestRawBytes());
+    }
+
+    @Test
+    public void smallOrBinaryRequestIsSentAsIs() throws Exception {
+        mServer.enqueue(new MockResponse());
+        mServer.enqueue(new MockResponse());
+        OkHttpClient client = newClient(null, 100);
+
+        client.newCall(new Request.Builder()
+                .url(mServer.url("/"))
+                .post(RequestBody.create("{}", JSON))
+                .build()).execute().close();
+        client.newCall(new Request.Builder()
+                .url(mServer.url("/"))
+                .post(RequestBody.create(TEXT, MediaType.get("image/png")))
+                .build()).execute().close();
+
+        assertNull(mServer.takeRequest().getHeader("Content-Encoding"));
+        RecordedRequest binary = mServer.takeRequest();
+        assertNull(binary.getHeader("Content-Encoding"));
+        assertEquals(TEXT, binary.getBody().readUtf8());
+        assertEquals(0, mStats.getRequestCount());
+    }
+
+    private OkHttpClient newClient(List<ContentDecoder> decoders, long requestThreshold) {
+        return new OkHttpClient.Builder()
+                .addNetworkInterceptor(new CompressionInterceptor(decoders, requestThreshold, mStats))
+                .build();
+    }
+
+    private static Buffer gzip(String text) throws IOException {
+        Buffer buffer = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(buffer));
+        sink.writeUtf8(text);
+        sink.close();
+        return buffer;
+    }
+
+    private static String gunzip(Source source) throws IOException {
+        return Okio.buffer(new GzipSource(source)).readUtf8();
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 名为 br 的解码器，不做任何转换，只记录是否被使用
+     */
+    private static final class FakeDecoder implements ContentDecoder {
+        final AtomicBoolean used = new AtomicBoolean();
+
+        @NonNull
+        @Override
+        public String encoding() {
+            return "br";
+        }
+
+        @NonNull
+        @Override
+        public Source decode(@NonNull Source source) {
+            used.set(true);
+            return source;
+        }
+    }
+}
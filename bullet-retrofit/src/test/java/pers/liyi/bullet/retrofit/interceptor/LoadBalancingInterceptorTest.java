@@ -0,0 +1,104 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import pers.liyi.bullet.retrofit.route.HostPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LoadBalancingInterceptorTest {
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void allHostsUnreachableFails() throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            urls.add(unreachableUrl());
+        }
+        OkHttpClient client = newClient(urls, HostPool.STRATEGY_POWER_OF_TWO);
+
+        try {
+            client.newCall(new Request.Builder().url(urls.get(0) + "data").build()).execute();
+            fail();
+        } catch (ConnectException expected) {
+            // 每个域名尝试一次后失败
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void leastOutstandingAllHostsUnreachableFails() throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            urls.add(unreachableUrl());
+        }
+        OkHttpClient client = newClient(urls, HostPool.STRATEGY_LEAST_OUTSTANDING);
+
+        try {
+            client.newCall(new Request.Builder().url(urls.get(0) + "data").build()).execute();
+            fail();
+        } catch (ConnectException expected) {
+            // 每个域名尝试一次后失败
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void unreachableHostsAreSkipped() throws Exception {
+        List<String> urls = new ArrayList<>();
+        urls.add(unreachableUrl());
+        urls.add(unreachableUrl());
+        urls.add(mServer.url("/").toString());
+        mServer.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient(urls, HostPool.STRATEGY_POWER_OF_TWO);
+
+        Response response = client.newCall(new Request.Builder().url(urls.get(0) + "data").build()).execute();
+        try {
+            assertEquals("ok", response.body().string());
+        } finally {
+            response.close();
+        }
+        assertEquals("/data", mServer.takeRequest().getPath());
+    }
+
+    private static OkHttpClient newClient(List<String> urls, int strategy) {
+        HostPool pool = new HostPool(urls, strategy, 1, 60000, 10000);
+        return new OkHttpClient.Builder()
+                .addInterceptor(new LoadBalancingInterceptor(pool))
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    /**
+     * 启动后立即关闭的服务器地址，连接时会被拒绝
+     */
+    private static String unreachableUrl() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        String url = server.url("/").toString();
+        server.shutdown();
+        return url;
+    }
+}
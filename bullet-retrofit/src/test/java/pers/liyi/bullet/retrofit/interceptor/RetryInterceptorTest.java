@@ -0,0 +1,160 @@
+package pers.liyi.bullet.retrofit.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import pers.liyi.bullet.retrofit.retry.RetryBudget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryInterceptorTest {
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void retriesTransientErrorsUntilSuccess() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient(2, 10, new RetryBudget(10, 0));
+
+        assertEquals("ok", execute(client, get()));
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void stopsAtMaxRetries() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+        OkHttpClient client = newClient(1, 10, new RetryBudget(10, 0));
+
+        Response response = client.newCall(get()).execute();
+        response.close();
+        assertEquals(503, response.code());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void exhaustedBudgetReturnsFailure() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+        // 只有一个令牌，且不再补充
+        RetryBudget budget = new RetryBudget(1, 0);
+        OkHttpClient client = newClient(3, 10, budget);
+
+        Response response = client.newCall(get()).execute();
+        response.close();
+        assertEquals(503, response.code());
+        // 第一次请求 + 一次重试
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(0, budget.getAvailableTokens());
+
+        // 预算耗尽后其他请求也不再重试
+        response = client.newCall(get()).execute();
+        response.close();
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void nonIdempotentRequestIsNotRetried() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient(2, 10, new RetryBudget(10, 0));
+
+        Request post = new Request.Builder()
+                .url(mServer.url("/data"))
+                .post(RequestBody.create("body", null))
+                .build();
+        Response response = client.newCall(post).execute();
+        response.close();
+        assertEquals(503, response.code());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void idempotencyKeyMakesPostRetryable() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient(2, 10, new RetryBudget(10, 0));
+
+        Request post = new Request.Builder()
+                .url(mServer.url("/data"))
+                .header("Idempotency-Key", "1")
+                .post(RequestBody.create("body", null))
+                .build();
+        assertEquals("ok", execute(client, post));
+        assertEquals(2, mServer.getRequestCount());
+        // 重试时重新发送请求体
+        mServer.takeRequest();
+        assertEquals("body", mServer.takeRequest().getBody().readUtf8());
+    }
+
+    @Test
+    public void backoffGrowsExponentially() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient(2, 200, new RetryBudget(10, 0));
+
+        long start = System.nanoTime();
+        assertEquals("ok", execute(client, get()));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 两次等待分别不少于 100ms 和 200ms（上限的一半），不超过 200ms 和 400ms
+        assertTrue("elapsed " + elapsed, elapsed >= 300);
+        assertTrue("elapsed " + elapsed, elapsed < 2000);
+    }
+
+    @Test
+    public void retryAfterLongerThanMaxDelayIsNotRetried() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "60"));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient(2, 10, new RetryBudget(10, 0));
+
+        Response response = client.newCall(get()).execute();
+        response.close();
+        assertEquals(429, response.code());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    private OkHttpClient newClient(int maxRetries, long baseDelay, RetryBudget budget) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new RetryInterceptor(maxRetries, baseDelay, 1000, budget))
+                .build();
+    }
+
+    private Request get() {
+        return new Request.Builder().url(mServer.url("/data")).build();
+    }
+
+    private static String execute(OkHttpClient client, Request request) throws IOException {
+        Response response = client.newCall(request).execute();
+        try {
+            return response.body().string();
+        } finally {
+            response.close();
+        }
+    }
+}
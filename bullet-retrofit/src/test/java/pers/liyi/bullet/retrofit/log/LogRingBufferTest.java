@@ -0,0 +1,84 @@
+package pers.liyi.bullet.retrofit.log;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void fullBufferDropsAndCounts() {
+        // 容量向上取整为 4
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(3);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+        assertEquals(2, buffer.takeDropped());
+        assertEquals(0, buffer.takeDropped());
+
+        List<Integer> output = new ArrayList<>();
+        assertEquals(4, buffer.drain(output, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3), output);
+    }
+
+    @Test
+    public void drainFreesSlotsInOrder() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(4);
+        List<Integer> output = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.offer(i + 100));
+            // 每次最多读取一个，剩余的留到下一次
+            assertEquals(1, buffer.drain(output, 1));
+            assertEquals(1, buffer.drain(output, 1));
+        }
+        assertEquals(20, output.size());
+        assertEquals(Integer.valueOf(9), output.get(18));
+        assertEquals(Integer.valueOf(109), output.get(19));
+        assertEquals(0, buffer.drain(output, 10));
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingButDrops() throws Exception {
+        final LogRingBuffer<Integer> buffer = new LogRingBuffer<>(64);
+        final int producers = 4;
+        final int perProducer = 10000;
+        final CountDownLatch done = new CountDownLatch(producers);
+        final AtomicInteger accepted = new AtomicInteger();
+        for (int p = 0; p < producers; p++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        if (buffer.offer(i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        int drained = 0;
+        List<Integer> output = new ArrayList<>();
+        while (!done.await(0, TimeUnit.MILLISECONDS)) {
+            drained += buffer.drain(output, 64);
+            output.clear();
+        }
+        drained += buffer.drain(output, Integer.MAX_VALUE);
+
+        // 每条记录要么被读取，要么计入丢弃的数量
+        assertEquals(accepted.get(), drained);
+        assertEquals(producers * perProducer, drained + buffer.takeDropped());
+    }
+}
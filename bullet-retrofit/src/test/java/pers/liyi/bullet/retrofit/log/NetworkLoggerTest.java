@@ -0,0 +1,92 @@
+package pers.liyi.bullet.retrofit.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.Headers;
+import okio.BufferedSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkLoggerTest {
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void sensitiveHeadersAreRedacted() throws IOException {
+        NetworkLogger logger = newLogger(16, 1024 * 1024, 3);
+        logger.log(new NetworkLogEvent(0, "GET", "https://example.com/user",
+                Headers.of("Authorization", "Bearer secret-token", "Accept", "application/json"),
+                null, 200, Headers.of("set-cookie", "session=secret-cookie"), "{}", 12, null));
+
+        String text = read(logger.getLogFile());
+        assertTrue(text, text.contains("GET https://example.com/user -> 200 (12ms)"));
+        assertTrue(text, text.contains("Authorization: <redacted>"));
+        assertTrue(text, text.contains("set-cookie: <redacted>"));
+        assertTrue(text, text.contains("Accept: application/json"));
+        assertFalse(text, text.contains("secret"));
+    }
+
+    @Test
+    public void droppedEventsAreReported() throws IOException {
+        // 有后台写入间隔，但在测试中手动写入
+        NetworkLogger logger = new NetworkLogger(2, NetworkLogger.DEFAULT_REDACT_HEADERS, false,
+                mTemporaryFolder.getRoot(), 1024 * 1024, 1, 60 * 60 * 1000);
+        try {
+            for (int i = 0; i < 5; i++) {
+                logger.log(event("/" + i));
+            }
+            logger.flush();
+        } finally {
+            logger.release();
+        }
+
+        String text = read(logger.getLogFile());
+        assertTrue(text, text.contains(" dropped 3 events"));
+        assertTrue(text, text.contains("https://example.com/1 "));
+        assertFalse(text, text.contains("https://example.com/2 "));
+    }
+
+    @Test
+    public void logFilesAreRotated() {
+        NetworkLogger logger = newLogger(16, 100, 3);
+        for (int i = 0; i < 10; i++) {
+            logger.log(event("/" + i));
+        }
+
+        File dir = mTemporaryFolder.getRoot();
+        assertTrue(new File(dir, "network.log").exists());
+        assertTrue(new File(dir, "network.1.log").exists());
+        assertTrue(new File(dir, "network.2.log").exists());
+        // 超过数量上限的文件被删除
+        assertFalse(new File(dir, "network.3.log").exists());
+    }
+
+    /**
+     * 不创建后台写入任务，每次记录后立即写入文件
+     */
+    private NetworkLogger newLogger(int bufferSize, long maxFileSize, int maxFiles) {
+        return new NetworkLogger(bufferSize, NetworkLogger.DEFAULT_REDACT_HEADERS, false,
+                mTemporaryFolder.getRoot(), maxFileSize, maxFiles, 0);
+    }
+
+    private static NetworkLogEvent event(String path) {
+        return new NetworkLogEvent(0, "GET", "https://example.com" + path, Headers.of(),
+                null, 200, Headers.of(), null, 1, null);
+    }
+
+    private static String read(File file) throws IOException {
+        BufferedSource source = Okio.buffer(Okio.source(file));
+        try {
+            return source.readUtf8();
+        } finally {
+            source.close();
+        }
+    }
+}
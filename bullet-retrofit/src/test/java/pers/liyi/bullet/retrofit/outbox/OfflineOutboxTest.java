@@ -0,0 +1,174 @@
+package pers.liyi.bullet.retrofit.outbox;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.CacheControl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
+import pers.liyi.bullet.retrofit.connectivity.ConnectivityMonitor;
+import pers.liyi.bullet.retrofit.connectivity.FakeConnectivitySource;
+import pers.liyi.bullet.retrofit.exception.ApiError;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OfflineOutboxTest {
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    // 发往 /stuck 的请求次数，该请求总是返回 503
+    private final AtomicInteger mStuckAttempts = new AtomicInteger();
+    private final List<String> mSucceeded = new CopyOnWriteArrayList<>();
+    private final List<String> mFailed = new CopyOnWriteArrayList<>();
+
+    @BeforeClass
+    public static void setUpClass() {
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(new Function<Callable<Scheduler>, Scheduler>() {
+            @Override
+            public Scheduler apply(Callable<Scheduler> scheduler) {
+                return Schedulers.trampoline();
+            }
+        });
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/stuck".equals(request.getPath())) {
+                    mStuckAttempts.incrementAndGet();
+                    return new MockResponse().setResponseCode(503);
+                }
+                return new MockResponse().setBody("ok");
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void cacheHeadersAreNotSaved() throws IOException {
+        Request request = post("/items").newBuilder()
+                .cacheControl(new CacheControl.Builder().onlyIfCached().build())
+                .header("Pragma", "no-cache")
+                .header("X-Trace", "1")
+                .build();
+
+        Request replayed = OutboxEntry.from(request, "key", 1024).toRequest();
+
+        assertNull(replayed.header("Cache-Control"));
+        assertNull(replayed.header("Pragma"));
+        assertEquals("1", replayed.header("X-Trace"));
+        assertEquals("POST", replayed.method());
+    }
+
+    @Test
+    public void credentialHeadersAreNotSaved() throws IOException {
+        Request request = post("/items").newBuilder()
+                .header("Authorization", "Bearer secret")
+                .header("Proxy-Authorization", "Basic secret")
+                .header("Cookie", "session=secret")
+                .header("X-Trace", "1")
+                .build();
+
+        Request replayed = OutboxEntry.from(request, "key", 1024).toRequest();
+
+        assertNull(replayed.header("Authorization"));
+        assertNull(replayed.header("Proxy-Authorization"));
+        assertNull(replayed.header("Cookie"));
+        assertEquals("1", replayed.header("X-Trace"));
+    }
+
+    @Test
+    public void bodyOfUnknownLengthIsNotSaved() throws IOException {
+        final AtomicInteger writes = new AtomicInteger();
+        // 流式的请求体，长度未知
+        RequestBody body = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                writes.incrementAndGet();
+                sink.writeUtf8("{}");
+            }
+        };
+        Request request = new Request.Builder().url(mServer.url("/items")).post(body).build();
+
+        assertNull(OutboxEntry.from(request, "key", 1024));
+        // 不会为了判断长度而读取整个请求体
+        assertEquals(0, writes.get());
+    }
+
+    @Test
+    public void repeatedlyFailingEntryDoesNotBlockTheQueue() throws Exception {
+        OfflineOutbox outbox = new OfflineOutbox(mTemporaryFolder.newFolder(), 1, 1024, 2);
+        outbox.setListener(new ApiResponseListener<OutboxResult>() {
+            @Override
+            public void onSuccess(String tag, OutboxResult data) {
+                mSucceeded.add(tag);
+            }
+
+            @Override
+            public void onError(String tag, ApiError error) {
+                mFailed.add(tag);
+            }
+        });
+        outbox.enqueue(post("/stuck"), "stuck");
+        outbox.enqueue(post("/next"), "next");
+
+        outbox.start(new OkHttpClient(), new ConnectivityMonitor(new FakeConnectivitySource(true)));
+        // 每一轮遇到暂时性失败都会停止，重复触发直到发件箱清空
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outbox.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            outbox.replay();
+        }
+        outbox.release();
+
+        assertEquals(0, outbox.getPendingCount());
+        assertEquals(2, mStuckAttempts.get());
+        assertEquals("[stuck]", mFailed.toString());
+        assertEquals("[next]", mSucceeded.toString());
+    }
+
+    private Request post(String path) {
+        return new Request.Builder()
+                .url(mServer.url(path))
+                .post(RequestBody.create("{}", JSON))
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package pers.liyi.bullet.retrofit.pipeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Function3;
+import io.reactivex.observers.TestObserver;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.HttpException;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ApiPipelineTest {
+    private MockWebServer mServer;
+    private Api mApi;
+
+    interface Api {
+        @GET("login")
+        Observable<String> login();
+
+        @GET("user")
+        Observable<String> user(@Header("Authorization") String token);
+
+        @GET("item/{id}")
+        Observable<String> item(@Path("id") int id);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        mServer.start();
+        mApi = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(ScalarsConverterFactory.create())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build()
+                .create(Api.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void thenUsesPreviousResult() throws Exception {
+        final List<String> saved = new ArrayList<>();
+        TestObserver<String> observer = ApiPipeline.start(mApi.login())
+                .doOnNext(new Consumer<String>() {
+                    @Override
+                    public void accept(String token) {
+                        saved.add(token);
+                    }
+                })
+                .then(new Function<String, ObservableSource<String>>() {
+                    @Override
+                    public ObservableSource<String> apply(String token) {
+                        return mApi.user(token);
+                    }
+                })
+                .map(new Function<String, String>() {
+                    @Override
+                    public String apply(String user) {
+                        return user.toUpperCase();
+                    }
+                })
+                .toObservable()
+                .test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertResult("USER OF TOKEN");
+        assertEquals(Arrays.asList("token"), saved);
+        assertEquals("/login", mServer.takeRequest().getPath());
+        assertEquals("token", mServer.takeRequest().getHeader("Authorization"));
+    }
+
+    @Test
+    public void failedStepSkipsTheRest() {
+        TestObserver<String> observer = ApiPipeline.start(mApi.item(500))
+                .then(new Function<String, ObservableSource<String>>() {
+                    @Override
+                    public ObservableSource<String> apply(String item) {
+                        return mApi.item(1);
+                    }
+                })
+                .toObservable()
+                .test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertError(HttpException.class);
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void zipRunsRequestsConcurrently() {
+        long start = System.nanoTime();
+        TestObserver<String> observer = ApiPipeline.zip(mApi.item(1), mApi.item(2), mApi.item(3),
+                new Function3<String, String, String, String>() {
+                    @Override
+                    public String apply(String a, String b, String c) {
+                        return a + b + c;
+                    }
+                })
+                .toObservable()
+                .test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        observer.assertResult("item1item2item3");
+        // 每个请求延迟 500ms，依次执行需要 1500ms
+        assertTrue("elapsed " + elapsed, elapsed < 1200);
+    }
+
+    @Test
+    public void zipListKeepsRequestOrder() {
+        TestObserver<List<String>> observer = ApiPipeline.zip(Arrays.asList(mApi.item(3), mApi.item(1), mApi.item(2)))
+                .toObservable()
+                .test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertResult(Arrays.asList("item3", "item1", "item2"));
+    }
+
+    @Test
+    public void zipEmptyListCompletesWithEmptyList() {
+        ApiPipeline.zip(new ArrayList<Observable<String>>())
+                .toObservable()
+                .test()
+                .assertResult(new ArrayList<String>());
+    }
+
+    @Test
+    public void zipFailsWhenAnyRequestFails() {
+        TestObserver<String> observer = ApiPipeline.zip(mApi.item(1), mApi.item(500),
+                new BiFunction<String, String, String>() {
+                    @Override
+                    public String apply(String a, String b) {
+                        return a + b;
+                    }
+                })
+                .toObservable()
+                .test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertError(HttpException.class);
+    }
+
+    private static MockResponse respond(RecordedRequest request) {
+        String path = request.getPath();
+        if (path.equals("/login")) {
+            return new MockResponse().setBody("token");
+        }
+        if (path.equals("/user")) {
+            return new MockResponse().setBody("user of " + request.getHeader("Authorization"));
+        }
+        String id = path.substring("/item/".length());
+        if (id.equals("500")) {
+            return new MockResponse().setResponseCode(500);
+        }
+        return new MockResponse().setBody("item" + id).setBodyDelay(500, TimeUnit.MILLISECONDS);
+    }
+}
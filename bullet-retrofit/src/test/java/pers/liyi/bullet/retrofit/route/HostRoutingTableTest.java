@@ -0,0 +1,99 @@
+package pers.liyi.bullet.retrofit.route;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HostRoutingTableTest {
+    private static final HttpUrl PRIMARY = HttpUrl.get("https://pay.example.com/");
+    private static final HttpUrl BACKUP = HttpUrl.get("https://pay-backup.example.com/");
+    private static final HttpUrl LAST = HttpUrl.get("https://pay-last.example.com/");
+
+    @Test
+    public void compileParsesEveryHostOnce() {
+        Map<String, String> hostMap = new HashMap<>();
+        hostMap.put("user", "https://user.example.com/");
+        hostMap.put("feed", "http://feed.example.com:8080/");
+        HostRoutingTable table = HostRoutingTable.compile(hostMap);
+
+        assertEquals(2, table.keys().size());
+        assertEquals(HttpUrl.get("http://feed.example.com:8080/"), table.get("feed").select());
+        assertNull(table.get("unknown"));
+        assertTrue(HostRoutingTable.compile(null).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedUrlFailsAtBuildTime() {
+        new HostRoutingTable.Builder().host("user", "not a url").build();
+    }
+
+    @Test
+    public void failoverPrefersFirstAvailableHost() {
+        HostGroup group = new HostRoutingTable.Builder()
+                .failover("pay", PRIMARY.toString(), BACKUP.toString(), LAST.toString())
+                .build()
+                .get("pay");
+        assertEquals(PRIMARY, group.select());
+
+        group.markDown(PRIMARY);
+        assertEquals(BACKUP, group.select());
+        group.markDown(BACKUP);
+        assertEquals(LAST, group.select());
+
+        // 恢复后重新优先使用排在前面的域名
+        group.markUp(PRIMARY);
+        assertEquals(PRIMARY, group.select());
+    }
+
+    @Test
+    public void allHostsDownFallsBackToFirst() {
+        HostGroup group = new HostRoutingTable.Builder()
+                .failover("pay", PRIMARY.toString(), BACKUP.toString())
+                .build()
+                .get("pay");
+        group.markDown(PRIMARY);
+        group.markDown(BACKUP);
+
+        assertEquals(PRIMARY, group.select());
+    }
+
+    @Test
+    public void selectOtherSkipsExcludedAndDownHosts() {
+        HostGroup group = new HostRoutingTable.Builder()
+                .failover("pay", PRIMARY.toString(), BACKUP.toString(), LAST.toString())
+                .build()
+                .get("pay");
+
+        assertEquals(BACKUP, group.selectOther(PRIMARY));
+        group.markDown(BACKUP);
+        assertEquals(LAST, group.selectOther(PRIMARY));
+        group.markDown(LAST);
+        assertNull(group.selectOther(PRIMARY));
+    }
+
+    @Test
+    public void weightedSelectionSkipsDownHosts() {
+        HostGroup group = new HostRoutingTable.Builder()
+                .weighted("feed", new String[]{PRIMARY.toString(), BACKUP.toString()}, new int[]{1, 1000})
+                .build()
+                .get("feed");
+        group.markDown(BACKUP);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(PRIMARY, group.select());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weightsMustBePositive() {
+        new HostRoutingTable.Builder()
+                .weighted("feed", new String[]{PRIMARY.toString(), BACKUP.toString()}, new int[]{1, 0});
+    }
+}
@@ -0,0 +1,184 @@
+package pers.liyi.bullet.retrofit.scheduler;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import pers.liyi.bullet.retrofit.constant.RequestPriority;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityDispatcherTest {
+    // 所有任务都阻塞在这里，直到测试放行
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final List<CountDownLatch> mFinished = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+    }
+
+    @Test
+    public void laneLimitQueuesExtraTasks() throws Exception {
+        PriorityDispatcher dispatcher = new PriorityDispatcher(4, 2, 1, 10);
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            schedule(dispatcher.scheduler(RequestPriority.NORMAL, "host" + i), started);
+        }
+
+        awaitCount(started, 2);
+        Thread.sleep(200);
+        assertEquals(2, started.get());
+        assertEquals(2, dispatcher.getRunningCount());
+        assertEquals(3, dispatcher.getQueuedCount());
+
+        mRelease.countDown();
+        awaitFinished();
+        assertEquals(5, started.get());
+        // 任务结束后才从计数中移除
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getRunningCount() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void perHostLimitLetsOtherHostsRun() throws Exception {
+        PriorityDispatcher dispatcher = new PriorityDispatcher(4, 4, 1, 1);
+        AtomicInteger started = new AtomicInteger();
+        schedule(dispatcher.scheduler(RequestPriority.NORMAL, "a"), started);
+        schedule(dispatcher.scheduler(RequestPriority.NORMAL, "a"), started);
+        schedule(dispatcher.scheduler(RequestPriority.NORMAL, "b"), started);
+
+        // 第二个 a 在队列中等待，不影响后面的 b
+        awaitCount(started, 2);
+        Thread.sleep(200);
+        assertEquals(2, dispatcher.getRunningCount());
+        assertEquals(1, dispatcher.getQueuedCount());
+
+        mRelease.countDown();
+        awaitFinished();
+        assertEquals(3, started.get());
+    }
+
+    @Test
+    public void resolvingTasksCountAgainstLaneLimit() throws Exception {
+        PriorityDispatcher dispatcher = new PriorityDispatcher(4, 2, 1, 10);
+        final AtomicInteger resolving = new AtomicInteger();
+        final AtomicInteger maxResolving = new AtomicInteger();
+        final CountDownLatch releaseResolvers = new CountDownLatch(1);
+        PriorityDispatcher.HostResolver resolver = new PriorityDispatcher.HostResolver() {
+            @Override
+            public String resolveHost() {
+                int count = resolving.incrementAndGet();
+                synchronized (maxResolving) {
+                    maxResolving.set(Math.max(maxResolving.get(), count));
+                }
+                try {
+                    releaseResolvers.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+                resolving.decrementAndGet();
+                return null;
+            }
+        };
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            schedule(dispatcher.scheduler(RequestPriority.NORMAL, resolver), started);
+        }
+
+        awaitCount(resolving, 2);
+        Thread.sleep(200);
+        // 解析域名的任务同样受通道并发数的限制
+        assertEquals(2, resolving.get());
+        assertEquals(3, dispatcher.getQueuedCount());
+
+        releaseResolvers.countDown();
+        mRelease.countDown();
+        awaitFinished();
+        assertEquals(5, started.get());
+        assertEquals(2, maxResolving.get());
+    }
+
+    @Test
+    public void resolvedHostIsLimitedPerHost() throws Exception {
+        PriorityDispatcher dispatcher = new PriorityDispatcher(4, 4, 1, 1);
+        PriorityDispatcher.HostResolver resolver = new PriorityDispatcher.HostResolver() {
+            @Override
+            public String resolveHost() {
+                return "a";
+            }
+        };
+        AtomicInteger started = new AtomicInteger();
+        schedule(dispatcher.scheduler(RequestPriority.NORMAL, resolver), started);
+        schedule(dispatcher.scheduler(RequestPriority.NORMAL, resolver), started);
+
+        awaitCount(started, 1);
+        Thread.sleep(200);
+        assertEquals(1, started.get());
+        assertEquals(1, dispatcher.getQueuedCount());
+
+        mRelease.countDown();
+        awaitFinished();
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    public void backgroundWaitsForUserBlocking() throws Exception {
+        PriorityDispatcher dispatcher = new PriorityDispatcher(4, 4, 4, 10);
+        AtomicInteger userBlocking = new AtomicInteger();
+        AtomicInteger background = new AtomicInteger();
+        schedule(dispatcher.scheduler(RequestPriority.USER_BLOCKING, "a"), userBlocking);
+        schedule(dispatcher.scheduler(RequestPriority.BACKGROUND, "b"), background);
+
+        awaitCount(userBlocking, 1);
+        Thread.sleep(200);
+        assertEquals(0, background.get());
+
+        mRelease.countDown();
+        awaitFinished();
+        assertEquals(1, background.get());
+    }
+
+    /**
+     * 提交一个任务，开始执行时计数，然后阻塞到测试放行
+     */
+    private void schedule(Scheduler scheduler, final AtomicInteger started) {
+        final CountDownLatch finished = new CountDownLatch(1);
+        mFinished.add(finished);
+        scheduler.scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                started.incrementAndGet();
+                try {
+                    mRelease.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                } finally {
+                    finished.countDown();
+                }
+            }
+        });
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        for (CountDownLatch finished : mFinished) {
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count.get() < expected) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
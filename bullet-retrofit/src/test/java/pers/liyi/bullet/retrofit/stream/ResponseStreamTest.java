@@ -0,0 +1,153 @@
+package pers.liyi.bullet.retrofit.stream;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.BufferedSource;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseStreamTest {
+    private MockWebServer mServer;
+    private Api mApi;
+    // 取消订阅后仍被抛出的异常
+    private final List<Throwable> mUndeliverable = new CopyOnWriteArrayList<>();
+
+    interface Api {
+        @Streaming
+        @GET("stream")
+        Call<ResponseBody> stream();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mApi = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .build()
+                .create(Api.class);
+        RxJavaPlugins.setErrorHandler(new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable e) {
+                mUndeliverable.add(e);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RxJavaPlugins.setErrorHandler(null);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void readsOneRecordPerRequest() {
+        mServer.enqueue(new MockResponse().setBody("1\n2\n3\n"));
+        CountingParser parser = new CountingParser(new NdjsonParser<>(new Gson(), Integer.class));
+
+        TestSubscriber<Integer> subscriber = ResponseStream.flowable(mApi.stream(), parser).test(0);
+
+        subscriber.assertNoValues();
+        assertEquals(0, parser.count.get());
+        subscriber.request(1);
+        subscriber.assertValues(1);
+        assertEquals(1, parser.count.get());
+        subscriber.request(1);
+        subscriber.assertValues(1, 2);
+        assertEquals(2, parser.count.get());
+        subscriber.request(2);
+        subscriber.assertValues(1, 2, 3);
+        subscriber.assertComplete();
+    }
+
+    @Test
+    public void cancelWhileReadingStopsTheRequest() throws Exception {
+        // 第一条记录之后的数据非常慢，下游取消时读取线程阻塞在响应体上
+        mServer.enqueue(new MockResponse()
+                .setBody("1\n" + repeat("2\n", 64))
+                .throttleBody(2, 1, TimeUnit.SECONDS));
+
+        TestSubscriber<Integer> subscriber = ResponseStream.flowable(mApi.stream(), new NdjsonParser<>(new Gson(), Integer.class))
+                .subscribeOn(Schedulers.io())
+                .test(2);
+        subscriber.awaitCount(1);
+        subscriber.assertValues(1);
+        subscriber.cancel();
+
+        Thread.sleep(500);
+        subscriber.assertValues(1);
+        subscriber.assertNoErrors();
+        subscriber.assertNotComplete();
+        assertTrue(mUndeliverable.isEmpty());
+    }
+
+    @Test
+    public void eachSubscriptionUsesItsOwnSseParser() {
+        mServer.enqueue(new MockResponse().setBody("id: 7\ndata: a\n\n"));
+        mServer.enqueue(new MockResponse().setBody("data: b\n\n"));
+        Flowable<SseEvent> events = ResponseStream.flowable(mApi.stream(), new SseParser());
+
+        assertEquals("7", events.blockingFirst().getId());
+        // 第二次订阅不应沿用第一次订阅的事件 id
+        SseEvent second = events.blockingFirst();
+        assertEquals("b", second.getData());
+        assertNull(second.getId());
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 记录读取次数的解析器
+     */
+    private static final class CountingParser implements StreamParser<Integer> {
+        final AtomicInteger count = new AtomicInteger();
+        private final StreamParser<Integer> mDelegate;
+
+        CountingParser(StreamParser<Integer> delegate) {
+            this.mDelegate = delegate;
+        }
+
+        @NonNull
+        @Override
+        public StreamParser<Integer> newParser() {
+            return this;
+        }
+
+        @Override
+        public Integer next(@NonNull BufferedSource source) throws IOException {
+            count.incrementAndGet();
+            return mDelegate.next(source);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package pers.liyi.bullet.retrofit.stream;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class SseParserTest {
+
+    @Test
+    public void multiLineDataIsJoined() throws IOException {
+        Buffer source = new Buffer().writeUtf8("event: update\ndata: first\ndata:second\n\n");
+
+        SseEvent event = new SseParser().next(source);
+
+        assertEquals("update", event.getEvent());
+        assertEquals("first\nsecond", event.getData());
+        assertNull(new SseParser().next(source));
+    }
+
+    @Test
+    public void idIsCarriedOver() throws IOException {
+        Buffer source = new Buffer().writeUtf8("id: 1\ndata: a\n\ndata: b\n\nid: 2\ndata: c\n\n");
+        SseParser parser = new SseParser();
+
+        assertEquals("1", parser.next(source).getId());
+        // 没有 id 的事件沿用上一次的 id
+        SseEvent second = parser.next(source);
+        assertEquals("1", second.getId());
+        assertEquals("message", second.getEvent());
+        assertEquals("2", parser.next(source).getId());
+        assertNull(parser.next(source));
+    }
+
+    @Test
+    public void commentsAndEmptyEventsAreSkipped() throws IOException {
+        Buffer source = new Buffer().writeUtf8(": keep-alive\n\nevent: ping\n\ndata: payload\n\ndata: incomplete");
+        SseParser parser = new SseParser();
+
+        SseEvent event = parser.next(source);
+        // 没有数据的事件被丢弃，其事件类型不影响下一个事件
+        assertEquals("message", event.getEvent());
+        assertEquals("payload", event.getData());
+        // 流结束时丢弃不完整的事件
+        assertNull(parser.next(source));
+    }
+
+    @Test
+    public void newParserDoesNotShareLastId() throws IOException {
+        SseParser parser = new SseParser();
+        parser.next(new Buffer().writeUtf8("id: 1\ndata: a\n\n"));
+
+        StreamParser<SseEvent> other = parser.newParser();
+
+        assertNotSame(parser, other);
+        assertNull(other.next(new Buffer().writeUtf8("data: b\n\n")).getId());
+    }
+}
@@ -0,0 +1,203 @@
+package pers.liyi.bullet.retrofit.upload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
+import pers.liyi.bullet.retrofit.exception.ApiError;
+import pers.liyi.bullet.retrofit.listener.ApiResponseListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UploadManagerTest {
+    // 3 个分块，最后一个分块不满
+    private static final int CHUNK_SIZE = 1024;
+    private static final int SIZE = 2500;
+    private static final ByteString DATA;
+
+    static {
+        byte[] bytes = new byte[SIZE];
+        new Random(3).nextBytes(bytes);
+        DATA = ByteString.of(bytes);
+    }
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private UploadManager mManager;
+    private File mFile;
+    // 第二个分块需要返回的错误码，0 表示正常确认
+    private final AtomicInteger mSecondChunkError = new AtomicInteger();
+    // 创建会话的请求数
+    private final AtomicInteger mCreateRequests = new AtomicInteger();
+    // 服务器收到的分块，按 Content-Range 的起始位置写入
+    private final Buffer[] mReceived = new Buffer[3];
+    private final List<String> mRanges = new CopyOnWriteArrayList<>();
+    private final List<Throwable> mUndeliverable = new CopyOnWriteArrayList<>();
+
+    @BeforeClass
+    public static void setUpClass() {
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(new Function<Callable<Scheduler>, Scheduler>() {
+            @Override
+            public Scheduler apply(Callable<Scheduler> scheduler) {
+                return Schedulers.trampoline();
+            }
+        });
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        RxJavaPlugins.setErrorHandler(new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable) {
+                mUndeliverable.add(throwable);
+            }
+        });
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        mServer.start();
+        mFile = mTemporaryFolder.newFile("file.bin");
+        Okio.buffer(Okio.sink(mFile)).write(DATA).close();
+        mManager = new UploadManager(new OkHttpClient(), mTemporaryFolder.newFolder("sessions"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RxJavaPlugins.setErrorHandler(null);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void failedChunkIsRetriedAlone() throws Exception {
+        mSecondChunkError.set(503);
+
+        Result result = upload();
+
+        assertNull(result.error);
+        assertEquals("done", result.data);
+        // 只有第二个分块被重试
+        assertEquals(4, mRanges.size());
+        assertEquals("bytes 1024-2047/2500", mRanges.get(1));
+        assertEquals("bytes 1024-2047/2500", mRanges.get(2));
+        assertEquals(DATA, received());
+        assertEquals(0, mManager.getUploadedLength("file"));
+    }
+
+    @Test
+    public void resumesFromLastAcknowledgedChunk() throws Exception {
+        // 不可重试的错误，上传失败后保留会话
+        mSecondChunkError.set(400);
+        assertNotNull(upload().error);
+        assertEquals(CHUNK_SIZE, mManager.getUploadedLength("file"));
+
+        mRanges.clear();
+        Result result = upload();
+
+        assertNull(result.error);
+        assertEquals("done", result.data);
+        // 不再创建会话，也不再上传第一个分块
+        assertEquals(1, mCreateRequests.get());
+        assertEquals(2, mRanges.size());
+        assertEquals("bytes 1024-2047/2500", mRanges.get(0));
+        assertEquals(DATA, received());
+        assertEquals(0, mUndeliverable.size());
+    }
+
+    private synchronized MockResponse respond(RecordedRequest request) {
+        if ("POST".equals(request.getMethod())) {
+            mCreateRequests.incrementAndGet();
+            return new MockResponse().setHeader("Location", "/upload/1");
+        }
+        String range = request.getHeader("Content-Range");
+        mRanges.add(range);
+        // 格式为 bytes start-end/total
+        int start = Integer.parseInt(range.substring("bytes ".length(), range.indexOf('-')));
+        int index = start / CHUNK_SIZE;
+        if (index == 1) {
+            int code = mSecondChunkError.getAndSet(0);
+            if (code != 0) {
+                return new MockResponse().setResponseCode(code);
+            }
+        }
+        mReceived[index] = request.getBody();
+        return index == mReceived.length - 1
+                ? new MockResponse().setBody("done")
+                : new MockResponse().setResponseCode(308);
+    }
+
+    private ByteString received() {
+        Buffer buffer = new Buffer();
+        for (Buffer chunk : mReceived) {
+            buffer.write(chunk.snapshot());
+        }
+        return buffer.readByteString();
+    }
+
+    /**
+     * 上传并等待结束
+     */
+    private Result upload() throws InterruptedException {
+        final Result result = new Result();
+        final CountDownLatch latch = new CountDownLatch(1);
+        mManager.start("file", mFile, null, new ContentRangeUploadProtocol(mServer.url("/create").toString(), null),
+                CHUNK_SIZE, null, new ApiResponseListener<String>() {
+                    @Override
+                    public void onSuccess(String tag, String data) {
+                        result.data = data;
+                    }
+
+                    @Override
+                    public void onError(String tag, ApiError e) {
+                        result.error = e;
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onComplete(String tag) {
+                        latch.countDown();
+                    }
+                });
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static final class Result {
+        volatile String data;
+        volatile ApiError error;
+    }
+}